@@ -39,6 +39,12 @@ import org.kawanfw.file.api.client.RemoteOutputStream;
  * <li>Timeout value, in milliseconds, to be used when opening a communications link with the remote server. Defaults to 0 (no timeout).</li>
  * <li>Read timeout, in milliseconds, that specifies the timeout when reading from remote Input stream. Defaults to 0 (no timeout).</li>
  * <li>Password to use for encrypting all request parameters between client and remote host.</li>
+ * <li>Boolean to say if the uploaded and downloaded file bodies must also be
+ * encrypted with AES-GCM using the encryption password. Defaults to
+ * <code>false</code>.</li>
+ * <li>Time to live, in milliseconds, of the {@code RemoteFile} metadata
+ * cached by the session (exists, isDirectory, length, lastModified, ...).
+ * Defaults to 0 (no cache).</li>
  * <li>Boolean to say if Clob upload/download using character stream or ASCII
  * stream must be html encoded. Defaults to <code>true</code>.</li
  * <li>Boolean to say if http content must be compressed. Defaults to <code>true</code>.</li>
@@ -137,9 +143,18 @@ public class SessionParameters implements Serializable {
     /** the HttpUrlConnection read timeout. Defaults to 0. */
     private int readTimeout = 0;
     
+    /** Says if the file bodies are encrypted with AES-GCM */
+    private boolean bodyEncryptionOn = false;
+
     /** Says if we send an "Accept-Encoding" "gzip" to server */
     private boolean compressionOn = DefaultParms.DEFAULT_COMPRESSION_ON;
     
+    /** The RemoteFile metadata time to live in the cache. 0 means no cache */
+    private long metadataCacheTtlMillis = DefaultParms.DEFAULT_METADATA_CACHE_TTL_MILLIS;
+    
+    /** The maximum number of pathnames in the RemoteFile metadata cache */
+    private int metadataCacheMaxEntries = DefaultParms.DEFAULT_METADATA_CACHE_MAX_ENTRIES;
+    
     /**
      * Constructor.
      */
@@ -362,6 +377,96 @@ public class SessionParameters implements Serializable {
         this.compressionOn = compressionOn;
     }
 
+    /**
+     * Says if the uploaded and downloaded file bodies are encrypted with
+     * AES-GCM using the encryption password.
+     * 
+     * @return {@code true} if the file bodies are encrypted
+     * @since 3.2
+     */
+    public boolean isBodyEncryptionOn() {
+        return bodyEncryptionOn;
+    }
+
+    /**
+     * Says if the uploaded and downloaded file bodies must be encrypted with
+     * AES-GCM using the encryption password set with
+     * {@link #setEncryptionPassword(char[])}. <br>
+     * Each chunk is encrypted and verified independently. Requires Java 8 or
+     * higher on the client and server side, and the same encryption password
+     * on both sides.
+     * 
+     * @param bodyEncryptionOn
+     *            {@code true} to encrypt the file bodies, else {@code false}
+     * @since 3.2
+     */
+    public void setBodyEncryptionOn(boolean bodyEncryptionOn) {
+        this.bodyEncryptionOn = bodyEncryptionOn;
+    }
+
+    /**
+     * Returns the time to live, in milliseconds, of the {@code RemoteFile}
+     * metadata cached by the session.
+     * 
+     * @return the time to live of the cached metadata, 0 if there is no cache
+     * @since 3.2
+     */
+    public long getMetadataCacheTtlMillis() {
+        return metadataCacheTtlMillis;
+    }
+
+    /**
+     * Sets the time to live, in milliseconds, of the {@code RemoteFile}
+     * metadata cached by the session. <br>
+     * When set, the results of {@code exists()}, {@code isDirectory()},
+     * {@code isFile()}, {@code isHidden()}, {@code length()},
+     * {@code lastModified()}, {@code canRead()}, {@code canWrite()} and
+     * {@code canExecute()} are reused during this time instead of calling the
+     * server again. They are invalidated by the {@code RemoteFile} methods
+     * that modify the file system and by the uploads done with the same
+     * session, but not by modifications done by other sessions or on the
+     * server side.
+     * 
+     * @param metadataCacheTtlMillis
+     *            the time to live of the cached metadata, 0 for no cache
+     * @since 3.2
+     */
+    public void setMetadataCacheTtlMillis(long metadataCacheTtlMillis) {
+	if (metadataCacheTtlMillis < 0) {
+	    throw new IllegalArgumentException(
+		    "metadataCacheTtlMillis must be >= 0.");
+	}
+        this.metadataCacheTtlMillis = metadataCacheTtlMillis;
+    }
+
+    /**
+     * Returns the maximum number of pathnames in the {@code RemoteFile}
+     * metadata cache.
+     * 
+     * @return the maximum number of cached pathnames
+     * @since 3.2
+     */
+    public int getMetadataCacheMaxEntries() {
+        return metadataCacheMaxEntries;
+    }
+
+    /**
+     * Sets the maximum number of pathnames in the {@code RemoteFile} metadata
+     * cache. The least recently used pathnames are evicted first. Defaults to
+     * 10000.
+     * 
+     * @param metadataCacheMaxEntries
+     *            the maximum number of cached pathnames
+     * @since 3.2
+     */
+    public void setMetadataCacheMaxEntries(int metadataCacheMaxEntries) {
+	if (metadataCacheMaxEntries < 1) {
+	    throw new IllegalArgumentException(
+		    "metadataCacheMaxEntries must be > 0.");
+	}
+        this.metadataCacheMaxEntries = metadataCacheMaxEntries;
+    }
+
     /**
      * Returns a JSon representation of the <code>SessionParameters</code>
      * instance. <br>
@@ -124,6 +124,22 @@ public interface CommonsConfigurator {
      *             if a SQLException occurs
      */
     public List<String> getIPsWhitelist() throws IOException, SQLException;    
+
+    /**
+     * Allows to define how long the values returned by
+     * {@link #getBannedUsernames()}, {@link #getIPsWhitelist()} and
+     * {@link #getIPsBlacklist()} are kept in memory by the server side before
+     * being reloaded.
+     * <p>
+     * When the delay is expired, the lists are reloaded in background while
+     * the previous values are still used. If the reload fails, the previous
+     * values stay in use until the next reload.
+     * 
+     * @return the delay in seconds between two reloads of the access lists.
+     *         0 means no cache: the lists are read at each login.
+     * @since 3.2
+     */
+    public int getAccessListsRefreshSeconds();
     
     /**
      * Allows to authenticate the remote {@code (usernname, password)} couple sent by the
@@ -44,6 +44,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.sql.DataSource;
 
 import org.apache.commons.lang3.StringUtils;
+import org.kawanfw.commons.api.server.util.HmacSha256;
 import org.kawanfw.commons.api.server.util.HttpServletRequestStore;
 import org.kawanfw.commons.api.server.util.ServerInfo;
 import org.kawanfw.commons.api.server.util.Sha1;
@@ -92,6 +93,9 @@ public class DefaultCommonsConfigurator implements
     /** Cache the addSecretForAuthToken() value */
     private String secretForAuthAdded = null;
 
+    /** The precomputed HMAC key of the last secret in use */
+    private volatile HmacKey hmacKey = null;
+
     /**
      * Default Constructor.
      */
@@ -135,6 +139,14 @@ public class DefaultCommonsConfigurator implements
 	return new ArrayList<String>(); // Empty ArrayList
     }
 
+    /**
+     * @return <code>60</code>. (Access lists are reloaded every minute.)
+     */
+    @Override
+    public int getAccessListsRefreshSeconds() {
+	return 60;
+    }
+
     /**
      * @return <code>true</code>. (Client is always granted access).
      */
@@ -377,6 +389,68 @@ public class DefaultCommonsConfigurator implements
 	return token;
     }
 
+    /**
+     * An optional HMAC algorithm to use for computing token. <br>
+     * The HMAC key is derived once from the secret and reused by this
+     * configurator instance, so the cost per call is a single HMAC-SHA256 with
+     * no key setup. <br>
+     * To use it, override {@link #computeAuthToken(String)}: <blockquote>
+     * 
+     * <pre>
+     * public String computeAuthToken(String username) throws Exception {
+     *     return hmacComputeAuthToken(username, addSecretForAuthToken());
+     * }
+     * </pre>
+     * 
+     * </blockquote>
+     * 
+     * @param username
+     *            the client side username
+     * @param secretForAuthToken
+     *            the secret to use as HMAC key. Must not be null or empty.
+     * @return <code>HMAC-SHA256(secretForAuthToken, username)</code> first 20
+     *         hexadecimal characters.
+     * 
+     * @throws Exception
+     *             if any Exception occurs
+     * @since 3.2
+     */
+    public String hmacComputeAuthToken(String username,
+	    String secretForAuthToken) throws Exception {
+
+	if (secretForAuthToken == null || secretForAuthToken.isEmpty()) {
+	    throw new IllegalArgumentException(Tag.PRODUCT_USER_CONFIG_FAIL
+		    + " addSecretForAuthToken() must return a value to use HMAC tokens.");
+	}
+
+	// The key is precomputed once per secret value
+	HmacKey currentHmacKey = hmacKey;
+	if (currentHmacKey == null
+		|| !currentHmacKey.secret.equals(secretForAuthToken)) {
+	    currentHmacKey = new HmacKey(secretForAuthToken);
+	    hmacKey = currentHmacKey;
+	}
+
+	String token = currentHmacKey.hmacSha256.getHexHmac(username
+		.getBytes("UTF-8"));
+	token = StringUtils.left(token, 20);
+
+	return token;
+    }
+
+    /**
+     * A secret and its precomputed HMAC key.
+     */
+    private static class HmacKey {
+	private final String secret;
+	private final HmacSha256 hmacSha256;
+
+	public HmacKey(String secret) throws Exception {
+	    this.secret = secret;
+	    this.hmacSha256 = new HmacSha256(secret.getBytes("UTF-8"));
+	}
+    }
+
     /**
      * @return <b><code>null</code></b>. It is highly recommended to override
      *         this method in order to set a secret password in order to
@@ -6,6 +6,7 @@ package org.kawanfw.commons.api.server;
 import java.io.IOException;
 
 import org.kawanfw.commons.api.server.util.Ssh;
+import org.kawanfw.commons.api.server.util.SshLoginCache;
 
 /**
  * A concrete {@code CommonsConfigurator} that extends {@code DefaultCommonsConfigurator} and allows zero-code client 
@@ -21,7 +22,11 @@ public class SshAuthCommonsConfigurator extends DefaultCommonsConfigurator
      * Allows using SSH to authenticate the remote {@code (usernname, password)}  couple
      * sent by the client side
      * <p>
-     * Returns the result of {@link Ssh#login(String, char[])} method.
+     * Returns the result of {@link Ssh#login(String, char[])} method. <br>
+     * A successful verification is kept for
+     * {@link #getLoginCacheSeconds()} seconds as a salted hash, and the
+     * concurrent logins of the same user share one SSH connection (see
+     * {@link SshLoginCache}).
      * 
      * @param username
      *            the username sent by the client login
@@ -37,7 +42,22 @@ public class SshAuthCommonsConfigurator extends DefaultCommonsConfigurator
      */
     @Override
     public boolean login(String username, char[] password) throws IOException {
-	return Ssh.login(username, password);
+	return SshLoginCache.login(username, password,
+		getLoginCacheSeconds() * 1000L);
+    }
+
+    /**
+     * Returns the number of seconds a successful SSH verification of a
+     * {@code (usernname, password)} couple is kept in cache, so that the next
+     * logins of the user do not open a new SSH connection.
+     * <p>
+     * Override this method to change the value. {@code 0} disables the cache.
+     * 
+     * @return 60 seconds
+     * @since 3.2
+     */
+    protected int getLoginCacheSeconds() {
+	return 60;
     }
 
 }
@@ -0,0 +1,107 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.commons.api.server.util;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.kawanfw.commons.codec.binary.CodecHex;
+
+/**
+ * HMAC-SHA256 functions with a key prepared once. <br>
+ * The {@code Mac} instances are kept per thread, so that an instance of this
+ * class may be shared by all the servlet threads.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class HmacSha256 {
+
+    /** The HMAC algorithm name */
+    public static final String HMAC_SHA256 = "HmacSHA256";
+
+    /** The precomputed key */
+    private final SecretKeySpec secretKeySpec;
+
+    /** The initialized Mac of each thread */
+    private final ThreadLocal<Mac> threadMac = new ThreadLocal<Mac>();
+
+    /**
+     * Constructor.
+     * 
+     * @param key
+     *            the HMAC key
+     */
+    public HmacSha256(byte[] key) {
+	if (key == null || key.length == 0) {
+	    throw new IllegalArgumentException("key can not be null or empty!");
+	}
+	secretKeySpec = new SecretKeySpec(key, HMAC_SHA256);
+    }
+
+    /**
+     * Computes the HMAC-SHA256 of a byte array.
+     * 
+     * @param b
+     *            the bytes to authenticate
+     * @return the HMAC value
+     * @exception NoSuchAlgorithmException
+     *                if the algorithm is not available
+     * @exception InvalidKeyException
+     *                if the key is refused by the provider
+     */
+    public byte[] getHmac(byte[] b) throws NoSuchAlgorithmException,
+	    InvalidKeyException {
+	Mac mac = threadMac.get();
+	if (mac == null) {
+	    mac = Mac.getInstance(HMAC_SHA256);
+	    mac.init(secretKeySpec);
+	    threadMac.set(mac);
+	}
+
+	// doFinal() resets the Mac for the next use
+	return mac.doFinal(b);
+    }
+
+    /**
+     * Computes the HMAC-SHA256 of a byte array as a hex string.
+     * 
+     * @param b
+     *            the bytes to authenticate
+     * @return the HMAC value in hex String
+     * @exception NoSuchAlgorithmException
+     *                if the algorithm is not available
+     * @exception InvalidKeyException
+     *                if the key is refused by the provider
+     */
+    public String getHexHmac(byte[] b) throws NoSuchAlgorithmException,
+	    InvalidKeyException {
+	return new String(CodecHex.encodeHex(getHmac(b)));
+    }
+
+}
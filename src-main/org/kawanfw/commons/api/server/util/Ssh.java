@@ -31,6 +31,12 @@ import com.jcraft.jsch.Session;
  */
 public class Ssh {
 
+    /** The host and port read from sshAuth.properties, loaded once */
+    private static volatile HostConfig hostConfig = null;
+
+    /** The JSch instance, shared as it holds no per session state */
+    private static final JSch jsch = new JSch();
+
     /**
      * Tries to open a SSH session on a host for authentication.
      * <p>
@@ -44,7 +50,9 @@ public class Ssh {
      * the host IP is used as hostname value and port is 22.</li>
      * </ul>
      * <br>
-     * {@code user.home} is the one of the running servlet container.
+     * {@code user.home} is the one of the running servlet container. <br>
+     * The host and port are loaded once and reloaded only if the
+     * {@code sshAuth.properties} file is created, modified or deleted.
      * <p>
      * The internal SSH client Java library used is <a
      * href="http://www.jcraft.com/jsch/">JSch</a>. <br>
@@ -69,15 +77,33 @@ public class Ssh {
      */
     public static boolean login(String username, char[] password)
 	    throws IOException, NumberFormatException {
-	String host = null;
-	int port = -1;
+	HostConfig config = getHostConfig();
+	return login(config.host, config.port, username, password);
+    }
 
+    /**
+     * Returns the cached host config, reloaded if the
+     * {@code sshAuth.properties} file has changed since last load.
+     */
+    private static HostConfig getHostConfig() throws IOException,
+	    NumberFormatException {
 	String userHomeKawanSoft = FrameworkFileUtil
 		.getUserHomeDotKawansoftDir();
 	File file = new File(userHomeKawanSoft + File.separator
 		+ "sshAuth.properties");
 
-	if (file.exists()) {
+	// lastModified() is 0 if the file does not exist
+	long lastModified = file.lastModified();
+
+	HostConfig current = hostConfig;
+	if (current != null && current.lastModified == lastModified) {
+	    return current;
+	}
+
+	String host = null;
+	int port = -1;
+
+	if (lastModified != 0) {
 	    Properties prop = new Properties();
 	    InputStream in = null;
 
@@ -115,7 +141,9 @@ public class Ssh {
 	    }
 	}
 
-	return login(host, port, username, password);
+	current = new HostConfig(host, port, lastModified);
+	hostConfig = current;
+	return current;
     }
 
     /**
@@ -145,7 +173,6 @@ public class Ssh {
     public static boolean login(String host, int port, String username,
 	    char[] password) throws IOException {
 	// Create a JSch Session with passed values
-	JSch jsch = new JSch();
 	Session session = null;
 
 	try {
@@ -174,4 +201,21 @@ public class Ssh {
 	return connected;
     }
 
+    /**
+     * The SSH host and port, with the modification time of the
+     * {@code sshAuth.properties} file they have been read from.
+     */
+    private static class HostConfig {
+
+	private final String host;
+	private final int port;
+	private final long lastModified;
+
+	public HostConfig(String host, int port, long lastModified) {
+	    this.host = host;
+	    this.port = port;
+	    this.lastModified = lastModified;
+	}
+    }
+
 }
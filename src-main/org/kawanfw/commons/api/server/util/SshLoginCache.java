@@ -0,0 +1,282 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.commons.api.server.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.kawanfw.commons.codec.binary.CodecHex;
+import org.kawanfw.commons.util.Tag;
+
+/**
+ * Keeps the successful {@link Ssh#login(String, char[])} verifications for a
+ * short time and collapses the concurrent logins of the same
+ * {@code (username, password)} couple into one SSH connection.
+ * <p>
+ * Passwords are never stored: each successful verification is kept as a
+ * salted SHA-256 hash with a random salt per entry. Failed verifications are
+ * not cached.
+ * 
+ * @see org.kawanfw.commons.api.server.SshAuthCommonsConfigurator
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class SshLoginCache {
+
+    /** The maximum number of cached usernames */
+    public static final int MAX_ENTRIES = 10000;
+
+    /** The hash algorithm of the cached passwords */
+    private static final String SHA_256 = "SHA-256";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final SecureRandom secureRandom = new SecureRandom();
+
+    /** The salt of the in-flight keys, different for each JVM */
+    private static final byte[] inFlightSalt = newSalt();
+
+    /** The successful verifications per username */
+    private static ConcurrentMap<String, VerifiedLogin> verifiedLogins = new ConcurrentHashMap<String, VerifiedLogin>();
+
+    /** The SSH logins in progress per (username, password hash) */
+    private static ConcurrentMap<String, FutureTask<Boolean>> inFlightLogins = new ConcurrentHashMap<String, FutureTask<Boolean>>();
+
+    /**
+     * Protected constructor
+     */
+    protected SshLoginCache() {
+
+    }
+
+    /**
+     * Authenticates the {@code (usernname, password)} couple with
+     * {@link Ssh#login(String, char[])}, unless the same couple has been
+     * successfully verified less than {@code timeToLiveMillis} ago.
+     * <p>
+     * If a login of the same couple is already in progress in another thread,
+     * waits for its result instead of opening a new SSH connection.
+     * 
+     * @param username
+     *            the username sent by the client login
+     * @param password
+     *            the password to connect to the server
+     * @param timeToLiveMillis
+     *            the time a successful verification is kept in cache. If
+     *            {@code 0}, successful verifications are not cached.
+     * @return <code>true</code> if the user is able to open a SSH session
+     * @throws IOException
+     *             if the wrapped {@code Ssh.login(String, char[])} throws an
+     *             I/O Exception.
+     */
+    public static boolean login(String username, final char[] password,
+	    long timeToLiveMillis) throws IOException {
+
+	if (username == null || password == null) {
+	    return false;
+	}
+
+	byte[] passwordBytes = toBytes(password);
+
+	try {
+	    VerifiedLogin verifiedLogin = verifiedLogins.get(username);
+	    if (verifiedLogin != null) {
+		if (verifiedLogin.isExpired()) {
+		    verifiedLogins.remove(username, verifiedLogin);
+		} else if (verifiedLogin.matches(passwordBytes)) {
+		    return true;
+		}
+	    }
+
+	    boolean connected = sshLogin(username, password, passwordBytes);
+
+	    if (connected && timeToLiveMillis > 0) {
+		if (verifiedLogins.size() >= MAX_ENTRIES) {
+		    purgeExpired();
+		}
+
+		if (verifiedLogins.size() < MAX_ENTRIES
+			|| verifiedLogins.containsKey(username)) {
+		    verifiedLogins.put(username, new VerifiedLogin(
+			    passwordBytes, timeToLiveMillis));
+		}
+	    }
+
+	    return connected;
+	} finally {
+	    Arrays.fill(passwordBytes, (byte) 0);
+	}
+    }
+
+    /**
+     * Removes the cached verification of a username, to be called when the
+     * password of the user is changed.
+     * 
+     * @param username
+     *            the username to remove from the cache
+     */
+    public static void invalidate(String username) {
+	if (username != null) {
+	    verifiedLogins.remove(username);
+	}
+    }
+
+    /**
+     * Clears all the cached verifications
+     */
+    public static void clear() {
+	verifiedLogins.clear();
+    }
+
+    /**
+     * Opens the SSH connection, or waits for the one already opened for the
+     * same (username, password) couple.
+     */
+    private static boolean sshLogin(final String username,
+	    final char[] password, byte[] passwordBytes) throws IOException {
+
+	String key = username + ":"
+		+ new String(CodecHex.encodeHex(sha256(inFlightSalt, passwordBytes)));
+
+	FutureTask<Boolean> task = new FutureTask<Boolean>(
+		new Callable<Boolean>() {
+		    @Override
+		    public Boolean call() throws Exception {
+			return Ssh.login(username, password);
+		    }
+		});
+
+	FutureTask<Boolean> inFlightTask = inFlightLogins.putIfAbsent(key, task);
+
+	if (inFlightTask == null) {
+	    try {
+		task.run();
+	    } finally {
+		inFlightLogins.remove(key, task);
+	    }
+	    inFlightTask = task;
+	}
+
+	try {
+	    return inFlightTask.get();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IOException(Tag.PRODUCT + " SSH login interrupted.", e);
+	} catch (ExecutionException e) {
+	    Throwable cause = e.getCause();
+	    if (cause instanceof IOException) {
+		throw (IOException) cause;
+	    }
+	    if (cause instanceof RuntimeException) {
+		throw (RuntimeException) cause;
+	    }
+	    throw new IOException(cause);
+	}
+    }
+
+    /**
+     * Removes the expired verifications
+     */
+    private static void purgeExpired() {
+	Iterator<Map.Entry<String, VerifiedLogin>> iterator = verifiedLogins
+		.entrySet().iterator();
+	while (iterator.hasNext()) {
+	    if (iterator.next().getValue().isExpired()) {
+		iterator.remove();
+	    }
+	}
+    }
+
+    /**
+     * Returns the UTF-8 bytes of a password without creating a String
+     */
+    private static byte[] toBytes(char[] password) {
+	ByteBuffer byteBuffer = UTF_8.encode(CharBuffer.wrap(password));
+	byte[] bytes = new byte[byteBuffer.remaining()];
+	byteBuffer.get(bytes);
+
+	if (byteBuffer.hasArray()) {
+	    Arrays.fill(byteBuffer.array(), (byte) 0);
+	}
+	return bytes;
+    }
+
+    private static byte[] newSalt() {
+	byte[] salt = new byte[16];
+	secureRandom.nextBytes(salt);
+	return salt;
+    }
+
+    private static byte[] sha256(byte[] salt, byte[] passwordBytes) {
+	try {
+	    MessageDigest messageDigest = MessageDigest.getInstance(SHA_256);
+	    messageDigest.update(salt);
+	    return messageDigest.digest(passwordBytes);
+	} catch (NoSuchAlgorithmException e) {
+	    // SHA-256 is always available on the Java platform
+	    throw new IllegalStateException(e);
+	}
+    }
+
+    /**
+     * A successful verification: the salted hash of the password and its
+     * expiration time.
+     */
+    private static class VerifiedLogin {
+
+	private final byte[] salt;
+	private final byte[] hash;
+	private final long expiresAt;
+
+	public VerifiedLogin(byte[] passwordBytes, long timeToLiveMillis) {
+	    this.salt = newSalt();
+	    this.hash = sha256(salt, passwordBytes);
+	    this.expiresAt = System.currentTimeMillis() + timeToLiveMillis;
+	}
+
+	public boolean isExpired() {
+	    return System.currentTimeMillis() > expiresAt;
+	}
+
+	public boolean matches(byte[] passwordBytes) {
+	    // Constant time comparison
+	    return MessageDigest.isEqual(hash, sha256(salt, passwordBytes));
+	}
+    }
+
+}
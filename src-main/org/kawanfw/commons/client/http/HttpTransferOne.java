@@ -24,10 +24,12 @@
  */
 package org.kawanfw.commons.client.http;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -37,6 +39,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.PushbackInputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
@@ -53,9 +56,11 @@ import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
 import java.util.Date;
 import java.util.List;
+import java.util.Vector;
 import java.util.logging.Level;
 import java.util.zip.GZIPInputStream;
 
+import javax.crypto.SecretKey;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
@@ -71,7 +76,12 @@ import org.kawanfw.commons.util.ClientLogger;
 import org.kawanfw.commons.util.DefaultParms;
 import org.kawanfw.commons.util.FrameworkDebug;
 import org.kawanfw.commons.util.FrameworkFileUtil;
+import org.kawanfw.commons.util.ResponseFrame;
+import org.kawanfw.commons.util.Tag;
 import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.commons.util.convert.AesGcm;
+import org.kawanfw.commons.util.convert.AesGcmInputStream;
+import org.kawanfw.file.util.parms.Parameter;
 
 /**
  * HttpTransferTwo - Http operations done without any library, only using
@@ -312,6 +322,10 @@ public class HttpTransferOne implements HttpTransfer {
 	    conn.setRequestMethod(POST);
 	    conn.setDoOutput(true);
 	    
+	    // Ask for a binary framed response. Old servers ignore the
+	    // parameter and answer with a text response.
+	    requestParams = addResponseFormatParameter(requestParams);
+	    
 	    // We need to Html convert & maybe encrypt the parameters
 	    SimpleNameValuePairConvertor simpleNameValuePairConvertor = new SimpleNameValuePairConvertor(
 		    requestParams, sessionParameters);
@@ -373,6 +387,14 @@ public class HttpTransferOne implements HttpTransfer {
 
 	try {
 
+	    // The file body is encrypted if asked in session parameters
+	    SecretKey bodySecretKey = getBodySecretKey();
+	    String filename = getParameterValue(requestParams,
+		    Parameter.FILENAME);
+	    if (bodySecretKey != null) {
+		requestParams = addBodyEncryptionParameter(requestParams);
+	    }
+	    
 	    // We need to Html convert & maybe encrypt the parameters
 	    SimpleNameValuePairConvertor simpleNameValuePairConvertor = new SimpleNameValuePairConvertor(
 		    requestParams, sessionParameters);
@@ -394,7 +416,7 @@ public class HttpTransferOne implements HttpTransfer {
 			basicNameValuePair.getValue());
 	    }
 
-	    http.addFilePart("file", file);
+	    http.addFilePart("file", file, bodySecretKey, filename);
 	    http.finish();
 
 	    conn = http.getConnection();
@@ -421,6 +443,7 @@ public class HttpTransferOne implements HttpTransfer {
 	    throws UnknownHostException, ConnectException, RemoteException,
 	    IOException {
 
+	InputStream in = null;
 	BufferedReader reader = null;
 	File contentFile = null;
 
@@ -438,22 +461,50 @@ public class HttpTransferOne implements HttpTransfer {
 	    // it's ok to use a buffered stream with SSL with HttpUrlConnection
 	    // Check the server sent us back a compressed content
 	    if ("gzip".equals(conn.getContentEncoding())) {
-		reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(conn.getInputStream())));
+		in = new GZIPInputStream(conn.getInputStream());
 	    } else {
-		reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
+		in = conn.getInputStream();
+	    }
+	    
+	    // A framed response starts with a byte that never starts a text
+	    // response
+	    PushbackInputStream pushbackIn = new PushbackInputStream(
+		    new BufferedInputStream(in));
+	    in = pushbackIn;
+	    
+	    int firstByte = pushbackIn.read();
+	    if (firstByte != -1) {
+		pushbackIn.unread(firstByte);
 	    }
 	    
-	    // line 1: Contains the request status - line 2: Contains the datas
-	    String responseStatus = reader.readLine();
-	    // debug("responseStatus        : " + responseStatus);
-
-	    if (doReceiveInFile) {
-		// Content is saved back into a file, minus the first line
-		// status
-		receiveFile = HttpTransferUtil.createKawansoftTempFile();
-		copyResponseIntoFile(reader, receiveFile);
+	    String responseStatus = null;
+	    
+	    if (ResponseFrame.isFramed(firstByte)) {
+		DataInputStream dataIn = new DataInputStream(pushbackIn);
+		responseStatus = ResponseFrame.readHeader(dataIn);
+
+		if (doReceiveInFile) {
+		    receiveFile = HttpTransferUtil.createKawansoftTempFile();
+		    copyFramedResponseIntoFile(dataIn, receiveFile);
+		} else {
+		    m_responseBody = ResponseFrame.readRecords(dataIn);
+		}
 	    } else {
-		copyResponseIntoString(reader);
+		reader = new BufferedReader(new InputStreamReader(pushbackIn));
+
+		// line 1: Contains the request status - line 2: Contains the
+		// datas
+		responseStatus = reader.readLine();
+		// debug("responseStatus        : " + responseStatus);
+
+		if (doReceiveInFile) {
+		    // Content is saved back into a file, minus the first line
+		    // status
+		    receiveFile = HttpTransferUtil.createKawansoftTempFile();
+		    copyResponseIntoFile(reader, receiveFile);
+		} else {
+		    copyResponseIntoString(reader);
+		}
 	    }
 
 	    // Analyze applicative response header
@@ -505,6 +556,7 @@ public class HttpTransferOne implements HttpTransfer {
 	} finally {
 
 	    IOUtils.closeQuietly(reader);
+	    IOUtils.closeQuietly(in);
 
 	    if (!DEBUG) {
 		FileUtils.deleteQuietly(contentFile);
@@ -596,6 +648,30 @@ public class HttpTransferOne implements HttpTransfer {
 
     }
 
+    /**
+     * Transform the records of a framed response into a file
+     * 
+     * @param dataIn
+     *            the framed response stream, positioned after the header
+     * @param file
+     *            the output file to create
+     * 
+     * @throws IOException
+     *             if any IOException occurs during the process
+     */
+    private void copyFramedResponseIntoFile(DataInputStream dataIn, File file)
+	    throws IOException {
+	BufferedOutputStream out = null;
+
+	try {
+	    out = new BufferedOutputStream(new FileOutputStream(file));
+	    ResponseFrame.copyRecords(dataIn, out);
+	    out.flush();
+	} finally {
+	    IOUtils.closeQuietly(out);
+	}
+    }
+
     /**
      * Send a String to the HTTP server using servlet defined by url and return
      * the corresponding input stream
@@ -634,6 +710,13 @@ public class HttpTransferOne implements HttpTransfer {
 	URL theUrl;
 	theUrl = new URL(this.url);
 
+	// The file body is encrypted if asked in session parameters
+	SecretKey bodySecretKey = getBodySecretKey();
+	String filename = getParameterValue(requestParams, Parameter.FILENAME);
+	if (bodySecretKey != null) {
+	    requestParams = addBodyEncryptionParameter(requestParams);
+	}
+	
 	conn = buildHttpUrlConnection(theUrl);
 	conn.setRequestMethod(POST);
 	conn.setDoOutput(true);
@@ -665,9 +748,103 @@ public class HttpTransferOne implements HttpTransfer {
 	    in = conn.getInputStream();
 	}
 
+	if (bodySecretKey != null) {
+	    in = decryptBody(in, bodySecretKey, filename);
+	}
+	
 	return in;
     }
 
+    /**
+     * Returns the AES key to use for the file bodies
+     * 
+     * @return the AES key, or null if the file bodies are not encrypted
+     * @throws IOException
+     *             if the body encryption is asked without encryption password
+     */
+    private SecretKey getBodySecretKey() throws IOException {
+	if (sessionParameters == null
+		|| !sessionParameters.isBodyEncryptionOn()) {
+	    return null;
+	}
+
+	char[] password = sessionParameters.getEncryptionPassword();
+	if (password == null || password.length <= 1) {
+	    throw new IOException(Tag.PRODUCT_USER_CONFIG_FAIL
+		    + " Body encryption requires an encryption password.");
+	}
+
+	return AesGcm.getSecretKey(password);
+    }
+
+    /**
+     * Returns a copy of the request parameters with the body encryption
+     * parameter
+     */
+    private static List<SimpleNameValuePair> addBodyEncryptionParameter(
+	    List<SimpleNameValuePair> requestParams) {
+	List<SimpleNameValuePair> requestParamsWithEncryption = new Vector<SimpleNameValuePair>(
+		requestParams);
+	requestParamsWithEncryption.add(new SimpleNameValuePair(
+		Parameter.BODY_ENCRYPTION, Parameter.BODY_ENCRYPTION_AES_GCM));
+	return requestParamsWithEncryption;
+    }
+
+    /**
+     * Returns a copy of the request parameters with the parameter that asks
+     * for a binary framed response
+     */
+    private static List<SimpleNameValuePair> addResponseFormatParameter(
+	    List<SimpleNameValuePair> requestParams) {
+	List<SimpleNameValuePair> requestParamsWithFormat = new Vector<SimpleNameValuePair>(
+		requestParams);
+	requestParamsWithFormat.add(new SimpleNameValuePair(
+		Parameter.RESPONSE_FORMAT, ResponseFrame.FORMAT_VERSION));
+	return requestParamsWithFormat;
+    }
+
+    /**
+     * Returns the value of a request parameter, or null if not found
+     */
+    private static String getParameterValue(
+	    List<SimpleNameValuePair> requestParams, String name) {
+	for (SimpleNameValuePair simpleNameValuePair : requestParams) {
+	    if (simpleNameValuePair.getName().equals(name)) {
+		return simpleNameValuePair.getValue();
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Returns the decrypting stream of a downloaded body. <br>
+     * The errors sent by the server are not encrypted: a body that starts
+     * with a transfer status is returned as is, to be analyzed by the caller.
+     */
+    private static InputStream decryptBody(InputStream in,
+	    SecretKey bodySecretKey, String filename) throws IOException {
+	byte[] start = new byte[TransferStatus.SEND_OK.length()];
+	int length = 0;
+	int n;
+	while (length < start.length
+		&& (n = in.read(start, length, start.length - length)) != -1) {
+	    length += n;
+	}
+
+	PushbackInputStream pushbackIn = new PushbackInputStream(in,
+		start.length);
+	pushbackIn.unread(start, 0, length);
+
+	String startStr = new String(start, 0, length, "UTF-8");
+	if (startStr.equals(TransferStatus.SEND_OK)
+		|| startStr.equals(TransferStatus.SEND_FAILED.substring(0,
+			start.length))) {
+	    return pushbackIn;
+	}
+
+	return new AesGcmInputStream(pushbackIn, bodySecretKey, filename);
+    }
+
     /**
      * Closes the url connection
      */
@@ -46,9 +46,12 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.logging.Logger;
 
+import javax.crypto.SecretKey;
+
 import org.apache.commons.io.IOUtils;
 import org.kawanfw.commons.api.client.SessionParameters;
 import org.kawanfw.commons.util.DefaultParms;
+import org.kawanfw.commons.util.convert.AesGcmOutputStream;
 
 public class MultipartUtility {
     
@@ -116,6 +119,24 @@ public class MultipartUtility {
 
     public void addFilePart(final String fieldName, final File uploadFile)
 	    throws IOException {
+	addFilePart(fieldName, uploadFile, null, null);
+    }
+
+    /**
+     * Adds the file part, encrypted with AES-GCM if a key is passed.
+     * 
+     * @param fieldName
+     *            the field name
+     * @param uploadFile
+     *            the file to upload
+     * @param secretKey
+     *            the AES key for the body encryption, null for no encryption
+     * @param context
+     *            the context authenticated with the encrypted body
+     * @throws IOException
+     */
+    public void addFilePart(final String fieldName, final File uploadFile,
+	    SecretKey secretKey, String context) throws IOException {
 	final String fileName = uploadFile.getName();
 	writer.append("--").append(boundary).append(CRLF)
 		.append("Content-Disposition: form-data; name=\"")
@@ -135,9 +156,23 @@ public class MultipartUtility {
 	    int readBufferSize = DefaultParms.DEFAULT_READ_BUFFER_SIZE;	    
 	    inputStream = new BufferedInputStream(new FileInputStream(uploadFile));
 	    final byte[] buffer = new byte[readBufferSize];
+	    
+	    OutputStream partOutputStream = outputStream;
+	    AesGcmOutputStream aesGcmOutputStream = null;
+	    if (secretKey != null) {
+		aesGcmOutputStream = new AesGcmOutputStream(outputStream,
+			secretKey, context);
+		partOutputStream = aesGcmOutputStream;
+	    }
+	    
 	    int bytesRead;
 	    while ((bytesRead = inputStream.read(buffer)) != -1) {
-		outputStream.write(buffer, 0, bytesRead);
+		partOutputStream.write(buffer, 0, bytesRead);
+	    }
+	    
+	    // Write the last frame, without closing the multipart stream
+	    if (aesGcmOutputStream != null) {
+		aesGcmOutputStream.finish();
 	    }
 	    //outputStream.flush();
 	    
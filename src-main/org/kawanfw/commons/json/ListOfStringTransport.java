@@ -24,20 +24,35 @@
  */
 package org.kawanfw.commons.json;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Vector;
+import java.util.NoSuchElementException;
 import java.util.logging.Level;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONValue;
+import org.apache.commons.io.IOUtils;
 import org.kawanfw.commons.util.ClientLogger;
 import org.kawanfw.commons.util.FrameworkDebug;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
 /**
  * @author Nicolas de Pomereu
  * 
  *         Class to transport a list of strings with JSON from the PC side.
  *         Because obsfucation creates toubles, this class must never obsfucated
+ *         <p>
+ *         Lists are written and read with a streaming JSON reader/writer: the
+ *         elements are never held in an intermediate JSON tree, and
+ *         {@link #iterator(Reader)} yields them one at a time. The JSON format
+ *         is unchanged.
  */
 
 public class ListOfStringTransport {
@@ -45,6 +60,9 @@ public class ListOfStringTransport {
     /** For debug info */
     private static boolean DEBUG = FrameworkDebug.isSet(ListOfStringTransport.class);
 
+    /** The estimated JSON length of an element, used to presize buffers */
+    private static final int ESTIMATED_ELEMENT_LENGTH = 32;
+    
     /**
      * Format for JSON String a list of strings
      * 
@@ -60,13 +78,53 @@ public class ListOfStringTransport {
 	    throw new IllegalArgumentException("list is null!");
 	}
 		
-	String jsonString = JSONValue.toJSONString(list);
-	// free resultSetLine
-	list = null;
-	return jsonString;
+	StringWriter stringWriter = new StringWriter(
+		2 + list.size() * ESTIMATED_ELEMENT_LENGTH);
+	
+	try {
+	    toJson(list, stringWriter);
+	} catch (IOException e) {
+	    // Should never happen with a StringWriter
+	    throw new IllegalStateException(e);
+	}
+	
+	return stringWriter.toString();
 	
     }
 
+    /**
+     * Writes a list of strings in JSON format on a Writer, element by
+     * element. The Writer is flushed but not closed.
+     * 
+     * @param list
+     *            a list of strings
+     * @param writer
+     *            the Writer to write the JSON on
+     * @throws IOException
+     *             if an I/O error occurs
+     * @since 3.2
+     */
+    public static void toJson(List<String> list, Writer writer)
+	    throws IOException {
+	if (list == null) {
+	    throw new IllegalArgumentException("list is null!");
+	}
+	if (writer == null) {
+	    throw new IllegalArgumentException("writer is null!");
+	}
+
+	JsonWriter jsonWriter = new JsonWriter(writer);
+	jsonWriter.beginArray();
+	for (String value : list) {
+	    if (value == null) {
+		jsonWriter.nullValue();
+	    } else {
+		jsonWriter.value(value);
+	    }
+	}
+	jsonWriter.endArray();
+	jsonWriter.flush();
+    }
 
     /**
      * Format from JSON string a list of strings - TO BE USED ONLY ON THE SERVER
@@ -82,26 +140,157 @@ public class ListOfStringTransport {
             throw new IllegalArgumentException("jsonString is null!");
         }
     
-        debug("List jsonString: " + jsonString);
-            
-	Object obj =JSONValue.parse(jsonString);
-	JSONArray jsonArray=(JSONArray)obj;
-	
-	List<String> values = new Vector<String>();
-	
-	for (int i = 0; i < jsonArray.size(); i++) {
-	    values.add((String) jsonArray.get(i));
+        if (DEBUG) {
+            debug("List jsonString: " + jsonString);
+        }
+        
+	try {
+	    return fromJson(new StringReader(jsonString));
+	} catch (IOException e) {
+	    throw new IllegalArgumentException("Invalid JSON list of strings: "
+		    + e.getMessage(), e);
 	}
 	
-	// free JSONArray
-	obj = null;
-	jsonArray = null;
+    }
+
+    /**
+     * Reads a list of strings in JSON format from a Reader. The Reader is
+     * consumed but not closed.
+     * 
+     * @param reader
+     *            the Reader containing the JSON list of strings
+     * 
+     * @return a list of strings (not synchronized)
+     * @throws IOException
+     *             if an I/O error occurs or if the JSON is not a list of
+     *             strings
+     * @since 3.2
+     */
+    public static List<String> fromJson(Reader reader) throws IOException {
+	List<String> values = new ArrayList<String>();
 	
+	Iterator<String> iterator = iterator(reader);
+	
+	try {
+	    while (iterator.hasNext()) {
+		values.add(iterator.next());
+	    }
+	} catch (JsonListException e) {
+	    throw e.getCause();
+	}
 	
 	return values;
+    }
+
+    /**
+     * Returns an Iterator on the elements of a list of strings in JSON format
+     * read from a Reader. The elements are parsed lazily, one at a time, so
+     * that very large lists are never held entirely in memory. The Reader is
+     * closed when the end of the list is reached.
+     * <p>
+     * I/O or format errors raised while iterating are thrown by
+     * {@code hasNext()} and {@code next()} wrapped in an
+     * {@code IllegalStateException} whose cause is the {@code IOException}.
+     * 
+     * @param reader
+     *            the Reader containing the JSON list of strings
+     * @return an Iterator on the elements of the list
+     * @throws IOException
+     *             if an I/O error occurs or if the JSON is not a list
+     * @since 3.2
+     */
+    public static Iterator<String> iterator(Reader reader) throws IOException {
+	if (reader == null) {
+	    throw new IllegalArgumentException("reader is null!");
+	}
+
+	final JsonReader jsonReader = new JsonReader(reader);
 	
+	try {
+	    jsonReader.beginArray();
+	} catch (IllegalStateException e) {
+	    // Gson reports unexpected JSON structures this way
+	    throw new IOException(e.getMessage(), e);
+	}
+
+	return new Iterator<String>() {
+
+	    private boolean closed = false;
+	    
+	    @Override
+	    public boolean hasNext() {
+		if (closed) {
+		    return false;
+		}
+		
+		try {
+		    if (jsonReader.hasNext()) {
+			return true;
+		    }
+		    
+		    jsonReader.endArray();
+		    closed = true;
+		    IOUtils.closeQuietly(jsonReader);
+		    return false;
+		} catch (IOException e) {
+		    throw new JsonListException(e);
+		} catch (IllegalStateException e) {
+		    throw new JsonListException(new IOException(e
+			    .getMessage(), e));
+		}
+	    }
+
+	    @Override
+	    public String next() {
+		if (!hasNext()) {
+		    throw new NoSuchElementException();
+		}
+		
+		try {
+		    if (jsonReader.peek() == JsonToken.NULL) {
+			jsonReader.nextNull();
+			return null;
+		    }
+		    
+		    if (jsonReader.peek() != JsonToken.STRING) {
+			throw new IOException(
+				"Invalid JSON list of strings. Expected a string but was "
+					+ jsonReader.peek());
+		    }
+		    
+		    return jsonReader.nextString();
+		} catch (IOException e) {
+		    throw new JsonListException(e);
+		} catch (IllegalStateException e) {
+		    throw new JsonListException(new IOException(e
+			    .getMessage(), e));
+		}
+	    }
+
+	    @Override
+	    public void remove() {
+		throw new UnsupportedOperationException();
+	    }
+	};
     }
 
+    /**
+     * Wraps the IOException thrown by a lazy Iterator
+     */
+    private static class JsonListException extends IllegalStateException {
+
+	private static final long serialVersionUID = 1L;
+
+	public JsonListException(IOException cause) {
+	    super(cause.getMessage(), cause);
+	}
+
+	@Override
+	public synchronized IOException getCause() {
+	    return (IOException) super.getCause();
+	}
+    }
+    
     private static void debug(String s) {
 	if (DEBUG) {
 	    ClientLogger.getLogger().log(Level.WARNING, s);
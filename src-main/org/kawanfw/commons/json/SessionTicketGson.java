@@ -0,0 +1,84 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.commons.json;
+
+import java.lang.reflect.Type;
+
+import org.kawanfw.file.api.client.SessionTicket;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * 
+ * Class to format a SessionTicket to a JSON String and vice versa using Gson.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+
+public class SessionTicketGson {
+
+    /**
+     * Protected
+     */
+    protected SessionTicketGson() {
+
+    }
+
+    /**
+     * Format a SessionTicket instance into a JSON String
+     * 
+     * @param sessionTicket
+     *            a SessionTicket instance
+     * @return the JSON string
+     */
+    public static String toJson(SessionTicket sessionTicket) {
+
+	Gson gson = new Gson();
+	Type type = new TypeToken<SessionTicket>() {
+	}.getType();
+	String jsonString = gson.toJson(sessionTicket, type);
+
+	return jsonString;
+    }
+
+    /**
+     * Format a JSON String back to a SessionTicket instance
+     * 
+     * @param jsonString
+     *            The JSON string containing the SessionTicket
+     * @return the SessionTicket instance
+     */
+    public static SessionTicket fromJson(String jsonString) {
+	Gson gson = new Gson();
+	Type type = new TypeToken<SessionTicket>() {
+	}.getType();
+
+	SessionTicket sessionTicket = gson.fromJson(jsonString, type);
+	return sessionTicket;
+    }
+
+}
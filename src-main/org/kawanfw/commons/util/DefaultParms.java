@@ -71,6 +71,10 @@ public class DefaultParms {
     /** Http content compression */
     public static final boolean DEFAULT_COMPRESSION_ON = true;
     
+    /** RemoteFile metadata cache: 0 means no cache */
+    public static final long DEFAULT_METADATA_CACHE_TTL_MILLIS = 0;
+    public static final int DEFAULT_METADATA_CACHE_MAX_ENTRIES = 10000;
+    
     /** Color used by servlet display in all KwanSoft Frameworks */
     public static final String KAWANSOFT_COLOR = "E7403E";
 
@@ -0,0 +1,286 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.commons.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.text.translate.EntityArrays;
+
+/**
+ * Single pass HTML codec of the request parameters and returned values. <br>
+ * Produces exactly the same result as the commons-lang
+ * {@code ESCAPE_HTML4} / {@code unescapeHtml4} translators used by previous
+ * versions, so that both sides stay compatible, but:
+ * <ul>
+ * <li>a String that needs no conversion is returned as is, without any
+ * allocation,</li>
+ * <li>a String that needs conversion is converted in one pass with a single
+ * {@code StringBuilder}.</li>
+ * </ul>
+ * As in previous versions, the {@code '&'} character is not escaped, so that
+ * encoding a value twice gives the same result.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class HtmlCodec {
+
+    /** The first character escaped as an entity, after the basic ones */
+    private static final int FIRST_ESCAPED = 0x7f;
+
+    /** The named entities per character */
+    private static final String[] NAMED_ENTITIES;
+
+    /** The characters per named entity, including '&' and ';' */
+    private static final Map<String, String> NAMED_ENTITIES_REVERSE = new HashMap<String, String>();
+
+    /** The longest named entity */
+    private static final int LONGEST_ENTITY;
+
+    static {
+	String[][][] escapeArrays = { EntityArrays.BASIC_ESCAPE(),
+		EntityArrays.ISO8859_1_ESCAPE(),
+		EntityArrays.HTML40_EXTENDED_ESCAPE() };
+
+	int maxChar = 0;
+	for (String[][] escapeArray : escapeArrays) {
+	    for (String[] pair : escapeArray) {
+		maxChar = Math.max(maxChar, pair[0].charAt(0));
+	    }
+	}
+
+	int longest = 0;
+	NAMED_ENTITIES = new String[maxChar + 1];
+	for (String[][] escapeArray : escapeArrays) {
+	    for (String[] pair : escapeArray) {
+		NAMED_ENTITIES[pair[0].charAt(0)] = pair[1];
+		NAMED_ENTITIES_REVERSE.put(pair[1], pair[0]);
+		longest = Math.max(longest, pair[1].length());
+	    }
+	}
+
+	// '&' is not escaped, see class comment
+	NAMED_ENTITIES['&'] = null;
+	LONGEST_ENTITY = longest;
+    }
+
+    /**
+     * Protected constructor
+     */
+    protected HtmlCodec() {
+
+    }
+
+    /**
+     * Converts special characters to their HTML values. <br>
+     * Example : "&eacute;" is converted to "&amp;eacute;"
+     * 
+     * @param string
+     *            A String to convert from original to HTML, may be null
+     * @return A String of char converted to HTML equivalent, the same instance
+     *         if no conversion is needed
+     */
+    public static String encode(String string) {
+	if (string == null) {
+	    return null;
+	}
+
+	int length = string.length();
+	int i = 0;
+
+	// Fast path: nothing to escape
+	while (i < length && !isEscaped(string.charAt(i))) {
+	    i++;
+	}
+
+	if (i == length) {
+	    return string;
+	}
+
+	StringBuilder sb = new StringBuilder(length + 16);
+	sb.append(string, 0, i);
+
+	while (i < length) {
+	    char c = string.charAt(i);
+
+	    if (!isEscaped(c)) {
+		sb.append(c);
+		i++;
+		continue;
+	    }
+
+	    if (c < NAMED_ENTITIES.length && NAMED_ENTITIES[c] != null) {
+		sb.append(NAMED_ENTITIES[c]);
+		i++;
+		continue;
+	    }
+
+	    int codePoint = string.codePointAt(i);
+	    sb.append("&#").append(codePoint).append(';');
+	    i += Character.charCount(codePoint);
+	}
+
+	return sb.toString();
+    }
+
+    /**
+     * Converts special HTML values of characters to their original values. <br>
+     * Example : "&amp;eacute;" is converted to "&eacute;"
+     * 
+     * @param string
+     *            A String to convert from HTML to original, may be null
+     * @return A String of char converted to original values, the same
+     *         instance if no conversion is needed
+     */
+    public static String decode(String string) {
+	if (string == null) {
+	    return null;
+	}
+
+	int amp = string.indexOf('&');
+
+	// Fast path: no entity
+	if (amp < 0) {
+	    return string;
+	}
+
+	int length = string.length();
+	StringBuilder sb = new StringBuilder(length);
+	sb.append(string, 0, amp);
+
+	int i = amp;
+	while (i < length) {
+	    char c = string.charAt(i);
+
+	    if (c == '&') {
+		int consumed = decodeNamedEntity(string, i, sb);
+		if (consumed == 0) {
+		    consumed = decodeNumericEntity(string, i, sb);
+		}
+		if (consumed > 0) {
+		    i += consumed;
+		    continue;
+		}
+	    }
+
+	    sb.append(c);
+	    i++;
+	}
+
+	return sb.toString();
+    }
+
+    /**
+     * Says if a character is escaped by encode()
+     */
+    private static boolean isEscaped(char c) {
+	return c >= FIRST_ESCAPED || c == '"' || c == '<' || c == '>';
+    }
+
+    /**
+     * Decodes a named entity such as "&amp;eacute;" at index
+     * 
+     * @return the number of characters consumed, 0 if none
+     */
+    private static int decodeNamedEntity(String string, int index,
+	    StringBuilder sb) {
+	int max = Math.min(string.length(), index + LONGEST_ENTITY);
+
+	for (int end = index + 1; end < max; end++) {
+	    char c = string.charAt(end);
+	    if (c == ';') {
+		String decoded = NAMED_ENTITIES_REVERSE.get(string.substring(
+			index, end + 1));
+		if (decoded == null) {
+		    return 0;
+		}
+		sb.append(decoded);
+		return end + 1 - index;
+	    }
+	    if (c == '&') {
+		return 0;
+	    }
+	}
+	return 0;
+    }
+
+    /**
+     * Decodes a numeric entity such as "&amp;#233;" or "&amp;#xE9;" at index. A
+     * semicolon is required.
+     * 
+     * @return the number of characters consumed, 0 if none
+     */
+    private static int decodeNumericEntity(String string, int index,
+	    StringBuilder sb) {
+	int length = string.length();
+
+	if (index >= length - 2 || string.charAt(index + 1) != '#') {
+	    return 0;
+	}
+
+	int start = index + 2;
+	boolean isHex = false;
+	char firstChar = string.charAt(start);
+	if (firstChar == 'x' || firstChar == 'X') {
+	    start++;
+	    isHex = true;
+	    if (start == length) {
+		return 0;
+	    }
+	}
+
+	int end = start;
+	while (end < length && isHexDigit(string.charAt(end))) {
+	    end++;
+	}
+
+	if (end == length || string.charAt(end) != ';') {
+	    return 0;
+	}
+
+	int entityValue;
+	try {
+	    entityValue = Integer.parseInt(string.substring(start, end),
+		    isHex ? 16 : 10);
+	} catch (NumberFormatException e) {
+	    return 0;
+	}
+
+	if (entityValue > 0xFFFF) {
+	    sb.append(Character.toChars(entityValue));
+	} else {
+	    sb.append((char) entityValue);
+	}
+
+	return end + 1 - index;
+    }
+
+    private static boolean isHexDigit(char c) {
+	return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A'
+		&& c <= 'F';
+    }
+
+}
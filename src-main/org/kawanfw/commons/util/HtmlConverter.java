@@ -27,12 +27,10 @@ package org.kawanfw.commons.util;
 import java.util.List;
 import java.util.Vector;
 
-import org.apache.commons.lang3.StringEscapeUtils;
-import org.apache.commons.lang3.text.translate.NumericEntityEscaper;
-
 /**
  * Static methods to convert special characters to HTML equivalent and
- * vice-versa.
+ * vice-versa. <br>
+ * The conversions are done in one pass by {@link HtmlCodec}.
  * 
  * @author Nicolas de Pomereu
  * 
@@ -59,14 +57,7 @@ public class HtmlConverter {
 	
 	if (DO_NOTHING) return string;
 	
-	if (string == null) return string;
-	    
-	if (string.contains("&")) {
-	    return StringEscapeUtils.unescapeHtml4(string);
-	} else {
-	    return string;
-	}
-	
+	return HtmlCodec.decode(string);
 
     }
 
@@ -86,14 +77,8 @@ public class HtmlConverter {
 		
 	if (DO_NOTHING) return string;
 	
-	string = org.apache.commons.lang3.StringEscapeUtils.ESCAPE_HTML4.with(NumericEntityEscaper.between(0x7f, Integer.MAX_VALUE) ).translate(string); 
-
-	if (string != null) {
-	    string = string.replaceAll("&amp;", "&"); // To keep same result if
-						      // multi-call
-	}
-	
-	return string;
+	// '&' is not escaped, to keep same result if multi-call
+	return HtmlCodec.encode(string);
     }
 
     /**
@@ -0,0 +1,421 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.commons.util;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A list of IP addresses and subnets compiled once into a binary prefix trie,
+ * for fast membership tests of IPv4 and IPv6 addresses. <br>
+ * A lookup costs at most one step per bit of the address (32 for IPv4, 128 for
+ * IPv6), whatever the number of entries.
+ * <p>
+ * Supported entry formats:
+ * <ul>
+ * <li>IPv4 address: {@code 192.168.1.12}</li>
+ * <li>IPv4 subnet in CIDR notation: {@code 192.168.1.0/24}</li>
+ * <li>IPv4 subnet with a netmask: {@code 192.168.1.0/255.255.255.0}</li>
+ * <li>IPv6 address: {@code 2001:db8::1}</li>
+ * <li>IPv6 subnet in CIDR notation: {@code 2001:db8::/32}</li>
+ * </ul>
+ * IPv4-mapped IPv6 addresses ({@code ::ffff:192.168.1.12}) are matched as
+ * IPv4 addresses. Entries without {@code "/"} that are not IP addresses are
+ * compared as strings with the tested address.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class IpMatcher {
+
+    /** The root of the IPv4 prefix trie */
+    private final Node ipv4Root = new Node();
+
+    /** The root of the IPv6 prefix trie */
+    private final Node ipv6Root = new Node();
+
+    /** The entries that are not IP addresses */
+    private final Set<String> literals = new HashSet<String>();
+
+    /** The number of compiled entries */
+    private int size = 0;
+
+    /**
+     * Compiles a list of IP addresses and subnets
+     * 
+     * @param entries
+     *            the IP addresses and subnets. May be null.
+     * @throws IllegalArgumentException
+     *             if a subnet entry is not valid
+     */
+    public IpMatcher(List<String> entries) throws IllegalArgumentException {
+	if (entries == null) {
+	    return;
+	}
+
+	for (String entry : entries) {
+	    if (entry == null) {
+		continue;
+	    }
+	    entry = entry.trim();
+	    if (entry.isEmpty()) {
+		continue;
+	    }
+
+	    add(entry);
+	    size++;
+	}
+    }
+
+    /**
+     * Says if the list has no entries
+     * 
+     * @return true if the compiled list has no entries
+     */
+    public boolean isEmpty() {
+	return size == 0;
+    }
+
+    /**
+     * Says if an IP address is in the list, or in one of the subnets of the
+     * list.
+     * 
+     * @param ip
+     *            the IP address to test
+     * @return true if the address is matched by an entry of the list
+     */
+    public boolean contains(String ip) {
+	if (ip == null) {
+	    return false;
+	}
+
+	byte[] address = toBytes(ip);
+	if (address == null) {
+	    return literals.contains(ip);
+	}
+
+	Node node = address.length == 4 ? ipv4Root : ipv6Root;
+	int bits = address.length * 8;
+
+	for (int i = 0; i < bits; i++) {
+	    if (node.terminal) {
+		return true;
+	    }
+	    node = bit(address, i) == 0 ? node.zero : node.one;
+	    if (node == null) {
+		return false;
+	    }
+	}
+
+	return node.terminal;
+    }
+
+    /**
+     * Adds an entry to the trie
+     * 
+     * @param entry
+     *            the trimmed entry
+     */
+    private void add(String entry) {
+
+	int slash = entry.indexOf('/');
+
+	if (slash < 0) {
+	    byte[] address = toBytes(entry);
+	    if (address == null) {
+		literals.add(entry);
+	    } else {
+		insert(address, address.length * 8);
+	    }
+	    return;
+	}
+
+	String net = entry.substring(0, slash).trim();
+	String mask = entry.substring(slash + 1).trim();
+
+	byte[] address = toBytes(net);
+	if (address == null) {
+	    throw new IllegalArgumentException(Tag.PRODUCT_USER_CONFIG_FAIL
+		    + " Invalid subnet address: " + entry);
+	}
+
+	int prefixLength = -1;
+	try {
+	    if (mask.indexOf('.') >= 0) {
+		byte[] maskBytes = parseIpv4(mask);
+		if (maskBytes != null && address.length == 4) {
+		    int maskBits = toInt(maskBytes);
+		    int length = Integer.bitCount(maskBits);
+
+		    // Only contiguous masks (255.255.0.0, not 255.0.255.0)
+		    int expected = length == 0 ? 0 : -1 << (32 - length);
+		    if (maskBits == expected) {
+			prefixLength = length;
+		    }
+		}
+	    } else {
+		prefixLength = Integer.parseInt(mask);
+
+		// IPv4-mapped IPv6 subnet: converted to IPv4
+		if (address.length == 4 && net.indexOf(':') >= 0) {
+		    prefixLength -= 96;
+		}
+	    }
+	} catch (NumberFormatException e) {
+	    prefixLength = -1;
+	}
+
+	if (prefixLength < 0 || prefixLength > address.length * 8) {
+	    throw new IllegalArgumentException(Tag.PRODUCT_USER_CONFIG_FAIL
+		    + " Invalid subnet mask: " + entry);
+	}
+
+	insert(address, prefixLength);
+    }
+
+    /**
+     * Inserts a prefix in the trie
+     * 
+     * @param address
+     *            the address bytes
+     * @param prefixLength
+     *            the number of significant bits
+     */
+    private void insert(byte[] address, int prefixLength) {
+	Node node = address.length == 4 ? ipv4Root : ipv6Root;
+
+	for (int i = 0; i < prefixLength; i++) {
+	    if (node.terminal) {
+		// A shorter prefix already covers this one
+		return;
+	    }
+
+	    if (bit(address, i) == 0) {
+		if (node.zero == null) {
+		    node.zero = new Node();
+		}
+		node = node.zero;
+	    } else {
+		if (node.one == null) {
+		    node.one = new Node();
+		}
+		node = node.one;
+	    }
+	}
+
+	// Longer prefixes under this node are useless
+	node.terminal = true;
+	node.zero = null;
+	node.one = null;
+    }
+
+    /**
+     * Returns the bit at position i (0 is the most significant bit)
+     */
+    private static int bit(byte[] address, int i) {
+	return (address[i >> 3] >> (7 - (i & 7))) & 1;
+    }
+
+    private static int toInt(byte[] b) {
+	return ((b[0] & 0xff) << 24) | ((b[1] & 0xff) << 16)
+		| ((b[2] & 0xff) << 8) | (b[3] & 0xff);
+    }
+
+    /**
+     * Parses an IPv4 or IPv6 literal address without any DNS lookup.
+     * IPv4-mapped IPv6 addresses are returned as IPv4.
+     * 
+     * @param ip
+     *            the address literal
+     * @return the 4 or 16 address bytes, or null if the string is not an IP
+     *         address literal
+     */
+    public static byte[] toBytes(String ip) {
+	if (ip.indexOf(':') < 0) {
+	    return parseIpv4(ip);
+	}
+
+	byte[] address = parseIpv6(ip);
+	if (address == null) {
+	    return null;
+	}
+
+	// IPv4-mapped: ::ffff:a.b.c.d
+	for (int i = 0; i < 10; i++) {
+	    if (address[i] != 0) {
+		return address;
+	    }
+	}
+	if (address[10] == (byte) 0xff && address[11] == (byte) 0xff) {
+	    return new byte[] { address[12], address[13], address[14],
+		    address[15] };
+	}
+
+	return address;
+    }
+
+    /**
+     * Parses a dotted IPv4 address
+     * 
+     * @return the 4 bytes, or null if invalid
+     */
+    private static byte[] parseIpv4(String ip) {
+	byte[] address = new byte[4];
+	int part = 0;
+	int value = -1;
+
+	for (int i = 0; i < ip.length(); i++) {
+	    char c = ip.charAt(i);
+	    if (c >= '0' && c <= '9') {
+		value = (value < 0 ? 0 : value * 10) + (c - '0');
+		if (value > 255) {
+		    return null;
+		}
+	    } else if (c == '.') {
+		if (value < 0 || part == 3) {
+		    return null;
+		}
+		address[part++] = (byte) value;
+		value = -1;
+	    } else {
+		return null;
+	    }
+	}
+
+	if (value < 0 || part != 3) {
+	    return null;
+	}
+	address[3] = (byte) value;
+	return address;
+    }
+
+    /**
+     * Parses an IPv6 address, with optional brackets, zone id, "::"
+     * compression and trailing dotted IPv4.
+     * 
+     * @return the 16 bytes, or null if invalid
+     */
+    private static byte[] parseIpv6(String ip) {
+	if (ip.startsWith("[") && ip.endsWith("]")) {
+	    ip = ip.substring(1, ip.length() - 1);
+	}
+
+	int zone = ip.indexOf('%');
+	if (zone >= 0) {
+	    ip = ip.substring(0, zone);
+	}
+
+	int compression = ip.indexOf("::");
+	if (compression >= 0 && ip.indexOf("::", compression + 1) >= 0) {
+	    return null;
+	}
+
+	int[] head = new int[8];
+	int[] tail = new int[8];
+	int headSize = 0;
+	int tailSize = 0;
+
+	if (compression < 0) {
+	    headSize = parseGroups(ip, head);
+	    if (headSize != 8) {
+		return null;
+	    }
+	} else {
+	    headSize = parseGroups(ip.substring(0, compression), head);
+	    tailSize = parseGroups(ip.substring(compression + 2), tail);
+	    if (headSize < 0 || tailSize < 0 || headSize + tailSize > 7) {
+		return null;
+	    }
+	}
+
+	byte[] address = new byte[16];
+	for (int i = 0; i < headSize; i++) {
+	    address[i * 2] = (byte) (head[i] >> 8);
+	    address[i * 2 + 1] = (byte) head[i];
+	}
+	for (int i = 0; i < tailSize; i++) {
+	    int group = 8 - tailSize + i;
+	    address[group * 2] = (byte) (tail[i] >> 8);
+	    address[group * 2 + 1] = (byte) tail[i];
+	}
+	return address;
+    }
+
+    /**
+     * Parses colon separated hex groups; a last dotted IPv4 part counts for
+     * two groups.
+     * 
+     * @return the number of groups, or -1 if invalid
+     */
+    private static int parseGroups(String s, int[] groups) {
+	if (s.isEmpty()) {
+	    return 0;
+	}
+
+	String[] parts = s.split(":", -1);
+	int count = 0;
+
+	for (int i = 0; i < parts.length; i++) {
+	    String part = parts[i];
+
+	    if (i == parts.length - 1 && part.indexOf('.') >= 0) {
+		byte[] ipv4 = parseIpv4(part);
+		if (ipv4 == null || count + 2 > groups.length) {
+		    return -1;
+		}
+		groups[count++] = ((ipv4[0] & 0xff) << 8) | (ipv4[1] & 0xff);
+		groups[count++] = ((ipv4[2] & 0xff) << 8) | (ipv4[3] & 0xff);
+		continue;
+	    }
+
+	    if (part.isEmpty() || part.length() > 4 || count == groups.length) {
+		return -1;
+	    }
+
+	    int value = 0;
+	    for (int j = 0; j < part.length(); j++) {
+		int digit = Character.digit(part.charAt(j), 16);
+		if (digit < 0) {
+		    return -1;
+		}
+		value = (value << 4) | digit;
+	    }
+	    groups[count++] = value;
+	}
+
+	return count;
+    }
+
+    /**
+     * A node of the binary prefix trie
+     */
+    private static class Node {
+	private Node zero = null;
+	private Node one = null;
+	private boolean terminal = false;
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.commons.util;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * 
+ * @author Nicolas de Pomereu
+ * 
+ *         Commons values and decoding methods on client and server for the
+ *         binary framed responses. <br>
+ *         A framed response replaces the line oriented text response
+ *         {@code "SEND_OK\n<line>\n<line>..."} when the client asks for it with
+ *         the {@code Parameter.RESPONSE_FORMAT} parameter. Old clients never
+ *         ask for it and keep on receiving text responses. <br>
+ *         <br>
+ *         Format version 1:
+ *         <ul>
+ *         <li>4 bytes magic number: {@code 0x00 'A' 'W' 'F'}. A text response
+ *         never starts with a 0x00 byte.</li>
+ *         <li>1 byte: the format version.</li>
+ *         <li>1 byte: the status: {@link #STATUS_OK} or {@link #STATUS_FAILED}
+ *         .</li>
+ *         <li>The records, one per line of the text format: a 4 bytes big
+ *         endian length followed by the UTF-8 bytes of the line.</li>
+ *         <li>The end of response marker: a length of {@link #END_OF_RECORDS}
+ *         .</li>
+ *         </ul>
+ * 
+ * @since 3.2
+ */
+
+public class ResponseFrame {
+
+    /** The magic number that starts a framed response */
+    public static final byte[] MAGIC = { 0x00, 'A', 'W', 'F' };
+
+    /** The current format version */
+    public static final byte VERSION = 1;
+
+    /** The value of the response format parameter for the current version */
+    public static final String FORMAT_VERSION = "framed_" + VERSION;
+
+    /** Status byte for TransferStatus.SEND_OK */
+    public static final byte STATUS_OK = 0;
+
+    /** Status byte for TransferStatus.SEND_FAILED */
+    public static final byte STATUS_FAILED = 1;
+
+    /** The record length that marks the end of the response */
+    public static final int END_OF_RECORDS = -1;
+
+    /** The charset of the records */
+    public static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Universal and clean line separator */
+    private static String CR_LF = System.getProperty("line.separator");
+
+    /**
+     * Do not instantiate
+     */
+    protected ResponseFrame() {
+    }
+
+    /**
+     * Says if a response starting with the passed byte is a framed response
+     * 
+     * @param firstByte
+     *            the first byte of the response, -1 if the response is empty
+     * @return true if the response is a framed response
+     */
+    public static boolean isFramed(int firstByte) {
+	return firstByte == MAGIC[0];
+    }
+
+    /**
+     * Reads the header of a framed response.
+     * 
+     * @param in
+     *            the response stream, positioned on the magic number
+     * @return the status as a text response status:
+     *         {@code TransferStatus.SEND_OK} or
+     *         {@code TransferStatus.SEND_FAILED}
+     * @throws IOException
+     *             if the header is invalid or if an I/O error occurs
+     */
+    public static String readHeader(DataInputStream in) throws IOException {
+	byte[] magic = new byte[MAGIC.length];
+	in.readFully(magic);
+
+	for (int i = 0; i < MAGIC.length; i++) {
+	    if (magic[i] != MAGIC[i]) {
+		throw new IOException(Tag.PRODUCT_PRODUCT_FAIL
+			+ " Invalid framed response magic number.");
+	    }
+	}
+
+	byte version = in.readByte();
+	if (version != VERSION) {
+	    throw new IOException(Tag.PRODUCT_PRODUCT_FAIL
+		    + " Unsupported framed response version: " + version);
+	}
+
+	byte status = in.readByte();
+	if (status == STATUS_OK) {
+	    return TransferStatus.SEND_OK;
+	} else if (status == STATUS_FAILED) {
+	    return TransferStatus.SEND_FAILED;
+	} else {
+	    throw new IOException(Tag.PRODUCT_PRODUCT_FAIL
+		    + " Invalid framed response status: " + status);
+	}
+    }
+
+    /**
+     * Reads the records of a framed response and rebuilds the text of the
+     * lines, each one followed by CR_LF, exactly as for a text response.
+     * 
+     * @param in
+     *            the response stream, positioned after the header
+     * @return the text of the response lines
+     * @throws IOException
+     *             if the response is truncated or if an I/O error occurs
+     */
+    public static String readRecords(DataInputStream in) throws IOException {
+	StringBuilder sb = new StringBuilder();
+	byte[] buffer = new byte[1024];
+
+	int length;
+	while ((length = readLength(in)) != END_OF_RECORDS) {
+	    if (length > buffer.length) {
+		buffer = new byte[Math.max(length, buffer.length * 2)];
+	    }
+	    in.readFully(buffer, 0, length);
+	    sb.append(new String(buffer, 0, length, UTF_8));
+	    sb.append(CR_LF);
+	}
+
+	return sb.toString();
+    }
+
+    /**
+     * Copies the records of a framed response on an output stream as text
+     * lines, each one followed by CR_LF, in the platform charset. ASCII records
+     * and all records when the platform charset is UTF-8 are copied without
+     * decoding.
+     * 
+     * @param in
+     *            the response stream, positioned after the header
+     * @param out
+     *            the output stream to copy the lines on
+     * @throws IOException
+     *             if the response is truncated or if an I/O error occurs
+     */
+    public static void copyRecords(DataInputStream in, OutputStream out)
+	    throws IOException {
+	boolean platformUtf8 = UTF_8.equals(Charset.defaultCharset());
+	byte[] crLf = CR_LF.getBytes();
+	byte[] buffer = new byte[8192];
+
+	int length;
+	while ((length = readLength(in)) != END_OF_RECORDS) {
+	    if (length > buffer.length) {
+		buffer = new byte[Math.max(length, buffer.length * 2)];
+	    }
+	    in.readFully(buffer, 0, length);
+
+	    if (platformUtf8 || isAscii(buffer, length)) {
+		out.write(buffer, 0, length);
+	    } else {
+		out.write(new String(buffer, 0, length, UTF_8).getBytes());
+	    }
+	    out.write(crLf);
+	}
+    }
+
+    /**
+     * Reads a record length.
+     * 
+     * @param in
+     *            the response stream
+     * @return the record length or END_OF_RECORDS
+     * @throws IOException
+     *             if the stream ends before the end of response marker
+     */
+    private static int readLength(DataInputStream in) throws IOException {
+	int length;
+	try {
+	    length = in.readInt();
+	} catch (EOFException e) {
+	    throw new EOFException(Tag.PRODUCT_PRODUCT_FAIL
+		    + " Truncated framed response: end of records not found.");
+	}
+
+	if (length < END_OF_RECORDS) {
+	    throw new IOException(Tag.PRODUCT_PRODUCT_FAIL
+		    + " Invalid framed response record length: " + length);
+	}
+	return length;
+    }
+
+    private static boolean isAscii(byte[] buffer, int length) {
+	for (int i = 0; i < length; i++) {
+	    if (buffer[i] < 0) {
+		return false;
+	    }
+	}
+	return true;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.commons.util.convert;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.kawanfw.commons.util.Tag;
+
+/**
+ * Constants and key derivation of the AES-GCM encryption of the file bodies
+ * for upload and download.
+ * <p>
+ * An encrypted body is written by {@link AesGcmOutputStream} and read by
+ * {@link AesGcmInputStream}. Its format is:
+ * <ul>
+ * <li>a header: the {@link #MAGIC} bytes, a version byte and a random 8 bytes
+ * nonce prefix,</li>
+ * <li>frames of up to {@link #FRAME_LENGTH} bytes of clear data: a 4 bytes
+ * length with the high bit set on the last frame, followed by the encrypted
+ * data and the 16 bytes GCM tag.</li>
+ * </ul>
+ * The nonce of each frame is the nonce prefix followed by the frame index, and
+ * the frame length and a context string (the file name) are authenticated.
+ * Each body (each chunk of a chunked transfer) is thus verifiable
+ * independently, and frames can not be reordered, truncated or moved to
+ * another file.
+ * <p>
+ * The AES key is derived from the encryption password with
+ * PBKDF2WithHmacSHA1, once per password. The AES-GCM cipher requires Java 8 or
+ * higher, and is hardware accelerated by the JVM when the CPU supports it.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class AesGcm {
+
+    /** The cipher transformation */
+    public static final String AES_GCM_NO_PADDING = "AES/GCM/NoPadding";
+
+    /** The magic bytes that begin an encrypted body */
+    public static final byte[] MAGIC = { 'A', 'W', 'K', 'G', 'C', 'M' };
+
+    /** The format version */
+    public static final byte VERSION = 1;
+
+    /** The length of the random nonce prefix of a body */
+    public static final int NONCE_PREFIX_LENGTH = 8;
+
+    /** The length of the header of a body */
+    public static final int HEADER_LENGTH = MAGIC.length + 1
+	    + NONCE_PREFIX_LENGTH;
+
+    /** The maximum length of clear data in a frame: 64 KB */
+    public static final int FRAME_LENGTH = 64 * 1024;
+
+    /** The GCM tag length in bytes */
+    public static final int TAG_LENGTH = 16;
+
+    /** The flag set in the length of the last frame */
+    static final int LAST_FRAME_FLAG = 0x80000000;
+
+    /** The key derivation salt, fixed so that both sides derive the same key */
+    private static final byte[] SALT = "org.kawanfw.AesGcm".getBytes(Charset
+	    .forName("UTF-8"));
+
+    /** The key derivation iteration count */
+    private static final int ITERATION_COUNT = 10000;
+
+    /** The AES key length in bits */
+    private static final int KEY_LENGTH = 128;
+
+    /** The maximum number of passwords with cached keys */
+    private static final int MAX_CACHED_PASSWORDS = 16;
+
+    /** The AES keys per password digest */
+    private static ConcurrentMap<String, SecretKey> secretKeys = new ConcurrentHashMap<String, SecretKey>();
+
+    /**
+     * Protected constructor
+     */
+    protected AesGcm() {
+
+    }
+
+    /**
+     * Returns the AES key of a password, derived once
+     * 
+     * @param password
+     *            the encryption password
+     * @return the AES key
+     * @throws IOException
+     *             if the key derivation is not supported by the JVM
+     */
+    public static SecretKey getSecretKey(char[] password) throws IOException {
+	if (password == null) {
+	    throw new IllegalArgumentException("password can not be null!");
+	}
+
+	String passwordDigest = null;
+	try {
+	    passwordDigest = Pbe.digest(password);
+	} catch (GeneralSecurityException e) {
+	    throw new IOException(Tag.PRODUCT
+		    + " Impossible to digest the password: " + e, e);
+	}
+
+	SecretKey secretKey = secretKeys.get(passwordDigest);
+
+	if (secretKey == null) {
+	    PBEKeySpec pbeKeySpec = new PBEKeySpec(password, SALT,
+		    ITERATION_COUNT, KEY_LENGTH);
+	    try {
+		SecretKeyFactory keyFac = SecretKeyFactory
+			.getInstance("PBKDF2WithHmacSHA1");
+		secretKey = new SecretKeySpec(keyFac.generateSecret(pbeKeySpec)
+			.getEncoded(), "AES");
+	    } catch (GeneralSecurityException e) {
+		throw new IOException(Tag.PRODUCT
+			+ " Impossible to derive the AES key: " + e, e);
+	    } finally {
+		pbeKeySpec.clearPassword();
+	    }
+
+	    if (secretKeys.size() >= MAX_CACHED_PASSWORDS) {
+		secretKeys.clear();
+	    }
+	    secretKeys.put(passwordDigest, secretKey);
+	}
+
+	return secretKey;
+    }
+
+    /**
+     * Returns the context authenticated with each frame of a body
+     * 
+     * @param context
+     *            the context string, may be null
+     * @return the UTF-8 bytes of the trimmed context
+     */
+    static byte[] toContextBytes(String context) {
+	if (context == null) {
+	    return new byte[0];
+	}
+	return context.trim().getBytes(Charset.forName("UTF-8"));
+    }
+
+    /**
+     * Builds the 12 bytes GCM nonce of a frame
+     */
+    static byte[] buildNonce(byte[] noncePrefix, int frameIndex) {
+	byte[] nonce = new byte[NONCE_PREFIX_LENGTH + 4];
+	System.arraycopy(noncePrefix, 0, nonce, 0, NONCE_PREFIX_LENGTH);
+	putInt(nonce, NONCE_PREFIX_LENGTH, frameIndex);
+	return nonce;
+    }
+
+    /**
+     * Builds the authenticated data of a frame: the context followed by the
+     * frame length header
+     */
+    static byte[] buildAad(byte[] context, int frameHeader) {
+	byte[] aad = new byte[context.length + 4];
+	System.arraycopy(context, 0, aad, 0, context.length);
+	putInt(aad, context.length, frameHeader);
+	return aad;
+    }
+
+    static void putInt(byte[] b, int off, int value) {
+	b[off] = (byte) (value >>> 24);
+	b[off + 1] = (byte) (value >>> 16);
+	b[off + 2] = (byte) (value >>> 8);
+	b[off + 3] = (byte) value;
+    }
+
+    static int getInt(byte[] b, int off) {
+	return ((b[off] & 0xff) << 24) | ((b[off + 1] & 0xff) << 16)
+		| ((b[off + 2] & 0xff) << 8) | (b[off + 3] & 0xff);
+    }
+
+}
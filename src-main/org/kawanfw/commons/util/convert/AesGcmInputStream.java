@@ -0,0 +1,244 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.commons.util.convert;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import org.kawanfw.commons.util.Tag;
+
+/**
+ * An input stream that decrypts and verifies, frame by frame, a body written
+ * by {@link AesGcmOutputStream}.
+ * <p>
+ * No byte of a frame is returned before the frame is authenticated. A body
+ * whose last frame is missing throws an {@code EOFException}.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class AesGcmInputStream extends FilterInputStream {
+
+    private final SecretKey secretKey;
+    private final byte[] context;
+    private final Cipher cipher;
+
+    /** The clear data of the current frame */
+    private final byte[] frame = new byte[AesGcm.FRAME_LENGTH
+	    + AesGcm.TAG_LENGTH];
+    private int framePosition = 0;
+    private int frameLength = 0;
+
+    /** The encrypted frame, reused */
+    private final byte[] encrypted = new byte[AesGcm.FRAME_LENGTH
+	    + AesGcm.TAG_LENGTH];
+
+    private byte[] noncePrefix = null;
+    private int frameIndex = 0;
+    private boolean lastFrameRead = false;
+
+    /**
+     * Constructor
+     * 
+     * @param in
+     *            the underlying input stream
+     * @param secretKey
+     *            the AES key, see {@link AesGcm#getSecretKey(char[])}
+     * @param context
+     *            the context authenticated with each frame, must be the one
+     *            used for encryption
+     * @throws IOException
+     *             if AES-GCM is not supported by the JVM
+     */
+    public AesGcmInputStream(InputStream in, SecretKey secretKey,
+	    String context) throws IOException {
+	super(in);
+
+	if (secretKey == null) {
+	    throw new IllegalArgumentException("secretKey can not be null!");
+	}
+
+	this.secretKey = secretKey;
+	this.context = AesGcm.toContextBytes(context);
+
+	try {
+	    this.cipher = Cipher.getInstance(AesGcm.AES_GCM_NO_PADDING);
+	} catch (GeneralSecurityException e) {
+	    throw new IOException(Tag.PRODUCT
+		    + " AES-GCM is not supported by this JVM: " + e, e);
+	}
+    }
+
+    @Override
+    public int read() throws IOException {
+	if (!fillFrame()) {
+	    return -1;
+	}
+	return frame[framePosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+	if (len == 0) {
+	    return 0;
+	}
+
+	if (!fillFrame()) {
+	    return -1;
+	}
+
+	int n = Math.min(len, frameLength - framePosition);
+	System.arraycopy(frame, framePosition, b, off, n);
+	framePosition += n;
+	return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+	long skipped = 0;
+	while (skipped < n && fillFrame()) {
+	    int step = (int) Math.min(n - skipped, frameLength - framePosition);
+	    framePosition += step;
+	    skipped += step;
+	}
+	return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+	return frameLength - framePosition;
+    }
+
+    @Override
+    public boolean markSupported() {
+	return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+	// Not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+	throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Reads and decrypts the next frame if the current one is consumed.
+     * 
+     * @return false if the end of the body is reached
+     */
+    private boolean fillFrame() throws IOException {
+	while (framePosition == frameLength) {
+	    if (lastFrameRead) {
+		return false;
+	    }
+	    readFrame();
+	}
+	return true;
+    }
+
+    private void readFrame() throws IOException {
+	if (noncePrefix == null) {
+	    byte[] header = new byte[AesGcm.HEADER_LENGTH];
+	    readFully(header, AesGcm.HEADER_LENGTH);
+
+	    if (!Arrays.equals(
+		    Arrays.copyOfRange(header, 0, AesGcm.MAGIC.length),
+		    AesGcm.MAGIC)) {
+		throw new IOException(Tag.PRODUCT
+			+ " Body is not AES-GCM encrypted.");
+	    }
+
+	    if (header[AesGcm.MAGIC.length] != AesGcm.VERSION) {
+		throw new IOException(Tag.PRODUCT
+			+ " Unsupported AES-GCM body version: "
+			+ header[AesGcm.MAGIC.length]);
+	    }
+
+	    noncePrefix = Arrays.copyOfRange(header, AesGcm.MAGIC.length + 1,
+		    AesGcm.HEADER_LENGTH);
+	}
+
+	byte[] lengthBytes = new byte[4];
+	readFully(lengthBytes, 4);
+	int frameHeader = AesGcm.getInt(lengthBytes, 0);
+
+	boolean last = (frameHeader & AesGcm.LAST_FRAME_FLAG) != 0;
+	int clearLength = frameHeader & ~AesGcm.LAST_FRAME_FLAG;
+
+	if (clearLength > AesGcm.FRAME_LENGTH) {
+	    throw new IOException(Tag.PRODUCT + " Invalid AES-GCM frame length: "
+		    + clearLength);
+	}
+
+	int encryptedLength = clearLength + AesGcm.TAG_LENGTH;
+	readFully(encrypted, encryptedLength);
+
+	try {
+	    cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(
+		    AesGcm.TAG_LENGTH * 8, AesGcm.buildNonce(noncePrefix,
+			    frameIndex)));
+	    cipher.updateAAD(AesGcm.buildAad(context, frameHeader));
+	    frameLength = cipher.doFinal(encrypted, 0, encryptedLength, frame,
+		    0);
+	} catch (AEADBadTagException e) {
+	    throw new IOException(Tag.PRODUCT
+		    + " AES-GCM authentication failed on frame " + frameIndex
+		    + ". Check that password values are the same on client and server side.",
+		    e);
+	} catch (GeneralSecurityException e) {
+	    throw new IOException(Tag.PRODUCT + " AES-GCM decryption failed: "
+		    + e, e);
+	}
+
+	framePosition = 0;
+	frameIndex++;
+	lastFrameRead = last;
+    }
+
+    private void readFully(byte[] b, int len) throws IOException {
+	int off = 0;
+	while (off < len) {
+	    int n = in.read(b, off, len - off);
+	    if (n < 0) {
+		throw new EOFException(Tag.PRODUCT
+			+ " Truncated AES-GCM encrypted body.");
+	    }
+	    off += n;
+	}
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.commons.util.convert;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import org.kawanfw.commons.util.Tag;
+
+/**
+ * An output stream that encrypts the written bytes with AES-GCM, frame by
+ * frame, in the format described in {@link AesGcm}.
+ * <p>
+ * The header is written with the first bytes. {@link #finish()} must be called
+ * to write the last frame: it is called by {@link #close()}, but may be called
+ * alone to keep the underlying stream open.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class AesGcmOutputStream extends FilterOutputStream {
+
+    private static final SecureRandom secureRandom = new SecureRandom();
+
+    private final SecretKey secretKey;
+    private final byte[] context;
+    private final Cipher cipher;
+
+    /** The clear data of the current frame */
+    private final byte[] frame = new byte[AesGcm.FRAME_LENGTH];
+    private int frameLength = 0;
+
+    /** The encrypted frame, reused */
+    private final byte[] encrypted = new byte[AesGcm.FRAME_LENGTH
+	    + AesGcm.TAG_LENGTH];
+
+    private byte[] noncePrefix = null;
+    private int frameIndex = 0;
+    private boolean finished = false;
+
+    /**
+     * Constructor
+     * 
+     * @param out
+     *            the underlying output stream
+     * @param secretKey
+     *            the AES key, see {@link AesGcm#getSecretKey(char[])}
+     * @param context
+     *            the context authenticated with each frame, usually the file
+     *            name. Must be the same when decrypting.
+     * @throws IOException
+     *             if AES-GCM is not supported by the JVM
+     */
+    public AesGcmOutputStream(OutputStream out, SecretKey secretKey,
+	    String context) throws IOException {
+	super(out);
+
+	if (secretKey == null) {
+	    throw new IllegalArgumentException("secretKey can not be null!");
+	}
+
+	this.secretKey = secretKey;
+	this.context = AesGcm.toContextBytes(context);
+
+	try {
+	    this.cipher = Cipher.getInstance(AesGcm.AES_GCM_NO_PADDING);
+	} catch (GeneralSecurityException e) {
+	    throw new IOException(Tag.PRODUCT
+		    + " AES-GCM is not supported by this JVM: " + e, e);
+	}
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+	if (finished) {
+	    throw new IOException("Stream is finished.");
+	}
+
+	if (frameLength == frame.length) {
+	    writeFrame(false);
+	}
+	frame[frameLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+	if (finished) {
+	    throw new IOException("Stream is finished.");
+	}
+
+	while (len > 0) {
+	    if (frameLength == frame.length) {
+		writeFrame(false);
+	    }
+
+	    int n = Math.min(len, frame.length - frameLength);
+	    System.arraycopy(b, off, frame, frameLength, n);
+	    frameLength += n;
+	    off += n;
+	    len -= n;
+	}
+    }
+
+    /**
+     * Writes the last frame without closing the underlying stream.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void finish() throws IOException {
+	if (finished) {
+	    return;
+	}
+
+	writeFrame(true);
+	finished = true;
+	out.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+	// The data of the current frame are written with the frame
+	out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+	try {
+	    finish();
+	} finally {
+	    out.close();
+	}
+    }
+
+    /**
+     * Encrypts and writes the current frame
+     */
+    private void writeFrame(boolean last) throws IOException {
+	if (noncePrefix == null) {
+	    noncePrefix = new byte[AesGcm.NONCE_PREFIX_LENGTH];
+	    secureRandom.nextBytes(noncePrefix);
+
+	    out.write(AesGcm.MAGIC);
+	    out.write(AesGcm.VERSION);
+	    out.write(noncePrefix);
+	}
+
+	int frameHeader = last ? frameLength | AesGcm.LAST_FRAME_FLAG
+		: frameLength;
+
+	int encryptedLength = 0;
+	try {
+	    cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(
+		    AesGcm.TAG_LENGTH * 8, AesGcm.buildNonce(noncePrefix,
+			    frameIndex)));
+	    cipher.updateAAD(AesGcm.buildAad(context, frameHeader));
+	    encryptedLength = cipher.doFinal(frame, 0, frameLength, encrypted,
+		    0);
+	} catch (GeneralSecurityException e) {
+	    throw new IOException(Tag.PRODUCT + " AES-GCM encryption failed: "
+		    + e, e);
+	}
+
+	byte[] header = new byte[4];
+	AesGcm.putInt(header, 0, frameHeader);
+	out.write(header);
+	out.write(encrypted, 0, encryptedLength);
+
+	frameIndex++;
+	frameLength = 0;
+    }
+
+}
@@ -31,6 +31,16 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
@@ -41,10 +51,44 @@ import javax.crypto.spec.PBEParameterSpec;
 import org.apache.commons.io.IOUtils;
 import org.kawanfw.commons.codec.binary.CodecHex;
 
+/**
+ * Password based encryption of strings and files. <br>
+ * The keys derived from the passwords are cached, and the initialized
+ * {@code Cipher} instances used for strings are kept per thread, so that the
+ * encryption of each request parameter does not redo the key derivation.
+ * 
+ * @author Nicolas de Pomereu
+ */
 public class Pbe {
     
     public static final String KAWANFW_ENCRYPTED = "*!aw!*";
 
+    /** The PBE algorithm */
+    private static final String PBE_WITH_MD5_AND_DES = "PBEWithMD5AndDES";
+
+    /** The salt */
+    private static final byte[] SALT = { (byte) 0xc7, (byte) 0x73,
+	    (byte) 0x21, (byte) 0x8c, (byte) 0x7e, (byte) 0xc8, (byte) 0xee,
+	    (byte) 0x99 };
+
+    /** The iteration count for strings */
+    private static final int STRING_ITERATION_COUNT = 20;
+
+    /** The iteration count for files */
+    private static final int FILE_ITERATION_COUNT = 1;
+
+    /** The maximum number of passwords with cached keys and ciphers */
+    private static final int MAX_CACHED_PASSWORDS = 16;
+
+    /** The secret keys per password digest */
+    private static ConcurrentMap<String, SecretKey> secretKeys = new ConcurrentHashMap<String, SecretKey>();
+
+    /**
+     * The initialized string ciphers of each thread per mode and password
+     * digest
+     */
+    private static ThreadLocal<Map<String, Cipher>> threadCiphers = new ThreadLocal<Map<String, Cipher>>();
+
     /**
      * 
      * Encrypt a string into a an hexa format
@@ -110,29 +154,24 @@ public class Pbe {
 	    throw new IllegalArgumentException("password can not be null!");
 	}
 
-	PBEKeySpec pbeKeySpec;
-	PBEParameterSpec pbeParamSpec;
-	SecretKeyFactory keyFac;
-
-	// Salt
-	byte[] salt = { (byte) 0xc7, (byte) 0x73, (byte) 0x21, (byte) 0x8c,
-		(byte) 0x7e, (byte) 0xc8, (byte) 0xee, (byte) 0x99 };
-
-	// Iteration count
-	int count = 20;
+	String passwordDigest = digest(password);
 
-	// Create PBE parameter set
-	pbeParamSpec = new PBEParameterSpec(salt, count);
-
-	pbeKeySpec = new PBEKeySpec(password);
-	keyFac = SecretKeyFactory.getInstance("PBEWithMD5AndDES");
-	SecretKey pbeKey = keyFac.generateSecret(pbeKeySpec);
+	// The Cipher of this thread, already initialized with key and
+	// parameters
+	Map<String, Cipher> ciphers = threadCiphers.get();
+	if (ciphers == null) {
+	    ciphers = new HashMap<String, Cipher>();
+	    threadCiphers.set(ciphers);
+	}
 
-	// Create PBE Cipher
-	Cipher pbeCipher = Cipher.getInstance("PBEWithMD5AndDES");
+	String cipherKey = mode + ":" + passwordDigest;
+	Cipher pbeCipher = ciphers.remove(cipherKey);
 
-	// Initialize PBE Cipher with key and parameters
-	pbeCipher.init(mode, pbeKey, pbeParamSpec);
+	if (pbeCipher == null) {
+	    pbeCipher = Cipher.getInstance(PBE_WITH_MD5_AND_DES);
+	    pbeCipher.init(mode, getSecretKey(password, passwordDigest),
+		    new PBEParameterSpec(SALT, STRING_ITERATION_COUNT));
+	}
 
 	// Our cleartext
 	byte[] inText = null;
@@ -146,6 +185,13 @@ public class Pbe {
 	// Encrypt the cleartext
 	byte[] ciphertext = pbeCipher.doFinal(inText);
 
+	// doFinal() resets the Cipher to its initialized state: keep it for
+	// the next call, unless it has thrown an Exception
+	if (ciphers.size() >= MAX_CACHED_PASSWORDS * 2) {
+	    ciphers.clear();
+	}
+	ciphers.put(cipherKey, pbeCipher);
+
 	if (mode == Cipher.ENCRYPT_MODE) {
 	    return new String(CodecHex.encodeHex(ciphertext));
 	} else {
@@ -216,29 +262,12 @@ public class Pbe {
 	    throw new IllegalArgumentException("password can not be null!");
 	}
 
-	PBEKeySpec pbeKeySpec;
-	PBEParameterSpec pbeParamSpec;
-	SecretKeyFactory keyFac;
-
-	// Salt
-	byte[] salt = { (byte) 0xc7, (byte) 0x73, (byte) 0x21, (byte) 0x8c,
-		(byte) 0x7e, (byte) 0xc8, (byte) 0xee, (byte) 0x99 };
-
-	// Iteration count
-	int count = 1;
-
-	// Create PBE parameter set
-	pbeParamSpec = new PBEParameterSpec(salt, count);
-
-	pbeKeySpec = new PBEKeySpec(password);
-	keyFac = SecretKeyFactory.getInstance("PBEWithMD5AndDES");
-	SecretKey pbeKey = keyFac.generateSecret(pbeKeySpec);
-
 	// Create PBE Cipher
-	Cipher pbeCipher = Cipher.getInstance("PBEWithMD5AndDES");
+	Cipher pbeCipher = Cipher.getInstance(PBE_WITH_MD5_AND_DES);
 
 	// Initialize PBE Cipher with key and parameters
-	pbeCipher.init(mode, pbeKey, pbeParamSpec);
+	pbeCipher.init(mode, getSecretKey(password, digest(password)),
+		new PBEParameterSpec(SALT, FILE_ITERATION_COUNT));
 
 	InputStream in = null;
 	OutputStream out = null;
@@ -267,4 +296,62 @@ public class Pbe {
 
     }
 
+    /**
+     * Returns the SHA-256 digest of a password, used as cache key so that the
+     * password itself is never kept in the caches. Also used by
+     * {@link AesGcm}.
+     * 
+     * @param password
+     *            the password to use
+     * @return the hexadecimal digest of the password
+     * @throws GeneralSecurityException
+     *             if SHA-256 is not supported by the JVM
+     */
+    static String digest(char[] password) throws GeneralSecurityException {
+	ByteBuffer byteBuffer = Charset.forName("UTF-8").encode(
+		CharBuffer.wrap(password));
+	byte[] bytes = new byte[byteBuffer.remaining()];
+	byteBuffer.get(bytes);
+
+	try {
+	    MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+	    return new String(CodecHex.encodeHex(messageDigest.digest(bytes)));
+	} finally {
+	    Arrays.fill(bytes, (byte) 0);
+	    if (byteBuffer.hasArray()) {
+		Arrays.fill(byteBuffer.array(), (byte) 0);
+	    }
+	}
+    }
+
+    /**
+     * Returns the secret key of a password, generated once
+     * 
+     * @param password
+     *            the password to use
+     * @param passwordDigest
+     *            the digest of the password, used as cache key
+     * @return the secret key of the password
+     * @throws Exception
+     */
+    private static SecretKey getSecretKey(char[] password,
+	    String passwordDigest) throws Exception {
+	SecretKey pbeKey = secretKeys.get(passwordDigest);
+
+	if (pbeKey == null) {
+	    PBEKeySpec pbeKeySpec = new PBEKeySpec(password);
+	    SecretKeyFactory keyFac = SecretKeyFactory
+		    .getInstance(PBE_WITH_MD5_AND_DES);
+	    pbeKey = keyFac.generateSecret(pbeKeySpec);
+	    pbeKeySpec.clearPassword();
+
+	    if (secretKeys.size() >= MAX_CACHED_PASSWORDS) {
+		secretKeys.clear();
+	    }
+	    secretKeys.put(passwordDigest, pbeKey);
+	}
+
+	return pbeKey;
+    }
+
 }
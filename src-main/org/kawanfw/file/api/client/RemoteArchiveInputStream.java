@@ -0,0 +1,416 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.client;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.util.List;
+import java.util.Vector;
+import java.util.logging.Level;
+import java.util.zip.Deflater;
+
+import org.kawanfw.commons.api.client.InvalidLoginException;
+import org.kawanfw.commons.api.client.RemoteException;
+import org.kawanfw.commons.client.http.HttpTransferUtil;
+import org.kawanfw.commons.client.http.SimpleNameValuePair;
+import org.kawanfw.commons.util.ClientLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.Tag;
+import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.util.parms.Action;
+import org.kawanfw.file.util.parms.Parameter;
+import org.kawanfw.file.util.parms.ReturnCode;
+
+/**
+ * A <code>RemoteArchiveInputStream</code> obtains the bytes of a zip, tar or
+ * tar.gz archive of a remote file or directory tree.
+ * <p>
+ * The archive is built on the fly by the server while the tree is walked:
+ * there is no temporary archive, neither on the server nor on the client. The
+ * stream can thus be wrapped in a {@code ZipInputStream}, or in a tar reader,
+ * to extract the entries as the bytes arrive. <br>
+ * The end of the archive is checked: a read throws an {@code EOFException} if
+ * the connection is lost before the whole archive is received, and a
+ * {@link RemoteException} if the server failed during the archive creation.
+ * <br>
+ * <br>
+ * The entries are named relatively to the parent of the remote path: the
+ * archive of {@code "/mydir"} contains {@code "mydir/"},
+ * {@code "mydir/file.txt"}, etc. Symbolic links and special files are not
+ * archived.
+ * <br>
+ * <br>
+ * Example:
+ * <blockquote><pre>
+ * InputStream in = null;
+ * OutputStream out = null;
+ * 
+ * try {
+ *     // Get the tar.gz archive of a remote directory
+ *     in = new RemoteArchiveInputStream(remoteSession, &quot;/mydir&quot;,
+ * 	    RemoteArchiveInputStream.FORMAT_TAR_GZ, 6);
+ *     out = new FileOutputStream(new File(&quot;C:\\Users\\Mike\\mydir.tar.gz&quot;));
+ * 
+ *     byte[] buffer = new byte[1024 * 4];
+ *     int n = 0;
+ *     while ((n = in.read(buffer)) != -1) {
+ * 	out.write(buffer, 0, n);
+ *     }
+ * 
+ * } finally {
+ *     if (in != null)
+ * 	in.close();
+ *     if (out != null)
+ * 	out.close();
+ * }
+ * </pre></blockquote>
+ * 
+ * Use {@link RemoteSession#downloadDirectory(String, java.io.File, int)} to
+ * directly extract a remote directory into a local one.
+ * 
+ * @see org.kawanfw.file.api.client.RemoteInputStream
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+
+public class RemoteArchiveInputStream extends InputStream {
+
+    private static boolean DEBUG = FrameworkDebug
+	    .isSet(RemoteArchiveInputStream.class);
+
+    /** The zip archive format */
+    public static final String FORMAT_ZIP = Parameter.ARCHIVE_FORMAT_ZIP;
+
+    /** The uncompressed tar archive format */
+    public static final String FORMAT_TAR = Parameter.ARCHIVE_FORMAT_TAR;
+
+    /** The gzip compressed tar archive format */
+    public static final String FORMAT_TAR_GZ = Parameter.ARCHIVE_FORMAT_TAR_GZ;
+
+    /** The remote session in use */
+    private RemoteSession remoteSession = null;
+
+    /** The remote file or directory path */
+    private String pathname = null;
+
+    /** The archive format */
+    private String format = null;
+
+    /** The compression level */
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /** The stream of the frames sent by the server */
+    private DataInputStream in = null;
+
+    /** The bytes remaining to read in the current frame */
+    private int frameRemaining = 0;
+
+    /** Says if the end of archive frame has been read */
+    private boolean ended = false;
+
+    /** Says if the stream has been closed */
+    private boolean closed = false;
+
+    /**
+     * Creates a <code>RemoteArchiveInputStream</code> of a remote file or
+     * directory tree. The connection to the server is opened on the first
+     * read.
+     * 
+     * @param remoteSession
+     *            the current remote session
+     * @param pathname
+     *            the pathname on host with "/" as file separator. Must be
+     *            absolute.
+     * @param format
+     *            the archive format: {@link #FORMAT_ZIP}, {@link #FORMAT_TAR}
+     *            or {@link #FORMAT_TAR_GZ}
+     * @param compressionLevel
+     *            the compression level, from 0 (no compression) to 9, or -1
+     *            for the default level. Not used by {@link #FORMAT_TAR}.
+     * 
+     * @throws IllegalArgumentException
+     *             if remoteSession, pathname or format is null, if pathname
+     *             is not absolute, if format is unknown or if
+     *             compressionLevel is not in -1..9
+     * @throws InvalidLoginException
+     *             the session has been closed by a {@code logoff()}
+     */
+    public RemoteArchiveInputStream(RemoteSession remoteSession,
+	    String pathname, String format, int compressionLevel)
+	    throws InvalidLoginException {
+
+	if (remoteSession == null) {
+	    throw new IllegalArgumentException("remoteSession is null!");
+	}
+
+	if (remoteSession.getUsername() == null
+		|| remoteSession.getAuthenticationToken() == null) {
+	    throw new InvalidLoginException(
+		    RemoteSession.REMOTE_SESSION_IS_CLOSED);
+	}
+
+	if (pathname == null) {
+	    throw new IllegalArgumentException("pathname is null!");
+	}
+
+	if (!pathname.startsWith("/")) {
+	    throw new IllegalArgumentException(
+		    "pathname must be asbsolute and start with \"/\": "
+			    + pathname);
+	}
+
+	if (format == null) {
+	    throw new IllegalArgumentException("format is null!");
+	}
+
+	if (!format.equals(FORMAT_ZIP) && !format.equals(FORMAT_TAR)
+		&& !format.equals(FORMAT_TAR_GZ)) {
+	    throw new IllegalArgumentException("Invalid archive format: "
+		    + format);
+	}
+
+	if (compressionLevel < Deflater.DEFAULT_COMPRESSION
+		|| compressionLevel > Deflater.BEST_COMPRESSION) {
+	    throw new IllegalArgumentException(
+		    "compressionLevel must be in -1..9: " + compressionLevel);
+	}
+
+	this.remoteSession = remoteSession;
+	this.pathname = pathname;
+	this.format = format;
+	this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Reads up to <code>len</code> bytes of the archive into an array of
+     * bytes.
+     * 
+     * @param b
+     *            the buffer into which the data is read.
+     * @param off
+     *            the start offset in array <code>b</code> at which the data
+     *            is written.
+     * @param len
+     *            the maximum number of bytes to read.
+     * @return the total number of bytes read into the buffer, or
+     *         <code>-1</code> if there is no more data because the end of the
+     *         archive has been reached.
+     * @exception EOFException
+     *                if the connection ended before the end of the archive
+     * @exception RemoteException
+     *                if an exception has been thrown on the server side
+     * @exception IOException
+     *                if an I/O error occurs.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+	if (!nextFrame()) {
+	    return -1;
+	}
+
+	if (len == 0) {
+	    return 0;
+	}
+
+	int n = in.read(b, off, Math.min(len, frameRemaining));
+	if (n == -1) {
+	    throw new EOFException(Tag.PRODUCT
+		    + " Archive is truncated: " + pathname);
+	}
+
+	frameRemaining -= n;
+	return n;
+    }
+
+    /**
+     * Reads the next byte of the archive.
+     * 
+     * @return the next byte of data, or <code>-1</code> if the end of the
+     *         archive is reached.
+     * @exception IOException
+     *                if an I/O error occurs.
+     */
+    @Override
+    public int read() throws IOException {
+	byte[] b = new byte[1];
+	int n;
+	while ((n = read(b, 0, 1)) == 0) {
+	    // Loop on empty reads
+	}
+	return n == -1 ? -1 : b[0] & 0xff;
+    }
+
+    /**
+     * Closes this input stream and the underlying connection.
+     * 
+     * @exception IOException
+     *                if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+
+	if (closed) {
+	    return;
+	}
+
+	closed = true;
+
+	if (in != null) {
+	    in.close();
+	    in = null;
+	}
+    }
+
+    /**
+     * Positions the stream on a frame with bytes to read
+     * 
+     * @return false if the end of the archive has been reached
+     */
+    private boolean nextFrame() throws IOException {
+
+	if (closed) {
+	    throw new IOException(Tag.PRODUCT + " Stream is closed.");
+	}
+
+	// First read: we open the connection
+	if (in == null) {
+	    init();
+	}
+
+	while (frameRemaining == 0) {
+
+	    if (ended) {
+		return false;
+	    }
+
+	    int length;
+	    try {
+		length = in.readInt();
+	    } catch (EOFException e) {
+		throw new EOFException(Tag.PRODUCT
+			+ " Archive is truncated: " + pathname);
+	    }
+
+	    if (length == 0) {
+		ended = true;
+	    } else if (length == -1) {
+		// The server failed while building the archive
+		BufferedReader bufferedReader = new BufferedReader(
+			new InputStreamReader(in, "UTF-8"));
+		HttpTransferUtil.throwTheRemoteException(bufferedReader);
+	    } else if (length < 0) {
+		throw new IOException(Tag.PRODUCT_PRODUCT_FAIL
+			+ " Invalid archive frame length: " + length);
+	    } else {
+		frameRemaining = length;
+	    }
+	}
+
+	return true;
+    }
+
+    /**
+     * Opens the connection and analyses the start of the response: a failure
+     * before the archive is sent in clear, as for all actions.
+     */
+    private void init() throws IOException {
+
+	debug("pathname: " + pathname + " format: " + format + " level: "
+		+ compressionLevel);
+
+	List<SimpleNameValuePair> requestParams = new Vector<SimpleNameValuePair>();
+	requestParams.add(new SimpleNameValuePair(Parameter.ACTION,
+		Action.FILE_ARCHIVE_ACTION));
+	requestParams.add(new SimpleNameValuePair(Parameter.USERNAME,
+		remoteSession.getUsername()));
+	requestParams.add(new SimpleNameValuePair(Parameter.TOKEN,
+		remoteSession.getAuthenticationToken()));
+	requestParams.add(new SimpleNameValuePair(Parameter.FILENAME, pathname));
+	requestParams.add(new SimpleNameValuePair(Parameter.ARCHIVE_FORMAT,
+		format));
+	requestParams.add(new SimpleNameValuePair(Parameter.COMPRESSION_LEVEL,
+		Integer.toString(compressionLevel)));
+
+	InputStream httpIn = remoteSession.getHttpTransfer().getInputStream(
+		requestParams);
+
+	// A frame length starts with a 0 byte, a transfer status with a letter
+	PushbackInputStream pushbackIn = new PushbackInputStream(httpIn);
+	int first = pushbackIn.read();
+
+	if (first == -1) {
+	    pushbackIn.close();
+	    throw new EOFException(Tag.PRODUCT + " Archive is truncated: "
+		    + pathname);
+	}
+
+	pushbackIn.unread(first);
+
+	if (first == TransferStatus.SEND_OK.charAt(0)) {
+	    BufferedReader bufferedReader = new BufferedReader(
+		    new InputStreamReader(pushbackIn, "UTF-8"));
+	    try {
+		String status = bufferedReader.readLine();
+
+		if (status != null
+			&& status.startsWith(TransferStatus.SEND_FAILED)) {
+		    HttpTransferUtil.throwTheRemoteException(bufferedReader);
+		}
+
+		String receive = bufferedReader.readLine();
+		if (receive != null
+			&& receive.startsWith(ReturnCode.INVALID_LOGIN_OR_PASSWORD)) {
+		    throw new InvalidLoginException(
+			    RemoteSession.REMOTE_SESSION_IS_CLOSED);
+		}
+
+		// Should never happen
+		throw new IOException(Tag.PRODUCT_PRODUCT_FAIL
+			+ " Invalid received buffer: " + status);
+	    } finally {
+		bufferedReader.close();
+	    }
+	}
+
+	in = new DataInputStream(pushbackIn);
+    }
+
+    /**
+     * debug tool
+     */
+    private void debug(String s) {
+	if (DEBUG) {
+	    ClientLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+}
@@ -0,0 +1,345 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.client;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Vector;
+import java.util.logging.Level;
+
+import org.kawanfw.commons.api.client.InvalidLoginException;
+import org.kawanfw.commons.api.client.RemoteException;
+import org.kawanfw.commons.api.client.SessionParameters;
+import org.kawanfw.commons.client.http.HttpTransfer;
+import org.kawanfw.commons.client.http.SimpleNameValuePair;
+import org.kawanfw.commons.util.ClientLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.HtmlConverter;
+import org.kawanfw.file.util.parms.Action;
+import org.kawanfw.file.util.parms.Parameter;
+import org.kawanfw.file.util.parms.ReturnCode;
+
+/**
+ * A remote Java method call executed asynchronously on the server, as
+ * returned by {@link RemoteSession#submitCall(String, Object...)}.
+ * <p>
+ * The result is fetched with long polling: each request waits on the server
+ * for the end of the call during at most a few seconds, so that no http
+ * connection stays open during the whole call.
+ * <p>
+ * Example: <blockquote>
+ * 
+ * <pre>
+ * RemoteCallJob remoteCallJob = remoteSession.submitCall(
+ * 	&quot;org.acme.Report.build&quot;, 2015);
+ * 
+ * // Do other things...
+ * 
+ * // Wait for the end of the call and get its result
+ * String result = remoteCallJob.get();
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * As the job uses the {@code RemoteSession} http connection, do not use the
+ * same {@code RemoteSession} simultaneously in another thread (use
+ * {@link RemoteSession#clone()}).
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class RemoteCallJob {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(RemoteCallJob.class);
+
+    /** The max time of a long poll request, in milliseconds */
+    public static final long MAX_POLL_WAIT_MILLIS = 10 * 1000;
+
+    /** The Awake FILE session in use */
+    private RemoteSession remoteSession = null;
+
+    /** The server job id */
+    private String jobId = null;
+
+    /** Says if the job is ended and its result fetched */
+    private boolean done = false;
+
+    /** The result of the call */
+    private String result = null;
+
+    /**
+     * Constructor
+     * 
+     * @param remoteSession
+     *            the Awake FILE session in use
+     * @param jobId
+     *            the server job id
+     */
+    RemoteCallJob(RemoteSession remoteSession, String jobId) {
+	this.remoteSession = remoteSession;
+	this.jobId = jobId;
+    }
+
+    /**
+     * Returns the server id of the call job.
+     * 
+     * @return the server id of the call job
+     */
+    public String getJobId() {
+	return this.jobId;
+    }
+
+    /**
+     * Says if the remote call is ended. Does not wait.
+     * 
+     * @return {@code true} if the remote call is ended
+     * 
+     * @throws InvalidLoginException
+     *             the session has been closed by a {@code logoff()}
+     * @throws UnknownHostException
+     *             if host URL (http://www.acme.org) does not exists or no
+     *             Internet Connection.
+     * @throws ConnectException
+     *             if the Host is correct but the {@code ServerFileManager}
+     *             Servlet is not reachable
+     * @throws SocketException
+     *             if network failure during transmission
+     * @throws RemoteException
+     *             an exception has been thrown by the remote call or on the
+     *             server side
+     * @throws IOException
+     *             for all other IO / Network / System Error
+     */
+    public boolean isDone() throws InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+	if (!done) {
+	    poll(0);
+	}
+	return done;
+    }
+
+    /**
+     * Waits at most the passed time for the end of the remote call.
+     * 
+     * @param timeoutMillis
+     *            the maximum time to wait in milliseconds
+     * @return {@code true} if the remote call is ended
+     * 
+     * @throws InvalidLoginException
+     *             the session has been closed by a {@code logoff()}
+     * @throws UnknownHostException
+     *             if host URL (http://www.acme.org) does not exists or no
+     *             Internet Connection.
+     * @throws ConnectException
+     *             if the Host is correct but the {@code ServerFileManager}
+     *             Servlet is not reachable
+     * @throws SocketException
+     *             if network failure during transmission
+     * @throws RemoteException
+     *             an exception has been thrown by the remote call or on the
+     *             server side
+     * @throws IOException
+     *             for all other IO / Network / System Error
+     */
+    public boolean waitFor(long timeoutMillis) throws InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+
+	long end = System.currentTimeMillis() + timeoutMillis;
+
+	while (!done) {
+	    long remaining = end - System.currentTimeMillis();
+	    if (remaining <= 0) {
+		break;
+	    }
+	    poll(Math.min(remaining, getPollWaitMillis()));
+	}
+
+	return done;
+    }
+
+    /**
+     * Waits for the end of the remote call and returns its result.
+     * 
+     * @return the result of the Java call as {@code String}
+     * 
+     * @throws InvalidLoginException
+     *             the session has been closed by a {@code logoff()}
+     * @throws UnknownHostException
+     *             if host URL (http://www.acme.org) does not exists or no
+     *             Internet Connection.
+     * @throws ConnectException
+     *             if the Host is correct but the {@code ServerFileManager}
+     *             Servlet is not reachable
+     * @throws SocketException
+     *             if network failure during transmission
+     * @throws RemoteException
+     *             an exception has been thrown by the remote call or on the
+     *             server side
+     * @throws IOException
+     *             for all other IO / Network / System Error
+     */
+    public String get() throws InvalidLoginException, UnknownHostException,
+	    ConnectException, SocketException, RemoteException, IOException {
+	while (!done) {
+	    poll(getPollWaitMillis());
+	}
+	return result;
+    }
+
+    /**
+     * Cancels the remote call. The call thread is interrupted on the server
+     * if the call is running.
+     * 
+     * @return {@code true} if the call has been cancelled, {@code false} if it
+     *         was already ended
+     * 
+     * @throws InvalidLoginException
+     *             the session has been closed by a {@code logoff()}
+     * @throws UnknownHostException
+     *             if host URL (http://www.acme.org) does not exists or no
+     *             Internet Connection.
+     * @throws ConnectException
+     *             if the Host is correct but the {@code ServerFileManager}
+     *             Servlet is not reachable
+     * @throws SocketException
+     *             if network failure during transmission
+     * @throws RemoteException
+     *             an exception has been thrown on the server side
+     * @throws IOException
+     *             for all other IO / Network / System Error
+     */
+    public boolean cancel() throws InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+
+	if (done) {
+	    return false;
+	}
+
+	String response = send(Action.CALL_JOB_CANCEL_ACTION, 0);
+	done = true;
+	return Boolean.parseBoolean(response);
+    }
+
+    /**
+     * Asks the server for the job result, waiting at most the passed time on
+     * server side.
+     * 
+     * @param waitMillis
+     *            the maximum time to wait on server side
+     */
+    private void poll(long waitMillis) throws InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+
+	String response = send(Action.CALL_JOB_RESULT_ACTION, waitMillis);
+
+	if (response.startsWith(ReturnCode.JOB_DONE)) {
+	    response = response.substring(ReturnCode.JOB_DONE.length()).trim();
+
+	    // The response is in Html encode:
+	    if (!response.isEmpty()) {
+		response = HtmlConverter.fromHtml(response);
+	    }
+
+	    result = response;
+	    done = true;
+	}
+    }
+
+    /**
+     * Sends a job action to the server and returns the response
+     * 
+     * @param action
+     *            the job action
+     * @param waitMillis
+     *            the maximum time to wait on server side
+     * @return the server response
+     */
+    private String send(String action, long waitMillis)
+	    throws InvalidLoginException, UnknownHostException,
+	    ConnectException, SocketException, RemoteException, IOException {
+
+	String username = remoteSession.getUsername();
+	String authenticationToken = remoteSession.getAuthenticationToken();
+	HttpTransfer httpTransfer = remoteSession.getHttpTransfer();
+
+	if (username == null || authenticationToken == null
+		|| httpTransfer == null) {
+	    throw new InvalidLoginException(
+		    RemoteSession.REMOTE_SESSION_IS_CLOSED);
+	}
+
+	List<SimpleNameValuePair> requestParams = new Vector<SimpleNameValuePair>();
+	requestParams.add(new SimpleNameValuePair(Parameter.ACTION, action));
+	requestParams
+		.add(new SimpleNameValuePair(Parameter.USERNAME, username));
+	requestParams.add(new SimpleNameValuePair(Parameter.TOKEN,
+		authenticationToken));
+	requestParams.add(new SimpleNameValuePair(Parameter.JOB_ID, jobId));
+	requestParams.add(new SimpleNameValuePair(Parameter.WAIT_MILLIS, Long
+		.toString(waitMillis)));
+
+	httpTransfer.send(requestParams);
+
+	String response = httpTransfer.recv();
+	debug("response: " + response);
+
+	if (response.startsWith(ReturnCode.INVALID_LOGIN_OR_PASSWORD)) {
+	    throw new InvalidLoginException(
+		    RemoteSession.REMOTE_SESSION_IS_CLOSED);
+	}
+
+	return response;
+    }
+
+    /**
+     * Returns the time of a long poll request: must stay under the read
+     * timeout of the session.
+     * 
+     * @return the time of a long poll request in milliseconds
+     */
+    private long getPollWaitMillis() {
+	SessionParameters sessionParameters = remoteSession
+		.getSessionParameters();
+	if (sessionParameters != null && sessionParameters.getReadTimeout() > 0) {
+	    return Math.min(MAX_POLL_WAIT_MILLIS,
+		    sessionParameters.getReadTimeout() / 2);
+	}
+	return MAX_POLL_WAIT_MILLIS;
+    }
+
+    private void debug(String s) {
+	if (DEBUG) {
+	    ClientLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+}
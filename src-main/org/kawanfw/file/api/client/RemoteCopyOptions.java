@@ -0,0 +1,169 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.client;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The options of a server side copy or move done with
+ * {@link RemoteFile#copyTo(RemoteFile, RemoteCopyOptions)} or
+ * {@link RemoteFile#moveTo(RemoteFile, RemoteCopyOptions)}.
+ * <p>
+ * The progress and cancelled variables follow the same principle as the
+ * upload and download progress indicators: the progress value is updated
+ * between 0 and 100 while the server copies, and the copy is stopped on the
+ * server as soon as the cancelled value is set to {@code true}.
+ * <p>
+ * Example: <blockquote>
+ * 
+ * <pre>
+ * RemoteCopyOptions options = new RemoteCopyOptions();
+ * options.setReplaceExisting(true);
+ * options.setProgress(progress);
+ * options.setCancelled(cancelled);
+ * 
+ * new RemoteFile(remoteSession, &quot;/mydir&quot;).copyTo(new RemoteFile(
+ * 	remoteSession, &quot;/mydir_backup&quot;), options);
+ * </pre>
+ * 
+ * </blockquote>
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class RemoteCopyOptions {
+
+    /** Says if existing target files are replaced */
+    private boolean replaceExisting = false;
+
+    /** Says if files are hard linked instead of copied when possible */
+    private boolean hardLink = false;
+
+    /** Progress value between 0 and 100, may be null */
+    private AtomicInteger progress = null;
+
+    /** Says if user has cancelled the copy, may be null */
+    private AtomicBoolean cancelled = null;
+
+    /**
+     * Constructor
+     */
+    public RemoteCopyOptions() {
+    }
+
+    /**
+     * Says if existing target files are replaced
+     * 
+     * @return true if existing target files are replaced
+     */
+    public boolean isReplaceExisting() {
+	return replaceExisting;
+    }
+
+    /**
+     * Sets if existing target files are replaced. If {@code false}, the copy
+     * fails with a {@code FileAlreadyExistsException} on the first existing
+     * target file. Defaults to {@code false}.
+     * 
+     * @param replaceExisting
+     *            true to replace existing target files
+     */
+    public void setReplaceExisting(boolean replaceExisting) {
+	this.replaceExisting = replaceExisting;
+    }
+
+    /**
+     * Says if files are hard linked instead of copied when possible
+     * 
+     * @return true if files are hard linked when possible
+     */
+    public boolean isHardLink() {
+	return hardLink;
+    }
+
+    /**
+     * Sets if regular files are hard linked on the server instead of copied.
+     * Files are copied if the server file system does not support hard links
+     * between source and target. Ignored by a move. Defaults to {@code false}.
+     * <p>
+     * Note that a hard linked target shares its content with the source: a
+     * modification of one is seen by the other.
+     * 
+     * @param hardLink
+     *            true to hard link files when possible
+     */
+    public void setHardLink(boolean hardLink) {
+	this.hardLink = hardLink;
+    }
+
+    /**
+     * Returns the progress indicator
+     * 
+     * @return the progress value between 0 and 100, may be null
+     */
+    public AtomicInteger getProgress() {
+	return progress;
+    }
+
+    /**
+     * Sets the progress indicator, updated between 0 and 100 while the server
+     * copies
+     * 
+     * @param progress
+     *            the progress value between 0 and 100
+     */
+    public void setProgress(AtomicInteger progress) {
+	this.progress = progress;
+    }
+
+    /**
+     * Returns the cancel indicator
+     * 
+     * @return the cancel indicator, may be null
+     */
+    public AtomicBoolean getCancelled() {
+	return cancelled;
+    }
+
+    /**
+     * Sets the cancel indicator: the copy is stopped on the server as soon as
+     * the value is set to {@code true}. The files already copied are not
+     * deleted.
+     * 
+     * @param cancelled
+     *            the cancel indicator
+     */
+    public void setCancelled(AtomicBoolean cancelled) {
+	this.cancelled = cancelled;
+    }
+
+    @Override
+    public String toString() {
+	return "RemoteCopyOptions [replaceExisting=" + replaceExisting
+		+ ", hardLink=" + hardLink + "]";
+    }
+
+}
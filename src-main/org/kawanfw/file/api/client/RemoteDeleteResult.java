@@ -0,0 +1,136 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.client;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a recursive delete returned by
+ * {@link RemoteFile#deleteTree()}: number of deleted files and directories,
+ * and the failures.
+ * <p>
+ * A failure does not stop the deletion: the directories that still contain an
+ * entry are kept. Only the first failures are returned by
+ * {@link #getFailures()}, but all are counted by {@link #getFailureCount()}.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class RemoteDeleteResult {
+
+    /** The number of deleted files */
+    private long fileCount = 0;
+
+    /** The number of deleted directories */
+    private long directoryCount = 0;
+
+    /** The number of failures */
+    private long failureCount = 0;
+
+    /** The first failures */
+    private List<String> failures = null;
+
+    /**
+     * Constructor
+     * 
+     * @param fileCount
+     *            the number of deleted files
+     * @param directoryCount
+     *            the number of deleted directories
+     * @param failureCount
+     *            the number of failures
+     * @param failures
+     *            the first failures
+     */
+    RemoteDeleteResult(long fileCount, long directoryCount,
+	    long failureCount, List<String> failures) {
+	this.fileCount = fileCount;
+	this.directoryCount = directoryCount;
+	this.failureCount = failureCount;
+	this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Returns the number of deleted files
+     * 
+     * @return the number of deleted files, symbolic links included
+     */
+    public long getFileCount() {
+	return fileCount;
+    }
+
+    /**
+     * Returns the number of deleted directories
+     * 
+     * @return the number of deleted directories, root directory included
+     */
+    public long getDirectoryCount() {
+	return directoryCount;
+    }
+
+    /**
+     * Returns the number of files or directories that could not be read or
+     * deleted
+     * 
+     * @return the number of failures
+     */
+    public long getFailureCount() {
+	return failureCount;
+    }
+
+    /**
+     * Returns the first failures, in the format
+     * {@code <exception class name> <pathname>}, for example
+     * {@code "AccessDeniedException /mydir/myfile.txt"}.
+     * 
+     * @return the first failures, empty if the deletion succeeded
+     */
+    public List<String> getFailures() {
+	return failures;
+    }
+
+    /**
+     * Says if the whole tree has been deleted
+     * 
+     * @return true if there is no failure
+     */
+    public boolean isSuccess() {
+	return failureCount == 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+	return "RemoteDeleteResult [fileCount=" + fileCount
+		+ ", directoryCount=" + directoryCount + ", failureCount="
+		+ failureCount + ", failures=" + failures + "]";
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.client;
+
+/**
+ * The disk usage of a remote directory tree returned by
+ * {@link RemoteFile#getDiskUsage()}: total length of the files, number of
+ * files and number of directories, not including the root directory itself.
+ * <p>
+ * Symbolic links are counted as files and are not followed. The server may
+ * return a cached value: see
+ * {@code FileConfigurator.getDiskUsageCacheTtlMillis()}.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class RemoteDiskUsage {
+
+    /** The total length of the files */
+    private long length = 0;
+
+    /** The number of files */
+    private long fileCount = 0;
+
+    /** The number of directories */
+    private long directoryCount = 0;
+
+    /**
+     * Constructor
+     * 
+     * @param length
+     *            the total length of the files in bytes
+     * @param fileCount
+     *            the number of files
+     * @param directoryCount
+     *            the number of directories
+     */
+    RemoteDiskUsage(long length, long fileCount, long directoryCount) {
+	this.length = length;
+	this.fileCount = fileCount;
+	this.directoryCount = directoryCount;
+    }
+
+    /**
+     * Returns the total length of the files of the tree
+     * 
+     * @return the total length of the files in bytes
+     */
+    public long getLength() {
+	return length;
+    }
+
+    /**
+     * Returns the number of files of the tree
+     * 
+     * @return the number of files, symbolic links included
+     */
+    public long getFileCount() {
+	return fileCount;
+    }
+
+    /**
+     * Returns the number of directories of the tree
+     * 
+     * @return the number of directories, not including the root directory
+     */
+    public long getDirectoryCount() {
+	return directoryCount;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+	return "RemoteDiskUsage [length=" + length + ", fileCount="
+		+ fileCount + ", directoryCount=" + directoryCount + "]";
+    }
+
+}
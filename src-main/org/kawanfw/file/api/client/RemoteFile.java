@@ -28,6 +28,8 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.logging.Level;
 
 import org.apache.commons.lang3.StringUtils;
@@ -433,6 +435,41 @@ public class RemoteFile {
 	}
     }
 
+    /**
+     * Deletes the file or the directory tree denoted by this abstract
+     * pathname, with all its descendants. <br>
+     * The tree is deleted on the server in one request, in parallel, instead
+     * of calling {@link #delete()} on each entry. Symbolic links are deleted
+     * and are not followed.
+     * <p>
+     * A failure does not stop the deletion: the other entries are deleted
+     * and the directories that still contain an entry are kept. Use
+     * {@link RemoteDeleteResult#isSuccess()} to check that the whole tree has
+     * been deleted.
+     * 
+     * @return the counts and first failures of the deletion. Returns
+     *         <code>null</code> if this abstract pathname does not exist.
+     * @throws IllegalArgumentException
+     *             if this abstract pathname is the root directory
+     * @since 3.2
+     */
+    public RemoteDeleteResult deleteTree() {
+	try {
+	    return remoteFileExecutor.deleteTree(this.pathname);
+	} catch (IllegalArgumentException e) {
+	    throw e;
+	} catch (SecurityException e) {
+	    throw e;
+	} catch (Exception e) {
+
+	    if (e instanceof RemoteException) {
+		Throwable cause = e.getCause();
+		throw new RuntimeException(cause);
+	    }
+	    throw new RuntimeException(e);
+	}
+    }
+
     /**
      * Requests that the file or directory denoted by this abstract pathname be
      * deleted when the virtual machine terminates. Files (or directories) are
@@ -1081,7 +1118,7 @@ public class RemoteFile {
     public String[] list() {
 	try {
 	    String[] filenames = remoteFileExecutor.list(this.pathname, null,
-		    null);
+		    null, null);
 	    return filenames;
 
 	} catch (SecurityException e) {
@@ -1130,7 +1167,7 @@ public class RemoteFile {
 	    String callerClassName = CallerFinder.getCallerCallerClassName();
 
 	    filenames = remoteFileExecutor.list(
-		    this.pathname, filter, callerClassName);
+		    this.pathname, filter, null, callerClassName);
 	    
 	} catch (SecurityException e) {
 	    throw e;
@@ -1176,7 +1213,7 @@ public class RemoteFile {
     public RemoteFile[] listFiles() {
 	try {
 	    RemoteFile[] remoteFiles = remoteFileExecutor.listFiles(
-		    this.pathname, null, null, null);
+		    this.pathname, null, null, null, null);
 	    return remoteFiles;
 
 	} catch (SecurityException e) {
@@ -1223,7 +1260,7 @@ public class RemoteFile {
 	    String callerClassName = CallerFinder.getCallerCallerClassName();
 
 	    remoteFiles = remoteFileExecutor.listFiles(
-		    this.pathname, filter, null, callerClassName);
+		    this.pathname, filter, null, null, callerClassName);
 	    
 	} catch (SecurityException e) {
 	    throw e;
@@ -1267,7 +1304,7 @@ public class RemoteFile {
 	    String callerClassName = CallerFinder.getCallerCallerClassName();
 
 	    remoteFiles = remoteFileExecutor.listFiles(
-		    this.pathname, null, filter, callerClassName);
+		    this.pathname, null, filter, null, callerClassName);
 	    
 	} catch (SecurityException e) {
 	    throw e;
@@ -1278,6 +1315,319 @@ public class RemoteFile {
 	return remoteFiles;
     }
 
+    /**
+     * Returns an array of strings naming the files and directories in the
+     * directory denoted by this abstract pathname that satisfy the specified
+     * declarative filter. The behavior of this method is the same as that of
+     * the <code>{@link #list()}</code> method, except that the strings in the
+     * returned array must satisfy the filter. <br>
+     * The filter is evaluated on the server: no filter class is serialized or
+     * loaded on the server.
+     * 
+     * @param filterSpec
+     *            the declarative filter
+     * @return An array of strings naming the files and directories in the
+     *         directory denoted by this abstract pathname that were accepted by
+     *         the given <code>filterSpec</code>. The array will be empty if
+     *         the directory is empty or if no names were accepted by the
+     *         filter. Returns <code>null</code> if this abstract pathname does
+     *         not denote a directory, or if an I/O error occurs.
+     * @throws IllegalArgumentException
+     *             if filterSpec is null
+     * @since 3.2
+     */
+    public String[] list(RemoteFileFilterSpec filterSpec) {
+	if (filterSpec == null) {
+	    throw new IllegalArgumentException("filterSpec can not be null!");
+	}
+
+	try {
+	    return remoteFileExecutor.list(this.pathname, null, filterSpec,
+		    null);
+	} catch (SecurityException e) {
+	    throw e;
+	} catch (Exception e) {
+	    if (e instanceof RemoteException) {
+		Throwable cause = e.getCause();
+		throw new RuntimeException(cause);
+	    }
+	    throw new RuntimeException(e);
+	}
+    }
+
+    /**
+     * Returns an array of abstract pathnames denoting the files and directories
+     * in the directory denoted by this abstract pathname that satisfy the
+     * specified declarative filter. The behavior of this method is the same as
+     * that of the <code>{@link #listFiles()}</code> method, except that the
+     * pathnames in the returned array must satisfy the filter. <br>
+     * The filter is evaluated on the server: no filter class is serialized or
+     * loaded on the server.
+     * 
+     * @param filterSpec
+     *            the declarative filter
+     * @return An array of abstract pathnames denoting the files and directories
+     *         in the directory denoted by this abstract pathname that were
+     *         accepted by the given <code>filterSpec</code>. Returns
+     *         <code>null</code> if this abstract pathname does not denote a
+     *         directory, or if an I/O error occurs.
+     * @throws IllegalArgumentException
+     *             if filterSpec is null
+     * @since 3.2
+     */
+    public RemoteFile[] listFiles(RemoteFileFilterSpec filterSpec) {
+	if (filterSpec == null) {
+	    throw new IllegalArgumentException("filterSpec can not be null!");
+	}
+
+	try {
+	    return remoteFileExecutor.listFiles(this.pathname, null, null,
+		    filterSpec, null);
+	} catch (SecurityException e) {
+	    throw e;
+	} catch (Exception e) {
+	    if (e instanceof RemoteException) {
+		Throwable cause = e.getCause();
+		throw new RuntimeException(cause);
+	    }
+	    throw new RuntimeException(e);
+	}
+    }
+
+    /**
+     * Returns an iterator on the files and directories in the directory
+     * denoted by this abstract pathname. <br>
+     * Unlike {@link #listFiles()}, the remote directory is not read at once:
+     * files are loaded from the server page per page while iterating, and the
+     * server reads the directory with a {@code DirectoryStream}. Use it for
+     * huge directories.
+     * <p>
+     * Files are returned in the order of the remote file system. Files created
+     * or deleted in the directory during the iteration may be skipped or
+     * returned twice. Network errors during iteration are thrown as
+     * {@code RuntimeException}.
+     * 
+     * @param pageSize
+     *            the maximum number of files loaded per server call
+     * @return an iterator on the files and directories in the directory
+     *         denoted by this abstract pathname. Returns <code>null</code> if
+     *         this abstract pathname does not denote a directory.
+     * @throws IllegalArgumentException
+     *             if pageSize is &lt; 1
+     * @since 3.2
+     */
+    public Iterator<RemoteFile> listFilesIterator(int pageSize) {
+	return listFilesIterator(pageSize, null, null);
+    }
+
+    /**
+     * Returns an iterator on the files and directories in the directory
+     * denoted by this abstract pathname that satisfy the specified filter. The
+     * behavior of this method is the same as that of the
+     * <code>{@link #listFilesIterator(int)}</code> method, except that the
+     * pathnames must satisfy the filter.
+     * 
+     * @param pageSize
+     *            the maximum number of files loaded per server call
+     * @param filter
+     *            A filename filter
+     * @return an iterator on the files and directories in the directory
+     *         denoted by this abstract pathname. Returns <code>null</code> if
+     *         this abstract pathname does not denote a directory.
+     * @throws IllegalArgumentException
+     *             if pageSize is &lt; 1
+     * @since 3.2
+     */
+    public Iterator<RemoteFile> listFilesIterator(int pageSize,
+	    FilenameFilter filter) {
+	return listFilesIterator(pageSize, filter, null);
+    }
+
+    /**
+     * Returns an iterator on the files and directories in the directory
+     * denoted by this abstract pathname that satisfy the specified filter. The
+     * behavior of this method is the same as that of the
+     * <code>{@link #listFilesIterator(int)}</code> method, except that the
+     * pathnames must satisfy the filter.
+     * 
+     * @param pageSize
+     *            the maximum number of files loaded per server call
+     * @param filter
+     *            A file filter
+     * @return an iterator on the files and directories in the directory
+     *         denoted by this abstract pathname. Returns <code>null</code> if
+     *         this abstract pathname does not denote a directory.
+     * @throws IllegalArgumentException
+     *             if pageSize is &lt; 1
+     * @since 3.2
+     */
+    public Iterator<RemoteFile> listFilesIterator(int pageSize,
+	    FileFilter filter) {
+	return listFilesIterator(pageSize, null, filter);
+    }
+
+    /**
+     * Returns an iterator on the files and directories in the directory
+     * denoted by this abstract pathname that satisfy the specified
+     * declarative filter. The behavior of this method is the same as that of
+     * the <code>{@link #listFilesIterator(int)}</code> method, except that the
+     * pathnames must satisfy the filter, evaluated on the server while reading
+     * the directory.
+     * 
+     * @param pageSize
+     *            the maximum number of files loaded per server call
+     * @param filterSpec
+     *            the declarative filter
+     * @return an iterator on the files and directories in the directory
+     *         denoted by this abstract pathname. Returns <code>null</code> if
+     *         this abstract pathname does not denote a directory.
+     * @throws IllegalArgumentException
+     *             if pageSize is &lt; 1 or filterSpec is null
+     * @since 3.2
+     */
+    public Iterator<RemoteFile> listFilesIterator(int pageSize,
+	    RemoteFileFilterSpec filterSpec) {
+	if (filterSpec == null) {
+	    throw new IllegalArgumentException("filterSpec can not be null!");
+	}
+
+	RemoteFilePageIterator iterator = new RemoteFilePageIterator(this,
+		pageSize, null, null, filterSpec);
+	return loadFirstPage(iterator);
+    }
+
+    /**
+     * Returns all the files and directories of the directory tree denoted by
+     * this abstract pathname, with their attributes. <br>
+     * The tree is walked on the server and returned in one request, instead
+     * of calling {@link #listFiles()} on each directory. Symbolic links are
+     * not followed, and entries that can not be read on the server are
+     * skipped.
+     * 
+     * @param maxDepth
+     *            the maximum number of directory levels to visit: 1 for the
+     *            direct children only, {@code Integer.MAX_VALUE} for the whole
+     *            tree
+     * @return the entries of the tree, not including this directory. Returns
+     *         <code>null</code> if this abstract pathname does not denote a
+     *         directory.
+     * @throws IllegalArgumentException
+     *             if maxDepth is &lt; 1
+     * @since 3.2
+     */
+    public List<RemoteFileEntry> walk(int maxDepth) {
+	try {
+	    return remoteFileExecutor.walk(this.pathname, maxDepth);
+	} catch (IllegalArgumentException e) {
+	    throw e;
+	} catch (SecurityException e) {
+	    throw e;
+	} catch (Exception e) {
+
+	    if (e instanceof RemoteException) {
+		Throwable cause = e.getCause();
+		throw new RuntimeException(cause);
+	    }
+	    throw new RuntimeException(e);
+	}
+    }
+
+    /**
+     * Searches the directory tree denoted by this abstract pathname for the
+     * files and directories that satisfy the specified declarative filter.
+     * <br>
+     * The search runs on the server, which reads the directories in parallel
+     * and returns only the matches, with their attributes. The entries are
+     * returned in no specific order. Symbolic links are not followed, and
+     * entries that can not be read on the server are skipped.
+     * 
+     * @param filterSpec
+     *            the declarative filter, null to accept all entries
+     * @param maxResults
+     *            the maximum number of entries returned: the search stops
+     *            when this number is reached
+     * @return the entries of the tree that satisfy the filter, not including
+     *         this directory. Returns <code>null</code> if this abstract
+     *         pathname does not denote a directory.
+     * @throws IllegalArgumentException
+     *             if maxResults is &lt; 1
+     * @since 3.2
+     */
+    public List<RemoteFileEntry> find(RemoteFileFilterSpec filterSpec,
+	    int maxResults) {
+	try {
+	    return remoteFileExecutor.find(this.pathname, filterSpec,
+		    maxResults);
+	} catch (IllegalArgumentException e) {
+	    throw e;
+	} catch (SecurityException e) {
+	    throw e;
+	} catch (Exception e) {
+
+	    if (e instanceof RemoteException) {
+		Throwable cause = e.getCause();
+		throw new RuntimeException(cause);
+	    }
+	    throw new RuntimeException(e);
+	}
+    }
+
+    /**
+     * Returns the disk usage of the directory tree denoted by this abstract
+     * pathname: total length of the files, number of files and number of
+     * directories. <br>
+     * The tree is read on the server, in parallel, without listing it to the
+     * client. Symbolic links are counted as files and are not followed.
+     * 
+     * @return the disk usage of the tree. Returns <code>null</code> if this
+     *         abstract pathname does not denote a directory.
+     * @since 3.2
+     */
+    public RemoteDiskUsage getDiskUsage() {
+	try {
+	    return remoteFileExecutor.diskUsage(this.pathname);
+	} catch (SecurityException e) {
+	    throw e;
+	} catch (Exception e) {
+
+	    if (e instanceof RemoteException) {
+		Throwable cause = e.getCause();
+		throw new RuntimeException(cause);
+	    }
+	    throw new RuntimeException(e);
+	}
+    }
+
+    /**
+     * Builds the page iterator and loads the first page
+     */
+    private Iterator<RemoteFile> listFilesIterator(int pageSize,
+	    FilenameFilter filenameFilter, FileFilter fileFilter) {
+
+	RemoteFilePageIterator iterator = new RemoteFilePageIterator(this,
+		pageSize, filenameFilter, fileFilter, null);
+	return loadFirstPage(iterator);
+    }
+
+    /**
+     * Loads the first page of the iterator
+     * 
+     * @return the iterator, or null if this is not a directory
+     */
+    private Iterator<RemoteFile> loadFirstPage(RemoteFilePageIterator iterator) {
+	try {
+	    if (!iterator.loadFirstPage()) {
+		return null;
+	    }
+	} catch (SecurityException e) {
+	    throw e;
+	} catch (Throwable e) {
+	    RemoteFileUtil.decodeTrowableForFilterUsage(e);
+	}
+
+	return iterator;
+    }
+
     /**
      * Creates the directory named by this abstract pathname.
      * 
@@ -1389,6 +1739,139 @@ public class RemoteFile {
 	}
     }
 
+    /**
+     * Copies the file or the directory tree denoted by this abstract pathname
+     * to the destination, with default options. <br>
+     * See {@link #copyTo(RemoteFile, RemoteCopyOptions)}.
+     * 
+     * @param dest
+     *            The new abstract pathname of the copy
+     * @throws NullPointerException
+     *             If parameter <code>dest</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *             If <code>dest</code> does not use the same
+     *             {@code RemoteSession} parameters
+     * @since 3.2
+     */
+    public void copyTo(RemoteFile dest) {
+	copyTo(dest, new RemoteCopyOptions());
+    }
+
+    /**
+     * Copies the file or the directory tree denoted by this abstract pathname
+     * to the destination. <br>
+     * The copy is done on the server: the file contents are not transferred to
+     * the client side. The method waits for the end of the copy, that runs as
+     * a server job and does not hold an http connection for its whole
+     * duration.
+     * <p>
+     * Symbolic links are copied as links and are not followed. The last
+     * modified times are preserved. The parent directory of the destination
+     * must exist. If the copy fails or is cancelled, the files already copied
+     * are not deleted.
+     * <p>
+     * A cancellation with the options cancel indicator throws a
+     * {@code RuntimeException} that wraps an {@code InterruptedException}.
+     * 
+     * @param dest
+     *            The new abstract pathname of the copy
+     * @param options
+     *            the copy options: replace existing files, hard link,
+     *            progress and cancel indicators
+     * @throws NullPointerException
+     *             If parameter <code>dest</code> or <code>options</code> is
+     *             <code>null</code>
+     * @throws IllegalArgumentException
+     *             If <code>dest</code> does not use the same
+     *             {@code RemoteSession} parameters
+     * @since 3.2
+     */
+    public void copyTo(RemoteFile dest, RemoteCopyOptions options) {
+	copyOrMove(dest, options, false);
+    }
+
+    /**
+     * Moves the file or the directory tree denoted by this abstract pathname
+     * to the destination, with default options. <br>
+     * See {@link #moveTo(RemoteFile, RemoteCopyOptions)}.
+     * 
+     * @param dest
+     *            The new abstract pathname of the file
+     * @throws NullPointerException
+     *             If parameter <code>dest</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *             If <code>dest</code> does not use the same
+     *             {@code RemoteSession} parameters
+     * @since 3.2
+     */
+    public void moveTo(RemoteFile dest) {
+	moveTo(dest, new RemoteCopyOptions());
+    }
+
+    /**
+     * Moves the file or the directory tree denoted by this abstract pathname
+     * to the destination. <br>
+     * Unlike {@link #renameTo(RemoteFile)}, a failure throws an Exception and
+     * a directory tree is moved even between two file stores of the server:
+     * it is then copied and deleted. The hard link option is ignored.
+     * <p>
+     * A cancellation with the options cancel indicator throws a
+     * {@code RuntimeException} that wraps an {@code InterruptedException}.
+     * 
+     * @param dest
+     *            The new abstract pathname of the file
+     * @param options
+     *            the move options: replace existing files, progress and
+     *            cancel indicators
+     * @throws NullPointerException
+     *             If parameter <code>dest</code> or <code>options</code> is
+     *             <code>null</code>
+     * @throws IllegalArgumentException
+     *             If <code>dest</code> does not use the same
+     *             {@code RemoteSession} parameters
+     * @since 3.2
+     */
+    public void moveTo(RemoteFile dest, RemoteCopyOptions options) {
+	copyOrMove(dest, options, true);
+    }
+
+    /**
+     * Copies or moves this file on the server
+     */
+    private void copyOrMove(RemoteFile dest, RemoteCopyOptions options,
+	    boolean move) {
+	try {
+
+	    if (dest == null || options == null) {
+		throw new NullPointerException();
+	    }
+
+	    if (!this.remoteSession.equals(dest.getRemoteSession())) {
+		throw new IllegalArgumentException(
+			"Remote files must have identical RemoteSession (url, username) parameters.");
+	    }
+
+	    RemoteFileCopyExecutor remoteFileCopyExecutor = new RemoteFileCopyExecutor(
+		    this);
+	    remoteFileCopyExecutor.copy(this.pathname, dest.getPath(), move,
+		    options);
+
+	} catch (SecurityException e) {
+	    throw e;
+	} catch (NullPointerException e) {
+	    throw e;
+	} catch (IllegalArgumentException e) {
+	    throw e;
+	} catch (Exception e) {
+
+	    if (e instanceof RemoteException) {
+		Throwable cause = e.getCause();
+		throw new RuntimeException(cause);
+	    }
+	    throw new RuntimeException(e);
+	}
+    }
+
     /**
      * A convenience method to set the owner's execute permission for this
      * abstract pathname.
@@ -0,0 +1,296 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.client;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.kawanfw.commons.api.client.InvalidLoginException;
+import org.kawanfw.commons.api.client.RemoteException;
+import org.kawanfw.commons.api.client.SessionParameters;
+import org.kawanfw.commons.client.http.SimpleNameValuePair;
+import org.kawanfw.commons.util.ClientLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.file.util.parms.Action;
+import org.kawanfw.file.util.parms.Parameter;
+import org.kawanfw.file.util.parms.ReturnCode;
+
+/**
+ * 
+ * Executes RemoteFile copyTo() and moveTo() operations: the copy is submitted
+ * as a server job whose result is long polled.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+class RemoteFileCopyExecutor extends RemoteFileExecutor {
+
+    /** For debug info */
+    private static boolean DEBUG = FrameworkDebug
+	    .isSet(RemoteFileCopyExecutor.class);
+
+    /** The max time of a poll request when a progress indicator is set */
+    private static final long PROGRESS_POLL_WAIT_MILLIS = 1000;
+
+    /**
+     * Constructor
+     * 
+     * @param remoteFile
+     *            The Remote File to copy or move
+     */
+    public RemoteFileCopyExecutor(RemoteFile remoteFile) {
+	super(remoteFile);
+    }
+
+    /**
+     * Copies or moves a remote file or directory tree on the server and waits
+     * for the end of the operation.
+     * 
+     * @param remoteFile
+     *            the file name of the file or directory to copy
+     * @param remoteFileDest
+     *            the file name of the destination
+     * @param move
+     *            if true, the source is moved
+     * @param options
+     *            the copy options
+     * 
+     * @throws IllegalArgumentException
+     *             if remoteFile or remoteFileDest is null
+     * @throws InvalidLoginException
+     *             the session has been closed by a {@code logoff()}
+     * @throws UnknownHostException
+     *             if host URL (http://www.acme.org) does not exists or no
+     *             Internet Connection.
+     * @throws ConnectException
+     *             if the Host is correct but the {@code ServerFileManager}
+     *             Servlet is not reachable
+     * @throws SocketException
+     *             if network failure during transmission
+     * @throws RemoteException
+     *             an exception has been thrown on the server side
+     * @throws IOException
+     *             for all other IO / Network / System Error
+     * @throws InterruptedException
+     *             if the copy has been cancelled with the options cancel
+     *             indicator
+     */
+    public void copy(String remoteFile, String remoteFileDest, boolean move,
+	    RemoteCopyOptions options) throws IllegalArgumentException,
+	    InvalidLoginException, UnknownHostException, ConnectException,
+	    SocketException, RemoteException, IOException,
+	    InterruptedException {
+
+	if (remoteFile == null) {
+	    throw new IllegalArgumentException("remoteFile can not be null!");
+	}
+
+	if (remoteFileDest == null) {
+	    throw new IllegalArgumentException(
+		    "remoteFileDest can not be null!");
+	}
+
+	if (username == null || authenticationToken == null) {
+	    throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
+	}
+
+	AtomicInteger progress = options.getProgress();
+	AtomicBoolean cancelled = options.getCancelled();
+
+	RemoteFileMetadataCache metadataCache = remoteSession
+		.getMetadataCache();
+
+	try {
+	    List<SimpleNameValuePair> requestParams = new Vector<SimpleNameValuePair>();
+	    requestParams.add(new SimpleNameValuePair(Parameter.ACTION,
+		    Action.FILE_COPY_ACTION));
+	    requestParams.add(new SimpleNameValuePair(Parameter.USERNAME,
+		    username));
+	    requestParams.add(new SimpleNameValuePair(Parameter.TOKEN,
+		    authenticationToken));
+	    requestParams.add(new SimpleNameValuePair(Parameter.FILENAME,
+		    remoteFile));
+	    requestParams.add(new SimpleNameValuePair(Parameter.FILENAME_DEST,
+		    remoteFileDest));
+	    requestParams.add(new SimpleNameValuePair(
+		    Parameter.REPLACE_EXISTING, Boolean.toString(options
+			    .isReplaceExisting())));
+	    requestParams.add(new SimpleNameValuePair(Parameter.HARD_LINK,
+		    Boolean.toString(options.isHardLink())));
+	    requestParams.add(new SimpleNameValuePair(Parameter.MOVE, Boolean
+		    .toString(move)));
+
+	    String jobId = send(requestParams);
+	    debug("jobId: " + jobId);
+
+	    long waitMillis = getPollWaitMillis();
+	    if (progress != null || cancelled != null) {
+		// Short polls to update the progress and check the cancel
+		waitMillis = Math.min(waitMillis, PROGRESS_POLL_WAIT_MILLIS);
+	    }
+
+	    while (true) {
+
+		// If progress indicator says that user has cancelled the
+		// copy, stop now!
+		if (cancelled != null && cancelled.get()) {
+		    sendJobAction(Action.CALL_JOB_CANCEL_ACTION, jobId, 0);
+		    throw new InterruptedException(
+			    "Remote copy cancelled by user.");
+		}
+
+		String response = sendJobAction(
+			Action.CALL_JOB_RESULT_ACTION, jobId, waitMillis);
+
+		if (response.startsWith(ReturnCode.JOB_DONE)) {
+		    break;
+		}
+
+		if (progress != null) {
+		    setProgress(progress, response);
+		}
+	    }
+
+	    if (progress != null) {
+		progress.set(100);
+	    }
+
+	} finally {
+	    if (metadataCache != null) {
+		metadataCache.invalidate(remoteFileDest);
+		if (move) {
+		    metadataCache.invalidate(remoteFile);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Updates the progress indicator with the progress line of a
+     * {@code ReturnCode.JOB_RUNNING} response
+     * 
+     * @param progress
+     *            the progress indicator
+     * @param response
+     *            the server response
+     */
+    private void setProgress(AtomicInteger progress, String response) {
+	String[] lines = response.trim().split("\\r?\\n");
+	if (lines.length < 2) {
+	    return;
+	}
+
+	String[] values = lines[1].trim().split(" ");
+	if (values.length != 2) {
+	    return;
+	}
+
+	try {
+	    long copied = Long.parseLong(values[0]);
+	    long total = Long.parseLong(values[1]);
+	    if (total > 0) {
+		progress.set((int) Math.min(99, copied * 100 / total));
+	    }
+	} catch (NumberFormatException e) {
+	    debug("malformed progress: " + lines[1]);
+	}
+    }
+
+    /**
+     * Sends a job action for the copy job and returns the response
+     * 
+     * @param action
+     *            the job action
+     * @param jobId
+     *            the copy job id
+     * @param waitMillis
+     *            the maximum time to wait on server side
+     * @return the server response
+     */
+    private String sendJobAction(String action, String jobId, long waitMillis)
+	    throws InvalidLoginException, UnknownHostException,
+	    ConnectException, SocketException, RemoteException, IOException {
+	List<SimpleNameValuePair> requestParams = new Vector<SimpleNameValuePair>();
+	requestParams.add(new SimpleNameValuePair(Parameter.ACTION, action));
+	requestParams
+		.add(new SimpleNameValuePair(Parameter.USERNAME, username));
+	requestParams.add(new SimpleNameValuePair(Parameter.TOKEN,
+		authenticationToken));
+	requestParams.add(new SimpleNameValuePair(Parameter.JOB_ID, jobId));
+	requestParams.add(new SimpleNameValuePair(Parameter.WAIT_MILLIS, Long
+		.toString(waitMillis)));
+	return send(requestParams);
+    }
+
+    /**
+     * Sends a request and returns the response
+     * 
+     * @param requestParams
+     *            the request parameters
+     * @return the server response
+     */
+    private String send(List<SimpleNameValuePair> requestParams)
+	    throws InvalidLoginException, UnknownHostException,
+	    ConnectException, SocketException, RemoteException, IOException {
+	httpTransfer.send(requestParams);
+	String response = httpTransfer.recv();
+	debug("response: " + response);
+
+	if (response.startsWith(ReturnCode.INVALID_LOGIN_OR_PASSWORD)) {
+	    throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
+	}
+	return response;
+    }
+
+    /**
+     * Returns the time of a long poll request: must stay under the read
+     * timeout of the session.
+     * 
+     * @return the time of a long poll request in milliseconds
+     */
+    private long getPollWaitMillis() {
+	SessionParameters sessionParameters = remoteSession
+		.getSessionParameters();
+	if (sessionParameters != null && sessionParameters.getReadTimeout() > 0) {
+	    return Math.min(RemoteCallJob.MAX_POLL_WAIT_MILLIS,
+		    sessionParameters.getReadTimeout() / 2);
+	}
+	return RemoteCallJob.MAX_POLL_WAIT_MILLIS;
+    }
+
+    private void debug(String s) {
+	if (DEBUG) {
+	    ClientLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+}
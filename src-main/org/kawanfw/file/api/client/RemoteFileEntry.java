@@ -0,0 +1,148 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.client;
+
+import org.kawanfw.commons.api.client.InvalidLoginException;
+
+/**
+ * An entry of a remote directory tree returned by
+ * {@link RemoteFile#walk(int)}: the pathname with the attributes read on the
+ * server during the walk.
+ * <p>
+ * The attributes are a snapshot taken at walk time: use
+ * {@link #getRemoteFile()} to access the current state of the remote file.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class RemoteFileEntry {
+
+    /** The remote session */
+    private RemoteSession remoteSession = null;
+
+    /** The pathname of the entry */
+    private String pathname = null;
+
+    /** The entry type as sent by the server */
+    private char type = 0;
+
+    /** The length in bytes */
+    private long length = 0;
+
+    /** The last modified time */
+    private long lastModified = 0;
+
+    /**
+     * Constructor
+     * 
+     * @param remoteSession
+     *            the remote session
+     * @param pathname
+     *            the pathname of the entry
+     * @param type
+     *            the entry type: 'd' for directory, 'f' for regular file, 'o'
+     *            for other
+     * @param length
+     *            the length in bytes
+     * @param lastModified
+     *            the last modified time
+     */
+    RemoteFileEntry(RemoteSession remoteSession, String pathname, char type,
+	    long length, long lastModified) {
+	this.remoteSession = remoteSession;
+	this.pathname = pathname;
+	this.type = type;
+	this.length = length;
+	this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns the pathname of the entry, with "/" as separator
+     * 
+     * @return the pathname of the entry
+     */
+    public String getPath() {
+	return pathname;
+    }
+
+    /**
+     * Says if the entry is a directory
+     * 
+     * @return true if the entry is a directory
+     */
+    public boolean isDirectory() {
+	return type == 'd';
+    }
+
+    /**
+     * Says if the entry is a regular file
+     * 
+     * @return true if the entry is a regular file
+     */
+    public boolean isFile() {
+	return type == 'f';
+    }
+
+    /**
+     * Returns the length of the entry
+     * 
+     * @return the length in bytes of the entry
+     */
+    public long length() {
+	return length;
+    }
+
+    /**
+     * Returns the time that the entry was last modified
+     * 
+     * @return the time the entry was last modified, measured in milliseconds
+     *         since the epoch (00:00:00 GMT, January 1, 1970)
+     */
+    public long lastModified() {
+	return lastModified;
+    }
+
+    /**
+     * Returns the {@code RemoteFile} of the entry
+     * 
+     * @return the {@code RemoteFile} of the entry
+     * @throws InvalidLoginException
+     *             the session has been closed by a {@code logoff()}
+     */
+    public RemoteFile getRemoteFile() throws InvalidLoginException {
+	return new RemoteFile(remoteSession, pathname);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+	return pathname;
+    }
+
+}
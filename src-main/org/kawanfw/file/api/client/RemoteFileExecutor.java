@@ -167,6 +167,62 @@ class RemoteFileExecutor {
 	    }
 	}
 
+	RemoteFileMetadataCache metadataCache = remoteSession
+		.getMetadataCache();
+
+	if (metadataCache == null) {
+	    return callFileMethodOneReturn(pathname, methodName, params);
+	}
+
+	if (RemoteFileMetadataCache.isCached(methodName, params)) {
+	    String value = metadataCache.get(pathname, methodName);
+	    if (value != null) {
+		debug("cached response: " + value);
+		return value;
+	    }
+
+	    // Generation is read before the call so that a concurrent
+	    // modification makes the put a no-op
+	    long generation = metadataCache.getGeneration();
+	    value = callFileMethodOneReturn(pathname, methodName, params);
+	    metadataCache.put(generation, pathname, methodName, value);
+	    return value;
+	}
+
+	if (RemoteFileMetadataCache.isMutating(methodName)) {
+	    try {
+		return callFileMethodOneReturn(pathname, methodName, params);
+	    } finally {
+		// Invalidate even on failure: the remote file may have changed
+		metadataCache.invalidate(pathname);
+		if (methodName.equals("renameTo")
+			&& params[0] instanceof RemoteFile) {
+		    metadataCache.invalidate(((RemoteFile) params[0])
+			    .getPath());
+		}
+	    }
+	}
+
+	return callFileMethodOneReturn(pathname, methodName, params);
+    }
+
+    /**
+     * Calls the remote File method on the server, without using the metadata
+     * cache.
+     * 
+     * @param pathname
+     *            the pathname of the remote file
+     * @param methodName
+     *            the {@code File} method name to call on server
+     * @param params
+     *            the array of parameters passed to the method
+     * @return the result of the File method call as {@code String}
+     */
+    private String callFileMethodOneReturn(String pathname,
+	    String methodName, Object... params) throws InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+
 	// Build the params types
 	List<String> paramsTypes = new Vector<String>();
 
@@ -0,0 +1,311 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.client;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.kawanfw.commons.client.http.SimpleNameValuePair;
+import org.kawanfw.file.util.parms.Parameter;
+
+/**
+ * A declarative filter for remote directory listings, evaluated natively on
+ * the server. <br>
+ * Unlike a {@code FilenameFilter} or a {@code FileFilter}, no class is
+ * serialized and sent: the server compiles the specification into a
+ * {@code java.nio.file.PathMatcher} and attribute tests, and applies them
+ * while reading the directory.
+ * <p>
+ * All the criteria set are combined: a file is accepted only if it satisfies
+ * all of them. A specification with no criteria accepts all files.
+ * <p>
+ * Example:
+ * 
+ * <pre>
+ * RemoteFileFilterSpec filterSpec = new RemoteFileFilterSpec();
+ * filterSpec.setGlob(&quot;*.{txt,csv}&quot;);
+ * filterSpec.setLengthRange(1, 1024 * 1024);
+ * filterSpec.setType(RemoteFileFilterSpec.TYPE_FILE);
+ * 
+ * RemoteFile[] remoteFiles = remoteDir.listFiles(filterSpec);
+ * </pre>
+ * 
+ * @see RemoteFile#list(RemoteFileFilterSpec)
+ * @see RemoteFile#listFiles(RemoteFileFilterSpec)
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class RemoteFileFilterSpec {
+
+    /** Accepts files and directories */
+    public static final int TYPE_ANY = 0;
+
+    /** Accepts only regular files */
+    public static final int TYPE_FILE = 1;
+
+    /** Accepts only directories */
+    public static final int TYPE_DIRECTORY = 2;
+
+    /** The glob pattern on the name */
+    private String glob = null;
+
+    /** The regular expression on the name */
+    private String regex = null;
+
+    /** The minimum length, null if not set */
+    private Long minLength = null;
+
+    /** The maximum length, null if not set */
+    private Long maxLength = null;
+
+    /** The minimum last modified time, null if not set */
+    private Long minLastModified = null;
+
+    /** The maximum last modified time, null if not set */
+    private Long maxLastModified = null;
+
+    /** The accepted type */
+    private int type = TYPE_ANY;
+
+    /**
+     * Constructor. The specification accepts all files until criteria are
+     * set.
+     */
+    public RemoteFileFilterSpec() {
+
+    }
+
+    /**
+     * Returns the glob pattern on the name
+     * 
+     * @return the glob pattern on the name, or null if not set
+     */
+    public String getGlob() {
+	return glob;
+    }
+
+    /**
+     * Sets the glob pattern the name of the files must match, with the syntax
+     * of {@code java.nio.file.FileSystem.getPathMatcher("glob:...")}. The
+     * pattern is applied to the name only, not to the whole pathname.
+     * 
+     * @param glob
+     *            the glob pattern, or null to remove the criterion
+     */
+    public void setGlob(String glob) {
+	this.glob = glob;
+    }
+
+    /**
+     * Returns the regular expression on the name
+     * 
+     * @return the regular expression on the name, or null if not set
+     */
+    public String getRegex() {
+	return regex;
+    }
+
+    /**
+     * Sets the regular expression the whole name of the files must match,
+     * with the syntax of {@code java.util.regex.Pattern}. The expression is
+     * applied to the name only, not to the whole pathname.
+     * 
+     * @param regex
+     *            the regular expression, or null to remove the criterion
+     * @throws java.util.regex.PatternSyntaxException
+     *             if the expression is invalid
+     */
+    public void setRegex(String regex) {
+	if (regex != null) {
+	    Pattern.compile(regex);
+	}
+	this.regex = regex;
+    }
+
+    /**
+     * Returns the minimum length
+     * 
+     * @return the minimum length in bytes, or null if not set
+     */
+    public Long getMinLength() {
+	return minLength;
+    }
+
+    /**
+     * Returns the maximum length
+     * 
+     * @return the maximum length in bytes, or null if not set
+     */
+    public Long getMaxLength() {
+	return maxLength;
+    }
+
+    /**
+     * Sets the range of the length of the files, bounds included
+     * 
+     * @param minLength
+     *            the minimum length in bytes
+     * @param maxLength
+     *            the maximum length in bytes
+     * @throws IllegalArgumentException
+     *             if minLength is &lt; 0 or maxLength is &lt; minLength
+     */
+    public void setLengthRange(long minLength, long maxLength) {
+	if (minLength < 0) {
+	    throw new IllegalArgumentException("minLength must be >= 0!");
+	}
+
+	if (maxLength < minLength) {
+	    throw new IllegalArgumentException(
+		    "maxLength must be >= minLength!");
+	}
+
+	this.minLength = minLength;
+	this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns the minimum last modified time
+     * 
+     * @return the minimum last modified time, or null if not set
+     */
+    public Long getMinLastModified() {
+	return minLastModified;
+    }
+
+    /**
+     * Returns the maximum last modified time
+     * 
+     * @return the maximum last modified time, or null if not set
+     */
+    public Long getMaxLastModified() {
+	return maxLastModified;
+    }
+
+    /**
+     * Sets the range of the last modified time of the files, bounds included
+     * 
+     * @param minLastModified
+     *            the minimum last modified time, measured in milliseconds
+     *            since the epoch (00:00:00 GMT, January 1, 1970)
+     * @param maxLastModified
+     *            the maximum last modified time, measured in milliseconds
+     *            since the epoch (00:00:00 GMT, January 1, 1970)
+     * @throws IllegalArgumentException
+     *             if maxLastModified is &lt; minLastModified
+     */
+    public void setLastModifiedRange(long minLastModified,
+	    long maxLastModified) {
+	if (maxLastModified < minLastModified) {
+	    throw new IllegalArgumentException(
+		    "maxLastModified must be >= minLastModified!");
+	}
+
+	this.minLastModified = minLastModified;
+	this.maxLastModified = maxLastModified;
+    }
+
+    /**
+     * Returns the accepted type
+     * 
+     * @return {@link #TYPE_ANY}, {@link #TYPE_FILE} or {@link #TYPE_DIRECTORY}
+     */
+    public int getType() {
+	return type;
+    }
+
+    /**
+     * Sets the accepted type
+     * 
+     * @param type
+     *            {@link #TYPE_ANY}, {@link #TYPE_FILE} or
+     *            {@link #TYPE_DIRECTORY}
+     * @throws IllegalArgumentException
+     *             if type is not one of the allowed values
+     */
+    public void setType(int type) {
+	if (type != TYPE_ANY && type != TYPE_FILE && type != TYPE_DIRECTORY) {
+	    throw new IllegalArgumentException("Invalid type: " + type);
+	}
+	this.type = type;
+    }
+
+    /**
+     * Adds the criteria of the specification to the request parameters
+     * 
+     * @param requestParams
+     *            the request parameters
+     */
+    void addParameters(List<SimpleNameValuePair> requestParams) {
+	if (glob != null) {
+	    requestParams.add(new SimpleNameValuePair(Parameter.FILTER_GLOB,
+		    glob));
+	}
+
+	if (regex != null) {
+	    requestParams.add(new SimpleNameValuePair(Parameter.FILTER_REGEX,
+		    regex));
+	}
+
+	if (minLength != null) {
+	    requestParams.add(new SimpleNameValuePair(
+		    Parameter.FILTER_MIN_LENGTH, minLength.toString()));
+	    requestParams.add(new SimpleNameValuePair(
+		    Parameter.FILTER_MAX_LENGTH, maxLength.toString()));
+	}
+
+	if (minLastModified != null) {
+	    requestParams.add(new SimpleNameValuePair(
+		    Parameter.FILTER_MIN_LAST_MODIFIED, minLastModified
+			    .toString()));
+	    requestParams.add(new SimpleNameValuePair(
+		    Parameter.FILTER_MAX_LAST_MODIFIED, maxLastModified
+			    .toString()));
+	}
+
+	if (type == TYPE_FILE) {
+	    requestParams.add(new SimpleNameValuePair(Parameter.FILTER_TYPE,
+		    "f"));
+	} else if (type == TYPE_DIRECTORY) {
+	    requestParams.add(new SimpleNameValuePair(Parameter.FILTER_TYPE,
+		    "d"));
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+	return "RemoteFileFilterSpec [glob=" + glob + ", regex=" + regex
+		+ ", minLength=" + minLength + ", maxLength=" + maxLength
+		+ ", minLastModified=" + minLastModified
+		+ ", maxLastModified=" + maxLastModified + ", type=" + type
+		+ "]";
+    }
+
+}
@@ -24,19 +24,25 @@
  */
 package org.kawanfw.file.api.client;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileFilter;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.net.ConnectException;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.Vector;
 import java.util.logging.Level;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.kawanfw.commons.api.client.InvalidLoginException;
 import org.kawanfw.commons.api.client.RemoteException;
 import org.kawanfw.commons.client.http.SimpleNameValuePair;
@@ -46,6 +52,7 @@ import org.kawanfw.commons.util.FrameworkFileUtil;
 import org.kawanfw.commons.util.HtmlConverter;
 import org.kawanfw.commons.util.KeepTempFilePolicyParms;
 import org.kawanfw.file.api.util.client.RemoteFileUtil;
+import org.kawanfw.file.reflection.ClassSerializer;
 import org.kawanfw.file.util.parms.Action;
 import org.kawanfw.file.util.parms.Parameter;
 import org.kawanfw.file.util.parms.ReturnCode;
@@ -63,6 +70,9 @@ class RemoteFileListExecutor extends RemoteFileExecutor {
     private static boolean DEBUG = FrameworkDebug
 	    .isSet(RemoteFileListExecutor.class);
 
+    /** The maximum number of filter hashes kept per session */
+    private static final int MAX_FILTER_HASHES = 1000;
+
     /**
      * Constructor
      * 
@@ -79,6 +89,8 @@ class RemoteFileListExecutor extends RemoteFileExecutor {
      * 
      * @param remoteFile
      *            the file name of the directory on the host
+     * @param filterSpec
+     *            the declarative filter to apply on the server, may be null
      * @param callerClassName
      *            the class name that calls this method
      * 
@@ -117,7 +129,7 @@ class RemoteFileListExecutor extends RemoteFileExecutor {
      */
 
     public String[] list(String remoteFile, FilenameFilter filenameFilter,
-	    String callerClassName) throws IllegalArgumentException,
+	    RemoteFileFilterSpec filterSpec, String callerClassName) throws IllegalArgumentException,
 	    InvalidLoginException, UnknownHostException, ConnectException,
 	    SocketException, RemoteException, IOException,
 	    InstantiationException, IllegalAccessException
@@ -131,20 +143,6 @@ class RemoteFileListExecutor extends RemoteFileExecutor {
 	    throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
 	}
 
-	String filenameFilterFilename = null;
-	String filenameFilterClassname = null;
-	String base64SerialFilenameFilter = null;
-	
-	if (filenameFilter != null) {
-	    filenameFilterClassname = filenameFilter.getClass().getName();
-	    base64SerialFilenameFilter = RemoteFileUtil.SerializeBase64FilenameFilter(
-		    filenameFilter, filenameFilterClassname);
-	    
-	    filenameFilterFilename = RemoteFileUtil.uploadFilterIfShortSize(
-		    base64SerialFilenameFilter, remoteSession);
-
-	}
-
 	// Launch the Servlet
 
 	// Prepare the request parameters
@@ -157,21 +155,12 @@ class RemoteFileListExecutor extends RemoteFileExecutor {
 	requestParams
 		.add(new SimpleNameValuePair(Parameter.FILENAME, remoteFile));
 
-	requestParams.add(new SimpleNameValuePair(
-		Parameter.FILENAME_FILTER_CLASSNAME, filenameFilterClassname));
-	requestParams.add(new SimpleNameValuePair(
-		Parameter.FILENAME_FILTER_FILENAME,
-		filenameFilterFilename));
-	
-	if (RemoteFileUtil.isFilterShortSize(base64SerialFilenameFilter)) {
-	    requestParams.add(new SimpleNameValuePair(
-		    Parameter.BASE64_SERIAL_FILENAME_FILTER,
-		    base64SerialFilenameFilter));
+	if (filterSpec != null) {
+	    filterSpec.addParameters(requestParams);
 	}
 
-	httpTransfer.setReceiveInFile(true); // To say we get the result into a
-					     // file
-	httpTransfer.send(requestParams);
+	// To say we get the result into a file
+	sendWithFilters(requestParams, filenameFilter, null, true);
 
 	// If everything is OK, we have in our protocol a response that
 	// 1) starts with "OK". 2) Is followed by the authenticaiton token
@@ -218,6 +207,9 @@ class RemoteFileListExecutor extends RemoteFileExecutor {
      * @param remoteFile
      *            the file name of the directory on the host
      * @param filenameFilter
+     * @param fileFilter
+     * @param filterSpec
+     *            the declarative filter to apply on the server, may be null
      * @param callerClassName
      *            the class name that calls this method
      * @return the list of files or directories in the remote directory. Will be
@@ -254,7 +246,7 @@ class RemoteFileListExecutor extends RemoteFileExecutor {
 
     public RemoteFile[] listFiles(String remoteFile,
 	    FilenameFilter filenameFilter, FileFilter fileFilter,
-	    String callerClassName) throws IllegalArgumentException,
+	    RemoteFileFilterSpec filterSpec, String callerClassName) throws IllegalArgumentException,
 	    InvalidLoginException, UnknownHostException, ConnectException,
 	    SocketException, RemoteException, IOException,
 	    InstantiationException, IllegalAccessException
@@ -268,33 +260,6 @@ class RemoteFileListExecutor extends RemoteFileExecutor {
 	    throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
 	}
 
-	String filenameFilterFilename = null;
-	String filenameFilterClassname = null;
-	String base64SerialFilenameFilter = null;
-
-	if (filenameFilter != null) {
-	    filenameFilterClassname = filenameFilter.getClass().getName();
-	    base64SerialFilenameFilter = RemoteFileUtil.SerializeBase64FilenameFilter(
-		    filenameFilter, filenameFilterClassname);
-	    
-	    filenameFilterFilename = RemoteFileUtil.uploadFilterIfShortSize(
-		    base64SerialFilenameFilter, remoteSession);
-	}
-
-	String fileFilterFilename = null;
-	String fileFilterClassname = null;
-	String base64SerialFileFilter = null;
-
-	if (fileFilter != null) {
-	    debug("after fileFilter() :" + fileFilter);
-	    fileFilterClassname = fileFilter.getClass().getName();
-	    base64SerialFileFilter = RemoteFileUtil.SerializeBase64FileFilter(fileFilter,
-		    fileFilterClassname);
-	    fileFilterFilename = RemoteFileUtil.uploadFilterIfShortSize(
-		    base64SerialFileFilter, remoteSession);
-	    debug("after uploadFilter() :" + fileFilterFilename);
-	}
-
 	// Launch the Servlet
 
 	// Prepare the request parameters
@@ -307,36 +272,12 @@ class RemoteFileListExecutor extends RemoteFileExecutor {
 	requestParams
 		.add(new SimpleNameValuePair(Parameter.FILENAME, remoteFile));
 
-	requestParams.add(new SimpleNameValuePair(
-		Parameter.FILENAME_FILTER_CLASSNAME, filenameFilterClassname));
-	requestParams.add(new SimpleNameValuePair(
-		Parameter.FILENAME_FILTER_FILENAME,
-		filenameFilterFilename));
-	
-	if (RemoteFileUtil.isFilterShortSize(base64SerialFileFilter)) {
-	    requestParams.add(new SimpleNameValuePair(
-		    Parameter.BASE64_SERIAL_FILENAME_FILTER,
-		    base64SerialFilenameFilter));
+	if (filterSpec != null) {
+	    filterSpec.addParameters(requestParams);
 	}
 
-	requestParams.add(new SimpleNameValuePair(
-		Parameter.FILE_FILTER_CLASSNAME, fileFilterClassname));
-	requestParams.add(new SimpleNameValuePair(
-		Parameter.FILE_FILTER_FILENAME,
-		fileFilterFilename));
-	
-	debug("fileFilterFilename: " + fileFilterFilename);
-	
-	if (RemoteFileUtil.isFilterShortSize(base64SerialFileFilter)) {
-	    requestParams
-		    .add(new SimpleNameValuePair(
-			    Parameter.BASE64_SERIAL_FILE_FILTER,
-			    base64SerialFileFilter));
-	}
-
-	httpTransfer.setReceiveInFile(true); // To say we get the result into a
-					     // file
-	httpTransfer.send(requestParams);
+	// To say we get the result into a file
+	sendWithFilters(requestParams, filenameFilter, fileFilter, true);
 
 	// If everything is OK, we have in our protocol a response that
 	// 1) starts with "OK". 2) Is followed by the authenticaiton token
@@ -385,6 +326,607 @@ class RemoteFileListExecutor extends RemoteFileExecutor {
 
     }
 
+    /**
+     * 
+     * Lists one page of the files of a remote directory. The remote directory
+     * is read with a {@code DirectoryStream} starting at the cursor position,
+     * without building the whole directory content in memory.
+     * 
+     * @param remoteFile
+     *            the file name of the directory on the host
+     * @param cursor
+     *            the cursor returned by the previous page, null for the first
+     *            page
+     * @param pageSize
+     *            the maximum number of files in the page
+     * @param filenameFilter
+     *            the FilenameFilter to apply, may be null
+     * @param fileFilter
+     *            the FileFilter to apply, may be null
+     * @param filterSpec
+     *            the declarative filter to apply on the server, may be null
+     * @return the pathnames of the page followed by the cursor of the next
+     *         page, or {@link ReturnCode#END_OF_LIST} if the remote directory
+     *         has been fully read. Will be <code>null</code> if the remote
+     *         directory does not exists.
+     * 
+     * @throws IllegalArgumentException
+     *             if remoteFile is null or pageSize is &lt; 1
+     * @throws InvalidLoginException
+     *             if the username is refused by the remote host
+     * @throws RemoteException
+     *             an exception has been thrown on the server side
+     * @throws IOException
+     *             for all other IO / Network / System Error
+     * @since 3.2
+     */
+    public List<String> listFilesPage(String remoteFile, String cursor,
+	    int pageSize, FilenameFilter filenameFilter, FileFilter fileFilter,
+	    RemoteFileFilterSpec filterSpec)
+	    throws IllegalArgumentException, InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+	if (remoteFile == null) {
+	    throw new IllegalArgumentException("remoteFile can not be null!");
+	}
+
+	if (pageSize < 1) {
+	    throw new IllegalArgumentException("pageSize must be > 0!");
+	}
+
+	if (username == null || authenticationToken == null) {
+	    throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
+	}
+
+	// Prepare the request parameters
+	List<SimpleNameValuePair> requestParams = new Vector<SimpleNameValuePair>();
+	requestParams.add(new SimpleNameValuePair(Parameter.ACTION,
+		Action.FILE_LIST_PAGE_ACTION));
+	requestParams.add(new SimpleNameValuePair(Parameter.USERNAME, username));
+	requestParams.add(new SimpleNameValuePair(Parameter.TOKEN,
+		authenticationToken));
+	requestParams
+		.add(new SimpleNameValuePair(Parameter.FILENAME, remoteFile));
+	requestParams.add(new SimpleNameValuePair(Parameter.CURSOR,
+		cursor == null ? "0" : cursor));
+	requestParams.add(new SimpleNameValuePair(Parameter.PAGE_SIZE, Integer
+		.toString(pageSize)));
+
+	if (filterSpec != null) {
+	    filterSpec.addParameters(requestParams);
+	}
+
+	// The page size bounds the response: no need to receive it in a file
+	sendWithFilters(requestParams, filenameFilter, fileFilter, false);
+	String response = httpTransfer.recv();
+
+	if (response.startsWith(ReturnCode.INVALID_LOGIN_OR_PASSWORD)) {
+	    throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
+	}
+
+	if (response.equals("null")) {
+	    return null;
+	}
+
+	List<String> lines = new ArrayList<String>();
+	BufferedReader bufferedReader = new BufferedReader(new StringReader(
+		response));
+	String line = null;
+	while ((line = bufferedReader.readLine()) != null) {
+	    lines.add(HtmlConverter.fromHtml(line));
+	}
+
+	return lines;
+    }
+
+    /**
+     * 
+     * Walks a remote directory tree on the server in one request.
+     * 
+     * @param remoteFile
+     *            the file name of the root directory on the host
+     * @param maxDepth
+     *            the maximum number of directory levels to visit, 1 for the
+     *            direct children only
+     * @return the entries of the tree, not including the root directory. Will
+     *         be <code>null</code> if the remote directory does not exists.
+     * 
+     * @throws IllegalArgumentException
+     *             if remoteFile is null or maxDepth is &lt; 1
+     * @throws InvalidLoginException
+     *             if the username is refused by the remote host
+     * @throws RemoteException
+     *             an exception has been thrown on the server side
+     * @throws IOException
+     *             for all other IO / Network / System Error
+     * @since 3.2
+     */
+    public List<RemoteFileEntry> walk(String remoteFile, int maxDepth)
+	    throws IllegalArgumentException, InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+	if (remoteFile == null) {
+	    throw new IllegalArgumentException("remoteFile can not be null!");
+	}
+
+	if (maxDepth < 1) {
+	    throw new IllegalArgumentException("maxDepth must be > 0!");
+	}
+
+	if (username == null || authenticationToken == null) {
+	    throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
+	}
+
+	// Prepare the request parameters
+	List<SimpleNameValuePair> requestParams = new Vector<SimpleNameValuePair>();
+	requestParams.add(new SimpleNameValuePair(Parameter.ACTION,
+		Action.FILE_WALK_ACTION));
+	requestParams.add(new SimpleNameValuePair(Parameter.USERNAME, username));
+	requestParams.add(new SimpleNameValuePair(Parameter.TOKEN,
+		authenticationToken));
+	requestParams
+		.add(new SimpleNameValuePair(Parameter.FILENAME, remoteFile));
+	requestParams.add(new SimpleNameValuePair(Parameter.MAX_DEPTH, Integer
+		.toString(maxDepth)));
+
+	return receiveEntries(requestParams);
+    }
+
+    /**
+     * 
+     * Searches a remote directory tree on the server.
+     * 
+     * @param remoteFile
+     *            the file name of the root directory on the host
+     * @param filterSpec
+     *            the declarative filter the entries must satisfy, null for
+     *            all entries
+     * @param maxResults
+     *            the maximum number of entries returned
+     * @return the entries of the tree that satisfy the filter, not including
+     *         the root directory. Will be <code>null</code> if the remote
+     *         directory does not exists.
+     * 
+     * @throws IllegalArgumentException
+     *             if remoteFile is null or maxResults is &lt; 1
+     * @throws InvalidLoginException
+     *             if the username is refused by the remote host
+     * @throws RemoteException
+     *             an exception has been thrown on the server side
+     * @throws IOException
+     *             for all other IO / Network / System Error
+     * @since 3.2
+     */
+    public List<RemoteFileEntry> find(String remoteFile,
+	    RemoteFileFilterSpec filterSpec, int maxResults)
+	    throws IllegalArgumentException, InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+	if (remoteFile == null) {
+	    throw new IllegalArgumentException("remoteFile can not be null!");
+	}
+
+	if (maxResults < 1) {
+	    throw new IllegalArgumentException("maxResults must be > 0!");
+	}
+
+	if (username == null || authenticationToken == null) {
+	    throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
+	}
+
+	// Prepare the request parameters
+	List<SimpleNameValuePair> requestParams = new Vector<SimpleNameValuePair>();
+	requestParams.add(new SimpleNameValuePair(Parameter.ACTION,
+		Action.FILE_FIND_ACTION));
+	requestParams.add(new SimpleNameValuePair(Parameter.USERNAME, username));
+	requestParams.add(new SimpleNameValuePair(Parameter.TOKEN,
+		authenticationToken));
+	requestParams
+		.add(new SimpleNameValuePair(Parameter.FILENAME, remoteFile));
+	requestParams.add(new SimpleNameValuePair(Parameter.MAX_RESULTS,
+		Integer.toString(maxResults)));
+
+	if (filterSpec != null) {
+	    filterSpec.addParameters(requestParams);
+	}
+
+	return receiveEntries(requestParams);
+    }
+
+    /**
+     * 
+     * Computes the disk usage of a remote directory tree on the server.
+     * 
+     * @param remoteFile
+     *            the file name of the root directory on the host
+     * @return the disk usage of the tree. Will be <code>null</code> if the
+     *         remote directory does not exists.
+     * 
+     * @throws IllegalArgumentException
+     *             if remoteFile is null
+     * @throws InvalidLoginException
+     *             if the username is refused by the remote host
+     * @throws RemoteException
+     *             an exception has been thrown on the server side
+     * @throws IOException
+     *             for all other IO / Network / System Error
+     * @since 3.2
+     */
+    public RemoteDiskUsage diskUsage(String remoteFile)
+	    throws IllegalArgumentException, InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+	if (remoteFile == null) {
+	    throw new IllegalArgumentException("remoteFile can not be null!");
+	}
+
+	if (username == null || authenticationToken == null) {
+	    throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
+	}
+
+	// Prepare the request parameters
+	List<SimpleNameValuePair> requestParams = new Vector<SimpleNameValuePair>();
+	requestParams.add(new SimpleNameValuePair(Parameter.ACTION,
+		Action.FILE_DISK_USAGE_ACTION));
+	requestParams.add(new SimpleNameValuePair(Parameter.USERNAME, username));
+	requestParams.add(new SimpleNameValuePair(Parameter.TOKEN,
+		authenticationToken));
+	requestParams
+		.add(new SimpleNameValuePair(Parameter.FILENAME, remoteFile));
+
+	httpTransfer.send(requestParams);
+	String response = httpTransfer.recv();
+
+	if (response.startsWith(ReturnCode.INVALID_LOGIN_OR_PASSWORD)) {
+	    throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
+	}
+
+	if (response.equals("null")) {
+	    return null;
+	}
+
+	String[] values = response.trim().split(" ");
+	if (values.length != 3) {
+	    throw new IOException("Malformed disk usage response: " + response);
+	}
+
+	try {
+	    return new RemoteDiskUsage(Long.parseLong(values[0]),
+		    Long.parseLong(values[1]), Long.parseLong(values[2]));
+	} catch (NumberFormatException e) {
+	    throw new IOException("Malformed disk usage response: " + response,
+		    e);
+	}
+    }
+
+    /**
+     * Deletes a file or a directory tree on the server in one request.
+     * 
+     * @param remoteFile
+     *            the file name of the file or directory on the host
+     * @return the counts and first failures of the deletion, or null if the
+     *         file does not exist
+     * 
+     * @throws IllegalArgumentException
+     *             if remoteFile is null, or is the root directory
+     * @throws InvalidLoginException
+     *             the session has been closed by a {@code logoff()}
+     * @throws UnknownHostException
+     *             if host URL (http://www.acme.org) does not exists or no
+     *             Internet Connection.
+     * @throws ConnectException
+     *             if the Host is correct but the {@code ServerFileManager}
+     *             Servlet is not reachable
+     * @throws SocketException
+     *             if network failure during transmission
+     * @throws RemoteException
+     *             an exception has been thrown on the server side
+     * @throws IOException
+     *             for all other IO / Network / System Error
+     * @since 3.2
+     */
+    public RemoteDeleteResult deleteTree(String remoteFile)
+	    throws IllegalArgumentException, InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+	if (remoteFile == null) {
+	    throw new IllegalArgumentException("remoteFile can not be null!");
+	}
+
+	// Trap locally the root directory, also refused by the server
+	if (remoteFile.equals("/")) {
+	    throw new IllegalArgumentException(
+		    "The root directory can not be deleted!");
+	}
+
+	if (username == null || authenticationToken == null) {
+	    throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
+	}
+
+	// Prepare the request parameters
+	List<SimpleNameValuePair> requestParams = new Vector<SimpleNameValuePair>();
+	requestParams.add(new SimpleNameValuePair(Parameter.ACTION,
+		Action.FILE_DELETE_TREE_ACTION));
+	requestParams.add(new SimpleNameValuePair(Parameter.USERNAME, username));
+	requestParams.add(new SimpleNameValuePair(Parameter.TOKEN,
+		authenticationToken));
+	requestParams
+		.add(new SimpleNameValuePair(Parameter.FILENAME, remoteFile));
+
+	String response = null;
+	try {
+	    httpTransfer.send(requestParams);
+	    response = httpTransfer.recv();
+	} finally {
+	    // Invalidate even on failure: a part of the tree may be deleted
+	    RemoteFileMetadataCache metadataCache = remoteSession
+		    .getMetadataCache();
+	    if (metadataCache != null) {
+		metadataCache.invalidate(remoteFile);
+	    }
+	}
+
+	if (response.startsWith(ReturnCode.INVALID_LOGIN_OR_PASSWORD)) {
+	    throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
+	}
+
+	if (response.equals("null")) {
+	    return null;
+	}
+
+	String[] lines = response.trim().split("\\r?\\n");
+	String[] values = lines[0].trim().split(" ");
+	if (values.length != 3) {
+	    throw new IOException("Malformed delete response: " + response);
+	}
+
+	List<String> failures = new ArrayList<String>();
+	for (int i = 1; i < lines.length; i++) {
+	    failures.add(HtmlConverter.fromHtml(lines[i]));
+	}
+
+	try {
+	    return new RemoteDeleteResult(Long.parseLong(values[0]),
+		    Long.parseLong(values[1]), Long.parseLong(values[2]),
+		    failures);
+	} catch (NumberFormatException e) {
+	    throw new IOException("Malformed delete response: " + response, e);
+	}
+    }
+
+    /**
+     * Sends a walk or find request and reads the entries of the response
+     * 
+     * @param requestParams
+     *            the request parameters
+     * @return the entries, or null if the root is not a directory
+     */
+    private List<RemoteFileEntry> receiveEntries(
+	    List<SimpleNameValuePair> requestParams)
+	    throws IllegalArgumentException, InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+
+	httpTransfer.setReceiveInFile(true); // To say we get the result into a
+					     // file
+	httpTransfer.send(requestParams);
+
+	File receiveFile = httpTransfer.getReceiveFile();
+	debug("receiveFile: " + receiveFile);
+
+	BufferedReader bufferedReader = null;
+	try {
+	    bufferedReader = new BufferedReader(new InputStreamReader(
+		    new FileInputStream(receiveFile)));
+
+	    String line = bufferedReader.readLine();
+
+	    if (line == null) {
+		throw new IOException("Empty response.");
+	    }
+
+	    if (line.startsWith(ReturnCode.INVALID_LOGIN_OR_PASSWORD)) {
+		throw new InvalidLoginException(FILE_SESSION_IS_CLOSED);
+	    }
+
+	    if (line.equals("null")) {
+		return null;
+	    }
+
+	    RemoteSession session = this.remoteFile.getRemoteSession();
+	    List<RemoteFileEntry> entries = new ArrayList<RemoteFileEntry>();
+
+	    while (!line.equals(ReturnCode.END_OF_LIST)) {
+		entries.add(parseWalkEntry(session, line));
+
+		line = bufferedReader.readLine();
+		if (line == null) {
+		    throw new IOException("Truncated response after "
+			    + entries.size() + " entries.");
+		}
+	    }
+
+	    return entries;
+	} finally {
+	    IOUtils.closeQuietly(bufferedReader);
+	    if (!DEBUG && !KeepTempFilePolicyParms.KEEP_TEMP_FILE) {
+		receiveFile.delete();
+	    }
+	}
+    }
+
+    /**
+     * Parses a walk or find entry line in the format
+     * {@code <type> <length> <lastModified> <pathname>}
+     * 
+     * @param session
+     *            the remote session
+     * @param line
+     *            the line sent by the server
+     * @return the parsed entry
+     * @throws IOException
+     *             if the line is malformed
+     */
+    private static RemoteFileEntry parseWalkEntry(RemoteSession session,
+	    String line) throws IOException {
+	int lengthEnd = line.indexOf(' ', 2);
+	int lastModifiedEnd = lengthEnd < 0 ? -1 : line.indexOf(' ',
+		lengthEnd + 1);
+
+	if (line.length() < 2 || line.charAt(1) != ' ' || lastModifiedEnd < 0) {
+	    throw new IOException("Malformed walk entry: " + line);
+	}
+
+	try {
+	    long length = Long.parseLong(line.substring(2, lengthEnd));
+	    long lastModified = Long.parseLong(line.substring(lengthEnd + 1,
+		    lastModifiedEnd));
+	    String pathname = HtmlConverter.fromHtml(line
+		    .substring(lastModifiedEnd + 1));
+	    return new RemoteFileEntry(session, pathname, line.charAt(0),
+		    length, lastModified);
+	} catch (NumberFormatException e) {
+	    throw new IOException("Malformed walk entry: " + line, e);
+	}
+    }
+
+    /**
+     * Sends the request with the filters parameters. <br>
+     * Big filters already sent in the session are sent by hash only, without
+     * upload. If the server does not have the filter anymore, the request is
+     * sent again with the filters content.
+     * 
+     * @param requestParams
+     *            the request parameters, without the filters
+     * @param filenameFilter
+     *            the FilenameFilter, may be null
+     * @param fileFilter
+     *            the FileFilter, may be null
+     * @param receiveInFile
+     *            if true, the result is received into a file
+     */
+    private void sendWithFilters(List<SimpleNameValuePair> requestParams,
+	    FilenameFilter filenameFilter, FileFilter fileFilter,
+	    boolean receiveInFile) throws IllegalArgumentException,
+	    InvalidLoginException, UnknownHostException, ConnectException,
+	    SocketException, RemoteException, IOException {
+
+	String base64SerialFilenameFilter = null;
+	if (filenameFilter != null) {
+	    base64SerialFilenameFilter = RemoteFileUtil
+		    .SerializeBase64FilenameFilter(filenameFilter,
+			    filenameFilter.getClass().getName());
+	}
+
+	String base64SerialFileFilter = null;
+	if (fileFilter != null) {
+	    base64SerialFileFilter = RemoteFileUtil.SerializeBase64FileFilter(
+		    fileFilter, fileFilter.getClass().getName());
+	}
+
+	Set<String> filterHashes = remoteSession.getFilterHashes();
+	List<String> sentHashes = new ArrayList<String>();
+
+	List<SimpleNameValuePair> params = new Vector<SimpleNameValuePair>(
+		requestParams);
+	boolean hashOnly = addFilterParameters(params, filenameFilter,
+		base64SerialFilenameFilter, false, true, sentHashes);
+	hashOnly |= addFilterParameters(params, fileFilter,
+		base64SerialFileFilter, true, true, sentHashes);
+
+	try {
+	    httpTransfer.setReceiveInFile(receiveInFile);
+	    httpTransfer.send(params);
+	} catch (RemoteException e) {
+	    if (!hashOnly || e.getMessage() == null
+		    || !e.getMessage().contains(ReturnCode.FILTER_NOT_CACHED)) {
+		throw e;
+	    }
+
+	    debug("filter not cached on server: sending it again");
+
+	    params = new Vector<SimpleNameValuePair>(requestParams);
+	    addFilterParameters(params, filenameFilter,
+		    base64SerialFilenameFilter, false, false, sentHashes);
+	    addFilterParameters(params, fileFilter, base64SerialFileFilter,
+		    true, false, sentHashes);
+
+	    httpTransfer.setReceiveInFile(receiveInFile);
+	    httpTransfer.send(params);
+	}
+
+	// The server has now the big filters in cache
+	if (filterHashes.size() > MAX_FILTER_HASHES) {
+	    filterHashes.clear();
+	}
+	filterHashes.addAll(sentHashes);
+    }
+
+    /**
+     * Adds the parameters of a filter: class name, content hash and content,
+     * inline or uploaded. The content of a big filter is not sent if its hash
+     * was already sent in the session.
+     * 
+     * @param requestParams
+     *            the request parameters
+     * @param filter
+     *            the filter, may be null
+     * @param base64SerialFilter
+     *            the serialized filter
+     * @param isFileFilter
+     *            true for a FileFilter, false for a FilenameFilter
+     * @param allowHashOnly
+     *            if true, a big filter already sent is sent by hash only
+     * @param sentHashes
+     *            the hashes of the big filters, to add
+     * @return true if the filter has been sent by hash only
+     */
+    private boolean addFilterParameters(
+	    List<SimpleNameValuePair> requestParams, Object filter,
+	    String base64SerialFilter, boolean isFileFilter,
+	    boolean allowHashOnly, List<String> sentHashes)
+	    throws IllegalArgumentException, InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+
+	if (filter == null) {
+	    return false;
+	}
+
+	String hash = ClassSerializer.hash(base64SerialFilter);
+
+	requestParams.add(new SimpleNameValuePair(
+		isFileFilter ? Parameter.FILE_FILTER_CLASSNAME
+			: Parameter.FILENAME_FILTER_CLASSNAME, filter
+			.getClass().getName()));
+	requestParams.add(new SimpleNameValuePair(
+		isFileFilter ? Parameter.FILE_FILTER_HASH
+			: Parameter.FILENAME_FILTER_HASH, hash));
+
+	// Short filters are sent in the request
+	if (RemoteFileUtil.isFilterShortSize(base64SerialFilter)) {
+	    requestParams.add(new SimpleNameValuePair(
+		    isFileFilter ? Parameter.BASE64_SERIAL_FILE_FILTER
+			    : Parameter.BASE64_SERIAL_FILENAME_FILTER,
+		    base64SerialFilter));
+	    return false;
+	}
+
+	sentHashes.add(hash);
+
+	if (allowHashOnly && remoteSession.getFilterHashes().contains(hash)) {
+	    debug("filter sent by hash only: " + hash);
+	    return true;
+	}
+
+	String filterFilename = RemoteFileUtil.uploadFilterIfShortSize(
+		base64SerialFilter, remoteSession);
+	requestParams.add(new SimpleNameValuePair(
+		isFileFilter ? Parameter.FILE_FILTER_FILENAME
+			: Parameter.FILENAME_FILTER_FILENAME, filterFilename));
+	return false;
+    }
+
     /**
      * Transforms the content of the file in Html lines into a list.
      * 
@@ -0,0 +1,254 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.client;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Cache of the {@code RemoteFile} metadata (exists, isDirectory, length,
+ * lastModified, ...) of a {@code RemoteSession}. <br>
+ * Values expire after a time to live and the least recently used pathnames
+ * are evicted beyond a maximum number of entries. The mutating methods called
+ * through the session invalidate the pathname, its parent and all its
+ * descendants.
+ * <p>
+ * A value read from the server is not stored if an invalidation happened
+ * while it was requested, so that a concurrent mutation is never hidden.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+
+class RemoteFileMetadataCache {
+
+    /** The File methods whose results are cached */
+    private static final Set<String> CACHED_METHODS = new HashSet<String>(
+	    Arrays.asList("exists", "isDirectory", "isFile", "isHidden",
+		    "length", "lastModified", "canRead", "canWrite",
+		    "canExecute"));
+
+    /** The File methods that modify the file system */
+    private static final Set<String> MUTATING_METHODS = new HashSet<String>(
+	    Arrays.asList("createNewFile", "delete", "mkdir", "mkdirs",
+		    "renameTo", "setExecutable", "setLastModified",
+		    "setReadOnly", "setReadable", "setWritable"));
+
+    /** The time to live of a value in milliseconds */
+    private final long ttlMillis;
+
+    /** The pathnames with their cached values, in access order */
+    private final LinkedHashMap<String, Map<String, CachedValue>> cache;
+
+    /** Incremented on each invalidation */
+    private long generation = 0;
+
+    /**
+     * Constructor
+     * 
+     * @param ttlMillis
+     *            the time to live of a value in milliseconds
+     * @param maxEntries
+     *            the maximum number of cached pathnames
+     */
+    public RemoteFileMetadataCache(long ttlMillis, final int maxEntries) {
+	if (ttlMillis <= 0) {
+	    throw new IllegalArgumentException("ttlMillis must be > 0!");
+	}
+	if (maxEntries <= 0) {
+	    throw new IllegalArgumentException("maxEntries must be > 0!");
+	}
+
+	this.ttlMillis = ttlMillis;
+	this.cache = new LinkedHashMap<String, Map<String, CachedValue>>(16,
+		0.75f, true) {
+	    private static final long serialVersionUID = 1L;
+
+	    @Override
+	    protected boolean removeEldestEntry(
+		    Map.Entry<String, Map<String, CachedValue>> eldest) {
+		return size() > maxEntries;
+	    }
+	};
+    }
+
+    /**
+     * Says if the result of a File method may be cached
+     * 
+     * @param methodName
+     *            the File method name
+     * @param params
+     *            the method parameters
+     * @return true if the result may be cached
+     */
+    public static boolean isCached(String methodName, Object... params) {
+	return (params == null || params.length == 0)
+		&& CACHED_METHODS.contains(methodName);
+    }
+
+    /**
+     * Says if a File method modifies the file system
+     * 
+     * @param methodName
+     *            the File method name
+     * @return true if the method modifies the file system
+     */
+    public static boolean isMutating(String methodName) {
+	return MUTATING_METHODS.contains(methodName);
+    }
+
+    /**
+     * Returns the current generation, to be passed to
+     * {@link #put(long, String, String, String)}
+     * 
+     * @return the current generation
+     */
+    public synchronized long getGeneration() {
+	return generation;
+    }
+
+    /**
+     * Returns a cached value
+     * 
+     * @param pathname
+     *            the remote file pathname
+     * @param methodName
+     *            the File method name
+     * @return the cached value, or null if not cached or expired
+     */
+    public synchronized String get(String pathname, String methodName) {
+	Map<String, CachedValue> values = cache.get(pathname);
+	if (values == null) {
+	    return null;
+	}
+
+	CachedValue cachedValue = values.get(methodName);
+	if (cachedValue == null) {
+	    return null;
+	}
+
+	if (System.currentTimeMillis() > cachedValue.expiresAt) {
+	    values.remove(methodName);
+	    return null;
+	}
+
+	return cachedValue.value;
+    }
+
+    /**
+     * Stores a value read from the server, unless an invalidation happened
+     * since the passed generation.
+     * 
+     * @param generation
+     *            the generation read before the server call
+     * @param pathname
+     *            the remote file pathname
+     * @param methodName
+     *            the File method name
+     * @param value
+     *            the value to cache
+     */
+    public synchronized void put(long generation, String pathname,
+	    String methodName, String value) {
+	if (value == null || generation != this.generation) {
+	    return;
+	}
+
+	Map<String, CachedValue> values = cache.get(pathname);
+	if (values == null) {
+	    values = new HashMap<String, CachedValue>();
+	    cache.put(pathname, values);
+	}
+
+	values.put(methodName, new CachedValue(value,
+		System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Invalidates a pathname, its parent directory and all its descendants
+     * 
+     * @param pathname
+     *            the remote file pathname
+     */
+    public synchronized void invalidate(String pathname) {
+	generation++;
+
+	if (pathname == null) {
+	    return;
+	}
+
+	cache.remove(pathname);
+
+	if (pathname.length() > 1) {
+	    String parent = StringUtils.substringBeforeLast(pathname, "/");
+	    cache.remove(parent.isEmpty() ? "/" : parent);
+	}
+
+	String prefix = pathname.endsWith("/") ? pathname : pathname + "/";
+	Iterator<String> iterator = cache.keySet().iterator();
+	while (iterator.hasNext()) {
+	    if (iterator.next().startsWith(prefix)) {
+		iterator.remove();
+	    }
+	}
+    }
+
+    /**
+     * Removes all the cached values
+     */
+    public synchronized void clear() {
+	generation++;
+	cache.clear();
+    }
+
+    /**
+     * Returns the number of cached pathnames
+     * 
+     * @return the number of cached pathnames
+     */
+    public synchronized int size() {
+	return cache.size();
+    }
+
+    /**
+     * A cached value with its expiration time
+     */
+    private static class CachedValue {
+	private final String value;
+	private final long expiresAt;
+
+	public CachedValue(String value, long expiresAt) {
+	    this.value = value;
+	    this.expiresAt = expiresAt;
+	}
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.client;
+
+import java.io.FileFilter;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+
+import org.kawanfw.commons.api.client.InvalidLoginException;
+import org.kawanfw.commons.util.ClientLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.file.api.util.client.RemoteFileUtil;
+import org.kawanfw.file.util.parms.ReturnCode;
+
+/**
+ * Iterates on the files of a remote directory, loading them page per page
+ * from the server.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+class RemoteFilePageIterator implements Iterator<RemoteFile> {
+
+    /** For debug info */
+    private static boolean DEBUG = FrameworkDebug
+	    .isSet(RemoteFilePageIterator.class);
+
+    /** The remote directory */
+    private RemoteFile remoteDir = null;
+
+    /** The maximum number of files per page */
+    private int pageSize = 0;
+
+    /** The FilenameFilter, may be null */
+    private FilenameFilter filenameFilter = null;
+
+    /** The FileFilter, may be null */
+    private FileFilter fileFilter = null;
+
+    /** The declarative filter, may be null */
+    private RemoteFileFilterSpec filterSpec = null;
+
+    /** The pathnames of the current page */
+    private List<String> page = null;
+
+    /** The position of the next file in the current page */
+    private int position = 0;
+
+    /** The cursor of the next page, null if the directory is fully read */
+    private String cursor = null;
+
+    /**
+     * Constructor. The first page is loaded by {@link #loadFirstPage()}
+     * 
+     * @param remoteDir
+     *            the remote directory
+     * @param pageSize
+     *            the maximum number of files per page
+     * @param filenameFilter
+     *            the FilenameFilter, may be null
+     * @param fileFilter
+     *            the FileFilter, may be null
+     * @param filterSpec
+     *            the declarative filter, may be null
+     */
+    public RemoteFilePageIterator(RemoteFile remoteDir, int pageSize,
+	    FilenameFilter filenameFilter, FileFilter fileFilter,
+	    RemoteFileFilterSpec filterSpec) {
+	if (pageSize < 1) {
+	    throw new IllegalArgumentException("pageSize must be > 0!");
+	}
+
+	this.remoteDir = remoteDir;
+	this.pageSize = pageSize;
+	this.filenameFilter = filenameFilter;
+	this.fileFilter = fileFilter;
+	this.filterSpec = filterSpec;
+    }
+
+    /**
+     * Loads the first page
+     * 
+     * @return false if the remote directory does not exist
+     * @throws IOException
+     *             if any IO / Network / System Error occurs
+     */
+    public boolean loadFirstPage() throws IOException {
+	return loadPage(null);
+    }
+
+    /**
+     * Loads the page starting at the cursor
+     * 
+     * @param pageCursor
+     *            the cursor of the page, null for the first page
+     * @return false if the remote directory does not exist
+     * @throws IOException
+     *             if any IO / Network / System Error occurs
+     */
+    private boolean loadPage(String pageCursor) throws IOException {
+	debug("loadPage: " + remoteDir.getPath() + " cursor: " + pageCursor);
+
+	RemoteFileListExecutor remoteFileListExecutor = new RemoteFileListExecutor(
+		remoteDir);
+	List<String> lines = remoteFileListExecutor.listFilesPage(
+		remoteDir.getPath(), pageCursor, pageSize, filenameFilter,
+		fileFilter, filterSpec);
+
+	if (lines == null) {
+	    page = null;
+	    cursor = null;
+	    return false;
+	}
+
+	// Last line is the cursor of the next page
+	String nextCursor = lines.remove(lines.size() - 1);
+	cursor = nextCursor.equals(ReturnCode.END_OF_LIST) ? null : nextCursor;
+	page = lines;
+	position = 0;
+	return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.Iterator#hasNext()
+     */
+    @Override
+    public boolean hasNext() {
+	// Filtered pages may be empty: go on until a file or the end is found
+	while (page != null && position >= page.size() && cursor != null) {
+	    try {
+		if (!loadPage(cursor)) {
+		    // Directory removed during iteration
+		    return false;
+		}
+	    } catch (IOException e) {
+		// Same exceptions as RemoteFile.listFiles()
+		RemoteFileUtil.decodeTrowableForFilterUsage(e);
+	    }
+	}
+
+	return page != null && position < page.size();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.Iterator#next()
+     */
+    @Override
+    public RemoteFile next() {
+	if (!hasNext()) {
+	    throw new NoSuchElementException();
+	}
+
+	String pathname = page.get(position++);
+	try {
+	    return new RemoteFile(remoteDir.getRemoteSession(), pathname);
+	} catch (InvalidLoginException e) {
+	    throw new RuntimeException(e);
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.Iterator#remove()
+     */
+    @Override
+    public void remove() {
+	throw new UnsupportedOperationException("remove");
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ClientLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+}
@@ -493,6 +493,12 @@ public class RemoteOutputStream extends OutputStream {
 	    }
 	} finally {
 	    FileUtils.deleteQuietly(fileUnique);
+
+	    RemoteFileMetadataCache metadataCache = remoteSession
+		    .getMetadataCache();
+	    if (metadataCache != null) {
+		metadataCache.invalidate(pathname);
+	    }
 	}
 
     }
@@ -40,9 +40,16 @@ import java.net.Proxy;
 import java.net.SocketException;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 import java.util.logging.Level;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -205,6 +212,13 @@ public class RemoteSession implements Cloneable {
     /** The remote Java version */
     private String remoteJavaVersion = null;
 
+    /** The RemoteFile metadata cache, created on first use if enabled */
+    private RemoteFileMetadataCache metadataCache = null;
+
+    /** The hashes of the big filters already sent to the server */
+    private Set<String> filterHashes = Collections
+	    .synchronizedSet(new HashSet<String>());
+
     /**
      * Says if we want to use base64 encoding for parameters passed to call() -
      * This is a method for legacy applications prior to v1.0.
@@ -214,7 +228,7 @@ public class RemoteSession implements Cloneable {
     }
 
     /**
-     * Private constructor for clone().
+     * Private constructor for clone() and session tickets.
      * 
      * @param url
      *            the URL of the path to the {@code ServerFileManager} Servlet
@@ -357,6 +371,12 @@ public class RemoteSession implements Cloneable {
 
 	if (receive.startsWith(ReturnCode.INVALID_LOGIN_OR_PASSWORD)) {
 	    throw new InvalidLoginException("Invalid username or password.");
+	} else if (receive.startsWith(ReturnCode.TOO_MANY_LOGIN_ATTEMPTS)) {
+	    String retryAfter = StringUtils.substringAfter(receive,
+		    ReturnCode.TOO_MANY_LOGIN_ATTEMPTS).trim();
+	    throw new InvalidLoginException(
+		    "Too many failed login attempts. Please retry in "
+			    + retryAfter + " seconds.");
 	} else if (receive.startsWith(ReturnCode.OK)) {
 	    // OK! We are logged in & and correctly authenticated
 	    // Keep in static memory the Authentication Token for next api
@@ -467,6 +487,94 @@ public class RemoteSession implements Cloneable {
 	this(url, username, password, null, null);
     }
 
+    /**
+     * Rebuilds an Awake FILE session from a {@link SessionTicket} returned by
+     * {@link #getSessionTicket()}, without any login: no network access is
+     * done by this constructor.
+     * <p>
+     * The ticket is verified by the server on the first request: if the token
+     * is no more valid, or the username or client IP is banned, the request
+     * throws an {@code InvalidLoginException} and a new session must be
+     * created with a login.
+     * 
+     * @param sessionTicket
+     *            the ticket of a previously established session
+     * @param proxy
+     *            the proxy to use, may be null for direct access
+     * @param passwordAuthentication
+     *            the proxy credentials, null if no proxy or if the proxy does
+     *            not require authentication
+     * 
+     * @throws MalformedURLException
+     *             if the url of the ticket is malformed
+     * @since 3.2
+     */
+    public RemoteSession(SessionTicket sessionTicket, Proxy proxy,
+	    PasswordAuthentication passwordAuthentication)
+	    throws MalformedURLException {
+	this(checkTicketUrl(sessionTicket), sessionTicket.getUsername(),
+		sessionTicket.getAuthenticationToken(), proxy,
+		passwordAuthentication, sessionTicket.getSessionParameters(),
+		sessionTicket.getRemoteJavaVersion());
+    }
+
+    /**
+     * Rebuilds an Awake FILE session from a {@link SessionTicket} returned by
+     * {@link #getSessionTicket()}, without any login.
+     * 
+     * @param sessionTicket
+     *            the ticket of a previously established session
+     * 
+     * @throws MalformedURLException
+     *             if the url of the ticket is malformed
+     * @since 3.2
+     */
+    public RemoteSession(SessionTicket sessionTicket)
+	    throws MalformedURLException {
+	this(sessionTicket, null, null);
+    }
+
+    /**
+     * Returns the ticket that allows to rebuild this session later without a
+     * new login, with {@link #RemoteSession(SessionTicket)}.
+     * <p>
+     * The ticket contains the authentication token: it must be stored with the
+     * same care as a password.
+     * 
+     * @return the ticket of this session
+     * @throws InvalidLoginException
+     *             if the session has no authenticated user or has been closed
+     *             by a {@code logoff()}
+     * @since 3.2
+     */
+    public SessionTicket getSessionTicket() throws InvalidLoginException {
+	if (username == null || authenticationToken == null) {
+	    throw new InvalidLoginException(REMOTE_SESSION_IS_CLOSED);
+	}
+
+	return new SessionTicket(url, username, authenticationToken,
+		remoteJavaVersion, sessionParameters);
+    }
+
+    /**
+     * Checks the ticket and returns its URL
+     */
+    private static String checkTicketUrl(SessionTicket sessionTicket)
+	    throws MalformedURLException {
+	if (sessionTicket == null) {
+	    throw new IllegalArgumentException("sessionTicket can not be null!");
+	}
+
+	String url = sessionTicket.getUrl();
+	if (url == null) {
+	    throw new MalformedURLException("url is null!");
+	}
+
+	@SuppressWarnings("unused")
+	URL asUrl = new URL(url); // Try to raise a MalformedURLException;
+	return url;
+    }
+
     /**
      * Returns the username of this Awake FILE session
      * 
@@ -601,6 +709,115 @@ public class RemoteSession implements Cloneable {
 	    authenticationToken = "null";
 	}
 
+	List<SimpleNameValuePair> requestParams = buildCallParameters(
+		Action.CALL_ACTION_HTML_ENCODED, methodName, params);
+
+	httpTransfer.send(requestParams);
+
+	// Return the answer
+	String response = httpTransfer.recv();
+
+	debug("response: " + response);
+
+	// Content is OK
+	if (response.startsWith(ReturnCode.INVALID_LOGIN_OR_PASSWORD)) {
+	    throw new InvalidLoginException(REMOTE_SESSION_IS_CLOSED);
+	}
+
+	// The response is in Html encode:
+	if (!response.isEmpty()) {
+	    response = HtmlConverter.fromHtml(response);
+	}
+
+	return response;
+
+    }
+
+    /**
+     * Submits the call of a remote Java method that will be executed
+     * asynchronously on the server. <br>
+     * The method returns immediately: use the returned {@link RemoteCallJob}
+     * to wait for, poll or cancel the call. This avoids holding an http
+     * connection open during a long-running method.
+     * <p>
+     * The number of asynchronous calls in progress is limited per username on
+     * the server side: a refused submission throws a {@code RemoteException}
+     * whose cause is a {@code RejectedExecutionException}.
+     * 
+     * @param methodName
+     *            the full method name to call in the format
+     *            <code>org.acme.config.package.MyClass.myMethod</code>
+     * @param params
+     *            the array of parameters passed to the method
+     * 
+     * @return the submitted call job
+     * 
+     * @throws IllegalArgumentException
+     *             if methodName is null
+     * @throws InvalidLoginException
+     *             the session has been closed by a {@code logoff()}
+     * @throws UnknownHostException
+     *             if host URL (http://www.acme.org) does not exists or no
+     *             Internet Connection.
+     * @throws ConnectException
+     *             if the Host is correct but the {@code ServerFileManager}
+     *             Servlet is not reachable
+     * @throws SocketException
+     *             if network failure during transmission
+     * @throws RemoteException
+     *             an exception has been thrown on the server side
+     * @throws IOException
+     *             for all other IO / Network / System Error
+     * @since 3.2
+     */
+    public RemoteCallJob submitCall(String methodName, Object... params)
+	    throws IllegalArgumentException, InvalidLoginException,
+	    UnknownHostException, ConnectException, SocketException,
+	    RemoteException, IOException {
+
+	// Class and method name can not be null
+	if (methodName == null) {
+	    throw new IllegalArgumentException("methodName can not be null!");
+	}
+
+	// Asynchronous calls always require an authenticated session
+	if (username == null || authenticationToken == null) {
+	    throw new InvalidLoginException(REMOTE_SESSION_IS_CLOSED);
+	}
+
+	List<SimpleNameValuePair> requestParams = buildCallParameters(
+		Action.CALL_JOB_SUBMIT_ACTION, methodName, params);
+
+	httpTransfer.send(requestParams);
+
+	String response = httpTransfer.recv();
+
+	debug("response: " + response);
+
+	if (response.startsWith(ReturnCode.INVALID_LOGIN_OR_PASSWORD)) {
+	    throw new InvalidLoginException(REMOTE_SESSION_IS_CLOSED);
+	}
+
+	return new RemoteCallJob(this, response);
+    }
+
+    /**
+     * Builds the request parameters of an html encoded call action
+     * 
+     * @param action
+     *            the call action
+     * @param methodName
+     *            the full method name to call
+     * @param params
+     *            the array of parameters passed to the method
+     * @return the request parameters
+     * @throws IllegalArgumentException
+     *             if a parameter value is null
+     */
+    private List<SimpleNameValuePair> buildCallParameters(String action,
+	    String methodName, Object... params)
+	    throws IllegalArgumentException {
+
 	// Build the params types
 	List<String> paramsTypes = new Vector<String>();
 
@@ -645,8 +862,7 @@ public class RemoteSession implements Cloneable {
 
 	// Prepare the request parameters
 	List<SimpleNameValuePair> requestParams = new Vector<SimpleNameValuePair>();
-	requestParams.add(new SimpleNameValuePair(Parameter.ACTION,
-		Action.CALL_ACTION_HTML_ENCODED));
+	requestParams.add(new SimpleNameValuePair(Parameter.ACTION, action));
 	requestParams
 		.add(new SimpleNameValuePair(Parameter.USERNAME, username));
 	requestParams.add(new SimpleNameValuePair(Parameter.TOKEN,
@@ -658,25 +874,7 @@ public class RemoteSession implements Cloneable {
 	requestParams.add(new SimpleNameValuePair(Parameter.PARAMS_VALUES,
 		jsonParamValues));
 
-	httpTransfer.send(requestParams);
-
-	// Return the answer
-	String response = httpTransfer.recv();
-
-	debug("response: " + response);
-
-	// Content is OK
-	if (response.startsWith(ReturnCode.INVALID_LOGIN_OR_PASSWORD)) {
-	    throw new InvalidLoginException(REMOTE_SESSION_IS_CLOSED);
-	}
-
-	// The response is in Html encode:
-	if (!response.isEmpty()) {
-	    response = HtmlConverter.fromHtml(response);
-	}
-
-	return response;
-
+	return requestParams;
     }
 
     /**
@@ -868,6 +1066,118 @@ public class RemoteSession implements Cloneable {
 	}
     }
 
+    /**
+     * Downloads a remote directory tree into a local directory. <br>
+     * The server streams a zip archive of the tree, built on the fly, and the
+     * entries are extracted while the bytes arrive: there is one request for
+     * the whole tree and no temporary archive.
+     * <p>
+     * The remote directory is created with its name in {@code directory}:
+     * downloading {@code "/mydir"} into {@code C:\Users\Mike} creates
+     * {@code C:\Users\Mike\mydir}. Symbolic links and special files are not
+     * downloaded. Existing local files are overwritten.
+     * 
+     * @param pathname
+     *            the pathname on host with "/" as file separator. Must be
+     *            absolute.
+     * @param directory
+     *            the local directory into which to extract the tree
+     * @param compressionLevel
+     *            the compression level of the transfer, from 0 (no
+     *            compression) to 9, or -1 for the default level
+     * @throws IllegalArgumentException
+     *             if pathname or directory is null, or if compressionLevel is
+     *             not in -1..9
+     * @throws InvalidLoginException
+     *             the session has been closed by a {@code logoff()}
+     * @throws FileNotFoundException
+     *             if the remote file is not found on server
+     * @throws RemoteException
+     *             an exception has been thrown on the server side
+     * @throws IOException
+     *             if an entry would be extracted out of {@code directory}, or
+     *             for all other IO / Network / System Error
+     * @since 3.2
+     */
+    public void downloadDirectory(String pathname, File directory,
+	    int compressionLevel) throws IllegalArgumentException,
+	    InvalidLoginException, FileNotFoundException, RemoteException,
+	    IOException {
+
+	if (pathname == null) {
+	    throw new IllegalArgumentException("pathname can not be null!");
+	}
+
+	if (directory == null) {
+	    throw new IllegalArgumentException("directory can not be null!");
+	}
+
+	RemoteArchiveInputStream archiveIn = new RemoteArchiveInputStream(
+		this, pathname, RemoteArchiveInputStream.FORMAT_ZIP,
+		compressionLevel);
+	ZipInputStream zipIn = null;
+
+	// The directories times are set at end, after their files creation
+	Map<File, Long> directoryTimes = new LinkedHashMap<File, Long>();
+
+	try {
+	    zipIn = new ZipInputStream(new BufferedInputStream(archiveIn));
+
+	    String directoryPath = directory.getCanonicalPath() + File.separator;
+
+	    ZipEntry zipEntry = null;
+	    while ((zipEntry = zipIn.getNextEntry()) != null) {
+
+		File file = new File(directory, zipEntry.getName());
+
+		// Protect against entry names that go out of directory
+		if (!file.getCanonicalPath().startsWith(directoryPath)) {
+		    throw new IOException(Tag.PRODUCT_SECURITY
+			    + " Archive entry is out of directory: "
+			    + zipEntry.getName());
+		}
+
+		if (zipEntry.isDirectory()) {
+		    file.mkdirs();
+		    directoryTimes.put(file, zipEntry.getTime());
+		    continue;
+		}
+
+		file.getParentFile().mkdirs();
+		OutputStream out = new BufferedOutputStream(
+			new FileOutputStream(file));
+		try {
+		    IOUtils.copy(zipIn, out);
+		} finally {
+		    out.close();
+		}
+
+		if (zipEntry.getTime() != -1) {
+		    file.setLastModified(zipEntry.getTime());
+		}
+	    }
+
+	    // Read the zip central directory until the end of archive frame,
+	    // so that a truncation is detected
+	    byte[] buffer = new byte[1024 * 4];
+	    while (archiveIn.read(buffer) != -1) {
+		// Nothing to extract after the last entry
+	    }
+
+	    for (Map.Entry<File, Long> entry : directoryTimes.entrySet()) {
+		if (entry.getValue() != -1) {
+		    entry.getKey().setLastModified(entry.getValue());
+		}
+	    }
+
+	    // Cleaner to close in here so that no Exception is thrown in
+	    // finally clause
+	    zipIn.close();
+	} finally {
+	    IOUtils.closeQuietly(zipIn);
+	}
+    }
+
     /**
      * Uploads a file on the server. <br>
      * This method simply wraps bytes copy from a {@code FileInputStream} to a
@@ -1052,9 +1362,54 @@ public class RemoteSession implements Cloneable {
 		this.username, this.authenticationToken, this.proxy,
 		this.passwordAuthentication, this.sessionParameters,
 		this.remoteJavaVersion);
+	
+	// The clone works on the same remote files: share the cached metadata
+	remoteSession.metadataCache = getMetadataCache();
+	remoteSession.filterHashes = filterHashes;
 	return remoteSession;
     }
 
+    /**
+     * Clears the {@code RemoteFile} metadata cached by this session. <br>
+     * Use it after the remote files have been modified outside this session.
+     * Does nothing if there is no metadata cache.
+     * 
+     * @see SessionParameters#setMetadataCacheTtlMillis(long)
+     * @since 3.2
+     */
+    public void clearMetadataCache() {
+	RemoteFileMetadataCache cache = getMetadataCache();
+	if (cache != null) {
+	    cache.clear();
+	}
+    }
+
+    /**
+     * Returns the hashes of the big filters already sent to the server: these
+     * filters are sent again by hash only.
+     * 
+     * @return the hashes of the filters already sent
+     */
+    Set<String> getFilterHashes() {
+	return filterHashes;
+    }
+
+    /**
+     * Returns the RemoteFile metadata cache of the session
+     * 
+     * @return the metadata cache, or null if the metadata cache is not enabled
+     *         by the session parameters
+     */
+    synchronized RemoteFileMetadataCache getMetadataCache() {
+	if (metadataCache == null && sessionParameters != null
+		&& sessionParameters.getMetadataCacheTtlMillis() > 0) {
+	    metadataCache = new RemoteFileMetadataCache(
+		    sessionParameters.getMetadataCacheTtlMillis(),
+		    sessionParameters.getMetadataCacheMaxEntries());
+	}
+	return metadataCache;
+    }
+
     /**
      * Returns the Awake FILE Version.
      * 
@@ -1079,6 +1434,10 @@ public class RemoteSession implements Cloneable {
 	sessionParameters = null;
 	remoteJavaVersion = null;
 	
+	synchronized (this) {
+	    metadataCache = null;
+	}
+	
 	if (httpTransfer != null) {
 	    httpTransfer.close();
 	    httpTransfer = null;
@@ -0,0 +1,215 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.client;
+
+import java.io.Serializable;
+
+import org.kawanfw.commons.api.client.SessionParameters;
+import org.kawanfw.commons.json.SessionTicketGson;
+
+import com.google.gson.JsonParseException;
+
+/**
+ * The values of an established {@link RemoteSession} that allow to rebuild it
+ * later without a new login: URL, username, authentication token, remote Java
+ * version and session parameters.
+ * <p>
+ * A ticket is obtained with {@link RemoteSession#getSessionTicket()}, may be
+ * stored as a String with {@link #toJson()}, parsed back with
+ * {@link #fromJson(String)} and used with
+ * {@link RemoteSession#RemoteSession(SessionTicket, java.net.Proxy, java.net.PasswordAuthentication)}
+ * .
+ * <p>
+ * The authentication token gives the same rights as the password until the
+ * server secret changes: a ticket must be stored with the same care as a
+ * password. The session parameters may contain the encryption password.
+ * {@link #toString()} does not include the token nor the session parameters,
+ * so that a ticket can be logged.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class SessionTicket implements Serializable {
+
+    private static final long serialVersionUID = -3318093254125470117L;
+
+    /** The URL of the ServerFileManager Servlet */
+    private String url = null;
+
+    /** The username of the session */
+    private String username = null;
+
+    /** The authentication token returned by the server at login */
+    private String authenticationToken = null;
+
+    /** The remote Java version, may be null if never asked */
+    private String remoteJavaVersion = null;
+
+    /** The session parameters, may be null */
+    private SessionParameters sessionParameters = null;
+
+    /**
+     * Constructor.
+     * 
+     * @param url
+     *            the URL of the path to the {@code ServerFileManager} Servlet
+     * @param username
+     *            the username of the session
+     * @param authenticationToken
+     *            the authentication token returned by the server at login
+     * @param remoteJavaVersion
+     *            the remote Java version, may be null
+     * @param sessionParameters
+     *            the session parameters, may be null
+     */
+    public SessionTicket(String url, String username,
+	    String authenticationToken, String remoteJavaVersion,
+	    SessionParameters sessionParameters) {
+
+	if (url == null) {
+	    throw new IllegalArgumentException("url can not be null!");
+	}
+
+	if (username == null) {
+	    throw new IllegalArgumentException("username can not be null!");
+	}
+
+	if (authenticationToken == null) {
+	    throw new IllegalArgumentException(
+		    "authenticationToken can not be null!");
+	}
+
+	this.url = url;
+	this.username = username;
+	this.authenticationToken = authenticationToken;
+	this.remoteJavaVersion = remoteJavaVersion;
+	this.sessionParameters = sessionParameters;
+    }
+
+    /**
+     * Returns the URL of the path to the {@code ServerFileManager} Servlet
+     * 
+     * @return the URL of the path to the {@code ServerFileManager} Servlet
+     */
+    public String getUrl() {
+	return url;
+    }
+
+    /**
+     * Returns the username of the session
+     * 
+     * @return the username of the session
+     */
+    public String getUsername() {
+	return username;
+    }
+
+    /**
+     * Returns the authentication token
+     * 
+     * @return the authentication token
+     */
+    public String getAuthenticationToken() {
+	return authenticationToken;
+    }
+
+    /**
+     * Returns the remote Java version
+     * 
+     * @return the remote Java version, or null if never asked
+     */
+    public String getRemoteJavaVersion() {
+	return remoteJavaVersion;
+    }
+
+    /**
+     * Returns the session parameters
+     * 
+     * @return the session parameters, may be null
+     */
+    public SessionParameters getSessionParameters() {
+	return sessionParameters;
+    }
+
+    /**
+     * Rebuilds a {@code SessionTicket} from its JSon representation.
+     * 
+     * @param jsonString
+     *            the JSon representation returned by {@link #toJson()}
+     * @return the {@code SessionTicket} instance
+     * @throws IllegalArgumentException
+     *             if the String is not a valid ticket
+     */
+    public static SessionTicket fromJson(String jsonString)
+	    throws IllegalArgumentException {
+	if (jsonString == null) {
+	    throw new IllegalArgumentException("jsonString can not be null!");
+	}
+
+	SessionTicket sessionTicket = null;
+	try {
+	    sessionTicket = SessionTicketGson.fromJson(jsonString);
+	} catch (JsonParseException e) {
+	    throw new IllegalArgumentException("Invalid session ticket: "
+		    + e.getMessage(), e);
+	}
+
+	if (sessionTicket == null || sessionTicket.url == null
+		|| sessionTicket.username == null
+		|| sessionTicket.authenticationToken == null) {
+	    throw new IllegalArgumentException(
+		    "Invalid session ticket: url, username and token are required.");
+	}
+
+	return sessionTicket;
+    }
+
+    /**
+     * Returns a JSon representation of the {@code SessionTicket} instance. <br>
+     * The JSon formated String can be used later to rebuild the instance with
+     * {@link #fromJson(String)}. It contains the authentication token.
+     * 
+     * @return a JSon representation of the {@code SessionTicket} instance
+     */
+    public String toJson() {
+	return SessionTicketGson.toJson(this);
+    }
+
+    /**
+     * Returns a representation of the {@code SessionTicket} instance that can
+     * be logged: the authentication token is masked and the session
+     * parameters are not included.
+     * 
+     * @return a representation of the {@code SessionTicket} instance without
+     *         the authentication token
+     */
+    @Override
+    public String toString() {
+	return "SessionTicket [url=" + url + ", username=" + username
+		+ ", authenticationToken=********, remoteJavaVersion="
+		+ remoteJavaVersion + "]";
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.server;
+
+/**
+ * Classes called from client side that must not be instantiated at each call
+ * may implement this interface, in addition to {@link ClientCallable} or
+ * {@link ClientCallableNoAuth}.
+ * <p>
+ * The Awake FILE Manager then keeps the created instances and reuses them for
+ * all calls of the class:
+ * <ul>
+ * <li>If {@link #getPoolSize()} returns 0, one single instance is created and
+ * shared by all simultaneous calls: the class must be thread-safe.</li>
+ * <li>If {@link #getPoolSize()} returns a value &gt; 0, a pool of at most
+ * {@code getPoolSize()} instances is created. An instance is used by one call
+ * at a time; a call waits for a free instance when all are in use, and fails
+ * if none is released within 60 seconds.</li>
+ * </ul>
+ * <p>
+ * {@link #init()} is called once on each new instance before its first use and
+ * {@link #destroy()} is called on each instance when the
+ * {@code ServerFileManager} servlet is taken out of service. This is the place
+ * to create and release expensive state (parsers, compiled patterns,
+ * connection factories, etc.) instead of using static fields.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public interface ClientCallableManaged {
+
+    /**
+     * Returns the size of the pool of instances to use for the class. <br>
+     * The value is read once, on the first instance created, before its
+     * {@link #init()}.
+     * 
+     * @return 0 for one single thread-safe instance shared by all calls, else
+     *         the maximum number of instances used simultaneously
+     */
+    public int getPoolSize();
+
+    /**
+     * Initializes the instance. Called once, after instance creation and
+     * before the first call.
+     * 
+     * @throws Exception
+     *             if the initialization fails. The instance is not used and
+     *             the Exception is thrown back to the client side.
+     */
+    public void init() throws Exception;
+
+    /**
+     * Releases the resources of the instance. Called once when the
+     * {@code ServerFileManager} servlet is taken out of service.
+     */
+    public void destroy();
+}
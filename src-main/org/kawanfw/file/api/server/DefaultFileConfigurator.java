@@ -111,4 +111,60 @@ public class DefaultFileConfigurator implements FileConfigurator {
 		+ " with parameters: " + params);
     }
 
+    /**
+     * @return <code><b>4</b></code>
+     */
+    @Override
+    public int getCallJobThreads() {
+	return 4;
+    }
+
+    /**
+     * @return <code><b>4</b></code>
+     */
+    @Override
+    public int getFindThreads() {
+	return 4;
+    }
+
+    /**
+     * @return <code><b>0</b></code>
+     */
+    @Override
+    public long getDiskUsageCacheTtlMillis() {
+	return 0;
+    }
+
+    /**
+     * @return <code><b>64</b></code>
+     */
+    @Override
+    public int getCallJobQueueSize() {
+	return 64;
+    }
+
+    /**
+     * @return <code><b>4</b></code>
+     */
+    @Override
+    public int getCallJobMaxPerUsername() {
+	return 4;
+    }
+
+    /**
+     * @return <code><b>0</b></code>: the directory listings are not cached
+     */
+    @Override
+    public long getDirectoryCacheMaxBytes() {
+	return 0;
+    }
+
+    /**
+     * @return <code><b>5000</b></code>
+     */
+    @Override
+    public long getDirectoryCacheTtlMillis() {
+	return 5000;
+    }
+
 }
@@ -162,4 +162,100 @@ public interface FileConfigurator {
 	    String ipAddress, String methodName, List<Object> params)
 	    throws IOException, SQLException;
 
+    /**
+     * Allows to define the number of server threads that execute the
+     * asynchronous call jobs submitted with
+     * {@code RemoteSession.submitCall(String, Object...)}.
+     * 
+     * @return the number of threads that execute the asynchronous call jobs.
+     *         Must be &gt; 0.
+     * @since 3.2
+     */
+    public int getCallJobThreads();
+
+    /**
+     * Allows to define the maximum number of asynchronous call jobs waiting
+     * for a free thread. A job submitted when the queue is full is refused
+     * and the client receives a {@code RejectedExecutionException}.
+     * 
+     * @return the maximum number of queued asynchronous call jobs. Must be
+     *         &gt; 0.
+     * @since 3.2
+     */
+    public int getCallJobQueueSize();
+
+    /**
+     * Allows to define the maximum number of asynchronous call jobs a client
+     * username may have queued or running at the same time. A job submitted
+     * above this limit is refused and the client receives a
+     * {@code RejectedExecutionException}.
+     * 
+     * @return the maximum number of concurrent asynchronous call jobs per
+     *         client username. Must be &gt; 0.
+     * @since 3.2
+     */
+    public int getCallJobMaxPerUsername();
+
+    /**
+     * Allows to define the memory budget of the server cache of the directory
+     * listings. <br>
+     * When &gt; 0, the listings of the directories and the attributes of
+     * their entries are kept in memory and reused by
+     * {@code RemoteFile.list()}, {@code RemoteFile.listFiles()} and the
+     * {@code RemoteFile} attribute methods ({@code exists()},
+     * {@code isDirectory()}, {@code isFile()}, {@code length()},
+     * {@code lastModified()}). The least recently used listings are dropped
+     * when the budget is exceeded.
+     * <p>
+     * A listing is dropped when the directory is modified through Awake FILE
+     * or reported modified by the file system {@code WatchService}.
+     * 
+     * @return the estimated maximum memory used by the cached listings, in
+     *         bytes. 0 to disable the cache.
+     * @since 3.2
+     */
+    public long getDirectoryCacheMaxBytes();
+
+    /**
+     * Allows to define the time to live of the cached directory listings.
+     * <br>
+     * The file system {@code WatchService} does not report all the
+     * modifications: network file systems modified from other hosts, file
+     * systems that can not be watched... This time to live bounds how long
+     * such modifications may be unseen.
+     * 
+     * @return the time to live of a cached directory listing in milliseconds.
+     *         0 for no expiration: listings are then kept only for the
+     *         directories that can be watched.
+     * @since 3.2
+     */
+    public long getDirectoryCacheTtlMillis();
+
+    /**
+     * Allows to define the number of server threads that search the remote
+     * directory trees for {@code RemoteFile.find()}, compute their disk usage
+     * for {@code RemoteFile.getDiskUsage()} and delete them for
+     * {@code RemoteFile.deleteTree()}. <br>
+     * The threads are shared by all the requests: this bounds the file system
+     * load, whatever the number of concurrent requests.
+     * 
+     * @return the number of threads that search the directory trees. Must be
+     *         &gt; 0.
+     * @since 3.2
+     */
+    public int getFindThreads();
+
+    /**
+     * Allows to define the time to live of the cached disk usages computed
+     * for {@code RemoteFile.getDiskUsage()}. <br>
+     * A cached disk usage is dropped when a file of its tree is modified
+     * through Awake FILE. Modifications made outside Awake FILE are seen only
+     * after the time to live.
+     * 
+     * @return the time to live of a cached disk usage in milliseconds. 0 to
+     *         disable the cache.
+     * @since 3.2
+     */
+    public long getDiskUsageCacheTtlMillis();
+
 }
@@ -29,9 +29,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import org.apache.commons.io.IOUtils;
 import org.kawanfw.commons.api.client.SessionParameters;
+import org.kawanfw.commons.codec.binary.CodecHex;
 import org.kawanfw.commons.util.Base64;
 
 /**
@@ -120,6 +124,30 @@ public class ClassSerializer<E> {
 	}
     }
 
+    /**
+     * Returns the content hash of a Base64 serialized class instance created
+     * with {@link #toBase64(Object)}: the SHA-256 of the Base64 String, in
+     * hexadecimal.
+     * 
+     * @param serializedBase64
+     *            the Base64 serialized class
+     * @return the SHA-256 hash in hexadecimal
+     * @since 3.2
+     */
+    public static String hash(String serializedBase64) {
+	try {
+	    MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+	    byte[] digest = messageDigest.digest(serializedBase64
+		    .getBytes("UTF-8"));
+	    return new String(CodecHex.encodeHex(digest));
+	} catch (NoSuchAlgorithmException e) {
+	    // SHA-256 is required on all Java platforms
+	    throw new IllegalStateException(e);
+	} catch (UnsupportedEncodingException e) {
+	    throw new IllegalStateException(e);
+	}
+    }
+
     /**
      * Returns a clean serialized Base64 representation of the class instance
      * that can be passed as a property value to the {@code RemoteDriver} that
@@ -0,0 +1,332 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.kawanfw.commons.api.server.CommonsConfigurator;
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.IpMatcher;
+import org.kawanfw.commons.util.Tag;
+
+/**
+ * Keeps in memory the access lists of the {@code CommonsConfigurator}: banned
+ * usernames, IPs whitelist and IPs blacklist. <br>
+ * The lists are reloaded in background every
+ * {@link CommonsConfigurator#getAccessListsRefreshSeconds()} seconds; the
+ * previous lists stay in use during the reload and if the reload fails.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class AccessListsCache {
+
+    private static boolean DEBUG = FrameworkDebug
+	    .isSet(AccessListsCache.class);
+
+    /** The cached lists per configurator instance */
+    private static Map<CommonsConfigurator, CachedLists> cachedListsMap = new ConcurrentHashMap<CommonsConfigurator, CachedLists>();
+
+    /** The background reload thread, created at first use */
+    private static ExecutorService reloader = null;
+
+    /**
+     * Protected constructor
+     */
+    protected AccessListsCache() {
+
+    }
+
+    /**
+     * Returns the access lists of a configurator. The lists are loaded at
+     * first call, then reloaded in background when expired.
+     * 
+     * @param commonsConfigurator
+     *            the commons configurator in use
+     * @return the access lists
+     * @throws IOException
+     *             if the first load fails
+     * @throws SQLException
+     *             if the first load fails
+     */
+    public static AccessLists get(final CommonsConfigurator commonsConfigurator)
+	    throws IOException, SQLException {
+
+	long refreshMillis = commonsConfigurator.getAccessListsRefreshSeconds() * 1000L;
+
+	// No cache
+	if (refreshMillis <= 0) {
+	    return load(commonsConfigurator);
+	}
+
+	CachedLists cachedLists = cachedListsMap.get(commonsConfigurator);
+	if (cachedLists == null) {
+	    synchronized (AccessListsCache.class) {
+		cachedLists = cachedListsMap.get(commonsConfigurator);
+		if (cachedLists == null) {
+		    cachedLists = new CachedLists();
+		    cachedLists.accessLists = load(commonsConfigurator);
+		    cachedLists.nextRefresh = System.currentTimeMillis()
+			    + refreshMillis;
+		    cachedListsMap.put(commonsConfigurator, cachedLists);
+		}
+	    }
+	    return cachedLists.accessLists;
+	}
+
+	if (System.currentTimeMillis() >= cachedLists.nextRefresh
+		&& cachedLists.reloading.compareAndSet(false, true)) {
+	    reload(commonsConfigurator, cachedLists, refreshMillis);
+	}
+
+	return cachedLists.accessLists;
+    }
+
+    /**
+     * Forgets all cached lists: they will be loaded again at next login. To
+     * be called when the banned usernames or IPs lists have changed and must
+     * be applied immediately. The cached tokens are also forgotten, so that
+     * the lists are checked again for the authenticated sessions.
+     */
+    public static void invalidate() {
+	cachedListsMap.clear();
+	AuthTokenCache.clear();
+    }
+
+    /**
+     * Stops the background reload thread and forgets the cached lists.
+     */
+    public static synchronized void shutdown() {
+	if (reloader != null) {
+	    reloader.shutdownNow();
+	    reloader = null;
+	}
+	cachedListsMap.clear();
+    }
+
+    /**
+     * Reloads the lists in background. The current lists are kept if the
+     * reload fails.
+     */
+    private static void reload(
+	    final CommonsConfigurator commonsConfigurator,
+	    final CachedLists cachedLists, final long refreshMillis) {
+
+	Runnable reloadTask = new Runnable() {
+
+	    @Override
+	    public void run() {
+		try {
+		    cachedLists.accessLists = load(commonsConfigurator);
+		    debug("access lists reloaded");
+		} catch (Exception e) {
+		    ServerLogger.getLogger().log(
+			    Level.WARNING,
+			    Tag.PRODUCT_USER_CONFIG_FAIL
+				    + " Access lists reload failed, previous lists are kept: "
+				    + ExceptionUtils.getStackTrace(e));
+		} finally {
+		    cachedLists.nextRefresh = System.currentTimeMillis()
+			    + refreshMillis;
+		    cachedLists.reloading.set(false);
+		}
+	    }
+	};
+
+	try {
+	    getReloader().execute(reloadTask);
+	} catch (Exception e) {
+	    // Reloader is shut down
+	    cachedLists.reloading.set(false);
+	}
+    }
+
+    private static synchronized ExecutorService getReloader() {
+	if (reloader == null) {
+	    reloader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+		    Thread thread = new Thread(runnable,
+			    "awake-access-lists-reload");
+		    thread.setDaemon(true);
+		    return thread;
+		}
+	    });
+	}
+	return reloader;
+    }
+
+    /**
+     * Loads the lists from the configurator.
+     */
+    private static AccessLists load(CommonsConfigurator commonsConfigurator)
+	    throws IOException, SQLException {
+
+	Set<String> bannedUsernames = CommonsConfiguratorCall
+		.getBannedUsernames(commonsConfigurator);
+	List<String> ipsWhitelist = CommonsConfiguratorCall
+		.getIPsWhitelist(commonsConfigurator);
+
+	// Blacklist is used only if whitelist is empty
+	List<String> ipsBlacklist = null;
+	if (ipsWhitelist == null || ipsWhitelist.isEmpty()) {
+	    ipsBlacklist = CommonsConfiguratorCall
+		    .getIPsBlacklist(commonsConfigurator);
+	}
+
+	return new AccessLists(bannedUsernames, ipsWhitelist, ipsBlacklist);
+    }
+
+    /**
+     * The lists of one configurator and their refresh state
+     */
+    private static class CachedLists {
+	private volatile AccessLists accessLists = null;
+	private volatile long nextRefresh = 0;
+	private AtomicBoolean reloading = new AtomicBoolean(false);
+    }
+
+    /**
+     * An immutable snapshot of the access lists, with the IP lists compiled
+     * for fast lookup.
+     */
+    public static class AccessLists {
+
+	private final Set<String> bannedUsernames;
+	private final List<String> ipsWhitelist;
+	private final List<String> ipsBlacklist;
+
+	private final IpMatcher whitelistMatcher;
+	private final IpMatcher blacklistMatcher;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param bannedUsernames
+	 *            the banned usernames, may be null
+	 * @param ipsWhitelist
+	 *            the IPs whitelist, may be null
+	 * @param ipsBlacklist
+	 *            the IPs blacklist, may be null
+	 */
+	public AccessLists(Set<String> bannedUsernames,
+		List<String> ipsWhitelist, List<String> ipsBlacklist) {
+	    this.bannedUsernames = bannedUsernames == null ? Collections
+		    .<String> emptySet() : Collections
+		    .unmodifiableSet(new HashSet<String>(bannedUsernames));
+	    this.ipsWhitelist = ipsWhitelist == null ? Collections
+		    .<String> emptyList() : Collections
+		    .unmodifiableList(new ArrayList<String>(ipsWhitelist));
+	    this.ipsBlacklist = ipsBlacklist == null ? Collections
+		    .<String> emptyList() : Collections
+		    .unmodifiableList(new ArrayList<String>(ipsBlacklist));
+
+	    this.whitelistMatcher = new IpMatcher(this.ipsWhitelist);
+	    this.blacklistMatcher = new IpMatcher(this.ipsBlacklist);
+	}
+
+	/**
+	 * @return the banned usernames
+	 */
+	public Set<String> getBannedUsernames() {
+	    return bannedUsernames;
+	}
+
+	/**
+	 * @return the IPs whitelist
+	 */
+	public List<String> getIPsWhitelist() {
+	    return ipsWhitelist;
+	}
+
+	/**
+	 * @return the IPs blacklist
+	 */
+	public List<String> getIPsBlacklist() {
+	    return ipsBlacklist;
+	}
+
+	/**
+	 * @param ip
+	 *            the IP address to test
+	 * @return true if the whitelist is empty or contains the IP
+	 */
+	public boolean isIpWhitelisted(String ip) {
+	    if (ip == null) {
+		return false;
+	    }
+	    return whitelistMatcher.isEmpty() || whitelistMatcher.contains(ip);
+	}
+
+	/**
+	 * @param ip
+	 *            the IP address to test
+	 * @return true if the whitelist is empty and the blacklist contains the
+	 *         IP
+	 */
+	public boolean isIpBlacklisted(String ip) {
+	    return whitelistMatcher.isEmpty() && blacklistMatcher.contains(ip);
+	}
+
+	/**
+	 * Says if an authenticated (username, IP) couple is still allowed: the
+	 * username is not banned, the IP is whitelisted and not blacklisted.
+	 * 
+	 * @param username
+	 *            the username of the request
+	 * @param ip
+	 *            the IP address of the request
+	 * @return true if the access is allowed
+	 * @since 3.2
+	 */
+	public boolean isAccessAllowed(String username, String ip) {
+	    return !bannedUsernames.contains(username)
+		    && isIpWhitelisted(ip) && !isIpBlacklisted(ip);
+	}
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+}
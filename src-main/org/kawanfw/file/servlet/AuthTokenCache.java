@@ -0,0 +1,259 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.kawanfw.commons.api.server.CommonsConfigurator;
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+
+/**
+ * Verifies the (username, token) pairs sent by the client side and keeps the
+ * verified pairs, per client IP, in a bounded and expiring cache. <br>
+ * A cached pair is accepted without calling
+ * {@code CommonsConfigurator.computeAuthToken(String)}, which may be a costly
+ * hash or a database lookup. <br>
+ * The pairs are cached per {@code CommonsConfigurator} instance: a token
+ * verified by a servlet is not accepted by another servlet of the same class
+ * loader that uses another secret or another user base. <br>
+ * The banned usernames and IPs lists are checked when the token is verified,
+ * not when it is found in cache. As the client IP is part of the cache key, a
+ * token verified from an allowed IP is checked again when sent from another
+ * IP. A ban is applied to an already verified (username, IP) pair when its
+ * cached token expires, or at once after {@link AccessListsCache#invalidate()}.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class AuthTokenCache {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(AuthTokenCache.class);
+
+    /** The maximum number of cached (configurator, username, IP) keys */
+    public static final int MAX_ENTRIES = 10000;
+
+    /** The time a verified token stays in cache: 5 minutes */
+    public static final long TIME_TO_LIVE_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * The verified tokens per (configurator, username, IP), in LRU order
+     */
+    private static Map<TokenKey, VerifiedToken> verifiedTokens = new LinkedHashMap<TokenKey, VerifiedToken>(
+	    16, 0.75f, true) {
+
+	private static final long serialVersionUID = 6420173058312946215L;
+
+	@Override
+	protected boolean removeEldestEntry(
+		Map.Entry<TokenKey, VerifiedToken> eldest) {
+	    return size() > MAX_ENTRIES;
+	}
+    };
+
+    /**
+     * Protected constructor
+     */
+    protected AuthTokenCache() {
+
+    }
+
+    /**
+     * Check the validity of the (username, token) pair <br>
+     * The pair is first searched in the cache; if not found or expired, the
+     * token is recomputed, the access lists are checked, and the pair is
+     * cached if valid.
+     * 
+     * @param username
+     *            the username to check
+     * @param token
+     *            the associated token with the username
+     * @param ip
+     *            the IP address of the client
+     * @param commonsConfigurator
+     *            the user configuration
+     * @return true if the pair (username, token) is verified and ok.
+     * @throws Exception
+     *             if computeAuthToken or the access lists load throws an
+     *             Exception
+     */
+    public static boolean isTokenValid(String username, String token,
+	    String ip, CommonsConfigurator commonsConfigurator)
+	    throws Exception {
+
+	if (username == null || token == null) {
+	    return false;
+	}
+
+	long now = System.currentTimeMillis();
+	TokenKey tokenKey = new TokenKey(commonsConfigurator, username, ip);
+
+	VerifiedToken verifiedToken = null;
+	synchronized (verifiedTokens) {
+	    verifiedToken = verifiedTokens.get(tokenKey);
+	}
+
+	if (verifiedToken != null && verifiedToken.expiration > now
+		&& constantTimeEquals(token, verifiedToken.token)) {
+	    return true;
+	}
+
+	String tokenRecomputed = CommonsConfiguratorCall.computeAuthToken(
+		commonsConfigurator, username);
+
+	if (!constantTimeEquals(token, tokenRecomputed)) {
+	    debug("username       : " + username + ":");
+	    debug("token          : " + token + ":");
+	    debug("tokenRecomputed: " + tokenRecomputed + ":");
+	    return false;
+	}
+
+	// A resumed session did not pass the login checks
+	if (!AccessListsCache.get(commonsConfigurator).isAccessAllowed(
+		username, ip)) {
+	    debug("access refused : " + username + " " + ip);
+	    return false;
+	}
+
+	synchronized (verifiedTokens) {
+	    verifiedTokens.put(tokenKey, new VerifiedToken(tokenRecomputed,
+		    now + TIME_TO_LIVE_MILLIS));
+	}
+	return true;
+    }
+
+    /**
+     * Removes the cached tokens of a username, for all configurators. To be
+     * called when the token of the username must be recomputed at next
+     * request (user banned, secret changed, etc.)
+     * 
+     * @param username
+     *            the username whose cached tokens are removed
+     */
+    public static void invalidate(String username) {
+	synchronized (verifiedTokens) {
+	    Iterator<TokenKey> iterator = verifiedTokens.keySet().iterator();
+	    while (iterator.hasNext()) {
+		if (iterator.next().username.equals(username)) {
+		    iterator.remove();
+		}
+	    }
+	}
+    }
+
+    /**
+     * Removes all cached tokens.
+     */
+    public static void clear() {
+	synchronized (verifiedTokens) {
+	    verifiedTokens.clear();
+	}
+    }
+
+    /**
+     * Compares two strings in a time that does not depend on the position of
+     * the first different character.
+     * 
+     * @param s1
+     *            the first string
+     * @param s2
+     *            the second string
+     * @return true if both strings are not null and equal
+     */
+    static boolean constantTimeEquals(String s1, String s2) {
+	if (s1 == null || s2 == null) {
+	    return false;
+	}
+
+	int length = Math.max(s1.length(), s2.length());
+	int result = s1.length() ^ s2.length();
+
+	for (int i = 0; i < length; i++) {
+	    char c1 = i < s1.length() ? s1.charAt(i) : 0;
+	    char c2 = i < s2.length() ? s2.charAt(i) : 0;
+	    result |= c1 ^ c2;
+	}
+
+	return result == 0;
+    }
+
+    /**
+     * The cache key: a username and a client IP for a configurator instance.
+     * Configurators are compared by identity.
+     */
+    private static class TokenKey {
+	private final CommonsConfigurator commonsConfigurator;
+	private final String username;
+	private final String ip;
+
+	public TokenKey(CommonsConfigurator commonsConfigurator,
+		String username, String ip) {
+	    this.commonsConfigurator = commonsConfigurator;
+	    this.username = username;
+	    this.ip = ip;
+	}
+
+	@Override
+	public int hashCode() {
+	    int hashCode = 31 * System.identityHashCode(commonsConfigurator)
+		    + username.hashCode();
+	    return 31 * hashCode + (ip == null ? 0 : ip.hashCode());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (!(obj instanceof TokenKey)) {
+		return false;
+	    }
+	    TokenKey other = (TokenKey) obj;
+	    return commonsConfigurator == other.commonsConfigurator
+		    && username.equals(other.username)
+		    && (ip == null ? other.ip == null : ip.equals(other.ip));
+	}
+    }
+
+    /**
+     * A verified token and its expiration time.
+     */
+    private static class VerifiedToken {
+	private final String token;
+	private final long expiration;
+
+	public VerifiedToken(String token, long expiration) {
+	    this.token = token;
+	    this.expiration = expiration;
+	}
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+}
@@ -24,31 +24,65 @@
  */
 package org.kawanfw.file.servlet;
 
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * LoginSpeedReducer 24 avr. 2005 18:34:31
  * 
  * <br>
- * Purpose of this class is to add a delay between username attempt, to prevent
- * robots to "guess" username and passwords. <br>
- * If a second username attempt fail, there is a 3 seconds delay before next
- * username.
+ * Purpose of this class is to limit the rate of failed login attempts, to
+ * prevent robots to "guess" username and passwords. <br>
+ * Attempts are counted per username and per client IP with a token bucket:
+ * after 3 quick failures for a username (30 for an IP), a new login is
+ * refused immediately until one attempt has been regained (one every 3
+ * seconds). No servlet thread is ever put to sleep. <br>
+ * An attempt is reserved before the login check, in the same atomic step
+ * that checks the bucket, and is given back if the login succeeds: a burst of
+ * concurrent attempts can not pass the check together.
  */
 public class LoginSpeedReducer {
 
-    /** Container for session storage with (sessionId, Attempt Number) */
-    private static Map<String, Integer> mapLoginAttempt = new HashMap<String, Integer>();
-
-    /** The delay in seconds between Two username */
+    /** The delay in seconds to regain one attempt */
     private static int LOGIN_DELAY = 3;
 
-    /** The number of attempts authorized before delay **/
+    /** The number of attempts authorized before delay, per username **/
     private static int LOGIN_MAX_ATTEMPTS = 3;
 
-    /** The username */
-    private String username = null;
+    /** The number of attempts authorized before delay, per IP **/
+    private static int LOGIN_MAX_ATTEMPTS_PER_IP = 30;
+
+    /** The maximum number of entries kept in memory */
+    private static final int MAX_ENTRIES = 100000;
+
+    /** The entries are purged every n attempts */
+    private static int PURGE_ATTEMPTS_INTERVAL = 1000;
+
+    /**
+     * Container of (key, theoretical time when all attempts are regained).
+     * Keys are usernames and IPs. The map is in access order: when full, the
+     * least recently used entry is evicted, so that a flood of new keys can
+     * not disable the reducer. All accesses are synchronized on the map.
+     */
+    private static final Map<String, Long> mapLoginAttempt = new LinkedHashMap<String, Long>(
+	    16, 0.75f, true) {
+	private static final long serialVersionUID = 2390410758924418212L;
+
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+	    return size() > MAX_ENTRIES;
+	}
+    };
+
+    /** Counts attempts for the purge */
+    private static int attempts = 0;
+
+    /** The username key */
+    private String usernameKey = null;
+
+    /** The IP key, may be null */
+    private String ipKey = null;
 
     /**
      * Constructor
@@ -57,54 +91,130 @@ public class LoginSpeedReducer {
      *            the passed Login Id
      */
     public LoginSpeedReducer(String username) {
+	this(username, null);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param username
+     *            the passed Login Id
+     * @param ip
+     *            the client IP address, may be null
+     */
+    public LoginSpeedReducer(String username, String ip) {
 	if (username == null) {
 	    throw new IllegalArgumentException("username can not be null!");
 	}
 
-	this.username = username.toLowerCase();
+	this.usernameKey = "user:" + username.toLowerCase();
+
+	if (ip != null) {
+	    this.ipKey = "ip:" + ip;
+	}
     }
 
     /**
-     * TestReload the attempts on Login
+     * Reserves a login attempt. To be called before the login check. If the
+     * attempt is allowed, it is counted as a failure until
+     * {@link #release()} is called.
+     * 
+     * @return 0 if the attempt is reserved, else the time to wait in
+     *         milliseconds before a new login attempt is allowed
      */
-    public void checkAttempts() {
-	int attempt = 0;
-
-	// TestReload if the username already exists in Map
-	if (mapLoginAttempt.containsKey(username)) {
-	    // If yes, test the attempt number
-	    attempt = mapLoginAttempt.get(username).intValue();
-	} else {
-	    mapLoginAttempt.put(username, 1);
-	}
+    public long acquire() {
+	long now = System.currentTimeMillis();
 
-	// Increment the Attempt:
-	attempt++;
+	synchronized (mapLoginAttempt) {
+	    if (++attempts % PURGE_ATTEMPTS_INTERVAL == 0) {
+		purge(now);
+	    }
+
+	    long retryAfter = getRetryAfterMillis(usernameKey,
+		    LOGIN_MAX_ATTEMPTS, now);
+
+	    if (ipKey != null) {
+		retryAfter = Math.max(retryAfter,
+			getRetryAfterMillis(ipKey, LOGIN_MAX_ATTEMPTS_PER_IP,
+				now));
+	    }
+
+	    if (retryAfter > 0) {
+		return retryAfter;
+	    }
 
-	if (attempt >= LOGIN_MAX_ATTEMPTS) {
-	    // OK, total of maximum attempts is reached !
-	    // delay for n seconds & re-init values
-	    try {
-		Thread.sleep(LOGIN_DELAY * 1000);
-	    } catch (InterruptedException e) {
-		e.printStackTrace();
+	    addAttempt(usernameKey, now);
+
+	    if (ipKey != null) {
+		addAttempt(ipKey, now);
 	    }
 
-	    // OK to purge now! For this username only.
-	    this.removeUsername();
-	} else {
-	    // Push back with new value
-	    mapLoginAttempt.put(username, attempt);
+	    return 0;
 	}
+    }
 
+    /**
+     * Gives back the attempt reserved by {@link #acquire()} after a
+     * successful login: the username is purged and the IP regains one
+     * attempt.
+     */
+    public void release() {
+	long now = System.currentTimeMillis();
+
+	synchronized (mapLoginAttempt) {
+	    mapLoginAttempt.remove(usernameKey);
+
+	    if (ipKey != null) {
+		Long regainTime = mapLoginAttempt.get(ipKey);
+		if (regainTime != null) {
+		    long next = regainTime - LOGIN_DELAY * 1000L;
+		    if (next <= now) {
+			mapLoginAttempt.remove(ipKey);
+		    } else {
+			mapLoginAttempt.put(ipKey, next);
+		    }
+		}
+	    }
+	}
     }
 
     /**
-     * Purge the username if success
+     * Returns the time to wait for a key. Must be called inside a
+     * synchronized block.
      */
-    public void removeUsername() {
-	if (mapLoginAttempt.containsKey(username)) {
-	    mapLoginAttempt.remove(username);
+    private static long getRetryAfterMillis(String key, int maxAttempts,
+	    long now) {
+	Long regainTime = mapLoginAttempt.get(key);
+	if (regainTime == null) {
+	    return 0;
+	}
+
+	// Time when the count of pending attempts goes under maxAttempts
+	long allowedTime = regainTime - (maxAttempts - 1) * LOGIN_DELAY
+		* 1000L;
+	return Math.max(0, allowedTime - now);
+    }
+
+    /**
+     * Adds an attempt for a key: pushes its regain time by one delay. Must be
+     * called inside a synchronized block.
+     */
+    private static void addAttempt(String key, long now) {
+	Long regainTime = mapLoginAttempt.get(key);
+	long current = regainTime == null ? now : Math.max(regainTime, now);
+	mapLoginAttempt.put(key, current + LOGIN_DELAY * 1000L);
+    }
+
+    /**
+     * Removes the keys whose attempts are all regained. Must be called inside
+     * a synchronized block.
+     */
+    private static void purge(long now) {
+	Iterator<Long> iterator = mapLoginAttempt.values().iterator();
+	while (iterator.hasNext()) {
+	    if (iterator.next() <= now) {
+		iterator.remove();
+	    }
 	}
     }
 
@@ -49,6 +49,8 @@ import org.kawanfw.commons.util.TransferStatus;
 import org.kawanfw.file.api.server.FileConfigurator;
 import org.kawanfw.file.servlet.convert.HttpServletRequestConvertor;
 import org.kawanfw.file.servlet.util.CallUtil;
+import org.kawanfw.file.servlet.util.CallableInstanceManager;
+import org.kawanfw.file.servlet.util.ResponseWriter;
 import org.kawanfw.file.util.parms.Action;
 import org.kawanfw.file.util.parms.Parameter;
 
@@ -103,18 +105,71 @@ public class ServerCallAction {
 	    NoSuchMethodException, IllegalArgumentException,
 	    InvocationTargetException, Exception {
 
-	Connection connection = null;
+	debug("in actionCall");
 
-	try {
+	// The method name
+	String methodName = request.getParameter(Parameter.METHOD_NAME);
+
+	// The parms name
+	String paramsTypes = request.getParameter(Parameter.PARAMS_TYPES);
+	String paramsValues = request.getParameter(Parameter.PARAMS_VALUES);
+
+	if (request instanceof HttpServletRequestConvertor) {
+	    debug("request instanceof HttpServletRequestConvertor");
+	} else {
+	    debug("request NOT instanceof HttpServletRequestConvertor");
+	}
 
-	    debug("in actionCall");
+	String action = request.getParameter(Parameter.ACTION);
+	String ipAddress = request.getRemoteAddr();
 
-	    // The method name
-	    String methodName = request.getParameter(Parameter.METHOD_NAME);
+	String result = invoke(action, methodName, paramsTypes, paramsValues,
+		ipAddress, commonsConfigurator, fileConfigurator, username);
 
-	    // The parms name
-	    String paramsTypes = request.getParameter(Parameter.PARAMS_TYPES);
-	    String paramsValues = request.getParameter(Parameter.PARAMS_VALUES);
+	writeLine(out, TransferStatus.SEND_OK);
+	writeLine(out, result);
+    }
+
+    /**
+     * Invokes the remote method and returns its result encoded for transport
+     * back to the client side. <br>
+     * The method does not use the http request, so that it may be run outside
+     * of the servlet container thread (asynchronous call jobs).
+     * 
+     * @param action
+     *            the call action that defines the values encoding:
+     *            {@code Action.CALL_ACTION} or
+     *            {@code Action.CALL_ACTION_HTML_ENCODED}
+     * @param methodName
+     *            the full method name to call
+     * @param paramsTypes
+     *            the JSON list of parameter types
+     * @param paramsValues
+     *            the JSON list of parameter values
+     * @param ipAddress
+     *            the IP address of the client user
+     * @param commonsConfigurator
+     *            the commons configurator defined by the user
+     * @param fileConfigurator
+     *            the file configurator defined by the user
+     * @param username
+     *            the client login (for security check)
+     * @return the encoded result of the method call, or {@code null}
+     * 
+     * @throws Exception
+     *             if any Exception occurs during the call
+     */
+    public String invoke(String action, String methodName,
+	    String paramsTypes, String paramsValues, String ipAddress,
+	    CommonsConfigurator commonsConfigurator,
+	    FileConfigurator fileConfigurator, String username)
+	    throws Exception {
+
+	Connection connection = null;
+	Class<?> c = null;
+	Object theObject = null;
+
+	try {
 
 	    // Make sure all values are not null and trimed
 
@@ -122,17 +177,11 @@ public class ServerCallAction {
 	    paramsTypes = StringUtil.getTrimValue(paramsTypes);
 	    paramsValues = StringUtil.getTrimValue(paramsValues);
 
-	    if (request instanceof HttpServletRequestConvertor) {
-		debug("request instanceof HttpServletRequestConvertor");
-	    } else {
-		debug("request NOT instanceof HttpServletRequestConvertor");
-	    }
-
 	    debug("methodName: " + methodName);	    
 	    debug("username  : " + username);
 
 	    String className = StringUtils.substringBeforeLast(methodName, ".");
-	    Class<?> c = Class.forName(className);
+	    c = Class.forName(className);
 	    CallUtil callUtil = new CallUtil(c, fileConfigurator);
 	    boolean callAllowed = callUtil.isCallable();
 
@@ -141,8 +190,6 @@ public class ServerCallAction {
 			+ " Class is forbiden for remote call: " + className);
 	    }
 
-	    String action = request.getParameter(Parameter.ACTION);
-
 	    // Legacy Action.CALL_ACTION call with Base64 conversion
 	    // Corresponds to RemoteSession.setUseBase64EncodingForCall()
 	    // setting
@@ -205,8 +252,6 @@ public class ServerCallAction {
 	    
 	    if (!isAllowed) {
 
-		String ipAddress = request.getRemoteAddr();
-
 		// Run the runIfCallDisallowed() configured by the user
 		fileConfigurator.runIfCallRefused(username, connection,
 			ipAddress, methodName, valuesList);		
@@ -224,8 +269,9 @@ public class ServerCallAction {
 	    // Invoke the method
 	    Object resultObj = null;
 		    
-	    debug("Before  Object theObject = c.newInstance()");
-	    Object theObject = c.newInstance();
+	    // New instance, or shared/pooled one if class is ClientCallableManaged
+	    debug("Before  CallableInstanceManager.acquire(c)");
+	    theObject = CallableInstanceManager.acquire(c);
 
 	    debug("Before  c.getDeclaredMethod(rawMethodName, argTypes)");
 	    Method main = c.getDeclaredMethod(rawMethodName, argTypes);
@@ -255,10 +301,12 @@ public class ServerCallAction {
 	    }
 
 	    debug("actionInvokeRemoteMethod:result: " + result);
-
-	    writeLine(out, TransferStatus.SEND_OK);
-	    writeLine(out, result);
+	    return result;
 	} finally {
+	    if (theObject != null) {
+		CallableInstanceManager.release(c, theObject);
+	    }
+	    
 	    if (connection != null) {
 		connection.close();
 	    }
@@ -276,7 +324,7 @@ public class ServerCallAction {
      * @throws IOException
      */
     private void writeLine(OutputStream out, String s) throws IOException {
-	out.write((s + StringUtil.CR_LF).getBytes());
+	ResponseWriter.writeLine(out, s);
     }
     
     private void debug(String s) {
@@ -0,0 +1,270 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.kawanfw.commons.api.server.CommonsConfigurator;
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.StringUtil;
+import org.kawanfw.commons.util.Tag;
+import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.api.server.FileConfigurator;
+import org.kawanfw.file.servlet.job.CallJob;
+import org.kawanfw.file.servlet.job.CallJobManager;
+import org.kawanfw.file.servlet.util.ResponseWriter;
+import org.kawanfw.file.util.parms.Action;
+import org.kawanfw.file.util.parms.Parameter;
+import org.kawanfw.file.util.parms.ReturnCode;
+
+/**
+ * @author Nicolas de Pomereu
+ * 
+ *         Executes the client asynchronous call actions: submit a call job,
+ *         get (long poll) its result and cancel it.
+ * @since 3.2
+ */
+public class ServerCallJobAction {
+
+    private static boolean DEBUG = FrameworkDebug
+	    .isSet(ServerCallJobAction.class);
+
+    /** The maximum time a result request waits on server for the job end */
+    public static final long MAX_WAIT_MILLIS = 30 * 1000;
+
+    /**
+     * Constructor
+     */
+    public ServerCallJobAction() {
+    }
+
+    /**
+     * Submits a call job and sends back its id. <br>
+     * The request parameters are read immediately because the request can not
+     * be used after the end of the servlet call.
+     * 
+     * @param request
+     *            the http request
+     * @param commonsConfigurator
+     *            the commons configurator defined by the user
+     * @param fileConfigurator
+     *            the file configurator defined by the user
+     * @param out
+     *            the servlet output stream
+     * @param username
+     *            the client login (for security check)
+     * @throws Exception
+     *             if the job is refused (queue full, too many jobs for the
+     *             username, etc.)
+     */
+    public void submit(HttpServletRequest request,
+	    final CommonsConfigurator commonsConfigurator,
+	    final FileConfigurator fileConfigurator, OutputStream out,
+	    final String username) throws Exception {
+
+	final String methodName = request.getParameter(Parameter.METHOD_NAME);
+	final String paramsTypes = request
+		.getParameter(Parameter.PARAMS_TYPES);
+	final String paramsValues = request
+		.getParameter(Parameter.PARAMS_VALUES);
+	final String ipAddress = request.getRemoteAddr();
+
+	debug("submit: " + methodName);
+
+	Callable<String> callable = new Callable<String>() {
+
+	    @Override
+	    public String call() throws Exception {
+		ServerCallAction serverCallAction = new ServerCallAction();
+		return serverCallAction.invoke(
+			Action.CALL_ACTION_HTML_ENCODED, methodName,
+			paramsTypes, paramsValues, ipAddress,
+			commonsConfigurator, fileConfigurator, username);
+	    }
+	};
+
+	CallJob callJob = CallJobManager.getInstance(fileConfigurator)
+		.submit(callable, username);
+
+	writeLine(out, TransferStatus.SEND_OK);
+	writeLine(out, callJob.getJobId());
+    }
+
+    /**
+     * Sends back the result of a call job, waiting at most the time asked by
+     * the client for the job end. <br>
+     * Sends {@code ReturnCode.JOB_RUNNING} if the job is not ended, followed
+     * by the job progress if known, else {@code ReturnCode.JOB_DONE} followed
+     * by the result. A failed job rethrows its Exception to the client.
+     * 
+     * @param request
+     *            the http request
+     * @param fileConfigurator
+     *            the file configurator defined by the user
+     * @param out
+     *            the servlet output stream
+     * @param username
+     *            the client login (for security check)
+     * @throws Exception
+     *             the Exception thrown by the job
+     */
+    public void result(HttpServletRequest request,
+	    FileConfigurator fileConfigurator, OutputStream out,
+	    String username) throws Exception {
+
+	CallJobManager callJobManager = CallJobManager
+		.getInstance(fileConfigurator);
+	CallJob callJob = getCallJob(request, callJobManager, username);
+
+	long waitMillis = 0;
+	String waitMillisStr = StringUtil.getTrimValue(request
+		.getParameter(Parameter.WAIT_MILLIS));
+	if (!waitMillisStr.isEmpty()) {
+	    waitMillis = Math.min(Long.parseLong(waitMillisStr),
+		    MAX_WAIT_MILLIS);
+	}
+
+	String result = null;
+
+	try {
+	    result = callJob.get(Math.max(waitMillis, 0),
+		    TimeUnit.MILLISECONDS);
+	} catch (TimeoutException e) {
+	    writeLine(out, TransferStatus.SEND_OK);
+	    writeLine(out, ReturnCode.JOB_RUNNING);
+
+	    String progress = callJob.getProgress();
+	    if (progress != null) {
+		writeLine(out, progress);
+	    }
+	    return;
+	} catch (ExecutionException e) {
+	    callJobManager.remove(callJob);
+
+	    // Rethrow the call Exception so that it is sent as for a
+	    // synchronous call
+	    Throwable cause = e.getCause();
+	    if (cause instanceof Exception) {
+		throw (Exception) cause;
+	    }
+	    throw e;
+	} catch (Exception e) {
+	    callJobManager.remove(callJob);
+	    throw e;
+	}
+
+	callJobManager.remove(callJob);
+
+	writeLine(out, TransferStatus.SEND_OK);
+	writeLine(out, ReturnCode.JOB_DONE);
+	writeLine(out, result);
+    }
+
+    /**
+     * Cancels a call job and removes it
+     * 
+     * @param request
+     *            the http request
+     * @param fileConfigurator
+     *            the file configurator defined by the user
+     * @param out
+     *            the servlet output stream
+     * @param username
+     *            the client login (for security check)
+     * @throws Exception
+     *             if the job does not exist
+     */
+    public void cancel(HttpServletRequest request,
+	    FileConfigurator fileConfigurator, OutputStream out,
+	    String username) throws Exception {
+
+	CallJobManager callJobManager = CallJobManager
+		.getInstance(fileConfigurator);
+	CallJob callJob = getCallJob(request, callJobManager, username);
+
+	boolean cancelled = callJob.cancel(true);
+	callJobManager.remove(callJob);
+
+	writeLine(out, TransferStatus.SEND_OK);
+	writeLine(out, Boolean.toString(cancelled));
+    }
+
+    /**
+     * Returns the job of the request job id
+     * 
+     * @param request
+     *            the http request
+     * @param callJobManager
+     *            the job manager
+     * @param username
+     *            the client login
+     * @return the job owned by the username
+     * @throws IllegalArgumentException
+     *             if the job does not exist for the username
+     */
+    private CallJob getCallJob(HttpServletRequest request,
+	    CallJobManager callJobManager, String username)
+	    throws IllegalArgumentException {
+	String jobId = StringUtil.getTrimValue(request
+		.getParameter(Parameter.JOB_ID));
+	CallJob callJob = callJobManager.getJob(jobId, username);
+
+	if (callJob == null) {
+	    throw new IllegalArgumentException(Tag.PRODUCT
+		    + " Unknown or expired call job: " + jobId);
+	}
+	return callJob;
+    }
+
+    /**
+     * Write a line of string on the servlet output stream. Will add the
+     * necessary CR_LF
+     * 
+     * @param out
+     *            the servlet output stream
+     * @param s
+     *            the string to write
+     * @throws IOException
+     */
+    private void writeLine(OutputStream out, String s) throws IOException {
+	ResponseWriter.writeLine(out, s);
+    }
+
+    private void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+}
@@ -27,9 +27,11 @@ package org.kawanfw.file.servlet;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.List;
+import java.io.StringReader;
+import java.util.Iterator;
 import java.util.logging.Level;
 
+import javax.crypto.SecretKey;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -44,15 +46,25 @@ import org.kawanfw.commons.util.HtmlConverter;
 import org.kawanfw.commons.util.StringUtil;
 import org.kawanfw.commons.util.Tag;
 import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.commons.util.convert.AesGcm;
+import org.kawanfw.commons.util.convert.AesGcmOutputStream;
 import org.kawanfw.file.api.server.FileConfigurator;
 import org.kawanfw.file.reflection.ClassPathUtil;
 import org.kawanfw.file.servlet.nio.FileListAction;
 import org.kawanfw.file.servlet.nio.FileListFilesAction;
+import org.kawanfw.file.servlet.nio.FileListPageAction;
+import org.kawanfw.file.servlet.nio.FileWalkAction;
+import org.kawanfw.file.servlet.nio.FileDiskUsageAction;
+import org.kawanfw.file.servlet.nio.FileArchiveAction;
+import org.kawanfw.file.servlet.nio.FileCopyAction;
+import org.kawanfw.file.servlet.nio.FileDeleteTreeAction;
+import org.kawanfw.file.servlet.nio.FileFindAction;
 import org.kawanfw.file.servlet.nio.FileMethodOneReturnAction;
 import org.kawanfw.file.servlet.nio.KawanfwSecurityManager;
 import org.kawanfw.file.servlet.util.CallUtil;
 import org.kawanfw.file.servlet.util.FileTransferManager;
 import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
+import org.kawanfw.file.servlet.util.ResponseWriter;
 import org.kawanfw.file.util.parms.Action;
 import org.kawanfw.file.util.parms.Parameter;
 import org.kawanfw.file.util.parms.ReturnCode;
@@ -107,7 +119,7 @@ public class ServerFileDispatch {
 	    HttpServletResponse response, File servletContextTempDir,
 	    CommonsConfigurator commonsConfigurator,
 	    FileConfigurator fileConfigurator) throws IOException {
-	OutputStream out = null;
+	ResponseWriter out = null;
 
 	try {
 
@@ -134,7 +146,7 @@ public class ServerFileDispatch {
 	    try {
 		action = request.getParameter(Parameter.ACTION);
 	    } catch (IllegalArgumentException e) {
-		out = response.getOutputStream();
+		out = new ResponseWriter(response.getOutputStream(), false);
 		throw e;
 	    }
 
@@ -153,7 +165,8 @@ public class ServerFileDispatch {
 		return;
 	    }
 
-	    out = response.getOutputStream();
+	    // The response lines are framed if the client asks for it
+	    out = ResponseWriter.create(request, response.getOutputStream());
 
 	    // Only if there is a call action, we may execute authorized classes
 	    // without authentication/login
@@ -200,8 +213,10 @@ public class ServerFileDispatch {
 	    String token = request.getParameter(Parameter.TOKEN);
 	    token = StringUtil.getTrimValue(token);
 
+	    // A resumed session did not pass the login checks: the banned
+	    // usernames and IPs lists are checked with the token
 	    if (!ServerFileDispatch.isTokenValid(username, token,
-		    commonsConfigurator)) {
+		    request.getRemoteAddr(), commonsConfigurator)) {
 		debug("invalid token!");
 		debug("username: " + username);
 		debug("token   : " + token);
@@ -260,12 +275,88 @@ public class ServerFileDispatch {
 		fileListFilesAction.listFiles(request, commonsConfigurator,
 			fileConfigurator, out, username, filename);
 		return;
+	    }
+	    // One page of a directory listing, read with a DirectoryStream
+	    else if (action.equals(Action.FILE_LIST_PAGE_ACTION)) {
+
+		FileListPageAction fileListPageAction = new FileListPageAction();
+		fileListPageAction.listPage(request, commonsConfigurator,
+			fileConfigurator, out, username, filename);
+		return;
+	    }
+	    // Recursive walk of a directory tree
+	    else if (action.equals(Action.FILE_WALK_ACTION)) {
+
+		FileWalkAction fileWalkAction = new FileWalkAction();
+		fileWalkAction.walk(request, commonsConfigurator,
+			fileConfigurator, out, username, filename);
+		return;
+	    }
+	    // Search of a directory tree
+	    else if (action.equals(Action.FILE_FIND_ACTION)) {
+
+		FileFindAction fileFindAction = new FileFindAction();
+		fileFindAction.find(request, commonsConfigurator,
+			fileConfigurator, out, username, filename);
+		return;
+	    }
+	    // Disk usage of a directory tree
+	    else if (action.equals(Action.FILE_DISK_USAGE_ACTION)) {
+
+		FileDiskUsageAction fileDiskUsageAction = new FileDiskUsageAction();
+		fileDiskUsageAction.diskUsage(request, commonsConfigurator,
+			fileConfigurator, out, username, filename);
+		return;
+	    }
+	    // Copy or move on the server, executed as a call job
+	    else if (action.equals(Action.FILE_COPY_ACTION)) {
+
+		FileCopyAction fileCopyAction = new FileCopyAction();
+		fileCopyAction.copy(request, commonsConfigurator,
+			fileConfigurator, out, username, filename);
+		return;
+	    }
+	    // Streamed archive of a directory tree
+	    else if (action.equals(Action.FILE_ARCHIVE_ACTION)) {
+
+		// The archive is encrypted if asked by the client
+		SecretKey bodySecretKey = getBodySecretKey(
+			request.getParameter(Parameter.BODY_ENCRYPTION),
+			commonsConfigurator);
+
+		FileArchiveAction fileArchiveAction = new FileArchiveAction();
+		fileArchiveAction.archive(request, fileConfigurator, out,
+			username, filename, bodySecretKey);
+		return;
+	    }
+	    // Recursive delete of a directory tree
+	    else if (action.equals(Action.FILE_DELETE_TREE_ACTION)) {
+
+		FileDeleteTreeAction fileDeleteTreeAction = new FileDeleteTreeAction();
+		fileDeleteTreeAction.deleteTree(request, commonsConfigurator,
+			fileConfigurator, out, username, filename);
+		return;
 	    } else if (action.equals(Action.CALL_ACTION)
 		    || action.equals(Action.CALL_ACTION_HTML_ENCODED)) {
 		ServerCallAction serverCallAction = new ServerCallAction();
 		serverCallAction.call(request, commonsConfigurator,
 			fileConfigurator, out, username);
 		return;
+	    } else if (action.equals(Action.CALL_JOB_SUBMIT_ACTION)) {
+		ServerCallJobAction serverCallJobAction = new ServerCallJobAction();
+		serverCallJobAction.submit(request, commonsConfigurator,
+			fileConfigurator, out, username);
+		return;
+	    } else if (action.equals(Action.CALL_JOB_RESULT_ACTION)) {
+		ServerCallJobAction serverCallJobAction = new ServerCallJobAction();
+		serverCallJobAction.result(request, fileConfigurator, out,
+			username);
+		return;
+	    } else if (action.equals(Action.CALL_JOB_CANCEL_ACTION)) {
+		ServerCallJobAction serverCallJobAction = new ServerCallJobAction();
+		serverCallJobAction.cancel(request, fileConfigurator, out,
+			username);
+		return;
 	    } else if (action.equals(Action.GET_FILE_LENGTH_ACTION)) {
 		long result = actionGetListFileLength(fileConfigurator,
 			username, filename);
@@ -282,8 +373,27 @@ public class ServerFileDispatch {
 			.getParameter(Parameter.CHUNKLENGTH);
 		long chunkLength = Long.parseLong(chunkLengtgStr);
 
-		boolean result = new FileTransferManager().download(out,
-			fileConfigurator, username, filename, chunkLength);
+		// The file body is encrypted if asked by the client
+		SecretKey bodySecretKey = getBodySecretKey(
+			request.getParameter(Parameter.BODY_ENCRYPTION),
+			commonsConfigurator);
+
+		OutputStream downloadOut = out;
+		AesGcmOutputStream aesGcmOutputStream = null;
+		if (bodySecretKey != null) {
+		    aesGcmOutputStream = new AesGcmOutputStream(out,
+			    bodySecretKey, filename);
+		    downloadOut = aesGcmOutputStream;
+		}
+
+		boolean result = new FileTransferManager().download(
+			downloadOut, fileConfigurator, username, filename,
+			chunkLength);
+
+		if (result && aesGcmOutputStream != null) {
+		    // Write the last frame
+		    aesGcmOutputStream.finish();
+		}
 
 		if (!result) {
 		    // Impossible to find the file on server
@@ -324,6 +434,10 @@ public class ServerFileDispatch {
 		e1.printStackTrace(System.out);
 	    }
 
+	} finally {
+	    if (out != null) {
+		out.finish();
+	    }
 	}
     }
 
@@ -381,7 +495,45 @@ public class ServerFileDispatch {
      * @throws IOException
      */
     private void writeLine(OutputStream out, String s) throws IOException {
-	out.write((s + CR_LF).getBytes());
+	ResponseWriter.writeLine(out, s);
+    }
+
+    /**
+     * Returns the AES key to use for the file body if the client asks for
+     * body encryption.
+     * 
+     * @param bodyEncryption
+     *            the value of the {@code Parameter.BODY_ENCRYPTION} parameter
+     *            sent by the client, may be null
+     * @param commonsConfigurator
+     *            the user configuration
+     * @return the AES key, or null if the client does not ask for body
+     *         encryption
+     * @throws Exception
+     *             if no encryption password is defined on the server or the
+     *             encryption is not supported
+     */
+    public static SecretKey getBodySecretKey(String bodyEncryption,
+	    CommonsConfigurator commonsConfigurator) throws Exception {
+	bodyEncryption = StringUtil.getTrimValue(bodyEncryption);
+
+	if (bodyEncryption == null || bodyEncryption.isEmpty()) {
+	    return null;
+	}
+
+	if (!bodyEncryption.equals(Parameter.BODY_ENCRYPTION_AES_GCM)) {
+	    throw new IllegalArgumentException(
+		    "Unsupported body encryption: " + bodyEncryption);
+	}
+
+	char[] password = CommonsConfiguratorCall
+		.getEncryptionPassword(commonsConfigurator);
+	if (password == null) {
+	    throw new SecurityException(Tag.PRODUCT_USER_CONFIG_FAIL
+		    + " Body encryption requires an encryption password on server side.");
+	}
+
+	return AesGcm.getSecretKey(password);
     }
 
     /**
@@ -392,6 +544,8 @@ public class ServerFileDispatch {
      *            the username to check
      * @param token
      *            the associated token with the username
+     * @param ip
+     *            the IP address of the client
      * @param commonsConfigurator
      *            the user configuration
      * 
@@ -399,21 +553,12 @@ public class ServerFileDispatch {
      * @throws Exception
      */
     public static boolean isTokenValid(String username, String token,
-	    CommonsConfigurator commonsConfigurator) throws Exception {
-
-	// OK! Now build a token with SHA-1(username + secretValue)
+	    String ip, CommonsConfigurator commonsConfigurator)
+	    throws Exception {
 
-	String tokenRecomputed = CommonsConfiguratorCall.computeAuthToken(
-		commonsConfigurator, username);
-
-	if (token == null || !token.equals(tokenRecomputed)) {
-	    debug("username       : " + username + ":");
-	    debug("token          : " + token + ":");
-	    debug("tokenRecomputed: " + tokenRecomputed + ":");
-	    return false;
-	}
-
-	return true;
+	// OK! Now check the token and the access lists, only if not in cache
+	return AuthTokenCache.isTokenValid(username, token, ip,
+		commonsConfigurator);
     }
 
     /**
@@ -429,18 +574,19 @@ public class ServerFileDispatch {
 	debug("Action.GET_FILE_LENGTH_ACTION");
 	long result = 0;
 
-	// We have in fact a list of files
-	List<String> files = ListOfStringTransport.fromJson(filename);
-
-	// actionGetListFileLength: We must convert each element of List<String>
-	// files from Html
-	files = HtmlConverter.fromHtml(files);
+	// We have in fact a list of files, parsed lazily one at a time
+	Iterator<String> files = ListOfStringTransport
+		.iterator(new StringReader(filename));
 
-	for (String theFilename : files) {
+	while (files.hasNext()) {
 
 	    // result += fileActionManager.length(fileConfigurator,
 	    // username, theFilename);
 
+	    // actionGetListFileLength: We must convert each element of the
+	    // files from Html
+	    String theFilename = HtmlConverter.fromHtml(files.next());
+
 	    theFilename = HttpConfigurationUtil.addRootPath(fileConfigurator,
 		    username, theFilename);
 
@@ -47,6 +47,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.kawanfw.commons.api.server.CommonsConfigurator;
 import org.kawanfw.commons.api.server.DefaultCommonsConfigurator;
+import org.kawanfw.commons.api.server.util.SshLoginCache;
 import org.kawanfw.commons.server.util.ServerLogger;
 import org.kawanfw.commons.util.DefaultParms;
 import org.kawanfw.commons.util.Tag;
@@ -55,7 +56,14 @@ import org.kawanfw.file.api.server.DefaultFileConfigurator;
 import org.kawanfw.file.api.server.FileConfigurator;
 import org.kawanfw.file.reflection.ClassPathUtil;
 import org.kawanfw.file.servlet.convert.HttpServletRequestConvertor;
+import org.kawanfw.file.servlet.job.CallJobManager;
+import org.kawanfw.file.servlet.nio.DirectoryListingCache;
+import org.kawanfw.file.servlet.nio.DiskUsageCache;
+import org.kawanfw.file.servlet.nio.FileFindAction;
+import org.kawanfw.file.servlet.nio.FileListPageAction;
+import org.kawanfw.file.servlet.util.CallableInstanceManager;
 import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
+import org.kawanfw.file.servlet.util.ResponseWriter;
 import org.kawanfw.file.version.FileVersion;
 
 /**
@@ -237,6 +245,24 @@ public class ServerFileManager extends HttpServlet {
 	
     }
 
+    /**
+     * Destroy: stops the asynchronous call jobs threads, destroys the managed
+     * instances of the called classes and clears the caches.
+     */
+    @Override
+    public void destroy() {
+	CallJobManager.shutdown();
+	CallableInstanceManager.destroyAll();
+	AuthTokenCache.clear();
+	AccessListsCache.shutdown();
+	SshLoginCache.clear();
+	DirectoryListingCache.shutdown();
+	FileFindAction.shutdown();
+	FileListPageAction.shutdown();
+	DiskUsageCache.shutdown();
+	super.destroy();
+    }
+
     /**
      * TestReload the configurators main methods to see if they throw Exceptions
      */
@@ -357,12 +383,16 @@ public class ServerFileManager extends HttpServlet {
 	
 	// If init fail, say it cleanly client, instead of bad 500 Servlet Error
 	if (exception != null) {
-	    OutputStream out = response.getOutputStream();
+	    // Always in text format: the request parameters may not be
+	    // decrypted without a valid configuration
+	    ResponseWriter out = new ResponseWriter(
+		    response.getOutputStream(), false);
 
 	    writeLine(out, TransferStatus.SEND_FAILED);
 	    writeLine(out, exception.getClass().getName()); // Exception class name
 	    writeLine(out, initErrrorMesage + " Reason: " + exception.getMessage()); // Exception message
 	    writeLine(out, ExceptionUtils.getStackTrace(exception)); // stack trace
+	    out.finish();
 	    return;
 
 	}
@@ -395,7 +425,7 @@ public class ServerFileManager extends HttpServlet {
      * @throws IOException
      */
     private void writeLine(OutputStream out, String s) throws IOException {
-	out.write((s + CR_LF).getBytes());
+	ResponseWriter.writeLine(out, s);
     }
 
     /**
@@ -30,6 +30,7 @@ import java.io.InputStream;
 import java.io.PrintWriter;
 import java.util.logging.Level;
 
+import javax.crypto.SecretKey;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -44,6 +45,7 @@ import org.kawanfw.commons.util.FrameworkDebug;
 import org.kawanfw.commons.util.HtmlConverter;
 import org.kawanfw.commons.util.Tag;
 import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.commons.util.convert.AesGcmInputStream;
 import org.kawanfw.file.api.server.FileConfigurator;
 import org.kawanfw.file.servlet.convert.StreamsEncrypted;
 import org.kawanfw.file.servlet.util.FileTransferManager;
@@ -94,6 +96,7 @@ public class ServerFileUploadAction {
 	    String token = null;
 	    String filename = null;
 	    long chunkLength = 0;
+	    String bodyEncryption = null;
 
 	    response.setContentType("text/html");
 	    // Prepare the response
@@ -154,10 +157,15 @@ public class ServerFileUploadAction {
 				stream, commonsConfigurator);
 			chunkLength = Long.parseLong(chunklengthStr);
 			debug("chunklengthStr: " + chunklengthStr);
+		    } else if (name.equals(Parameter.BODY_ENCRYPTION)) {
+			bodyEncryption = StreamsEncrypted.asString(stream,
+				commonsConfigurator);
+			debug("bodyEncryption: " + bodyEncryption);
 		    }
 		} else {
 
-		    if (!isTokenValid(out, username, token, commonsConfigurator)) // Security
+		    if (!isTokenValid(out, username, token,
+			    request.getRemoteAddr(), commonsConfigurator)) // Security
 										  // check
 		    {
 			return;
@@ -171,6 +179,15 @@ public class ServerFileUploadAction {
 			    + item.getName() + " detected.");
 		    debug("filename: " + filename);
 
+		    // The file body is encrypted if asked by the client
+		    SecretKey bodySecretKey = ServerFileDispatch
+			    .getBodySecretKey(bodyEncryption,
+				    commonsConfigurator);
+		    if (bodySecretKey != null) {
+			stream = new AesGcmInputStream(stream, bodySecretKey,
+				filename);
+		    }
+
 		    new FileTransferManager().upload(fileConfigurator, stream,
 			    username, filename, chunkLength);
 
@@ -216,6 +233,8 @@ public class ServerFileUploadAction {
      *            the username to check
      * @param token
      *            the associated token with the login
+     * @param ip
+     *            the IP address of the client
      * @param commonsConfigurator
      *            the client commons configurator
      * 
@@ -223,17 +242,15 @@ public class ServerFileUploadAction {
      * @throws Exception
      */
     private boolean isTokenValid(PrintWriter out, String username,
-	    String token, CommonsConfigurator commonsConfigurator)
+	    String token, String ip, CommonsConfigurator commonsConfigurator)
 	    throws Exception {
 
-	// OK! Now build a token with SHA-1(username + secretValue)
-	String tokenRecomputed = CommonsConfiguratorCall.computeAuthToken(
-		commonsConfigurator, username);
-
-	if (token == null || !token.equals(tokenRecomputed)) {
+	// OK! Now check the token and the banned usernames and IPs lists, only
+	// if not in cache
+	if (!AuthTokenCache.isTokenValid(username, token, ip,
+		commonsConfigurator)) {
 	    debug("username       : " + username + ":");
 	    debug("token          : " + token + ":");
-	    debug("tokenRecomputed: " + tokenRecomputed + ":");
 
 	    out.println(TransferStatus.SEND_OK + SPACE
 		    + ReturnCode.INVALID_LOGIN_OR_PASSWORD);
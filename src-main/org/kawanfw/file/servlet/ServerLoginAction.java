@@ -26,7 +26,6 @@ package org.kawanfw.file.servlet;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 
@@ -38,9 +37,9 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.kawanfw.commons.api.server.CommonsConfigurator;
 import org.kawanfw.commons.server.util.ServerLogger;
 import org.kawanfw.commons.util.FrameworkDebug;
-import org.kawanfw.commons.util.IpUtil;
 import org.kawanfw.commons.util.Tag;
 import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.servlet.AccessListsCache.AccessLists;
 import org.kawanfw.file.util.parms.Action;
 import org.kawanfw.file.util.parms.Parameter;
 import org.kawanfw.file.util.parms.ReturnCode;
@@ -129,13 +128,14 @@ public class ServerLoginAction extends HttpServlet {
 		return;
 	    }
 
-	    debug("before commonsConfigurator.getBannedUsernames();");
+	    debug("before AccessListsCache.get(commonsConfigurator);");
+
+	    // The banned usernames & IPs lists, reloaded only every
+	    // commonsConfigurator.getAccessListsRefreshSeconds()
+	    AccessLists accessLists = AccessListsCache.get(commonsConfigurator);
 
 	    // Check the username. Refuse access if username is banned
-	    // Set<String> usernameSet =
-	    // commonsConfigurator.getBannedUsernames();
-	    Set<String> usernameSet = CommonsConfiguratorCall
-		    .getBannedUsernames(commonsConfigurator);
+	    Set<String> usernameSet = accessLists.getBannedUsernames();
 
 	    if (usernameSet.contains(username)) {
 		debug("banned username!");
@@ -146,58 +146,73 @@ public class ServerLoginAction extends HttpServlet {
 	    // Check the IP. Refuse access if IP is banned/blacklisted
 	    String ip = request.getRemoteAddr();
 
-	    debug("before commonsConfigurator.getIPsWhitelist();");
-	    List<String> whitelistedIpList = CommonsConfiguratorCall
-		    .getIPsWhitelist(commonsConfigurator);
-
 	    if (DEBUG) {
 		log("Printing whitelisted IPs...");
-		for (String whitelistedIp : whitelistedIpList) {
+		for (String whitelistedIp : accessLists.getIPsWhitelist()) {
 		    log("whitelisted IP: " + whitelistedIp);
 		}
 	    }
 
-	    if (!IpUtil.isIpWhitelisted(ip, whitelistedIpList)) {
+	    if (!accessLists.isIpWhitelisted(ip)) {
 		debug("not whitelisted IP!");
 		throw new SecurityException("Client IP is not whitelisted: "
 			+ ip);
 	    }
 
-	    // use blacklist only if whitelist is empty
+	    // blacklist is used only if whitelist is empty
 
-	    if (whitelistedIpList == null || whitelistedIpList.isEmpty()) {
-		debug("before commonsConfigurator.getIPsBlacklist();");
-		List<String> blacklistedIpList = CommonsConfiguratorCall
-			.getIPsBlacklist(commonsConfigurator);
-
-		if (DEBUG) {
-		    log("Printing blacklisted IPs...");
-		    for (String blacklistedIp : blacklistedIpList) {
-			log("blacklisted IP: " + blacklistedIp);
-		    }
+	    if (DEBUG) {
+		log("Printing blacklisted IPs...");
+		for (String blacklistedIp : accessLists.getIPsBlacklist()) {
+		    log("blacklisted IP: " + blacklistedIp);
 		}
+	    }
 
-		if (IpUtil.isIpBlacklisted(ip, blacklistedIpList)) {
-		    debug("blacklisted IP!");
-		    throw new SecurityException("Client IP is blacklisted: "
-			    + ip);
-		}
+	    if (accessLists.isIpBlacklisted(ip)) {
+		debug("blacklisted IP!");
+		throw new SecurityException("Client IP is blacklisted: "
+			+ ip);
+	    }
+
+	    // Refuse immediately if there were too many failed attempts, else
+	    // reserve the attempt until the login is checked
+	    LoginSpeedReducer loginSpeedReducer = new LoginSpeedReducer(
+		    username, ip);
+	    long retryAfterMillis = loginSpeedReducer.acquire();
+
+	    if (retryAfterMillis > 0) {
+		debug("login: too many attempts, retry after "
+			+ retryAfterMillis + " ms");
+		long retryAfterSeconds = (retryAfterMillis + 999) / 1000;
+		out.println(TransferStatus.SEND_OK);
+		out.println(ReturnCode.TOO_MANY_LOGIN_ATTEMPTS + SPACE
+			+ retryAfterSeconds);
+		return;
 	    }
 
 	    debug("calling checkLoginAndPassword");
 
-	    boolean isOk = commonsConfigurator.login(username,
-		    password.toCharArray());
+	    boolean isOk = false;
+	    boolean keepAttempt = false;
+
+	    try {
+		isOk = commonsConfigurator.login(username,
+			password.toCharArray());
+		keepAttempt = !isOk;
+	    } finally {
+		// The reserved attempt is given back, unless the login is
+		// refused: a configurator Exception must not lock out the user
+		if (!keepAttempt) {
+		    loginSpeedReducer.release();
+		}
+	    }
 
 	    debug("login isOk: " + isOk + " (login: " + username + ")");
 
 	    if (!isOk) {
 		debug("login: invalid login or password");
 
-		// Reduce the login speed
-		LoginSpeedReducer loginSpeedReducer = new LoginSpeedReducer(
-			username);
-		loginSpeedReducer.checkAttempts();
+		// The reserved attempt is kept: this reduces the login speed
 
 		out.println(TransferStatus.SEND_OK);
 		out.println(ReturnCode.INVALID_LOGIN_OR_PASSWORD);
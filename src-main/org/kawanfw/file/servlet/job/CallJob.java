@@ -0,0 +1,117 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.job;
+
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * An asynchronous call job: a remote method call that is executed by the
+ * {@link CallJobManager} threads while the client side polls for the result.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class CallJob extends FutureTask<String> {
+
+    /** The unique job id sent back to the client side */
+    private final String jobId;
+
+    /** The client username that owns the job */
+    private final String username;
+
+    /** The manager to notify at job end */
+    private final CallJobManager callJobManager;
+
+    /** The callable executed by the job */
+    private final Callable<String> callable;
+
+    /** The time the job ended, 0 if not ended */
+    private volatile long endTime = 0;
+
+    /**
+     * Constructor
+     * 
+     * @param callable
+     *            the callable that executes the remote call and returns the
+     *            encoded result
+     * @param username
+     *            the client username that owns the job
+     * @param callJobManager
+     *            the manager to notify at job end
+     */
+    CallJob(Callable<String> callable, String username,
+	    CallJobManager callJobManager) {
+	super(callable);
+	this.jobId = UUID.randomUUID().toString();
+	this.username = username;
+	this.callJobManager = callJobManager;
+	this.callable = callable;
+    }
+
+    /**
+     * @return the unique job id
+     */
+    public String getJobId() {
+	return jobId;
+    }
+
+    /**
+     * @return the client username that owns the job
+     */
+    public String getUsername() {
+	return username;
+    }
+
+    /**
+     * @return the progress of the job if its callable is a
+     *         {@link ProgressCallable}, else null
+     */
+    public String getProgress() {
+	if (callable instanceof ProgressCallable) {
+	    return ((ProgressCallable) callable).getProgress();
+	}
+	return null;
+    }
+
+    /**
+     * @return the time the job ended in milliseconds, 0 if not ended
+     */
+    public long getEndTime() {
+	return endTime;
+    }
+
+    /**
+     * Called when the job is completed, cancelled or failed: releases the
+     * slot of the username.
+     */
+    @Override
+    protected void done() {
+	endTime = System.currentTimeMillis();
+	callJobManager.jobDone(this);
+    }
+
+}
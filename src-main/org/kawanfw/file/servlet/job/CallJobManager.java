@@ -0,0 +1,259 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.job;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.Tag;
+import org.kawanfw.file.api.server.FileConfigurator;
+
+/**
+ * Executes the asynchronous call jobs in a bounded thread pool and keeps them
+ * until the client side fetches the result. <br>
+ * Thread count, queue depth and concurrent jobs per username are defined by
+ * the {@link FileConfigurator} in use.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class CallJobManager {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(CallJobManager.class);
+
+    /** Ended jobs not fetched by the client are removed after 10 minutes */
+    public static final long JOB_RETENTION_MILLIS = 10 * 60 * 1000;
+
+    /** The unique instance, created at first use */
+    private static CallJobManager callJobManager = null;
+
+    /** The thread pool that executes the jobs */
+    private ThreadPoolExecutor executor = null;
+
+    /** The max number of queued or running jobs per username */
+    private int maxPerUsername = 0;
+
+    /** The jobs per job id */
+    private Map<String, CallJob> jobs = new ConcurrentHashMap<String, CallJob>();
+
+    /** The number of queued or running jobs per username */
+    private ConcurrentHashMap<String, AtomicInteger> activeJobs = new ConcurrentHashMap<String, AtomicInteger>();
+
+    /**
+     * Constructor
+     * 
+     * @param fileConfigurator
+     *            the file configurator that defines the pool sizes
+     */
+    private CallJobManager(FileConfigurator fileConfigurator) {
+
+	int threads = fileConfigurator.getCallJobThreads();
+	int queueSize = fileConfigurator.getCallJobQueueSize();
+	maxPerUsername = fileConfigurator.getCallJobMaxPerUsername();
+
+	if (threads <= 0 || queueSize <= 0 || maxPerUsername <= 0) {
+	    throw new IllegalArgumentException(Tag.PRODUCT_USER_CONFIG_FAIL
+		    + " FileConfigurator call job values must be > 0.");
+	}
+
+	executor = new ThreadPoolExecutor(threads, threads, 60,
+		TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueSize),
+		new CallJobThreadFactory());
+	executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the unique instance, created at first call with the values of
+     * the passed file configurator.
+     * 
+     * @param fileConfigurator
+     *            the file configurator in use
+     * @return the unique instance
+     */
+    public static synchronized CallJobManager getInstance(
+	    FileConfigurator fileConfigurator) {
+	if (callJobManager == null) {
+	    callJobManager = new CallJobManager(fileConfigurator);
+	}
+	return callJobManager;
+    }
+
+    /**
+     * Stops the thread pool and cancels the jobs not yet ended. To be called
+     * when the servlet is taken out of service.
+     */
+    public static synchronized void shutdown() {
+	if (callJobManager == null) {
+	    return;
+	}
+
+	callJobManager.executor.shutdownNow();
+	for (CallJob callJob : callJobManager.jobs.values()) {
+	    callJob.cancel(true);
+	}
+	callJobManager.jobs.clear();
+	callJobManager = null;
+    }
+
+    /**
+     * Submits a job for execution
+     * 
+     * @param callable
+     *            the callable that executes the call and returns the encoded
+     *            result
+     * @param username
+     *            the client username that owns the job
+     * @return the submitted job
+     * @throws RejectedExecutionException
+     *             if the username has too many jobs or if the queue is full
+     */
+    public CallJob submit(Callable<String> callable, String username)
+	    throws RejectedExecutionException {
+
+	purgeExpiredJobs();
+
+	AtomicInteger count = activeJobs.get(username);
+	if (count == null) {
+	    AtomicInteger newCount = new AtomicInteger();
+	    count = activeJobs.putIfAbsent(username, newCount);
+	    if (count == null) {
+		count = newCount;
+	    }
+	}
+
+	if (count.incrementAndGet() > maxPerUsername) {
+	    count.decrementAndGet();
+	    throw new RejectedExecutionException(Tag.PRODUCT
+		    + " Too many call jobs for username " + username
+		    + ". Maximum is " + maxPerUsername + ".");
+	}
+
+	CallJob callJob = new CallJob(callable, username, this);
+	jobs.put(callJob.getJobId(), callJob);
+
+	try {
+	    executor.execute(callJob);
+	} catch (RejectedExecutionException e) {
+	    jobs.remove(callJob.getJobId());
+	    count.decrementAndGet();
+	    throw new RejectedExecutionException(Tag.PRODUCT
+		    + " Call job queue is full. Please retry later.");
+	}
+
+	debug("submitted job " + callJob.getJobId() + " for " + username);
+	return callJob;
+    }
+
+    /**
+     * Returns the job of a username
+     * 
+     * @param jobId
+     *            the job id
+     * @param username
+     *            the client username that owns the job
+     * @return the job, or {@code null} if no job exists with this id for this
+     *         username
+     */
+    public CallJob getJob(String jobId, String username) {
+	CallJob callJob = jobs.get(jobId);
+	if (callJob == null || !callJob.getUsername().equals(username)) {
+	    return null;
+	}
+	return callJob;
+    }
+
+    /**
+     * Removes a job whose result has been sent to the client side
+     * 
+     * @param callJob
+     *            the job to remove
+     */
+    public void remove(CallJob callJob) {
+	jobs.remove(callJob.getJobId());
+    }
+
+    /**
+     * Called by the job when it ends: frees the slot of the username.
+     * 
+     * @param callJob
+     *            the ended job
+     */
+    void jobDone(CallJob callJob) {
+	AtomicInteger count = activeJobs.get(callJob.getUsername());
+	if (count != null) {
+	    count.decrementAndGet();
+	}
+	debug("ended job " + callJob.getJobId());
+    }
+
+    /**
+     * Removes the ended jobs whose result was never fetched.
+     */
+    private void purgeExpiredJobs() {
+	long now = System.currentTimeMillis();
+	Iterator<CallJob> iterator = jobs.values().iterator();
+	while (iterator.hasNext()) {
+	    CallJob callJob = iterator.next();
+	    long endTime = callJob.getEndTime();
+	    if (endTime > 0 && now - endTime > JOB_RETENTION_MILLIS) {
+		iterator.remove();
+	    }
+	}
+    }
+
+    /**
+     * Creates daemon threads so that the pool never prevents the JVM exit.
+     */
+    private static class CallJobThreadFactory implements ThreadFactory {
+
+	private AtomicInteger threadNumber = new AtomicInteger(1);
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+	    Thread thread = new Thread(runnable, "awake-call-job-"
+		    + threadNumber.getAndIncrement());
+	    thread.setDaemon(true);
+	    return thread;
+	}
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+}
@@ -0,0 +1,701 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.file.api.server.FileConfigurator;
+
+/**
+ * Keeps in memory the listings of the server directories, with the
+ * attributes of their entries, for the directory listing actions and the
+ * {@code RemoteFile} attribute methods. <br>
+ * The cache is enabled by {@link FileConfigurator#getDirectoryCacheMaxBytes()}
+ * and keyed by the absolute path of the directory, after the server root has
+ * been added. Paths that contain "." or ".." elements are not cached.
+ * <p>
+ * A cached listing is dropped:
+ * <ul>
+ * <li>when a {@code WatchService} event is received for the directory,</li>
+ * <li>when the directory, one of its entries or one of its descendants is
+ * modified by an Awake FILE action,</li>
+ * <li>after {@link FileConfigurator#getDirectoryCacheTtlMillis()}, because the
+ * file system may not report all the modifications (network file systems
+ * modified by other hosts, watch limits reached),</li>
+ * <li>when the memory used by all the listings exceeds the budget: the least
+ * recently used listings are dropped first.</li>
+ * </ul>
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class DirectoryListingCache {
+
+    private static boolean DEBUG = FrameworkDebug
+	    .isSet(DirectoryListingCache.class);
+
+    /** The estimated memory used by a listing and by an entry, without names */
+    private static final int LISTING_OVERHEAD = 200;
+    private static final int ENTRY_OVERHEAD = 100;
+
+    /** The File methods that modify the file system */
+    private static final Set<String> MUTATING_METHODS = new HashSet<String>(
+	    Arrays.asList("createNewFile", "delete", "mkdir", "mkdirs",
+		    "renameTo", "setExecutable", "setLastModified",
+		    "setReadOnly", "setReadable", "setWritable"));
+
+    /** The caches per configurator instance */
+    private static Map<FileConfigurator, DirectoryListingCache> caches = new ConcurrentHashMap<FileConfigurator, DirectoryListingCache>();
+
+    /** The memory budget in bytes */
+    private final long maxBytes;
+
+    /** The time to live of a listing, 0 if listings do not expire */
+    private final long ttlMillis;
+
+    /** The listings per directory path, in access order */
+    private final LinkedHashMap<String, Listing> listings = new LinkedHashMap<String, Listing>(
+	    16, 0.75f, true);
+
+    /** The loads in progress per directory path */
+    private final Map<String, Long> loads = new HashMap<String, Long>();
+
+    /** The estimated memory used by the listings */
+    private long usedBytes = 0;
+
+    /** The counter that identifies the loads */
+    private long loadCounter = 0;
+
+    /** The watch service, null if not supported */
+    private WatchService watchService = null;
+
+    /**
+     * The watched directories per watch key. The watch service returns the
+     * same key for a directory registered twice: a key is shared by the
+     * loads and the listing of its directory, and is canceled when its last
+     * user releases it.
+     */
+    private final Map<WatchKey, WatchedDir> watchedDirs = new HashMap<WatchKey, WatchedDir>();
+
+    /**
+     * Constructor
+     * 
+     * @param maxBytes
+     *            the memory budget in bytes
+     * @param ttlMillis
+     *            the time to live of a listing, 0 if listings do not expire
+     */
+    DirectoryListingCache(long maxBytes, long ttlMillis) {
+	this.maxBytes = maxBytes;
+	this.ttlMillis = ttlMillis;
+
+	try {
+	    watchService = FileSystems.getDefault()
+		    .newWatchService();
+	    startWatchThread();
+	} catch (Exception e) {
+	    // UnsupportedOperationException or IOException: TTL only
+	    debug("WatchService not available: " + e);
+	    watchService = null;
+	}
+    }
+
+    /**
+     * Returns the directory listing cache of a configurator
+     * 
+     * @param fileConfigurator
+     *            the file configurator in use
+     * @return the directory listing cache, or null if the cache is disabled
+     */
+    public static DirectoryListingCache get(FileConfigurator fileConfigurator) {
+	long maxBytes = fileConfigurator.getDirectoryCacheMaxBytes();
+	if (maxBytes <= 0) {
+	    return null;
+	}
+
+	DirectoryListingCache cache = caches.get(fileConfigurator);
+	if (cache == null) {
+	    synchronized (DirectoryListingCache.class) {
+		cache = caches.get(fileConfigurator);
+		if (cache == null) {
+		    cache = new DirectoryListingCache(maxBytes,
+			    fileConfigurator.getDirectoryCacheTtlMillis());
+		    caches.put(fileConfigurator, cache);
+		}
+	    }
+	}
+	return cache;
+    }
+
+    /**
+     * Drops the cached listings impacted by the modification of a file:
+     * listings of the file, of its ancestors and of its descendants. Does
+     * nothing if the cache is disabled.
+     * 
+     * @param fileConfigurator
+     *            the file configurator in use
+     * @param file
+     *            the created, modified, renamed or deleted file
+     */
+    public static void invalidate(FileConfigurator fileConfigurator, File file) {
+	if (fileConfigurator.getDirectoryCacheMaxBytes() <= 0) {
+	    return;
+	}
+
+	DirectoryListingCache cache = caches.get(fileConfigurator);
+	if (cache != null) {
+	    cache.invalidate(file);
+	}
+    }
+
+    /**
+     * Says if a {@code File} method modifies the file system
+     * 
+     * @param methodName
+     *            the {@code File} method name
+     * @return true if the method modifies the file or its directory
+     */
+    public static boolean isMutating(String methodName) {
+	return MUTATING_METHODS.contains(methodName);
+    }
+
+    /**
+     * Stops the watch threads and forgets all the cached listings.
+     */
+    public static synchronized void shutdown() {
+	for (DirectoryListingCache cache : caches.values()) {
+	    cache.close();
+	}
+	caches.clear();
+    }
+
+    /**
+     * Returns the listing of a directory, from the cache or read from the
+     * file system.
+     * 
+     * @param dir
+     *            the directory
+     * @return the listing, or null if dir is not a directory
+     * @throws IOException
+     *             if the directory can not be read
+     */
+    public Listing getListing(File dir) throws IOException {
+	if (!isPlainPath(dir)) {
+	    return dir.isDirectory() ? read(dir) : null;
+	}
+
+	String key = dir.getAbsolutePath();
+	Long loadId = null;
+
+	synchronized (this) {
+	    Listing listing = getValidListing(key);
+	    if (listing != null) {
+		return listing;
+	    }
+
+	    loadId = ++loadCounter;
+	    loads.put(key, loadId);
+	}
+
+	if (!dir.isDirectory()) {
+	    synchronized (this) {
+		loads.remove(key);
+	    }
+	    return null;
+	}
+
+	// Watch before reading, so that no modification is missed. The watch
+	// key is released if the listing is not cached
+	WatchKey watchKey = watch(dir);
+
+	Listing listing = null;
+	try {
+	    listing = read(dir);
+	} finally {
+	    synchronized (this) {
+		boolean current = loadId.equals(loads.get(key));
+		loads.remove(key);
+
+		// Without watch nor TTL, the listing can not be kept
+		boolean cacheable = watchKey != null || ttlMillis > 0;
+
+		if (listing != null && current && cacheable) {
+		    listing.watchKey = watchKey;
+		    put(key, listing);
+		} else if (watchKey != null) {
+		    unwatch(watchKey);
+		}
+	    }
+	}
+
+	return listing;
+    }
+
+    /**
+     * Returns the cached attributes of a file, if the listing of its parent
+     * directory is cached.
+     * 
+     * @param file
+     *            the file
+     * @return the attributes of the file. {@link Entry#NOT_EXISTS} if the
+     *         file does not exist, or null if unknown.
+     */
+    public synchronized Entry getCachedEntry(File file) {
+	// "." and ".." are not entries of the listings
+	if (!isPlainPath(file)) {
+	    return null;
+	}
+
+	File parent = file.getAbsoluteFile().getParentFile();
+	if (parent == null) {
+	    return null;
+	}
+
+	Listing listing = getValidListing(parent.getAbsolutePath());
+	if (listing == null) {
+	    return null;
+	}
+
+	Entry entry = listing.entries.get(file.getName());
+	if (entry == null) {
+	    return listing.entries.containsKey(file.getName()) ? null
+		    : Entry.NOT_EXISTS;
+	}
+	return entry;
+    }
+
+    /**
+     * Drops the cached listings of a file, of its ancestors and of its
+     * descendants.
+     * 
+     * @param file
+     *            the created, modified, renamed or deleted file
+     */
+    public synchronized void invalidate(File file) {
+	String path = file.getAbsolutePath();
+	debug("invalidate: " + path);
+
+	// The file and its descendants
+	String prefix = path.endsWith(File.separator) ? path : path
+		+ File.separator;
+	Iterator<Map.Entry<String, Listing>> iterator = listings.entrySet()
+		.iterator();
+	while (iterator.hasNext()) {
+	    Map.Entry<String, Listing> mapEntry = iterator.next();
+	    String key = mapEntry.getKey();
+	    if (key.equals(path) || key.startsWith(prefix)) {
+		iterator.remove();
+		released(mapEntry.getValue());
+	    }
+	}
+	cancelLoads(path, prefix);
+
+	// The ancestors, as parent directories may have been created
+	File parent = file.getAbsoluteFile().getParentFile();
+	while (parent != null) {
+	    String parentPath = parent.getAbsolutePath();
+	    remove(parentPath);
+	    loads.remove(parentPath);
+	    parent = parent.getParentFile();
+	}
+    }
+
+    /**
+     * Returns the number of cached listings
+     * 
+     * @return the number of cached listings
+     */
+    public synchronized int size() {
+	return listings.size();
+    }
+
+    /**
+     * Returns the estimated memory used by the cached listings
+     * 
+     * @return the estimated memory used, in bytes
+     */
+    public synchronized long getUsedBytes() {
+	return usedBytes;
+    }
+
+    /**
+     * Says if a path contains only plain names, without "." or ".." elements
+     */
+    private static boolean isPlainPath(File file) {
+	for (Path name : file.toPath()) {
+	    String s = name.toString();
+	    if (s.equals(".") || s.equals("..")) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Returns a cached listing if not expired, removes it if expired
+     */
+    private Listing getValidListing(String key) {
+	Listing listing = listings.get(key);
+	if (listing == null) {
+	    return null;
+	}
+
+	if (ttlMillis > 0
+		&& System.currentTimeMillis() - listing.loadedAt > ttlMillis) {
+	    remove(key);
+	    return null;
+	}
+	return listing;
+    }
+
+    /**
+     * Adds a listing and drops the least recently used ones above the budget
+     */
+    private void put(String key, Listing listing) {
+	remove(key);
+
+	if (listing.bytes > maxBytes) {
+	    // Would evict everything else
+	    if (listing.watchKey != null) {
+		unwatch(listing.watchKey);
+	    }
+	    return;
+	}
+
+	listings.put(key, listing);
+	usedBytes += listing.bytes;
+
+	Iterator<Listing> iterator = listings.values().iterator();
+	while (usedBytes > maxBytes && iterator.hasNext()) {
+	    Listing eldest = iterator.next();
+	    iterator.remove();
+	    released(eldest);
+	}
+    }
+
+    private void remove(String key) {
+	Listing listing = listings.remove(key);
+	if (listing != null) {
+	    released(listing);
+	}
+    }
+
+    /**
+     * Releases the memory and the watch of a removed listing
+     */
+    private void released(Listing listing) {
+	usedBytes -= listing.bytes;
+	if (listing.watchKey != null) {
+	    unwatch(listing.watchKey);
+	}
+    }
+
+    /**
+     * Cancels the loads in progress of a path and its descendants
+     */
+    private void cancelLoads(String path, String prefix) {
+	Iterator<String> iterator = loads.keySet().iterator();
+	while (iterator.hasNext()) {
+	    String key = iterator.next();
+	    if (key.equals(path) || key.startsWith(prefix)) {
+		iterator.remove();
+	    }
+	}
+    }
+
+    /**
+     * Reads a directory listing from the file system
+     * 
+     * @return the listing, or null if dir is not a readable directory
+     */
+    private static Listing read(File dir) throws IOException {
+	Listing listing = new Listing();
+	long bytes = LISTING_OVERHEAD + 2L * dir.getAbsolutePath().length();
+
+	DirectoryStream<Path> directoryStream = null;
+	try {
+	    directoryStream = Files.newDirectoryStream(dir.toPath());
+	    for (Path path : directoryStream) {
+		String name = path.getFileName().toString();
+
+		Entry entry = null;
+		try {
+		    BasicFileAttributes attrs = Files.readAttributes(path,
+			    BasicFileAttributes.class);
+		    entry = new Entry(attrs.isDirectory(),
+			    attrs.isRegularFile(), attrs.size(), attrs
+				    .lastModifiedTime().toMillis());
+		} catch (IOException e) {
+		    // Broken link or no access: attributes are unknown
+		    entry = null;
+		}
+
+		listing.names.add(name);
+		listing.entries.put(name, entry);
+		bytes += ENTRY_OVERHEAD + 4L * name.length();
+	    }
+	} finally {
+	    if (directoryStream != null) {
+		directoryStream.close();
+	    }
+	}
+
+	listing.names = Collections.unmodifiableList(listing.names);
+	listing.bytes = bytes;
+	listing.loadedAt = System.currentTimeMillis();
+	return listing;
+    }
+
+    /**
+     * Registers a directory in the watch service and takes a reference on
+     * its watch key. The registration is done inside the lock, so that a
+     * shared key can not be canceled between its registration and its
+     * reference.
+     * 
+     * @return the watch key, or null if the directory can not be watched
+     */
+    private synchronized WatchKey watch(File dir) {
+	if (watchService == null) {
+	    return null;
+	}
+
+	try {
+	    WatchKey watchKey = dir.toPath().register(watchService,
+		    StandardWatchEventKinds.ENTRY_CREATE,
+		    StandardWatchEventKinds.ENTRY_DELETE,
+		    StandardWatchEventKinds.ENTRY_MODIFY);
+	    WatchedDir watchedDir = watchedDirs.get(watchKey);
+	    if (watchedDir == null) {
+		watchedDir = new WatchedDir(dir.getAbsolutePath());
+		watchedDirs.put(watchKey, watchedDir);
+	    }
+	    watchedDir.references++;
+	    return watchKey;
+	} catch (Exception e) {
+	    // Watch limit reached, closed service, unsupported file system...
+	    debug("can not watch " + dir + ": " + e);
+	    return null;
+	}
+    }
+
+    /**
+     * Releases a reference on a watch key, and cancels the key if it was the
+     * last one. Must be called inside the lock.
+     */
+    private void unwatch(WatchKey watchKey) {
+	WatchedDir watchedDir = watchedDirs.get(watchKey);
+	if (watchedDir == null) {
+	    // Key already invalid
+	    return;
+	}
+
+	if (--watchedDir.references <= 0) {
+	    watchedDirs.remove(watchKey);
+	    watchKey.cancel();
+	}
+    }
+
+    /**
+     * Starts the daemon thread that drops the listings of the directories
+     * reported by the watch service
+     */
+    private void startWatchThread() {
+	final WatchService service = watchService;
+
+	Thread thread = new Thread(new Runnable() {
+
+	    @Override
+	    public void run() {
+		try {
+		    while (true) {
+			WatchKey watchKey = service.take();
+
+			// Events content is not needed: the whole listing is
+			// dropped
+			watchKey.pollEvents();
+
+			synchronized (DirectoryListingCache.this) {
+			    WatchedDir watchedDir = watchedDirs.get(watchKey);
+			    if (watchedDir != null) {
+				debug("watch event: " + watchedDir.path);
+				remove(watchedDir.path);
+				loads.remove(watchedDir.path);
+			    }
+
+			    if (!watchKey.reset()) {
+				watchedDirs.remove(watchKey);
+			    }
+			}
+		    }
+		} catch (InterruptedException e) {
+		    // Stopped
+		} catch (ClosedWatchServiceException e) {
+		    // Stopped
+		}
+	    }
+	}, "awake-directory-cache-watch");
+
+	thread.setDaemon(true);
+	thread.start();
+    }
+
+    /**
+     * Closes the watch service and forgets the listings
+     */
+    synchronized void close() {
+	listings.clear();
+	loads.clear();
+	watchedDirs.clear();
+	usedBytes = 0;
+
+	if (watchService != null) {
+	    try {
+		watchService.close();
+	    } catch (IOException e) {
+		debug("watch service close failed: " + e);
+	    }
+	    watchService = null;
+	}
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+    /**
+     * A watched directory and the number of users of its watch key: loads in
+     * progress and cached listing
+     */
+    private static class WatchedDir {
+	private final String path;
+	private int references = 0;
+
+	public WatchedDir(String path) {
+	    this.path = path;
+	}
+    }
+
+    /**
+     * A cached directory listing
+     */
+    public static class Listing {
+
+	/** The entry names, in directory order */
+	private List<String> names = new ArrayList<String>();
+
+	/** The entries per name, null values if attributes are unknown */
+	private Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	/** The estimated memory used */
+	private long bytes = 0;
+
+	/** The load time */
+	private long loadedAt = 0;
+
+	/** The watch key of the directory, may be null */
+	private WatchKey watchKey = null;
+
+	/**
+	 * Returns the names of the directory entries, as File.list()
+	 * 
+	 * @return the unmodifiable list of the entry names
+	 */
+	public List<String> getNames() {
+	    return names;
+	}
+    }
+
+    /**
+     * The attributes of a directory entry
+     */
+    public static class Entry {
+
+	/** The entry of a file that does not exist */
+	public static final Entry NOT_EXISTS = new Entry(false, false, 0, 0);
+
+	private final boolean directory;
+	private final boolean file;
+	private final long length;
+	private final long lastModified;
+
+	Entry(boolean directory, boolean file, long length, long lastModified) {
+	    this.directory = directory;
+	    this.file = file;
+	    this.length = length;
+	    this.lastModified = lastModified;
+	}
+
+	/**
+	 * Returns the value of an attribute method of {@code File}
+	 * 
+	 * @param methodName
+	 *            the {@code File} method name
+	 * @return the value as returned by the {@code File} method, or null if
+	 *         the method is not an attribute method
+	 */
+	public Object getValue(String methodName) {
+	    if (methodName.equals("exists")) {
+		return this != NOT_EXISTS;
+	    } else if (methodName.equals("isDirectory")) {
+		return directory;
+	    } else if (methodName.equals("isFile")) {
+		return file;
+	    } else if (methodName.equals("length")) {
+		return length;
+	    } else if (methodName.equals("lastModified")) {
+		return lastModified;
+	    } else {
+		return null;
+	    }
+	}
+    }
+
+}
@@ -0,0 +1,374 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.nio;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.file.api.server.FileConfigurator;
+
+/**
+ * Keeps in memory the disk usage of the server directories computed by
+ * {@link FileDiskUsageAction}. <br>
+ * The cache is enabled by
+ * {@link FileConfigurator#getDiskUsageCacheTtlMillis()} and keyed by the
+ * absolute path of the directory, after the server root has been added.
+ * <p>
+ * A cached disk usage is dropped:
+ * <ul>
+ * <li>when the directory, one of its entries or one of its descendants is
+ * modified by an Awake FILE action,</li>
+ * <li>after {@link FileConfigurator#getDiskUsageCacheTtlMillis()}, because
+ * modifications made outside Awake FILE are not seen,</li>
+ * <li>when there are more than {@link #MAX_ENTRIES} cached directories: the
+ * least recently used are dropped first.</li>
+ * </ul>
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class DiskUsageCache {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(DiskUsageCache.class);
+
+    /** The maximum number of cached directories */
+    public static final int MAX_ENTRIES = 10000;
+
+    /** The caches per configurator instance */
+    private static Map<FileConfigurator, DiskUsageCache> caches = new ConcurrentHashMap<FileConfigurator, DiskUsageCache>();
+
+    /** The time to live of a disk usage */
+    private final long ttlMillis;
+
+    /** The disk usages per directory path, in access order */
+    private final LinkedHashMap<String, DiskUsage> usages = new LinkedHashMap<String, DiskUsage>(
+	    16, 0.75f, true);
+
+    /** Incremented at each invalidation */
+    private long generation = 0;
+
+    /** The recent invalidations, oldest first */
+    private final LinkedList<Invalidation> invalidations = new LinkedList<Invalidation>();
+
+    /** The generation of the last invalidation dropped from the list */
+    private long droppedGeneration = 0;
+
+    /**
+     * Constructor
+     * 
+     * @param ttlMillis
+     *            the time to live of a disk usage
+     */
+    DiskUsageCache(long ttlMillis) {
+	this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns the disk usage cache of a configurator
+     * 
+     * @param fileConfigurator
+     *            the file configurator in use
+     * @return the disk usage cache, or null if the cache is disabled
+     */
+    public static DiskUsageCache get(FileConfigurator fileConfigurator) {
+	long ttlMillis = fileConfigurator.getDiskUsageCacheTtlMillis();
+	if (ttlMillis <= 0) {
+	    return null;
+	}
+
+	DiskUsageCache cache = caches.get(fileConfigurator);
+	if (cache == null) {
+	    synchronized (DiskUsageCache.class) {
+		cache = caches.get(fileConfigurator);
+		if (cache == null) {
+		    cache = new DiskUsageCache(ttlMillis);
+		    caches.put(fileConfigurator, cache);
+		}
+	    }
+	}
+	return cache;
+    }
+
+    /**
+     * Drops the cached disk usages impacted by the modification of a file:
+     * disk usages of the file, of its ancestors and of its descendants. Does
+     * nothing if the cache is disabled.
+     * 
+     * @param fileConfigurator
+     *            the file configurator in use
+     * @param file
+     *            the created, modified, renamed or deleted file
+     */
+    public static void invalidate(FileConfigurator fileConfigurator, File file) {
+	if (fileConfigurator.getDiskUsageCacheTtlMillis() <= 0) {
+	    return;
+	}
+
+	DiskUsageCache cache = caches.get(fileConfigurator);
+	if (cache != null) {
+	    cache.invalidate(file);
+	}
+    }
+
+    /**
+     * Drops all the caches. To be called when the servlet is taken out of
+     * service.
+     */
+    public static synchronized void shutdown() {
+	caches.clear();
+    }
+
+    /**
+     * Returns the cached disk usage of a directory
+     * 
+     * @param dir
+     *            the directory
+     * @return the disk usage, or null if not cached or expired
+     */
+    public synchronized DiskUsage get(File dir) {
+	String path = dir.getAbsolutePath();
+	DiskUsage diskUsage = usages.get(path);
+	if (diskUsage == null) {
+	    return null;
+	}
+
+	if (System.currentTimeMillis() - diskUsage.computedAt > ttlMillis) {
+	    usages.remove(path);
+	    return null;
+	}
+	return diskUsage;
+    }
+
+    /**
+     * Returns the generation to pass to
+     * {@link #put(File, DiskUsage, long)}. To be called after the computation
+     * start time is read and before the directory is walked.
+     * 
+     * @return the current generation
+     */
+    public synchronized long getGeneration() {
+	return generation;
+    }
+
+    /**
+     * Caches the disk usage of a directory, unless the directory, one of its
+     * descendants or one of its ancestors has been modified since the
+     * computation started
+     * 
+     * @param dir
+     *            the directory
+     * @param diskUsage
+     *            the computed disk usage
+     * @param computeGeneration
+     *            the generation read before the computation started
+     */
+    public synchronized void put(File dir, DiskUsage diskUsage,
+	    long computeGeneration) {
+	if (System.currentTimeMillis() - diskUsage.computedAt > ttlMillis) {
+	    return;
+	}
+
+	// The invalidations that may have been missed are no more known
+	if (computeGeneration < droppedGeneration) {
+	    return;
+	}
+
+	String path = dir.getAbsolutePath();
+
+	Iterator<Invalidation> invalidationIterator = invalidations
+		.descendingIterator();
+	while (invalidationIterator.hasNext()) {
+	    Invalidation invalidation = invalidationIterator.next();
+	    if (invalidation.generation <= computeGeneration) {
+		break;
+	    }
+	    if (isSameOrDescendant(invalidation.path, path)
+		    || isSameOrDescendant(path, invalidation.path)) {
+		debug("put ignored after invalidate: " + path);
+		return;
+	    }
+	}
+
+	usages.put(path, diskUsage);
+
+	Iterator<DiskUsage> iterator = usages.values().iterator();
+	while (usages.size() > MAX_ENTRIES && iterator.hasNext()) {
+	    iterator.next();
+	    iterator.remove();
+	}
+    }
+
+    /**
+     * Drops the cached disk usages of a file, of its descendants and of its
+     * ancestors
+     * 
+     * @param file
+     *            the created, modified, renamed or deleted file
+     */
+    public synchronized void invalidate(File file) {
+	generation++;
+
+	String path = file.getAbsolutePath();
+	debug("invalidate: " + path);
+
+	// Kept for the computations in progress. A computation that started
+	// more than ttlMillis ago is not cached, so older invalidations are
+	// useless
+	long now = System.currentTimeMillis();
+	invalidations.add(new Invalidation(path, generation, now));
+	while (!invalidations.isEmpty()) {
+	    if (invalidations.size() > MAX_ENTRIES) {
+		droppedGeneration = invalidations.removeFirst().generation;
+	    } else if (now - invalidations.getFirst().time > ttlMillis) {
+		invalidations.removeFirst();
+	    } else {
+		break;
+	    }
+	}
+
+	// The file and its descendants
+	Iterator<String> iterator = usages.keySet().iterator();
+	while (iterator.hasNext()) {
+	    String key = iterator.next();
+	    if (isSameOrDescendant(key, path)) {
+		iterator.remove();
+	    }
+	}
+
+	// The ancestors
+	File parent = file.getAbsoluteFile().getParentFile();
+	while (parent != null) {
+	    usages.remove(parent.getAbsolutePath());
+	    parent = parent.getParentFile();
+	}
+    }
+
+    /**
+     * Returns the number of cached disk usages
+     * 
+     * @return the number of cached disk usages
+     */
+    public synchronized int size() {
+	return usages.size();
+    }
+
+    /**
+     * Says if a path is a path or one of its descendants
+     * 
+     * @param path
+     *            the path to test
+     * @param ancestor
+     *            the ancestor path
+     * @return true if path equals ancestor or is below ancestor
+     */
+    private static boolean isSameOrDescendant(String path, String ancestor) {
+	if (path.equals(ancestor)) {
+	    return true;
+	}
+
+	String prefix = ancestor.endsWith(File.separator) ? ancestor
+		: ancestor + File.separator;
+	return path.startsWith(prefix);
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+    /**
+     * The disk usage of a directory tree, not including the directory itself
+     */
+    public static class DiskUsage {
+
+	private final long length;
+	private final long fileCount;
+	private final long directoryCount;
+
+	/** The computation start time */
+	private final long computedAt;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param length
+	 *            the total length of the files in bytes
+	 * @param fileCount
+	 *            the number of files
+	 * @param directoryCount
+	 *            the number of directories
+	 * @param computedAt
+	 *            the time the directory walk started
+	 */
+	public DiskUsage(long length, long fileCount, long directoryCount,
+		long computedAt) {
+	    this.length = length;
+	    this.fileCount = fileCount;
+	    this.directoryCount = directoryCount;
+	    this.computedAt = computedAt;
+	}
+
+	public long getLength() {
+	    return length;
+	}
+
+	public long getFileCount() {
+	    return fileCount;
+	}
+
+	public long getDirectoryCount() {
+	    return directoryCount;
+	}
+
+	public long getComputedAt() {
+	    return computedAt;
+	}
+    }
+
+    /**
+     * A file modification, kept to detect the computations it impacts
+     */
+    private static class Invalidation {
+
+	private final String path;
+	private final long generation;
+	private final long time;
+
+	public Invalidation(String path, long generation, long time) {
+	    this.path = path;
+	    this.generation = generation;
+	    this.time = time;
+	}
+    }
+
+}
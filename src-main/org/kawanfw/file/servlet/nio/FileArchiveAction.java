@@ -0,0 +1,486 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.nio;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.logging.Level;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.crypto.SecretKey;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.StringUtil;
+import org.kawanfw.commons.util.Tag;
+import org.kawanfw.commons.util.convert.AesGcmOutputStream;
+import org.kawanfw.file.api.server.FileConfigurator;
+import org.kawanfw.file.servlet.ServerFileDispatch;
+import org.kawanfw.file.servlet.ServerUserThrowable;
+import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
+import org.kawanfw.file.servlet.util.ResponseWriter;
+import org.kawanfw.file.util.parms.Parameter;
+
+/**
+ * Streams a zip, tar or tar.gz archive of a file or a directory tree. <br>
+ * The archive is built on the fly while the tree is walked: nothing is
+ * written on the server disk, and the client side can extract the entries as
+ * the bytes arrive.
+ * <p>
+ * The archive bytes are sent in frames, each one preceded by its length as a
+ * 4 bytes int:
+ * <ul>
+ * <li>A 0 length ends the archive.</li>
+ * <li>A -1 length says that the archive creation failed. It is followed by
+ * the Exception class name, message and stack trace lines.</li>
+ * </ul>
+ * This allows the client side to detect a truncated archive, that a zip
+ * reader may see as complete. A failure before the first frame is sent as
+ * for all actions.
+ * <p>
+ * The entries are named relatively to the parent of the root, except for the
+ * client root directory whose entries are not prefixed. Symbolic links and
+ * special files are not archived and links are not followed. Files and
+ * directories that can not be read are skipped.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+
+public class FileArchiveAction {
+    private static boolean DEBUG = FrameworkDebug
+	    .isSet(FileArchiveAction.class);
+
+    /** The length of a frame */
+    private static final int FRAME_LENGTH = 64 * 1024;
+
+    /**
+     * Constructor.
+     */
+    public FileArchiveAction() {
+
+    }
+
+    /**
+     * Streams the archive of the file or directory tree passed by the client
+     * side. <br>
+     * 
+     * @param request
+     *            the http request
+     * @param fileConfigurator
+     *            the file configurator defined by the user
+     * @param out
+     *            the servlet output stream
+     * @param username
+     *            the client login (for security check)
+     * @param filename
+     *            the file or directory to archive
+     * @param bodySecretKey
+     *            the key that encrypts the archive, null if the client does
+     *            not ask for body encryption
+     * @throws Exception
+     *             if the file does not exist or if the format or compression
+     *             level is invalid. A failure during the archive creation is
+     *             not thrown: it is sent to the client side in an error frame.
+     */
+    public void archive(HttpServletRequest request,
+	    FileConfigurator fileConfigurator, OutputStream out,
+	    String username, String filename, SecretKey bodySecretKey)
+	    throws Exception {
+
+	debug("in archive()");
+
+	String format = StringUtil.getTrimValue(request
+		.getParameter(Parameter.ARCHIVE_FORMAT));
+	if (format.isEmpty()) {
+	    format = Parameter.ARCHIVE_FORMAT_ZIP;
+	}
+
+	if (!format.equals(Parameter.ARCHIVE_FORMAT_ZIP)
+		&& !format.equals(Parameter.ARCHIVE_FORMAT_TAR)
+		&& !format.equals(Parameter.ARCHIVE_FORMAT_TAR_GZ)) {
+	    throw new IllegalArgumentException(Tag.PRODUCT
+		    + " Unsupported archive format: " + format);
+	}
+
+	int level = Deflater.DEFAULT_COMPRESSION;
+	String levelStr = StringUtil.getTrimValue(request
+		.getParameter(Parameter.COMPRESSION_LEVEL));
+	if (!levelStr.isEmpty()) {
+	    level = Integer.parseInt(levelStr);
+	}
+
+	if (level < Deflater.DEFAULT_COMPRESSION
+		|| level > Deflater.BEST_COMPRESSION) {
+	    throw new IllegalArgumentException(Tag.PRODUCT
+		    + " Invalid compression level: " + level);
+	}
+
+	Path userRoot = new File(HttpConfigurationUtil.addRootPath(
+		fileConfigurator, username, "/")).toPath().toAbsolutePath()
+		.normalize();
+	Path root = new File(HttpConfigurationUtil.addRootPath(
+		fileConfigurator, username, filename)).toPath()
+		.toAbsolutePath().normalize();
+
+	// addRootPath() does not resolve the ".." elements
+	if (!root.startsWith(userRoot)
+		|| !Files.exists(root, LinkOption.NOFOLLOW_LINKS)) {
+	    throw new FileNotFoundException(Tag.PRODUCT
+		    + " File does not exist: " + filename);
+	}
+
+	String prefix = "";
+	if (!root.equals(userRoot) && root.getFileName() != null) {
+	    prefix = root.getFileName().toString() + "/";
+	}
+
+	// The errors above are sent in clear, as for all actions
+	AesGcmOutputStream aesGcmOutputStream = null;
+	if (bodySecretKey != null) {
+	    aesGcmOutputStream = new AesGcmOutputStream(out, bodySecretKey,
+		    filename);
+	    out = aesGcmOutputStream;
+	}
+
+	FrameOutputStream frameOut = new FrameOutputStream(out);
+
+	try {
+	    if (format.equals(Parameter.ARCHIVE_FORMAT_ZIP)) {
+		ZipOutputStream zipOut = new ZipOutputStream(frameOut);
+		zipOut.setLevel(level);
+		walk(root, prefix, new ZipEntryWriter(zipOut));
+		zipOut.finish();
+	    } else {
+		OutputStream tarTarget = frameOut;
+		GZIPOutputStream gzipOut = null;
+
+		if (format.equals(Parameter.ARCHIVE_FORMAT_TAR_GZ)) {
+		    gzipOut = newGZIPOutputStream(frameOut, level);
+		    tarTarget = gzipOut;
+		}
+
+		TarOutputStream tarOut = new TarOutputStream(tarTarget);
+		walk(root, prefix, new TarEntryWriter(tarOut));
+		tarOut.finish();
+
+		if (gzipOut != null) {
+		    gzipOut.finish();
+		}
+	    }
+
+	    frameOut.finish();
+
+	} catch (Exception e) {
+	    // The client side must not see the archive as complete. The error
+	    // frame is the last output: the Exception is not thrown, as the
+	    // dispatcher would write its own error lines after the frame
+	    frameOut.writeError(e);
+
+	    ServerLogger.getLogger().log(
+		    Level.WARNING,
+		    Tag.PRODUCT_EXCEPTION_RAISED + " "
+			    + ServerUserThrowable.getMessage(e));
+	    ServerLogger.getLogger().log(
+		    Level.WARNING,
+		    Tag.PRODUCT_EXCEPTION_RAISED + " "
+			    + ExceptionUtils.getStackTrace(e));
+	} finally {
+	    if (aesGcmOutputStream != null) {
+		// Write the last encrypted frame, that may contain the error
+		aesGcmOutputStream.finish();
+	    }
+	}
+    }
+
+    /**
+     * Walks the tree and writes its entries
+     * 
+     * @param root
+     *            the file or directory to archive
+     * @param prefix
+     *            the prefix of the entry names
+     * @param entryWriter
+     *            the writer of the archive format
+     */
+    private static void walk(final Path root, final String prefix,
+	    final EntryWriter entryWriter) throws IOException {
+
+	Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+	    @Override
+	    public FileVisitResult preVisitDirectory(Path dir,
+		    BasicFileAttributes attrs) throws IOException {
+		String name = getName(dir);
+		if (!name.isEmpty()) {
+		    entryWriter.putDirectory(name + "/", attrs);
+		}
+		return FileVisitResult.CONTINUE;
+	    }
+
+	    @Override
+	    public FileVisitResult visitFile(Path file,
+		    BasicFileAttributes attrs) throws IOException {
+		if (!attrs.isRegularFile()) {
+		    debug("not archived: " + file);
+		    return FileVisitResult.CONTINUE;
+		}
+
+		InputStream in = null;
+		try {
+		    in = Files.newInputStream(file);
+		} catch (IOException e) {
+		    debug("archive can not read " + file + ": " + e);
+		    return FileVisitResult.CONTINUE;
+		}
+
+		try {
+		    entryWriter.putFile(getName(file), file, attrs, in);
+		} finally {
+		    in.close();
+		}
+		return FileVisitResult.CONTINUE;
+	    }
+
+	    @Override
+	    public FileVisitResult visitFileFailed(Path file, IOException exc)
+		    throws IOException {
+		debug("archive can not read " + file + ": " + exc);
+		return FileVisitResult.CONTINUE;
+	    }
+
+	    @Override
+	    public FileVisitResult postVisitDirectory(Path dir,
+		    IOException exc) throws IOException {
+		if (exc != null) {
+		    debug("archive can not list " + dir + ": " + exc);
+		}
+		return FileVisitResult.CONTINUE;
+	    }
+
+	    /**
+	     * Returns the entry name of a path, with "/" separators
+	     */
+	    private String getName(Path path) {
+		String name = prefix
+			+ root.relativize(path).toString()
+				.replace(File.separatorChar, '/');
+
+		// The root itself is named by the prefix
+		if (name.endsWith("/")) {
+		    name = name.substring(0, name.length() - 1);
+		}
+		return name;
+	    }
+	});
+    }
+
+    /**
+     * Returns a gzip stream that compresses with the passed level
+     */
+    private static GZIPOutputStream newGZIPOutputStream(OutputStream out,
+	    final int level) throws IOException {
+	return new GZIPOutputStream(out, FRAME_LENGTH) {
+	    {
+		def.setLevel(level);
+	    }
+	};
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+    /**
+     * Writes the entries in an archive format
+     */
+    private static interface EntryWriter {
+
+	public void putDirectory(String name, BasicFileAttributes attrs)
+		throws IOException;
+
+	public void putFile(String name, Path file, BasicFileAttributes attrs,
+		InputStream in) throws IOException;
+    }
+
+    /**
+     * Writes the entries in a zip archive
+     */
+    private static class ZipEntryWriter implements EntryWriter {
+
+	private final ZipOutputStream zipOut;
+	private final byte[] buffer = new byte[FRAME_LENGTH];
+
+	public ZipEntryWriter(ZipOutputStream zipOut) {
+	    this.zipOut = zipOut;
+	}
+
+	@Override
+	public void putDirectory(String name, BasicFileAttributes attrs)
+		throws IOException {
+	    ZipEntry zipEntry = new ZipEntry(name);
+	    zipEntry.setTime(attrs.lastModifiedTime().toMillis());
+	    zipOut.putNextEntry(zipEntry);
+	    zipOut.closeEntry();
+	}
+
+	@Override
+	public void putFile(String name, Path file, BasicFileAttributes attrs,
+		InputStream in) throws IOException {
+	    ZipEntry zipEntry = new ZipEntry(name);
+	    zipEntry.setTime(attrs.lastModifiedTime().toMillis());
+	    zipOut.putNextEntry(zipEntry);
+
+	    int n;
+	    while ((n = in.read(buffer)) != -1) {
+		zipOut.write(buffer, 0, n);
+	    }
+	    zipOut.closeEntry();
+	}
+    }
+
+    /**
+     * Writes the entries in a tar archive
+     */
+    private static class TarEntryWriter implements EntryWriter {
+
+	private final TarOutputStream tarOut;
+
+	public TarEntryWriter(TarOutputStream tarOut) {
+	    this.tarOut = tarOut;
+	}
+
+	@Override
+	public void putDirectory(String name, BasicFileAttributes attrs)
+		throws IOException {
+	    tarOut.putDirectory(name, attrs.lastModifiedTime().toMillis());
+	}
+
+	@Override
+	public void putFile(String name, Path file, BasicFileAttributes attrs,
+		InputStream in) throws IOException {
+	    tarOut.putFile(name, attrs.size(), attrs.lastModifiedTime()
+		    .toMillis(), Files.isExecutable(file), in);
+	}
+    }
+
+    /**
+     * Splits the archive bytes in frames preceded by their length
+     */
+    private static class FrameOutputStream extends OutputStream {
+
+	private final DataOutputStream out;
+	private final byte[] buffer = new byte[FRAME_LENGTH];
+	private int count = 0;
+
+	public FrameOutputStream(OutputStream out) {
+	    this.out = new DataOutputStream(out);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+	    if (count == buffer.length) {
+		writeFrame();
+	    }
+	    buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+	    while (len > 0) {
+		if (count == buffer.length) {
+		    writeFrame();
+		}
+		int n = Math.min(len, buffer.length - count);
+		System.arraycopy(b, off, buffer, count, n);
+		count += n;
+		off += n;
+		len -= n;
+	    }
+	}
+
+	/**
+	 * Writes the last frame and the end of archive
+	 */
+	public void finish() throws IOException {
+	    writeFrame();
+	    out.writeInt(0);
+	    out.flush();
+	}
+
+	/**
+	 * Writes the error marker and the Exception, as for a failed action.
+	 * The stream may be broken: the errors are not thrown.
+	 */
+	public void writeError(Exception e) {
+	    try {
+		writeFrame();
+		out.writeInt(-1);
+
+		Throwable finalThrowable = ServerFileDispatch
+			.getFinalThrowable(e);
+		ResponseWriter.writeLine(out, finalThrowable.getClass()
+			.getName());
+		ResponseWriter.writeLine(out,
+			ServerUserThrowable.getMessage(finalThrowable));
+		ResponseWriter.writeLine(out,
+			ExceptionUtils.getStackTrace(finalThrowable));
+		out.flush();
+	    } catch (IOException ignore) {
+		debug("error not sent: " + ignore);
+	    }
+	}
+
+	/**
+	 * Writes the buffered bytes as a frame
+	 */
+	private void writeFrame() throws IOException {
+	    if (count == 0) {
+		return;
+	    }
+	    out.writeInt(count);
+	    out.write(buffer, 0, count);
+	    count = 0;
+	}
+    }
+
+}
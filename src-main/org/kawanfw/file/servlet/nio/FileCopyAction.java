@@ -0,0 +1,479 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.nio;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.kawanfw.commons.api.server.CommonsConfigurator;
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.StringUtil;
+import org.kawanfw.commons.util.Tag;
+import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.api.server.FileConfigurator;
+import org.kawanfw.file.servlet.job.CallJob;
+import org.kawanfw.file.servlet.job.CallJobManager;
+import org.kawanfw.file.servlet.job.ProgressCallable;
+import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
+import org.kawanfw.file.servlet.util.ResponseWriter;
+import org.kawanfw.file.util.parms.Parameter;
+
+/**
+ * Copies or moves a file or a directory tree on the server, without any
+ * transfer of the file contents to the client side. <br>
+ * The copy is executed as a call job of the {@link CallJobManager}: the
+ * response is the job id, and the client side polls the job result as for an
+ * asynchronous call. While running, the job progress is sent as
+ * {@code <copied bytes> <total bytes>}.
+ * <p>
+ * Files are copied with {@code FileChannel.transferTo()} in chunks, so that
+ * the kernel may copy without user space buffers and the job can be
+ * cancelled between two chunks. If a hard link is asked, files are linked
+ * instead of copied when the file system supports it. <br>
+ * Symbolic links are copied as links and are not followed. The last modified
+ * time of the files and directories is preserved.
+ * <p>
+ * A move is done with {@code Files.move()} and falls back to a copy followed
+ * by a delete when a directory must be moved to another file store.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+
+public class FileCopyAction {
+    private static boolean DEBUG = FrameworkDebug.isSet(FileCopyAction.class);
+
+    /** The length of a file chunk copied in one transfer */
+    private static final long CHUNK_LENGTH = 8 * 1024 * 1024;
+
+    /**
+     * Constructor.
+     */
+    public FileCopyAction() {
+
+    }
+
+    /**
+     * Submits the copy or the move of the file passed by the client side and
+     * sends back the job id. <br>
+     * 
+     * @param request
+     *            the http request
+     * @param commonsConfigurator
+     *            the commons configurator defined by the user
+     * @param fileConfigurator
+     *            the file configurator defined by the user
+     * @param out
+     *            the servlet output stream
+     * @param username
+     *            the client login (for security check)
+     * @param filename
+     *            the file or directory to copy
+     * @throws Exception
+     *             if the source or the destination is the client root
+     *             directory or is outside of it, if the source does not
+     *             exist, if the destination is the source or one of its
+     *             descendants, or if the job is refused
+     */
+    public void copy(HttpServletRequest request,
+	    CommonsConfigurator commonsConfigurator,
+	    FileConfigurator fileConfigurator, OutputStream out,
+	    String username, String filename) throws Exception {
+
+	debug("in copy()");
+
+	String filenameDest = StringUtil.getTrimValue(request
+		.getParameter(Parameter.FILENAME_DEST));
+	boolean replaceExisting = Boolean.parseBoolean(request
+		.getParameter(Parameter.REPLACE_EXISTING));
+	boolean hardLink = Boolean.parseBoolean(request
+		.getParameter(Parameter.HARD_LINK));
+	boolean move = Boolean.parseBoolean(request
+		.getParameter(Parameter.MOVE));
+
+	Path userRoot = new File(HttpConfigurationUtil.addRootPath(
+		fileConfigurator, username, "/")).toPath().toAbsolutePath()
+		.normalize();
+	Path source = new File(HttpConfigurationUtil.addRootPath(
+		fileConfigurator, username, filename)).toPath()
+		.toAbsolutePath().normalize();
+	Path dest = new File(HttpConfigurationUtil.addRootPath(
+		fileConfigurator, username, filenameDest)).toPath()
+		.toAbsolutePath().normalize();
+
+	// addRootPath() does not resolve the ".." elements
+	if (!source.startsWith(userRoot) || source.equals(userRoot)) {
+	    throw new IllegalArgumentException(Tag.PRODUCT
+		    + " File can not be copied or moved: " + filename);
+	}
+
+	if (!dest.startsWith(userRoot) || dest.equals(userRoot)) {
+	    throw new IllegalArgumentException(Tag.PRODUCT
+		    + " Invalid destination: " + filenameDest);
+	}
+
+	if (!Files.exists(source, LinkOption.NOFOLLOW_LINKS)) {
+	    throw new FileNotFoundException(Tag.PRODUCT
+		    + " File does not exist: " + filename);
+	}
+
+	if (dest.startsWith(source)) {
+	    throw new IllegalArgumentException(Tag.PRODUCT
+		    + " Destination can not be the source or one of its descendants: "
+		    + filenameDest);
+	}
+
+	CopyJob copyJob = new CopyJob(fileConfigurator, source, dest,
+		replaceExisting, hardLink, move);
+	CallJob callJob = CallJobManager.getInstance(fileConfigurator).submit(
+		copyJob, username);
+
+	writeLine(out, TransferStatus.SEND_OK);
+	writeLine(out, callJob.getJobId());
+    }
+
+    /**
+     * Write a line of string on the servlet output stream. Will add the
+     * necessary CR_LF
+     * 
+     * @param out
+     *            the servlet output stream
+     * @param s
+     *            the string to write
+     * @throws IOException
+     */
+    private static void writeLine(OutputStream out, String s)
+	    throws IOException {
+	ResponseWriter.writeLine(out, s);
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+    /**
+     * The copy or move job, executed in a {@code CallJobManager} thread
+     */
+    static class CopyJob implements ProgressCallable {
+
+	private final FileConfigurator fileConfigurator;
+	private final Path source;
+	private final Path dest;
+	private final boolean replaceExisting;
+	private final boolean hardLink;
+	private final boolean move;
+
+	/** The bytes copied so far */
+	private final AtomicLong copied = new AtomicLong();
+
+	/** The bytes to copy, -1 if not computed yet */
+	private volatile long total = -1;
+
+	CopyJob(FileConfigurator fileConfigurator, Path source, Path dest,
+		boolean replaceExisting, boolean hardLink, boolean move) {
+	    this.fileConfigurator = fileConfigurator;
+	    this.source = source;
+	    this.dest = dest;
+	    this.replaceExisting = replaceExisting;
+	    this.hardLink = hardLink;
+	    this.move = move;
+	}
+
+	@Override
+	public String getProgress() {
+	    long total = this.total;
+	    if (total < 0) {
+		return null;
+	    }
+	    return copied.get() + " " + total;
+	}
+
+	@Override
+	public String call() throws Exception {
+	    try {
+		if (move) {
+		    move();
+		} else {
+		    computeTotal();
+		    copyTree(source);
+		}
+	    } finally {
+		// Invalidate even on failure: a part may have been copied
+		DirectoryListingCache.invalidate(fileConfigurator,
+			dest.toFile());
+		DiskUsageCache.invalidate(fileConfigurator, dest.toFile());
+
+		if (move) {
+		    DirectoryListingCache.invalidate(fileConfigurator,
+			    source.toFile());
+		    DiskUsageCache
+			    .invalidate(fileConfigurator, source.toFile());
+		}
+	    }
+
+	    return Boolean.TRUE.toString();
+	}
+
+	/**
+	 * Moves the source. Falls back to a copy and a delete if a non empty
+	 * directory can not be moved directly.
+	 */
+	private void move() throws IOException {
+	    computeTotal();
+
+	    try {
+		if (replaceExisting) {
+		    Files.move(source, dest,
+			    StandardCopyOption.REPLACE_EXISTING);
+		} else {
+		    Files.move(source, dest);
+		}
+		copied.set(total);
+	    } catch (DirectoryNotEmptyException e) {
+		// Thrown if the directory must be moved to another file store,
+		// or if an existing target is not empty
+		if (Files.exists(dest, LinkOption.NOFOLLOW_LINKS)) {
+		    throw e;
+		}
+
+		debug("move falls back to copy and delete: " + source);
+		copyTree(source);
+		deleteTree(source);
+	    }
+	}
+
+	/**
+	 * Computes the bytes to copy, using the disk usage cache for
+	 * directories
+	 */
+	private void computeTotal() throws IOException {
+	    if (Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS)) {
+		total = FileDiskUsageAction.compute(fileConfigurator,
+			source.toFile()).getLength();
+	    } else {
+		total = Files.readAttributes(source, BasicFileAttributes.class,
+			LinkOption.NOFOLLOW_LINKS).size();
+	    }
+	}
+
+	/**
+	 * Copies a file or a directory tree to the destination
+	 * 
+	 * @param root
+	 *            the source file or directory
+	 */
+	private void copyTree(final Path root) throws IOException {
+	    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+		@Override
+		public FileVisitResult preVisitDirectory(Path dir,
+			BasicFileAttributes attrs) throws IOException {
+		    checkInterrupted();
+		    Path target = dest.resolve(root.relativize(dir));
+
+		    if (Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)
+			    && replaceExisting) {
+			return FileVisitResult.CONTINUE;
+		    }
+
+		    if (replaceExisting) {
+			Files.deleteIfExists(target);
+		    }
+		    Files.createDirectory(target);
+		    return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(Path file,
+			BasicFileAttributes attrs) throws IOException {
+		    checkInterrupted();
+		    Path target = dest.resolve(root.relativize(file));
+		    copyFile(file, target, attrs);
+		    return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult postVisitDirectory(Path dir,
+			IOException e) throws IOException {
+		    if (e != null) {
+			throw e;
+		    }
+		    Path target = dest.resolve(root.relativize(dir));
+		    Files.setLastModifiedTime(target,
+			    Files.getLastModifiedTime(dir));
+		    return FileVisitResult.CONTINUE;
+		}
+	    });
+	}
+
+	/**
+	 * Copies one file, symbolic link or special file
+	 * 
+	 * @param file
+	 *            the source file
+	 * @param target
+	 *            the target file
+	 * @param attrs
+	 *            the attributes of the source file, links not followed
+	 */
+	private void copyFile(Path file, Path target, BasicFileAttributes attrs)
+		throws IOException {
+
+	    if (!attrs.isRegularFile()) {
+		if (replaceExisting) {
+		    Files.copy(file, target, LinkOption.NOFOLLOW_LINKS,
+			    StandardCopyOption.REPLACE_EXISTING);
+		} else {
+		    Files.copy(file, target, LinkOption.NOFOLLOW_LINKS);
+		}
+		copied.addAndGet(attrs.size());
+		return;
+	    }
+
+	    if (hardLink && createLink(file, target)) {
+		copied.addAndGet(attrs.size());
+		return;
+	    }
+
+	    FileChannel in = null;
+	    FileChannel out = null;
+
+	    try {
+		in = FileChannel.open(file, StandardOpenOption.READ);
+
+		if (replaceExisting) {
+		    Files.deleteIfExists(target);
+		}
+		out = FileChannel.open(target, StandardOpenOption.WRITE,
+			StandardOpenOption.CREATE_NEW);
+
+		long size = in.size();
+		long position = 0;
+		while (position < size) {
+		    checkInterrupted();
+		    long count = in.transferTo(position,
+			    Math.min(CHUNK_LENGTH, size - position), out);
+		    if (count <= 0) {
+			break; // The source has been truncated
+		    }
+		    position += count;
+		    copied.addAndGet(count);
+		}
+	    } finally {
+		if (in != null) {
+		    in.close();
+		}
+		if (out != null) {
+		    out.close();
+		}
+	    }
+
+	    Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+	}
+
+	/**
+	 * Creates a hard link to the file
+	 * 
+	 * @return true if the link has been created, false if the file system
+	 *         does not support hard links between the two files
+	 */
+	private boolean createLink(Path file, Path target) throws IOException {
+	    if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+		if (!replaceExisting) {
+		    // Let the copy throw the FileAlreadyExistsException
+		    return false;
+		}
+		Files.delete(target);
+	    }
+
+	    try {
+		Files.createLink(target, file);
+		return true;
+	    } catch (UnsupportedOperationException e) {
+		return false;
+	    } catch (IOException e) {
+		// Different file stores or links not allowed: copy
+		debug("hard link refused, copy instead: " + e);
+		return false;
+	    }
+	}
+
+	/**
+	 * Deletes a directory tree after a move by copy
+	 */
+	private void deleteTree(Path root) throws IOException {
+	    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+		@Override
+		public FileVisitResult visitFile(Path file,
+			BasicFileAttributes attrs) throws IOException {
+		    Files.delete(file);
+		    return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult postVisitDirectory(Path dir,
+			IOException e) throws IOException {
+		    if (e != null) {
+			throw e;
+		    }
+		    Files.delete(dir);
+		    return FileVisitResult.CONTINUE;
+		}
+	    });
+	}
+
+	/**
+	 * Stops the copy if the job has been cancelled
+	 */
+	private void checkInterrupted() throws InterruptedIOException {
+	    if (Thread.currentThread().isInterrupted()) {
+		throw new InterruptedIOException(Tag.PRODUCT
+			+ " Copy cancelled: " + source);
+	    }
+	}
+    }
+
+}
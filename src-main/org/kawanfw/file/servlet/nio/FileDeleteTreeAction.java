@@ -0,0 +1,321 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.kawanfw.commons.api.server.CommonsConfigurator;
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.HtmlConverter;
+import org.kawanfw.commons.util.Tag;
+import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.api.server.FileConfigurator;
+import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
+import org.kawanfw.file.servlet.util.ResponseWriter;
+
+/**
+ * Deletes a file or a directory tree on the server in one request. <br>
+ * Sub directories are deleted in parallel with the {@code ForkJoinPool} of
+ * {@link FileFindAction}. A failure does not stop the deletion: the other
+ * entries are deleted and the directories that still contain an entry are
+ * kept.
+ * <p>
+ * The response is:
+ * <ul>
+ * <li>"null" if the file does not exist.</li>
+ * <li>Else {@code <fileCount> <directoryCount> <failureCount>}, followed by
+ * one {@code <exception class name> <pathname>} line for each of the first
+ * {@link #MAX_FAILURES} failures.</li>
+ * </ul>
+ * Symbolic links are deleted and are not followed. The root directory of the
+ * client, and any path outside of it, can not be deleted.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+
+public class FileDeleteTreeAction {
+    private static boolean DEBUG = FrameworkDebug
+	    .isSet(FileDeleteTreeAction.class);
+
+    /** The maximum number of failures sent back to the client side */
+    public static final int MAX_FAILURES = 20;
+
+    /**
+     * Constructor.
+     */
+    public FileDeleteTreeAction() {
+
+    }
+
+    /**
+     * Deletes the file or the directory tree passed by the client side. <br>
+     * 
+     * @param request
+     *            the http request
+     * @param commonsConfigurator
+     *            the commons configurator defined by the user
+     * @param fileConfigurator
+     *            the file configurator defined by the user
+     * @param out
+     *            the servlet output stream
+     * @param username
+     *            the client login (for security check)
+     * @param filename
+     *            the file or directory to delete
+     * @throws Exception
+     *             if the file is the client root directory or is outside of
+     *             it
+     */
+    public void deleteTree(HttpServletRequest request,
+	    CommonsConfigurator commonsConfigurator,
+	    FileConfigurator fileConfigurator, OutputStream out,
+	    String username, String filename) throws Exception {
+
+	debug("in deleteTree()");
+
+	Path userRoot = new File(HttpConfigurationUtil.addRootPath(
+		fileConfigurator, username, "/")).toPath().toAbsolutePath()
+		.normalize();
+	Path root = new File(HttpConfigurationUtil.addRootPath(
+		fileConfigurator, username, filename)).toPath()
+		.toAbsolutePath().normalize();
+
+	// addRootPath() does not resolve the ".." elements
+	if (!root.startsWith(userRoot) || root.equals(userRoot)) {
+	    throw new IllegalArgumentException(Tag.PRODUCT
+		    + " Directory tree can not be deleted: " + filename);
+	}
+
+	BasicFileAttributes attrs = null;
+	try {
+	    attrs = Files.readAttributes(root, BasicFileAttributes.class,
+		    LinkOption.NOFOLLOW_LINKS);
+	} catch (IOException e) {
+	    writeLine(out, TransferStatus.SEND_OK);
+	    writeLine(out, null);
+	    return;
+	}
+
+	Deletion deletion = new Deletion(fileConfigurator, username);
+
+	try {
+	    if (attrs.isDirectory()) {
+		FileFindAction.getPool(fileConfigurator).invoke(
+			new DeleteTask(deletion, root));
+	    } else {
+		deletion.delete(root, false);
+	    }
+	} finally {
+	    DirectoryListingCache.invalidate(fileConfigurator, root.toFile());
+	    DiskUsageCache.invalidate(fileConfigurator, root.toFile());
+	}
+
+	debug("deleteTree ended: " + deletion.fileCount.get() + " files, "
+		+ deletion.failureCount.get() + " failures");
+
+	writeLine(out, TransferStatus.SEND_OK);
+	writeLine(out, deletion.fileCount.get() + " "
+		+ deletion.directoryCount.get() + " "
+		+ deletion.failureCount.get());
+
+	for (String failure : deletion.getFailures()) {
+	    writeLine(out, failure);
+	}
+    }
+
+    /**
+     * Write a line of string on the servlet output stream. Will add the
+     * necessary CR_LF
+     * 
+     * @param out
+     *            the servlet output stream
+     * @param s
+     *            the string to write
+     * @throws IOException
+     */
+    private static void writeLine(OutputStream out, String s)
+	    throws IOException {
+	ResponseWriter.writeLine(out, s);
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+    /**
+     * The state of a deletion, shared by its tasks
+     */
+    private static class Deletion {
+
+	private final FileConfigurator fileConfigurator;
+	private final String username;
+
+	private final AtomicLong fileCount = new AtomicLong();
+	private final AtomicLong directoryCount = new AtomicLong();
+	private final AtomicLong failureCount = new AtomicLong();
+
+	/** The first failures, formatted for the client side */
+	private final List<String> failures = new ArrayList<String>();
+
+	public Deletion(FileConfigurator fileConfigurator, String username) {
+	    this.fileConfigurator = fileConfigurator;
+	    this.username = username;
+	}
+
+	/**
+	 * Deletes a file or an empty directory
+	 * 
+	 * @return true if the file has been deleted
+	 */
+	public boolean delete(Path path, boolean isDirectory) {
+	    try {
+		Files.delete(path);
+		if (isDirectory) {
+		    directoryCount.incrementAndGet();
+		} else {
+		    fileCount.incrementAndGet();
+		}
+		return true;
+	    } catch (IOException e) {
+		addFailure(path, e);
+		return false;
+	    }
+	}
+
+	/**
+	 * Counts a failure and keeps it if it is one of the first ones. The
+	 * server path is not sent to the client side.
+	 */
+	public void addFailure(Path path, IOException e) {
+	    failureCount.incrementAndGet();
+	    debug("delete failure: " + path + ": " + e);
+
+	    synchronized (failures) {
+		if (failures.size() < MAX_FAILURES) {
+		    String fileStr = ReturnFileFormatter.format(
+			    fileConfigurator, username, path.toString());
+		    failures.add(e.getClass().getSimpleName() + " "
+			    + HtmlConverter.toHtml(fileStr));
+		}
+	    }
+	}
+
+	public List<String> getFailures() {
+	    synchronized (failures) {
+		return new ArrayList<String>(failures);
+	    }
+	}
+    }
+
+    /**
+     * Deletes the entries of one directory, forking the deletion of its sub
+     * directories, then the directory itself if all its entries have been
+     * deleted
+     */
+    private static class DeleteTask extends RecursiveTask<Boolean> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Deletion deletion;
+	private final Path dir;
+
+	public DeleteTask(Deletion deletion, Path dir) {
+	    this.deletion = deletion;
+	    this.dir = dir;
+	}
+
+	@Override
+	protected Boolean compute() {
+	    List<DeleteTask> subTasks = new ArrayList<DeleteTask>();
+	    boolean empty = true;
+
+	    DirectoryStream<Path> stream = null;
+	    try {
+		stream = Files.newDirectoryStream(dir);
+		for (Path path : stream) {
+		    BasicFileAttributes attrs = null;
+		    try {
+			attrs = Files.readAttributes(path,
+				BasicFileAttributes.class,
+				LinkOption.NOFOLLOW_LINKS);
+		    } catch (IOException e) {
+			deletion.addFailure(path, e);
+			empty = false;
+			continue;
+		    }
+
+		    if (attrs.isDirectory()) {
+			subTasks.add(new DeleteTask(deletion, path));
+		    } else if (!deletion.delete(path, false)) {
+			empty = false;
+		    }
+		}
+	    } catch (IOException e) {
+		deletion.addFailure(dir, e);
+		return Boolean.FALSE;
+	    } finally {
+		if (stream != null) {
+		    try {
+			stream.close();
+		    } catch (IOException ignore) {
+			// Nothing to do
+		    }
+		}
+	    }
+
+	    invokeAll(subTasks);
+	    for (DeleteTask subTask : subTasks) {
+		if (!subTask.join()) {
+		    empty = false;
+		}
+	    }
+
+	    // A directory that keeps an entry is not a new failure
+	    if (!empty) {
+		return Boolean.FALSE;
+	    }
+	    return deletion.delete(dir, true);
+	}
+    }
+
+}
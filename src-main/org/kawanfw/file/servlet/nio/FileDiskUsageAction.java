@@ -0,0 +1,261 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Level;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.kawanfw.commons.api.server.CommonsConfigurator;
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.api.server.FileConfigurator;
+import org.kawanfw.file.servlet.nio.DiskUsageCache.DiskUsage;
+import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
+import org.kawanfw.file.servlet.util.ResponseWriter;
+
+/**
+ * Computes the disk usage of a directory tree: total length of the files,
+ * number of files and number of directories, not including the root
+ * directory. <br>
+ * Sub directories are read in parallel with the {@code ForkJoinPool} of
+ * {@link FileFindAction}. The results are cached per directory in the
+ * {@link DiskUsageCache} if enabled.
+ * <p>
+ * The response is:
+ * <ul>
+ * <li>"null" if the root does not exist or is not a directory.</li>
+ * <li>Else {@code <length> <fileCount> <directoryCount>}.</li>
+ * </ul>
+ * Symbolic links are counted as files and are not followed. Entries that can
+ * not be read are skipped.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+
+public class FileDiskUsageAction {
+    private static boolean DEBUG = FrameworkDebug
+	    .isSet(FileDiskUsageAction.class);
+
+    /**
+     * Constructor.
+     */
+    public FileDiskUsageAction() {
+
+    }
+
+    /**
+     * Computes the disk usage of the directory tree passed by the client side.
+     * <br>
+     * 
+     * @param request
+     *            the http request
+     * @param commonsConfigurator
+     *            the commons configurator defined by the user
+     * @param fileConfigurator
+     *            the file configurator defined by the user
+     * @param out
+     *            the servlet output stream
+     * @param username
+     *            the client login (for security check)
+     * @param filename
+     *            the root directory
+     * @throws Exception
+     */
+    public void diskUsage(HttpServletRequest request,
+	    CommonsConfigurator commonsConfigurator,
+	    FileConfigurator fileConfigurator, OutputStream out,
+	    String username, String filename) throws Exception {
+
+	debug("in diskUsage()");
+
+	filename = HttpConfigurationUtil.addRootPath(fileConfigurator,
+		username, filename);
+
+	File root = new File(filename);
+
+	// addRootPath() does not resolve the ".." elements
+	Path userRoot = new File(HttpConfigurationUtil.addRootPath(
+		fileConfigurator, username, "/")).toPath().toAbsolutePath()
+		.normalize();
+	boolean inUserRoot = root.toPath().toAbsolutePath().normalize()
+		.startsWith(userRoot);
+
+	if (!inUserRoot || !root.isDirectory()) {
+	    writeLine(out, TransferStatus.SEND_OK);
+	    writeLine(out, null);
+	    return;
+	}
+
+	DiskUsage diskUsage = compute(fileConfigurator, root);
+
+	writeLine(out, TransferStatus.SEND_OK);
+	writeLine(out, diskUsage.getLength() + " " + diskUsage.getFileCount()
+		+ " " + diskUsage.getDirectoryCount());
+    }
+
+    /**
+     * Computes the disk usage of a directory, using and filling the cache
+     * 
+     * @param fileConfigurator
+     *            the file configurator in use
+     * @param root
+     *            the directory
+     * @return the disk usage of the directory
+     */
+    static DiskUsage compute(FileConfigurator fileConfigurator, File root) {
+	DiskUsageCache diskUsageCache = DiskUsageCache.get(fileConfigurator);
+	return FileFindAction.getPool(fileConfigurator).invoke(
+		new DiskUsageTask(diskUsageCache, root.toPath()));
+    }
+
+    /**
+     * Write a line of string on the servlet output stream. Will add the
+     * necessary CR_LF
+     * 
+     * @param out
+     *            the servlet output stream
+     * @param s
+     *            the string to write
+     * @throws IOException
+     */
+    private static void writeLine(OutputStream out, String s)
+	    throws IOException {
+	ResponseWriter.writeLine(out, s);
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+    /**
+     * Computes the disk usage of one directory, forking the computation of
+     * its sub directories
+     */
+    private static class DiskUsageTask extends RecursiveTask<DiskUsage> {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The cache, may be null */
+	private final DiskUsageCache diskUsageCache;
+
+	private final Path dir;
+
+	public DiskUsageTask(DiskUsageCache diskUsageCache, Path dir) {
+	    this.diskUsageCache = diskUsageCache;
+	    this.dir = dir;
+	}
+
+	@Override
+	protected DiskUsage compute() {
+	    File dirFile = dir.toFile();
+	    if (diskUsageCache != null) {
+		DiskUsage cached = diskUsageCache.get(dirFile);
+		if (cached != null) {
+		    return cached;
+		}
+	    }
+
+	    // Read before the walk: modifications made during the walk
+	    // prevent caching, and the time to live starts now
+	    long computedAt = System.currentTimeMillis();
+	    long generation = diskUsageCache == null ? 0 : diskUsageCache
+		    .getGeneration();
+
+	    long length = 0;
+	    long fileCount = 0;
+	    long directoryCount = 0;
+
+	    List<DiskUsageTask> subTasks = new ArrayList<DiskUsageTask>();
+	    DirectoryStream<Path> directoryStream = null;
+
+	    try {
+		directoryStream = Files.newDirectoryStream(dir);
+		for (Path path : directoryStream) {
+		    BasicFileAttributes attrs = null;
+		    try {
+			attrs = Files.readAttributes(path,
+				BasicFileAttributes.class,
+				LinkOption.NOFOLLOW_LINKS);
+		    } catch (IOException e) {
+			debug("du can not read " + path + ": " + e);
+			continue;
+		    }
+
+		    if (attrs.isDirectory()) {
+			directoryCount++;
+			subTasks.add(new DiskUsageTask(diskUsageCache, path));
+		    } else {
+			fileCount++;
+			length += attrs.size();
+		    }
+		}
+	    } catch (IOException e) {
+		debug("du can not list " + dir + ": " + e);
+	    } finally {
+		if (directoryStream != null) {
+		    try {
+			directoryStream.close();
+		    } catch (IOException ignore) {
+			// Nothing to do
+		    }
+		}
+	    }
+
+	    for (DiskUsageTask subTask : invokeAll(subTasks)) {
+		DiskUsage subUsage = subTask.join();
+		length += subUsage.getLength();
+		fileCount += subUsage.getFileCount();
+		directoryCount += subUsage.getDirectoryCount();
+
+		// A cached sub directory usage may be older
+		computedAt = Math.min(computedAt, subUsage.getComputedAt());
+	    }
+
+	    DiskUsage diskUsage = new DiskUsage(length, fileCount,
+		    directoryCount, computedAt);
+	    if (diskUsageCache != null) {
+		diskUsageCache.put(dirFile, diskUsage, generation);
+	    }
+	    return diskUsage;
+	}
+    }
+
+}
@@ -0,0 +1,423 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.kawanfw.commons.api.server.CommonsConfigurator;
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.Tag;
+import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.api.server.FileConfigurator;
+import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
+import org.kawanfw.file.servlet.util.ResponseWriter;
+import org.kawanfw.file.util.parms.Parameter;
+import org.kawanfw.file.util.parms.ReturnCode;
+
+/**
+ * Searches a directory tree for the entries accepted by a
+ * {@link ServerFilterSpec}. <br>
+ * Directories are read in parallel by a {@code ForkJoinPool} shared by all
+ * the searches, with {@link FileConfigurator#getFindThreads()} threads. The
+ * matches are written back as soon as they are found, in no specific order.
+ * A task that waits for a slow client is a managed blocker: the pool starts
+ * a spare thread, so that the other searches, disk usage computations and
+ * tree deletions are not stalled.
+ * <p>
+ * The response is:
+ * <ul>
+ * <li>"null" if the root does not exist or is not a directory.</li>
+ * <li>Else one line per match, in the format of {@link FileWalkAction},
+ * followed by {@link ReturnCode#END_OF_LIST}.</li>
+ * </ul>
+ * The search stops when the maximum number of results is reached, or when
+ * the client disconnects. Symbolic links are not followed. Entries that can
+ * not be read are skipped.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+
+public class FileFindAction {
+    private static boolean DEBUG = FrameworkDebug.isSet(FileFindAction.class);
+
+    /** The maximum number of matches waiting to be written */
+    private static final int MAX_PENDING_MATCHES = 4096;
+
+    /**
+     * The pool shared by all searches and disk usage computations, created at
+     * first use
+     */
+    private static ForkJoinPool pool = null;
+
+    /**
+     * Constructor.
+     */
+    public FileFindAction() {
+
+    }
+
+    /**
+     * Searches the directory tree passed by the client side. <br>
+     * 
+     * @param request
+     *            the http request
+     * @param commonsConfigurator
+     *            the commons configurator defined by the user
+     * @param fileConfigurator
+     *            the file configurator defined by the user
+     * @param out
+     *            the servlet output stream
+     * @param username
+     *            the client login (for security check)
+     * @param filename
+     *            the root directory of the search
+     * @throws Exception
+     */
+    public void find(HttpServletRequest request,
+	    CommonsConfigurator commonsConfigurator,
+	    FileConfigurator fileConfigurator, OutputStream out,
+	    String username, String filename) throws Exception {
+
+	debug("in find()");
+
+	int maxResults = Integer.MAX_VALUE;
+	String maxResultsStr = request.getParameter(Parameter.MAX_RESULTS);
+	if (maxResultsStr != null && !maxResultsStr.isEmpty()) {
+	    try {
+		maxResults = Integer.parseInt(maxResultsStr.trim());
+	    } catch (NumberFormatException e) {
+		maxResults = -1;
+	    }
+	    if (maxResults < 1) {
+		throw new IllegalArgumentException("Invalid "
+			+ Parameter.MAX_RESULTS + ": " + maxResultsStr);
+	    }
+	}
+
+	// Null accepts all entries
+	ServerFilterSpec filterSpec = ServerFilterSpec.build(request);
+
+	filename = HttpConfigurationUtil.addRootPath(fileConfigurator,
+		username, filename);
+
+	File root = new File(filename);
+
+	// addRootPath() does not resolve the ".." elements
+	Path userRoot = new File(HttpConfigurationUtil.addRootPath(
+		fileConfigurator, username, "/")).toPath().toAbsolutePath()
+		.normalize();
+	boolean inUserRoot = root.toPath().toAbsolutePath().normalize()
+		.startsWith(userRoot);
+
+	if (!inUserRoot || !root.isDirectory()) {
+	    writeLine(out, TransferStatus.SEND_OK);
+	    writeLine(out, null);
+	    return;
+	}
+
+	writeLine(out, TransferStatus.SEND_OK);
+
+	Search search = new Search(fileConfigurator, username, filterSpec,
+		maxResults);
+	ForkJoinTask<Void> task = getPool(fileConfigurator).submit(
+		new FindTask(search, root.toPath()));
+
+	try {
+	    while (true) {
+		String line = search.matches.poll(100, TimeUnit.MILLISECONDS);
+
+		if (line != null) {
+		    writeLine(out, line);
+		    continue;
+		}
+
+		// Nothing pending: send what has been found
+		out.flush();
+
+		if (task.isDone() && search.matches.isEmpty()) {
+		    break;
+		}
+	    }
+	} finally {
+	    // Stops the tasks if the client has disconnected
+	    search.stopped = true;
+	}
+
+	// No END_OF_LIST: the client sees a truncated result
+	if (task.isCompletedAbnormally()) {
+	    throw new IOException("Search failed on " + root.getName(),
+		    task.getException());
+	}
+
+	debug("find ended: " + search.found.get() + " matches");
+	writeLine(out, ReturnCode.END_OF_LIST);
+    }
+
+    /**
+     * Returns the pool shared by all searches, disk usage computations and
+     * tree deletions, created at first call with the values of the passed
+     * file configurator.
+     * 
+     * @param fileConfigurator
+     *            the file configurator in use
+     * @return the pool shared by all searches
+     */
+    static synchronized ForkJoinPool getPool(
+	    FileConfigurator fileConfigurator) {
+	if (pool == null) {
+	    int threads = fileConfigurator.getFindThreads();
+	    if (threads <= 0) {
+		throw new IllegalArgumentException(Tag.PRODUCT_USER_CONFIG_FAIL
+			+ " FileConfigurator.getFindThreads() must be > 0.");
+	    }
+	    pool = new ForkJoinPool(threads);
+	}
+	return pool;
+    }
+
+    /**
+     * Stops the search threads. To be called when the servlet is taken out of
+     * service.
+     */
+    public static synchronized void shutdown() {
+	if (pool != null) {
+	    pool.shutdownNow();
+	    pool = null;
+	}
+    }
+
+    /**
+     * Write a line of string on the servlet output stream. Will add the
+     * necessary CR_LF
+     * 
+     * @param out
+     *            the servlet output stream
+     * @param s
+     *            the string to write
+     * @throws IOException
+     */
+    private static void writeLine(OutputStream out, String s)
+	    throws IOException {
+	ResponseWriter.writeLine(out, s);
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+    /**
+     * The state of a search, shared by its tasks
+     */
+    private static class Search {
+
+	private final FileConfigurator fileConfigurator;
+	private final String username;
+	private final ServerFilterSpec filterSpec;
+	private final int maxResults;
+
+	/** The matches waiting to be written */
+	private final BlockingQueue<String> matches = new LinkedBlockingQueue<String>(
+		MAX_PENDING_MATCHES);
+
+	/** The number of matches found */
+	private final AtomicInteger found = new AtomicInteger();
+
+	/** Set when the search must stop */
+	private volatile boolean stopped = false;
+
+	public Search(FileConfigurator fileConfigurator, String username,
+		ServerFilterSpec filterSpec, int maxResults) {
+	    this.fileConfigurator = fileConfigurator;
+	    this.username = username;
+	    this.filterSpec = filterSpec;
+	    this.maxResults = maxResults;
+	}
+
+	/**
+	 * Adds a match, waiting if the writer is late
+	 * 
+	 * @param path
+	 *            the matching path
+	 * @param attrs
+	 *            the attributes of the path
+	 */
+	public void addMatch(Path path, BasicFileAttributes attrs) {
+	    if (found.incrementAndGet() > maxResults) {
+		stopped = true;
+		return;
+	    }
+
+	    String line = FileWalkAction.formatEntry(fileConfigurator,
+		    username, path, attrs);
+	    try {
+		ForkJoinPool.managedBlock(new MatchOffer(this, line));
+	    } catch (InterruptedException e) {
+		stopped = true;
+		Thread.currentThread().interrupt();
+	    }
+
+	    if (found.get() >= maxResults) {
+		stopped = true;
+	    }
+	}
+    }
+
+    /**
+     * Puts a match in the queue of a search, waiting while the queue is full
+     * and the search is not stopped. Used as a managed blocker, so that the
+     * pool compensates the blocked thread.
+     */
+    private static class MatchOffer implements ForkJoinPool.ManagedBlocker {
+
+	private final Search search;
+	private final String line;
+	private boolean done = false;
+
+	public MatchOffer(Search search, String line) {
+	    this.search = search;
+	    this.line = line;
+	}
+
+	@Override
+	public boolean block() throws InterruptedException {
+	    while (!isReleasable()) {
+		done = search.matches.offer(line, 100, TimeUnit.MILLISECONDS);
+	    }
+	    return true;
+	}
+
+	@Override
+	public boolean isReleasable() {
+	    if (!done && !search.stopped) {
+		done = search.matches.offer(line);
+	    }
+	    return done || search.stopped;
+	}
+    }
+
+    /**
+     * Searches one directory and forks the search of its sub directories
+     */
+    private static class FindTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Search search;
+	private final Path dir;
+
+	public FindTask(Search search, Path dir) {
+	    this.search = search;
+	    this.dir = dir;
+	}
+
+	@Override
+	protected void compute() {
+	    if (search.stopped) {
+		return;
+	    }
+
+	    List<FindTask> subTasks = new ArrayList<FindTask>();
+	    DirectoryStream<Path> directoryStream = null;
+
+	    try {
+		directoryStream = Files.newDirectoryStream(dir);
+		for (Path path : directoryStream) {
+		    if (search.stopped) {
+			return;
+		    }
+
+		    BasicFileAttributes attrs = null;
+		    try {
+			attrs = Files.readAttributes(path,
+				BasicFileAttributes.class,
+				LinkOption.NOFOLLOW_LINKS);
+		    } catch (IOException e) {
+			debug("find can not read " + path + ": " + e);
+			continue;
+		    }
+
+		    if (accept(path, attrs)) {
+			search.addMatch(path, attrs);
+		    }
+
+		    if (attrs.isDirectory()) {
+			subTasks.add(new FindTask(search, path));
+		    }
+		}
+	    } catch (IOException e) {
+		debug("find can not list " + dir + ": " + e);
+	    } finally {
+		if (directoryStream != null) {
+		    try {
+			directoryStream.close();
+		    } catch (IOException ignore) {
+			// Nothing to do
+		    }
+		}
+	    }
+
+	    invokeAll(subTasks);
+	}
+
+	/**
+	 * Says if an entry is accepted by the filter specification
+	 */
+	private boolean accept(Path path, BasicFileAttributes attrs) {
+	    ServerFilterSpec filterSpec = search.filterSpec;
+	    if (filterSpec == null) {
+		return true;
+	    }
+
+	    return filterSpec.acceptName(path.getFileName().toString())
+		    && filterSpec.acceptAttributes(attrs.isDirectory(),
+			    attrs.isRegularFile(), attrs.size(), attrs
+				    .lastModifiedTime().toMillis());
+	}
+    }
+
+}
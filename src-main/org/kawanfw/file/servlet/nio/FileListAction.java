@@ -28,6 +28,8 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 
 import javax.servlet.http.HttpServletRequest;
@@ -36,10 +38,10 @@ import org.kawanfw.commons.api.server.CommonsConfigurator;
 import org.kawanfw.commons.server.util.ServerLogger;
 import org.kawanfw.commons.util.FrameworkDebug;
 import org.kawanfw.commons.util.HtmlConverter;
-import org.kawanfw.commons.util.StringUtil;
 import org.kawanfw.commons.util.TransferStatus;
 import org.kawanfw.file.api.server.FileConfigurator;
 import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
+import org.kawanfw.file.servlet.util.ResponseWriter;
 
 /**
  * Calls File.list() or File.list(FilenameFilter)
@@ -86,13 +88,26 @@ public class FileListAction {
 
 	FilenameFilter filenameFilter = ServerFilterUtil.buildFilenameFilter(request, fileConfigurator,
 		username);
+
+	// A declarative filter replaces the serialized one
+	ServerFilterSpec filterSpec = ServerFilterUtil.buildFilterSpec(
+		request, filenameFilter, null);
+	if (filterSpec != null) {
+	    filenameFilter = filterSpec;
+	}
+
 	filename = HttpConfigurationUtil.addRootPath(fileConfigurator,
 		username, filename);
 
 	File file = new File(filename);
 	String[] files = null;
 
-	if (filenameFilter == null) {
+	DirectoryListingCache directoryListingCache = DirectoryListingCache
+		.get(fileConfigurator);
+
+	if (directoryListingCache != null) {
+	    files = listCached(directoryListingCache, file, filenameFilter);
+	} else if (filenameFilter == null) {
 	    files = file.list();
 	} else {
 	    files = file.list(filenameFilter);
@@ -118,6 +133,50 @@ public class FileListAction {
 	}
     }
 
+    /**
+     * Same as File.list() or File.list(FilenameFilter), using the cached
+     * directory listing
+     * 
+     * @param directoryListingCache
+     *            the directory listing cache
+     * @param file
+     *            the directory to list
+     * @param filenameFilter
+     *            the FilenameFilter, may be null
+     * @return the names of the files, or null if file is not a readable
+     *         directory
+     */
+    private String[] listCached(DirectoryListingCache directoryListingCache,
+	    File file, FilenameFilter filenameFilter) {
+	DirectoryListingCache.Listing listing = null;
+	try {
+	    listing = directoryListingCache.getListing(file);
+	} catch (IOException e) {
+	    // As File.list()
+	    return null;
+	}
+
+	if (listing == null) {
+	    return null;
+	}
+
+	List<String> names = new ArrayList<String>();
+	for (String name : listing.getNames()) {
+	    if (filenameFilter == null) {
+		names.add(name);
+	    } else if (filenameFilter instanceof ServerFilterSpec) {
+		// Attributes are read from the cache
+		if (((ServerFilterSpec) filenameFilter).accept(file, name,
+			directoryListingCache)) {
+		    names.add(name);
+		}
+	    } else if (filenameFilter.accept(file, name)) {
+		names.add(name);
+	    }
+	}
+	return names.toArray(new String[names.size()]);
+    }
+
     /**
      * Write a line of string on the servlet output stream. Will add the
      * necessary CR_LF
@@ -129,7 +188,7 @@ public class FileListAction {
      * @throws IOException
      */
     private void writeLine(OutputStream out, String s) throws IOException {
-	out.write((s + StringUtil.CR_LF).getBytes());
+	ResponseWriter.writeLine(out, s);
     }
     
     private void debug(String s) {
@@ -29,6 +29,8 @@ import java.io.FileFilter;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 
 import javax.servlet.http.HttpServletRequest;
@@ -37,11 +39,11 @@ import org.kawanfw.commons.api.server.CommonsConfigurator;
 import org.kawanfw.commons.server.util.ServerLogger;
 import org.kawanfw.commons.util.FrameworkDebug;
 import org.kawanfw.commons.util.HtmlConverter;
-import org.kawanfw.commons.util.StringUtil;
 import org.kawanfw.commons.util.Tag;
 import org.kawanfw.commons.util.TransferStatus;
 import org.kawanfw.file.api.server.FileConfigurator;
 import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
+import org.kawanfw.file.servlet.util.ResponseWriter;
 
 /**
  * Calls File.listFiles() or File.listFiles(FileFilter)
@@ -96,6 +98,13 @@ public class FileListFilesAction {
 		fileConfigurator, username);
 
 	debug("After ServerFilterUtil.buidFileFilter");
+
+	// A declarative filter replaces the serialized ones
+	ServerFilterSpec filterSpec = ServerFilterUtil.buildFilterSpec(
+		request, filenameFilter, fileFilter);
+	if (filterSpec != null) {
+	    fileFilter = filterSpec;
+	}
 	
 	filename = HttpConfigurationUtil.addRootPath(fileConfigurator,
 		username, filename);
@@ -103,8 +112,14 @@ public class FileListFilesAction {
 	File file = new File(filename);
 	File[] files = null;
 
+	DirectoryListingCache directoryListingCache = DirectoryListingCache
+		.get(fileConfigurator);
+
 	try {
-	    if (fileFilter == null && filenameFilter == null) {
+	    if (directoryListingCache != null) {
+		files = listFilesCached(directoryListingCache, file,
+			filenameFilter, fileFilter);
+	    } else if (fileFilter == null && filenameFilter == null) {
 	        files = file.listFiles();
 	    } else if (fileFilter != null) {
 	        files = file.listFiles(fileFilter);
@@ -149,6 +164,61 @@ public class FileListFilesAction {
 
     }
 
+    /**
+     * Same as File.listFiles(), File.listFiles(FilenameFilter) or
+     * File.listFiles(FileFilter), using the cached directory listing
+     * 
+     * @param directoryListingCache
+     *            the directory listing cache
+     * @param file
+     *            the directory to list
+     * @param filenameFilter
+     *            the FilenameFilter, may be null
+     * @param fileFilter
+     *            the FileFilter, may be null
+     * @return the files, or null if file is not a readable directory
+     */
+    private File[] listFilesCached(
+	    DirectoryListingCache directoryListingCache, File file,
+	    FilenameFilter filenameFilter, FileFilter fileFilter) {
+	DirectoryListingCache.Listing listing = null;
+	try {
+	    listing = directoryListingCache.getListing(file);
+	} catch (IOException e) {
+	    // As File.listFiles()
+	    return null;
+	}
+
+	if (listing == null) {
+	    return null;
+	}
+
+	List<File> files = new ArrayList<File>();
+	for (String name : listing.getNames()) {
+	    if (fileFilter == null && filenameFilter != null
+		    && !filenameFilter.accept(file, name)) {
+		continue;
+	    }
+
+	    if (fileFilter instanceof ServerFilterSpec) {
+		// Attributes are read from the cache
+		if (!((ServerFilterSpec) fileFilter).accept(file, name,
+			directoryListingCache)) {
+		    continue;
+		}
+		files.add(new File(file, name));
+		continue;
+	    }
+
+	    File theFile = new File(file, name);
+	    if (fileFilter != null && !fileFilter.accept(theFile)) {
+		continue;
+	    }
+	    files.add(theFile);
+	}
+	return files.toArray(new File[files.size()]);
+    }
+
     /**
      * Write a line of string on the servlet output stream. Will add the
      * necessary CR_LF
@@ -160,7 +230,7 @@ public class FileListFilesAction {
      * @throws IOException
      */
     private void writeLine(OutputStream out, String s) throws IOException {
-	out.write((s + StringUtil.CR_LF).getBytes());
+	ResponseWriter.writeLine(out, s);
     }
 
     private void debug(String s) {
@@ -0,0 +1,477 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.nio;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.kawanfw.commons.api.server.CommonsConfigurator;
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.HtmlConverter;
+import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.api.server.FileConfigurator;
+import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
+import org.kawanfw.file.servlet.util.ResponseWriter;
+import org.kawanfw.file.util.parms.Parameter;
+import org.kawanfw.file.util.parms.ReturnCode;
+
+/**
+ * Lists one page of a directory with a {@code DirectoryStream}: entries are
+ * written as they are read, without building the whole directory content in
+ * memory.
+ * <p>
+ * The response is:
+ * <ul>
+ * <li>"null" if the directory does not exist or is not a directory.</li>
+ * <li>Else the formatted pathnames of the page, one per line, followed by the
+ * cursor to pass for the next page, or {@link ReturnCode#END_OF_LIST} if the
+ * directory has been fully read.</li>
+ * </ul>
+ * The {@code DirectoryStream} of a directory that is not fully read is kept
+ * open on the server between two pages, so that each page goes on reading
+ * where the previous one stopped. The cursor is the number of directory
+ * entries already read followed by the random token of the open stream:
+ * "read:token". <br>
+ * The open streams are closed after {@link #OPEN_LISTING_IDLE_MILLIS} without
+ * a page request, by a background thread and at each page request, and the
+ * least recently used ones are closed above {@link #MAX_OPEN_LISTINGS}. If the stream of a cursor is not found (closed,
+ * or request sent to another server), the directory is read again from the
+ * start and the entries already read are skipped: files created or deleted
+ * between two pages may then be skipped or returned twice.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+
+public class FileListPageAction {
+    private static boolean DEBUG = FrameworkDebug
+	    .isSet(FileListPageAction.class);
+
+    /** The maximum number of directory streams kept open between pages */
+    public static final int MAX_OPEN_LISTINGS = 256;
+
+    /** The time an unused directory stream is kept open: 5 minutes */
+    public static final long OPEN_LISTING_IDLE_MILLIS = 5 * 60 * 1000;
+
+    /** The open directory streams per token, least recently used first */
+    private static Map<String, OpenListing> openListings = new LinkedHashMap<String, OpenListing>();
+
+    /** The generator of the tokens */
+    private static SecureRandom secureRandom = new SecureRandom();
+
+    /**
+     * The background thread that closes the idle streams, created at first
+     * use
+     */
+    private static ScheduledExecutorService sweeper = null;
+
+    /**
+     * Constructor.
+     */
+    public FileListPageAction() {
+
+    }
+
+    /**
+     * Lists the page of files of the directory starting at the cursor passed
+     * by the client side. <br>
+     * 
+     * @param request
+     *            the http request
+     * @param commonsConfigurator
+     *            the commons configurator defined by the user
+     * @param fileConfigurator
+     *            the file configurator defined by the user
+     * @param out
+     *            the servlet output stream
+     * @param username
+     *            the client login (for security check)
+     * @param filename
+     *            the directory to list
+     * @throws Exception
+     */
+    public void listPage(HttpServletRequest request,
+	    CommonsConfigurator commonsConfigurator,
+	    FileConfigurator fileConfigurator, OutputStream out,
+	    String username, String filename) throws Exception {
+
+	debug("in listPage()");
+
+	// The cursor is "read" or "read:token"
+	String cursorStr = request.getParameter(Parameter.CURSOR);
+	String token = null;
+	if (cursorStr != null && cursorStr.indexOf(':') != -1) {
+	    token = cursorStr.substring(cursorStr.indexOf(':') + 1);
+	    cursorStr = cursorStr.substring(0, cursorStr.indexOf(':'));
+	}
+
+	long cursor = parsePositive(cursorStr, Parameter.CURSOR, 0);
+	long pageSize = parsePositive(
+		request.getParameter(Parameter.PAGE_SIZE), Parameter.PAGE_SIZE,
+		1);
+
+	FileFilter fileFilter = ServerFilterUtil.buidFileFilter(request,
+		fileConfigurator, username);
+	FilenameFilter filenameFilter = ServerFilterUtil.buildFilenameFilter(
+		request, fileConfigurator, username);
+
+	// A declarative filter replaces the serialized ones
+	ServerFilterSpec filterSpec = ServerFilterUtil.buildFilterSpec(
+		request, filenameFilter, fileFilter);
+	if (filterSpec != null) {
+	    fileFilter = filterSpec;
+	}
+
+	filename = HttpConfigurationUtil.addRootPath(fileConfigurator,
+		username, filename);
+
+	File file = new File(filename);
+
+	// addRootPath() does not resolve the ".." elements
+	Path userRoot = new File(HttpConfigurationUtil.addRootPath(
+		fileConfigurator, username, "/")).toPath().toAbsolutePath()
+		.normalize();
+	boolean inUserRoot = file.toPath().toAbsolutePath().normalize()
+		.startsWith(userRoot);
+
+	if (!inUserRoot || !file.isDirectory()) {
+	    writeLine(out, TransferStatus.SEND_OK);
+	    writeLine(out, null);
+	    return;
+	}
+
+	// Go on with the stream of the previous page if still open
+	OpenListing openListing = takeOpenListing(token, username, file,
+		cursor);
+	boolean keepOpen = false;
+
+	try {
+	    if (openListing == null) {
+		// A new token is given to a new stream
+		token = null;
+		openListing = new OpenListing(username, file);
+
+		// Skip the entries returned by the previous pages
+		Iterator<Path> iterator = openListing.iterator;
+		while (openListing.read < cursor && iterator.hasNext()) {
+		    iterator.next();
+		    openListing.read++;
+		}
+	    }
+
+	    Iterator<Path> iterator = openListing.iterator;
+
+	    writeLine(out, TransferStatus.SEND_OK);
+
+	    long written = 0;
+	    while (written < pageSize && iterator.hasNext()) {
+		Path path = iterator.next();
+		openListing.read++;
+
+		File theFile = path.toFile();
+		if (!accept(file, theFile, filenameFilter, fileFilter)) {
+		    continue;
+		}
+
+		String fileStr = ReturnFileFormatter.format(fileConfigurator,
+			username, theFile.toString());
+		writeLine(out, HtmlConverter.toHtml(fileStr));
+		written++;
+	    }
+
+	    if (iterator.hasNext()) {
+		if (token == null) {
+		    token = new BigInteger(130, secureRandom).toString(32);
+		}
+		putOpenListing(token, openListing);
+		keepOpen = true;
+		writeLine(out, openListing.read + ":" + token);
+	    } else {
+		writeLine(out, ReturnCode.END_OF_LIST);
+	    }
+	} finally {
+	    if (openListing != null && !keepOpen) {
+		openListing.close();
+	    }
+	}
+    }
+
+    /**
+     * Closes all the directory streams kept open between pages. To be called
+     * when the servlet is taken out of service.
+     */
+    public static void shutdown() {
+	synchronized (FileListPageAction.class) {
+	    if (sweeper != null) {
+		sweeper.shutdownNow();
+		sweeper = null;
+	    }
+	}
+
+	synchronized (openListings) {
+	    for (OpenListing openListing : openListings.values()) {
+		openListing.close();
+	    }
+	    openListings.clear();
+	}
+    }
+
+    /**
+     * Removes from the open streams and returns the stream of a cursor, if
+     * it is still open and was opened by the same user on the same
+     * directory. The stream is used by one request at a time.
+     * 
+     * @return the open stream positioned at the cursor, or null
+     */
+    private static OpenListing takeOpenListing(String token, String username,
+	    File dir, long cursor) {
+	OpenListing openListing = null;
+	synchronized (openListings) {
+	    closeIdleListings(System.currentTimeMillis());
+
+	    if (token == null) {
+		return null;
+	    }
+
+	    openListing = openListings.get(token);
+	    if (openListing == null || !openListing.isFor(username, dir)
+		    || openListing.read != cursor) {
+		return null;
+	    }
+	    openListings.remove(token);
+	}
+	return openListing;
+    }
+
+    /**
+     * Keeps a stream open for the next page. The idle streams and the least
+     * recently used ones above the maximum are closed.
+     */
+    private static void putOpenListing(String token, OpenListing openListing) {
+	long now = System.currentTimeMillis();
+	openListing.lastAccess = now;
+
+	synchronized (openListings) {
+	    openListings.put(token, openListing);
+	    closeIdleListings(now);
+	}
+
+	startSweeper();
+    }
+
+    /**
+     * Closes the idle streams and the least recently used ones above the
+     * maximum. Must be called with the openListings lock held.
+     */
+    private static void closeIdleListings(long now) {
+	Iterator<OpenListing> iterator = openListings.values().iterator();
+	while (iterator.hasNext()) {
+	    OpenListing eldest = iterator.next();
+	    if (openListings.size() <= MAX_OPEN_LISTINGS
+		    && now - eldest.lastAccess < OPEN_LISTING_IDLE_MILLIS) {
+		break;
+	    }
+	    iterator.remove();
+	    eldest.close();
+	}
+    }
+
+    /**
+     * Starts the background thread that closes the idle streams of the
+     * abandoned listings, if not already started
+     */
+    private static synchronized void startSweeper() {
+	if (sweeper != null) {
+	    return;
+	}
+
+	sweeper = Executors
+		.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+		    @Override
+		    public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable,
+				"awake-list-page-sweep");
+			thread.setDaemon(true);
+			return thread;
+		    }
+		});
+
+	long period = OPEN_LISTING_IDLE_MILLIS / 5;
+	sweeper.scheduleWithFixedDelay(new Runnable() {
+
+	    @Override
+	    public void run() {
+		synchronized (openListings) {
+		    closeIdleListings(System.currentTimeMillis());
+		}
+	    }
+	}, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A directory stream kept open between two pages
+     */
+    private static class OpenListing {
+	private final String username;
+	private final String dirPath;
+	private final DirectoryStream<Path> directoryStream;
+	private final Iterator<Path> iterator;
+
+	/** The number of entries read */
+	private long read = 0;
+
+	/** The time of the last page */
+	private long lastAccess = 0;
+
+	public OpenListing(String username, File dir) throws IOException {
+	    this.username = username;
+	    this.dirPath = dir.getAbsolutePath();
+	    this.directoryStream = Files.newDirectoryStream(dir.toPath());
+	    this.iterator = directoryStream.iterator();
+	}
+
+	public boolean isFor(String username, File dir) {
+	    return this.username.equals(username)
+		    && dirPath.equals(dir.getAbsolutePath());
+	}
+
+	public void close() {
+	    try {
+		directoryStream.close();
+	    } catch (IOException e) {
+		debug("directory stream close failed: " + e);
+	    }
+	}
+    }
+
+    /**
+     * Says if a file is accepted by the filters
+     * 
+     * @param dir
+     *            the listed directory
+     * @param file
+     *            the file to test
+     * @param filenameFilter
+     *            the FilenameFilter, may be null
+     * @param fileFilter
+     *            the FileFilter, may be null
+     * @return true if the file is accepted by the filters
+     * @throws ClassNotFoundException
+     */
+    private boolean accept(File dir, File file, FilenameFilter filenameFilter,
+	    FileFilter fileFilter) throws ClassNotFoundException {
+	try {
+	    if (fileFilter != null) {
+		return fileFilter.accept(file);
+	    } else if (filenameFilter != null) {
+		return filenameFilter.accept(dir, file.getName());
+	    } else {
+		return true;
+	    }
+	} catch (IllegalArgumentException e) {
+	    // Necessary because Reloader wich extends ClassLoader can nor throw
+	    // ClassNotFoundException
+	    if (e.getCause() != null
+		    && e.getCause() instanceof ClassNotFoundException) {
+		throw new ClassNotFoundException(e.getCause().getMessage());
+	    }
+	    throw e;
+	}
+    }
+
+    /**
+     * Parses a numeric request parameter
+     * 
+     * @param value
+     *            the parameter value, may be null
+     * @param name
+     *            the parameter name, for the error message
+     * @param min
+     *            the minimum allowed value, also used if value is null
+     * @return the parsed value
+     * @throws IllegalArgumentException
+     *             if the value is not a number or is lower than min
+     */
+    private static long parsePositive(String value, String name, long min) {
+	if (value == null || value.isEmpty()) {
+	    return min;
+	}
+
+	long result;
+	try {
+	    result = Long.parseLong(value.trim());
+	} catch (NumberFormatException e) {
+	    throw new IllegalArgumentException("Invalid " + name + ": "
+		    + value);
+	}
+
+	if (result < min) {
+	    throw new IllegalArgumentException("Invalid " + name + ": "
+		    + value);
+	}
+	return result;
+    }
+
+    /**
+     * Write a line of string on the servlet output stream. Will add the
+     * necessary CR_LF
+     * 
+     * @param out
+     *            the servlet output stream
+     * @param s
+     *            the string to write
+     * @throws IOException
+     */
+    private void writeLine(OutputStream out, String s) throws IOException {
+	ResponseWriter.writeLine(out, s);
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+}
@@ -46,6 +46,7 @@ import org.kawanfw.file.api.server.FileConfigurator;
 import org.kawanfw.file.reflection.Invoker;
 import org.kawanfw.file.servlet.convert.HttpServletRequestConvertor;
 import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
+import org.kawanfw.file.servlet.util.ResponseWriter;
 import org.kawanfw.file.util.parms.Parameter;
 
 /**
@@ -173,10 +174,23 @@ public class FileMethodOneReturnAction {
 	File file = new File(filename);
 	Object resultObj = null;
 
+	// Attributes of the entries of cached directory listings
+	DirectoryListingCache directoryListingCache = DirectoryListingCache
+		.get(fileConfigurator);
+	if (directoryListingCache != null && listParamsTypes.size() == 0) {
+	    DirectoryListingCache.Entry entry = directoryListingCache
+		    .getCachedEntry(file);
+	    if (entry != null) {
+		resultObj = entry.getValue(methodName);
+	    }
+	}
+
 	// Special case for equal(Object ob) that can not be called with reflection 
 	// because requires as parameter an object instead of a file
 	try {
-	    if (methodName.equals("equals")) {
+	    if (resultObj != null) {
+		debug("result from directory listing cache: " + resultObj);
+	    } else if (methodName.equals("equals")) {
 	        resultObj = file.equals(values[0]);
 	    }
 	    else if (listParamsTypes.size() == 0) {
@@ -198,6 +212,17 @@ public class FileMethodOneReturnAction {
 	    else {
 		throw new IOException(e.getMessage());
 	    }
+	} finally {
+	    if (DirectoryListingCache.isMutating(methodName)) {
+		invalidate(fileConfigurator, directoryListingCache, file);
+		for (Object value : values) {
+		    if (value instanceof File) {
+			// renameTo() destination
+			invalidate(fileConfigurator, directoryListingCache,
+				(File) value);
+		    }
+		}
+	    }
 	}
 
 	String result = null;
@@ -261,7 +286,26 @@ public class FileMethodOneReturnAction {
      * @throws IOException
      */
     private void writeLine(OutputStream out, String s) throws IOException {
-	out.write((s + StringUtil.CR_LF).getBytes());
+	ResponseWriter.writeLine(out, s);
+    }
+
+    /**
+     * Drops the cached listings and disk usages impacted by the modification
+     * of a file
+     * 
+     * @param fileConfigurator
+     *            the file configurator in use
+     * @param directoryListingCache
+     *            the directory listing cache, may be null
+     * @param file
+     *            the modified file
+     */
+    private void invalidate(FileConfigurator fileConfigurator,
+	    DirectoryListingCache directoryListingCache, File file) {
+	if (directoryListingCache != null) {
+	    directoryListingCache.invalidate(file);
+	}
+	DiskUsageCache.invalidate(fileConfigurator, file);
     }
 
     /**
@@ -0,0 +1,238 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.logging.Level;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.kawanfw.commons.api.server.CommonsConfigurator;
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.HtmlConverter;
+import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.api.server.FileConfigurator;
+import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
+import org.kawanfw.file.servlet.util.ResponseWriter;
+import org.kawanfw.file.util.parms.Parameter;
+import org.kawanfw.file.util.parms.ReturnCode;
+
+/**
+ * Walks a directory tree with {@code Files.walkFileTree()} and streams back
+ * all the entries with their attributes in one response.
+ * <p>
+ * The response is:
+ * <ul>
+ * <li>"null" if the root does not exist or is not a directory.</li>
+ * <li>Else one line per entry, in the format
+ * {@code <type> <length> <lastModified> <pathname>}, where type is
+ * {@link #TYPE_DIRECTORY}, {@link #TYPE_FILE} or {@link #TYPE_OTHER},
+ * followed by {@link ReturnCode#END_OF_LIST}.</li>
+ * </ul>
+ * Symbolic links are not followed. Entries that can not be read are skipped.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+
+public class FileWalkAction {
+    private static boolean DEBUG = FrameworkDebug.isSet(FileWalkAction.class);
+
+    /** The entry types */
+    public static final char TYPE_DIRECTORY = 'd';
+    public static final char TYPE_FILE = 'f';
+    public static final char TYPE_OTHER = 'o';
+
+    /**
+     * Constructor.
+     */
+    public FileWalkAction() {
+
+    }
+
+    /**
+     * Walks the directory tree passed by the client side. <br>
+     * 
+     * @param request
+     *            the http request
+     * @param commonsConfigurator
+     *            the commons configurator defined by the user
+     * @param fileConfigurator
+     *            the file configurator defined by the user
+     * @param out
+     *            the servlet output stream
+     * @param username
+     *            the client login (for security check)
+     * @param filename
+     *            the root directory of the walk
+     * @throws Exception
+     */
+    public void walk(HttpServletRequest request,
+	    CommonsConfigurator commonsConfigurator,
+	    final FileConfigurator fileConfigurator, final OutputStream out,
+	    final String username, String filename) throws Exception {
+
+	debug("in walk()");
+
+	int maxDepth = Integer.MAX_VALUE;
+	String maxDepthStr = request.getParameter(Parameter.MAX_DEPTH);
+	if (maxDepthStr != null && !maxDepthStr.isEmpty()) {
+	    try {
+		maxDepth = Integer.parseInt(maxDepthStr.trim());
+	    } catch (NumberFormatException e) {
+		maxDepth = -1;
+	    }
+	    if (maxDepth < 1) {
+		throw new IllegalArgumentException("Invalid "
+			+ Parameter.MAX_DEPTH + ": " + maxDepthStr);
+	    }
+	}
+
+	filename = HttpConfigurationUtil.addRootPath(fileConfigurator,
+		username, filename);
+
+	final File root = new File(filename);
+
+	// addRootPath() does not resolve the ".." elements
+	Path userRoot = new File(HttpConfigurationUtil.addRootPath(
+		fileConfigurator, username, "/")).toPath().toAbsolutePath()
+		.normalize();
+	boolean inUserRoot = root.toPath().toAbsolutePath().normalize()
+		.startsWith(userRoot);
+
+	if (!inUserRoot || !root.isDirectory()) {
+	    writeLine(out, TransferStatus.SEND_OK);
+	    writeLine(out, null);
+	    return;
+	}
+
+	writeLine(out, TransferStatus.SEND_OK);
+
+	Files.walkFileTree(root.toPath(), EnumSet.noneOf(FileVisitOption.class),
+		maxDepth, new SimpleFileVisitor<Path>() {
+
+		    @Override
+		    public FileVisitResult preVisitDirectory(Path dir,
+			    BasicFileAttributes attrs) throws IOException {
+			if (!dir.toFile().equals(root)) {
+			    writeEntry(dir, attrs);
+			}
+			return FileVisitResult.CONTINUE;
+		    }
+
+		    @Override
+		    public FileVisitResult visitFile(Path file,
+			    BasicFileAttributes attrs) throws IOException {
+			// Directories at max depth are also visited here
+			writeEntry(file, attrs);
+			return FileVisitResult.CONTINUE;
+		    }
+
+		    @Override
+		    public FileVisitResult visitFileFailed(Path file,
+			    IOException exc) throws IOException {
+			debug("walk can not read " + file + ": " + exc);
+			return FileVisitResult.CONTINUE;
+		    }
+
+		    @Override
+		    public FileVisitResult postVisitDirectory(Path dir,
+			    IOException exc) throws IOException {
+			if (exc != null) {
+			    debug("walk can not list " + dir + ": " + exc);
+			}
+			return FileVisitResult.CONTINUE;
+		    }
+
+		    private void writeEntry(Path path, BasicFileAttributes attrs)
+			    throws IOException {
+			writeLine(out, formatEntry(fileConfigurator, username,
+				path, attrs));
+		    }
+		});
+
+	writeLine(out, ReturnCode.END_OF_LIST);
+    }
+
+    /**
+     * Formats an entry line: {@code <type> <length> <lastModified> <pathname>}
+     * 
+     * @param fileConfigurator
+     *            the file configurator defined by the user
+     * @param username
+     *            the client login
+     * @param path
+     *            the entry path
+     * @param attrs
+     *            the entry attributes
+     * @return the formatted line, with the Html encoded pathname
+     */
+    static String formatEntry(FileConfigurator fileConfigurator,
+	    String username, Path path, BasicFileAttributes attrs) {
+	char type = attrs.isDirectory() ? TYPE_DIRECTORY : attrs
+		.isRegularFile() ? TYPE_FILE : TYPE_OTHER;
+
+	String fileStr = ReturnFileFormatter.format(fileConfigurator,
+		username, path.toString());
+
+	StringBuilder line = new StringBuilder();
+	line.append(type).append(' ').append(attrs.size()).append(' ')
+		.append(attrs.lastModifiedTime().toMillis()).append(' ')
+		.append(HtmlConverter.toHtml(fileStr));
+	return line.toString();
+    }
+
+    /**
+     * Write a line of string on the servlet output stream. Will add the
+     * necessary CR_LF
+     * 
+     * @param out
+     *            the servlet output stream
+     * @param s
+     *            the string to write
+     * @throws IOException
+     */
+    private static void writeLine(OutputStream out, String s)
+	    throws IOException {
+	ResponseWriter.writeLine(out, s);
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+}
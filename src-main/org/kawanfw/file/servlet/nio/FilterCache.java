@@ -0,0 +1,264 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.nio;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.file.reflection.ClassSerializer;
+
+/**
+ * Keeps in memory the serialized {@code FileFilter} and
+ * {@code FilenameFilter} sent by the clients, keyed by their content hash
+ * (see {@link ClassSerializer#hash(String)}). <br>
+ * A client that already sent a filter passes only its hash, which saves the
+ * upload of the big filters.
+ * <p>
+ * The deserialized instance is reused only for immutable filters: all
+ * instance fields final and of primitive, wrapper, {@code String},
+ * {@code Pattern} or enum type. Other filters may keep a state during a
+ * listing, so a new instance is deserialized for each request.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class FilterCache {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(FilterCache.class);
+
+    /** The maximum number of cached filters */
+    public static final int MAX_ENTRIES = 256;
+
+    /** The maximum total length of the cached Base64 filters */
+    public static final long MAX_CHARS = 8 * 1024 * 1024;
+
+    /** The cached filters per hash, in access order */
+    private static LinkedHashMap<String, CachedFilter> filters = new LinkedHashMap<String, CachedFilter>(
+	    16, 0.75f, true);
+
+    /** The total length of the cached Base64 filters */
+    private static long totalChars = 0;
+
+    /**
+     * Protected constructor
+     */
+    protected FilterCache() {
+
+    }
+
+    /**
+     * Deserializes a filter sent by the client and caches it.
+     * 
+     * @param serializedBase64
+     *            the Base64 serialized filter
+     * @param className
+     *            the filter class name sent by the client
+     * @return the filter instance
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public static <E> E put(String serializedBase64, String className)
+	    throws IOException, ClassNotFoundException {
+
+	// The hash is computed here: never trust the client one for a content
+	String hash = ClassSerializer.hash(serializedBase64);
+
+	synchronized (FilterCache.class) {
+	    CachedFilter cachedFilter = filters.get(hash);
+	    if (cachedFilter != null) {
+		E filter = cachedFilter.getInstance(className);
+		if (filter != null) {
+		    return filter;
+		}
+	    }
+	}
+
+	ClassSerializer<E> classSerializer = new ClassSerializer<E>();
+	E filter = classSerializer.fromBase64(serializedBase64);
+
+	if (serializedBase64.length() <= MAX_CHARS / 4) {
+	    CachedFilter cachedFilter = new CachedFilter(serializedBase64,
+		    filter.getClass().getName(),
+		    isImmutable(filter.getClass()) ? filter : null);
+
+	    synchronized (FilterCache.class) {
+		CachedFilter previous = filters.put(hash, cachedFilter);
+		if (previous != null) {
+		    totalChars -= previous.serializedBase64.length();
+		}
+		totalChars += serializedBase64.length();
+		evict();
+	    }
+	}
+
+	debug("filter cached: " + className + " " + hash);
+	return filter;
+    }
+
+    /**
+     * Returns the cached filter with the hash sent by the client
+     * 
+     * @param hash
+     *            the filter hash sent by the client
+     * @param className
+     *            the filter class name sent by the client
+     * @return the filter instance, or null if not cached
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public static <E> E get(String hash, String className)
+	    throws IOException, ClassNotFoundException {
+	if (hash == null || hash.isEmpty()) {
+	    return null;
+	}
+
+	CachedFilter cachedFilter = null;
+	synchronized (FilterCache.class) {
+	    cachedFilter = filters.get(hash);
+	}
+
+	if (cachedFilter == null || !cachedFilter.className.equals(className)) {
+	    debug("filter not cached: " + className + " " + hash);
+	    return null;
+	}
+
+	E filter = cachedFilter.getInstance(className);
+	if (filter != null) {
+	    return filter;
+	}
+
+	ClassSerializer<E> classSerializer = new ClassSerializer<E>();
+	return classSerializer.fromBase64(cachedFilter.serializedBase64);
+    }
+
+    /**
+     * Forgets all cached filters
+     */
+    public static synchronized void clear() {
+	filters.clear();
+	totalChars = 0;
+    }
+
+    /**
+     * Returns the number of cached filters
+     * 
+     * @return the number of cached filters
+     */
+    public static synchronized int size() {
+	return filters.size();
+    }
+
+    /**
+     * Says if the instances of a filter class may be shared by concurrent
+     * requests
+     * 
+     * @param clazz
+     *            the filter class
+     * @return true if all instance fields are final and of immutable types
+     */
+    static boolean isImmutable(Class<?> clazz) {
+	for (Class<?> c = clazz; c != null && c != Object.class; c = c
+		.getSuperclass()) {
+	    for (Field field : c.getDeclaredFields()) {
+		int modifiers = field.getModifiers();
+		if (Modifier.isStatic(modifiers)) {
+		    continue;
+		}
+
+		if (!Modifier.isFinal(modifiers)
+			|| !isImmutableType(field.getType())) {
+		    return false;
+		}
+	    }
+	}
+	return true;
+    }
+
+    private static boolean isImmutableType(Class<?> type) {
+	return type.isPrimitive() || type.isEnum() || type == String.class
+		|| type == Pattern.class || type == Boolean.class
+		|| type == Character.class || type == Byte.class
+		|| type == Short.class || type == Integer.class
+		|| type == Long.class || type == Float.class
+		|| type == Double.class;
+    }
+
+    /**
+     * Drops the least recently used filters above the limits
+     */
+    private static void evict() {
+	Iterator<CachedFilter> iterator = filters.values().iterator();
+	while ((filters.size() > MAX_ENTRIES || totalChars > MAX_CHARS)
+		&& iterator.hasNext()) {
+	    CachedFilter eldest = iterator.next();
+	    iterator.remove();
+	    totalChars -= eldest.serializedBase64.length();
+	}
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+    /**
+     * A cached filter
+     */
+    private static class CachedFilter {
+
+	/** The Base64 serialized filter */
+	private final String serializedBase64;
+
+	/** The filter class name */
+	private final String className;
+
+	/** The shared instance, null if the filter is not immutable */
+	private final Object instance;
+
+	public CachedFilter(String serializedBase64, String className,
+		Object instance) {
+	    this.serializedBase64 = serializedBase64;
+	    this.className = className;
+	    this.instance = instance;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <E> E getInstance(String expectedClassName) {
+	    if (instance == null || !className.equals(expectedClassName)) {
+		return null;
+	    }
+	    return (E) instance;
+	}
+    }
+
+}
@@ -0,0 +1,311 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.nio;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.kawanfw.file.util.parms.Parameter;
+
+/**
+ * A declarative listing filter sent by the client, compiled once per request
+ * into {@code PathMatcher} instances and attribute bounds. <br>
+ * File attributes are read only if the specification has attribute criteria,
+ * and the name criteria are tested first.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class ServerFilterSpec implements FileFilter, FilenameFilter {
+
+    /** The glob matcher on the name, may be null */
+    private final PathMatcher globMatcher;
+
+    /** The regex matcher on the name, may be null */
+    private final PathMatcher regexMatcher;
+
+    private final long minLength;
+    private final long maxLength;
+    private final long minLastModified;
+    private final long maxLastModified;
+
+    /** The accepted type, 0 for any */
+    private final char type;
+
+    /**
+     * Constructor
+     * 
+     * @param glob
+     *            the glob pattern on the name, may be null
+     * @param regex
+     *            the regular expression on the name, may be null
+     * @param minLength
+     *            the minimum length
+     * @param maxLength
+     *            the maximum length
+     * @param minLastModified
+     *            the minimum last modified time
+     * @param maxLastModified
+     *            the maximum last modified time
+     * @param type
+     *            {@link FileWalkAction#TYPE_FILE},
+     *            {@link FileWalkAction#TYPE_DIRECTORY} or 0 for any
+     * @throws IllegalArgumentException
+     *             if a pattern is invalid
+     */
+    ServerFilterSpec(String glob, String regex, long minLength,
+	    long maxLength, long minLastModified, long maxLastModified,
+	    char type) {
+	this.globMatcher = glob == null ? null : FileSystems.getDefault()
+		.getPathMatcher("glob:" + glob);
+	this.regexMatcher = regex == null ? null : FileSystems.getDefault()
+		.getPathMatcher("regex:" + regex);
+	this.minLength = minLength;
+	this.maxLength = maxLength;
+	this.minLastModified = minLastModified;
+	this.maxLastModified = maxLastModified;
+	this.type = type;
+    }
+
+    /**
+     * Builds the filter specification sent by the client
+     * 
+     * @param request
+     *            the http request
+     * @return the filter specification, or null if none has been sent
+     * @throws IllegalArgumentException
+     *             if a parameter is invalid
+     */
+    public static ServerFilterSpec build(HttpServletRequest request) {
+	String glob = getParameter(request, Parameter.FILTER_GLOB);
+	String regex = getParameter(request, Parameter.FILTER_REGEX);
+	String minLength = getParameter(request, Parameter.FILTER_MIN_LENGTH);
+	String maxLength = getParameter(request, Parameter.FILTER_MAX_LENGTH);
+	String minLastModified = getParameter(request,
+		Parameter.FILTER_MIN_LAST_MODIFIED);
+	String maxLastModified = getParameter(request,
+		Parameter.FILTER_MAX_LAST_MODIFIED);
+	String type = getParameter(request, Parameter.FILTER_TYPE);
+
+	if (glob == null && regex == null && minLength == null
+		&& maxLength == null && minLastModified == null
+		&& maxLastModified == null && type == null) {
+	    return null;
+	}
+
+	char typeChar = 0;
+	if (type != null) {
+	    if (type.length() != 1
+		    || (type.charAt(0) != FileWalkAction.TYPE_FILE && type
+			    .charAt(0) != FileWalkAction.TYPE_DIRECTORY)) {
+		throw new IllegalArgumentException("Invalid "
+			+ Parameter.FILTER_TYPE + ": " + type);
+	    }
+	    typeChar = type.charAt(0);
+	}
+
+	return new ServerFilterSpec(glob, regex, parseLong(minLength,
+		Parameter.FILTER_MIN_LENGTH, Long.MIN_VALUE), parseLong(
+		maxLength, Parameter.FILTER_MAX_LENGTH, Long.MAX_VALUE),
+		parseLong(minLastModified, Parameter.FILTER_MIN_LAST_MODIFIED,
+			Long.MIN_VALUE), parseLong(maxLastModified,
+			Parameter.FILTER_MAX_LAST_MODIFIED, Long.MAX_VALUE),
+		typeChar);
+    }
+
+    /**
+     * Says if the specification has criteria on the file attributes
+     * 
+     * @return true if the file attributes must be read
+     */
+    public boolean needsAttributes() {
+	return type != 0 || minLength != Long.MIN_VALUE
+		|| maxLength != Long.MAX_VALUE
+		|| minLastModified != Long.MIN_VALUE
+		|| maxLastModified != Long.MAX_VALUE;
+    }
+
+    /**
+     * Says if a name is accepted by the name criteria
+     * 
+     * @param name
+     *            the file name
+     * @return true if the name matches the glob and the regular expression
+     */
+    public boolean acceptName(String name) {
+	if (globMatcher == null && regexMatcher == null) {
+	    return true;
+	}
+
+	Path namePath = Paths.get(name);
+	return (globMatcher == null || globMatcher.matches(namePath))
+		&& (regexMatcher == null || regexMatcher.matches(namePath));
+    }
+
+    /**
+     * Says if attributes are accepted by the attribute criteria
+     * 
+     * @param directory
+     *            true if the file is a directory
+     * @param file
+     *            true if the file is a regular file
+     * @param length
+     *            the file length
+     * @param lastModified
+     *            the file last modified time
+     * @return true if the attributes are accepted
+     */
+    public boolean acceptAttributes(boolean directory, boolean file,
+	    long length, long lastModified) {
+	if (type == FileWalkAction.TYPE_FILE && !file) {
+	    return false;
+	}
+	if (type == FileWalkAction.TYPE_DIRECTORY && !directory) {
+	    return false;
+	}
+
+	return length >= minLength && length <= maxLength
+		&& lastModified >= minLastModified
+		&& lastModified <= maxLastModified;
+    }
+
+    /**
+     * Says if a file is accepted, reading its attributes only if necessary
+     * 
+     * @param path
+     *            the file path
+     * @return true if the file is accepted
+     */
+    public boolean accept(Path path) {
+	Path name = path.getFileName();
+	if (name == null || !acceptName(name.toString())) {
+	    return false;
+	}
+
+	if (!needsAttributes()) {
+	    return true;
+	}
+
+	BasicFileAttributes attrs = null;
+	try {
+	    attrs = Files.readAttributes(path, BasicFileAttributes.class);
+	} catch (IOException e) {
+	    // Deleted during the listing or not readable
+	    return false;
+	}
+
+	return acceptAttributes(attrs.isDirectory(), attrs.isRegularFile(),
+		attrs.size(), attrs.lastModifiedTime().toMillis());
+    }
+
+    /**
+     * Says if a directory entry is accepted, using the attributes of the
+     * directory listing cache if available
+     * 
+     * @param dir
+     *            the listed directory
+     * @param name
+     *            the entry name
+     * @param directoryListingCache
+     *            the directory listing cache, may be null
+     * @return true if the entry is accepted
+     */
+    public boolean accept(File dir, String name,
+	    DirectoryListingCache directoryListingCache) {
+	if (!acceptName(name)) {
+	    return false;
+	}
+
+	if (!needsAttributes()) {
+	    return true;
+	}
+
+	File file = new File(dir, name);
+	DirectoryListingCache.Entry entry = directoryListingCache == null ? null
+		: directoryListingCache.getCachedEntry(file);
+
+	if (entry == null) {
+	    return accept(file.toPath());
+	} else if (entry == DirectoryListingCache.Entry.NOT_EXISTS) {
+	    return false;
+	}
+
+	return acceptAttributes((Boolean) entry.getValue("isDirectory"),
+		(Boolean) entry.getValue("isFile"),
+		(Long) entry.getValue("length"),
+		(Long) entry.getValue("lastModified"));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.io.FileFilter#accept(java.io.File)
+     */
+    @Override
+    public boolean accept(File pathname) {
+	return accept(pathname.toPath());
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.io.FilenameFilter#accept(java.io.File, java.lang.String)
+     */
+    @Override
+    public boolean accept(File dir, String name) {
+	return accept(dir, name, null);
+    }
+
+    private static String getParameter(HttpServletRequest request,
+	    String name) {
+	String value = request.getParameter(name);
+	return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static long parseLong(String value, String name,
+	    long defaultValue) {
+	if (value == null) {
+	    return defaultValue;
+	}
+
+	try {
+	    return Long.parseLong(value.trim());
+	} catch (NumberFormatException e) {
+	    throw new IllegalArgumentException("Invalid " + name + ": "
+		    + value);
+	}
+    }
+
+}
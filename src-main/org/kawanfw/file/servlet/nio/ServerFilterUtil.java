@@ -36,9 +36,9 @@ import org.apache.commons.io.FileUtils;
 import org.kawanfw.commons.server.util.ServerLogger;
 import org.kawanfw.commons.util.FrameworkDebug;
 import org.kawanfw.file.api.server.FileConfigurator;
-import org.kawanfw.file.reflection.ClassSerializer;
 import org.kawanfw.file.servlet.util.HttpConfigurationUtil;
 import org.kawanfw.file.util.parms.Parameter;
+import org.kawanfw.file.util.parms.ReturnCode;
 
 /**
  * Server methods to rebuild FilenameFilter & FileFilter from transported class
@@ -85,6 +85,9 @@ public class ServerFilterUtil {
 	
 	String filenameFilterFilename = request
 		.getParameter(Parameter.FILENAME_FILTER_FILENAME);
+	
+	String filenameFilterHash = request
+		.getParameter(Parameter.FILENAME_FILTER_HASH);
 		
 	if (base64SerialFilenameFilter == null || base64SerialFilenameFilter.isEmpty()) {
 	    
@@ -110,8 +113,14 @@ public class ServerFilterUtil {
 	    return filenameFilter;
 	}
 	
-	ClassSerializer<FilenameFilter> classSerializer = new ClassSerializer<FilenameFilter>();
-	filenameFilter = classSerializer.fromBase64(base64SerialFilenameFilter);
+	if (base64SerialFilenameFilter == null
+		|| base64SerialFilenameFilter.isEmpty()) {
+	    // Only the hash of a filter already sent
+	    return getCachedFilter(filenameFilterHash, filenameFilterClassname);
+	}
+	
+	filenameFilter = FilterCache.put(base64SerialFilenameFilter,
+		filenameFilterClassname);
 		    
 	return filenameFilter;
     }
@@ -139,10 +148,13 @@ public class ServerFilterUtil {
 	
 	String fileFilterFilename = request
 		.getParameter(Parameter.FILE_FILTER_FILENAME);
+	
+	String fileFilterHash = request
+		.getParameter(Parameter.FILE_FILTER_HASH);
 		
 	if (base64SerialFileFilter == null || base64SerialFileFilter.isEmpty()) {
 
-	    if (fileFilterClassname != null && !fileFilterClassname.isEmpty()) {
+	    if (fileFilterFilename != null && !fileFilterFilename.isEmpty()) {
 		fileFilterFilename = HttpConfigurationUtil.addRootPath(
 			fileConfigurator, username, fileFilterFilename);
 
@@ -164,12 +176,68 @@ public class ServerFilterUtil {
 	    return fileFilter;
 	}
 	
-	ClassSerializer<FileFilter> classSerializer = new ClassSerializer<FileFilter>();
-	fileFilter = classSerializer.fromBase64(base64SerialFileFilter);
+	if (base64SerialFileFilter == null || base64SerialFileFilter.isEmpty()) {
+	    // Only the hash of a filter already sent
+	    return getCachedFilter(fileFilterHash, fileFilterClassname);
+	}
+	
+	fileFilter = FilterCache.put(base64SerialFileFilter,
+		fileFilterClassname);
 
 	return fileFilter;
     }
 
+    /**
+     * Builds the declarative filter specification sent by the client
+     * 
+     * @param request
+     *            the http request
+     * @param filenameFilter
+     *            the FilenameFilter sent by the client, may be null
+     * @param fileFilter
+     *            the FileFilter sent by the client, may be null
+     * @return the filter specification, or null if none has been sent
+     * @throws IllegalArgumentException
+     *             if a parameter is invalid, or if the specification is sent
+     *             with a FilenameFilter or a FileFilter
+     */
+    public static ServerFilterSpec buildFilterSpec(HttpServletRequest request,
+	    FilenameFilter filenameFilter, FileFilter fileFilter) {
+	ServerFilterSpec filterSpec = ServerFilterSpec.build(request);
+
+	if (filterSpec != null && (filenameFilter != null || fileFilter != null)) {
+	    throw new IllegalArgumentException(
+		    "A filter specification can not be used with a FilenameFilter or a FileFilter.");
+	}
+
+	debug("filterSpec: " + filterSpec);
+	return filterSpec;
+    }
+
+    /**
+     * Returns the cached filter of a hash sent without the filter content
+     * 
+     * @param hash
+     *            the filter hash sent by the client
+     * @param className
+     *            the filter class name sent by the client
+     * @return the cached filter
+     * @throws IOException
+     *             with {@link ReturnCode#FILTER_NOT_CACHED} message if the
+     *             filter is not in cache anymore: the client must send it
+     *             again
+     * @throws ClassNotFoundException
+     */
+    private static <E> E getCachedFilter(String hash, String className)
+	    throws IOException, ClassNotFoundException {
+	E filter = FilterCache.get(hash, className);
+	if (filter == null) {
+	    throw new IOException(ReturnCode.FILTER_NOT_CACHED + " "
+		    + className + " " + hash);
+	}
+	return filter;
+    }
+
     // /**
     // * Rebuid the FileFilter or FilenameFilter class from uploaded from .class
     // * or .jar files
@@ -0,0 +1,249 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.nio;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.logging.Level;
+
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.Tag;
+
+/**
+ * Writes a tar archive in the GNU format, as read by the {@code tar} command
+ * of all systems. <br>
+ * Names longer than 100 bytes are written with a GNU long name entry, and
+ * lengths of 8 Gb and more with the GNU binary encoding.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+class TarOutputStream extends FilterOutputStream {
+
+    /** The length of a tar block */
+    private static final int BLOCK_LENGTH = 512;
+
+    /** The maximum length of a name in a header */
+    private static final int NAME_LENGTH = 100;
+
+    /** The largest length that fits in the 11 octal digits of a header */
+    private static final long MAX_OCTAL_LENGTH = 077777777777L;
+
+    private static final byte TYPE_FILE = '0';
+    private static final byte TYPE_DIRECTORY = '5';
+    private static final byte TYPE_LONG_NAME = 'L';
+
+    /** The name of the GNU long name entries */
+    private static final String LONG_NAME = "././@LongLink";
+
+    /** The buffer of the file contents */
+    private final byte[] buffer = new byte[64 * 1024];
+
+    /**
+     * Constructor
+     * 
+     * @param out
+     *            the stream to write the archive to
+     */
+    public TarOutputStream(OutputStream out) {
+	super(out);
+    }
+
+    /**
+     * Writes a directory entry
+     * 
+     * @param name
+     *            the entry name, with "/" separators
+     * @param lastModified
+     *            the last modified time in milliseconds
+     */
+    public void putDirectory(String name, long lastModified)
+	    throws IOException {
+	if (!name.endsWith("/")) {
+	    name += "/";
+	}
+	writeHeader(name, TYPE_DIRECTORY, 0, lastModified, 0755);
+    }
+
+    /**
+     * Writes a file entry followed by the file content
+     * 
+     * @param name
+     *            the entry name, with "/" separators
+     * @param length
+     *            the file length, as read before the content
+     * @param lastModified
+     *            the last modified time in milliseconds
+     * @param executable
+     *            if true, the file is executable
+     * @param in
+     *            the file content. At most {@code length} bytes are read: if
+     *            the file has been truncated while read, the entry is padded
+     *            with zero bytes up to {@code length}, as GNU tar does.
+     */
+    public void putFile(String name, long length, long lastModified,
+	    boolean executable, InputStream in) throws IOException {
+	writeHeader(name, TYPE_FILE, length, lastModified, executable ? 0755
+		: 0644);
+
+	long remaining = length;
+	while (remaining > 0) {
+	    int n = in.read(buffer, 0,
+		    (int) Math.min(buffer.length, remaining));
+	    if (n == -1) {
+		ServerLogger.getLogger().log(
+			Level.WARNING,
+			Tag.PRODUCT + " File truncated while archived, padded "
+				+ "with zeros: " + name);
+		writeZeros(remaining);
+		break;
+	    }
+	    out.write(buffer, 0, n);
+	    remaining -= n;
+	}
+
+	pad(length);
+    }
+
+    /**
+     * Writes the two empty blocks that end the archive. Does not close the
+     * underlying stream.
+     */
+    public void finish() throws IOException {
+	out.write(new byte[2 * BLOCK_LENGTH]);
+	out.flush();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+	out.write(b, off, len);
+    }
+
+    /**
+     * Writes an entry header, preceded by a long name entry if necessary
+     */
+    private void writeHeader(String name, byte type, long length,
+	    long lastModified, int mode) throws IOException {
+	byte[] nameBytes = name.getBytes("UTF-8");
+
+	if (nameBytes.length > NAME_LENGTH) {
+	    writeHeader(LONG_NAME.getBytes("US-ASCII"), TYPE_LONG_NAME,
+		    nameBytes.length + 1, 0, 0);
+	    out.write(nameBytes);
+	    out.write(0);
+	    pad(nameBytes.length + 1);
+	    nameBytes = Arrays.copyOf(nameBytes, NAME_LENGTH);
+	}
+
+	writeHeader(nameBytes, type, length, lastModified, mode);
+    }
+
+    /**
+     * Writes one header block
+     */
+    private void writeHeader(byte[] nameBytes, byte type, long length,
+	    long lastModified, int mode) throws IOException {
+	byte[] header = new byte[BLOCK_LENGTH];
+
+	System.arraycopy(nameBytes, 0, header, 0,
+		Math.min(nameBytes.length, NAME_LENGTH));
+	putOctal(header, 100, 8, mode);
+	putOctal(header, 108, 8, 0); // uid
+	putOctal(header, 116, 8, 0); // gid
+	putLength(header, 124, length);
+	putOctal(header, 136, 12, lastModified / 1000);
+	header[156] = type;
+
+	// GNU magic and version: "ustar  \0"
+	byte[] magic = { 'u', 's', 't', 'a', 'r', ' ', ' ', 0 };
+	System.arraycopy(magic, 0, header, 257, magic.length);
+
+	// The checksum is computed with a checksum field of spaces
+	Arrays.fill(header, 148, 156, (byte) ' ');
+	long checksum = 0;
+	for (byte b : header) {
+	    checksum += b & 0xff;
+	}
+	putOctal(header, 148, 7, checksum);
+	header[155] = ' ';
+
+	out.write(header);
+    }
+
+    /**
+     * Puts the length in octal digits, or in GNU binary if too large
+     */
+    private static void putLength(byte[] header, int offset, long length) {
+	if (length <= MAX_OCTAL_LENGTH) {
+	    putOctal(header, offset, 12, length);
+	    return;
+	}
+
+	header[offset] = (byte) 0x80;
+	for (int i = offset + 11; i > offset; i--) {
+	    header[i] = (byte) length;
+	    length >>>= 8;
+	}
+    }
+
+    /**
+     * Puts a value in zero padded octal digits followed by a NUL
+     */
+    private static void putOctal(byte[] header, int offset, int length,
+	    long value) {
+	int i = offset + length - 1;
+	header[i--] = 0;
+	while (i >= offset) {
+	    header[i--] = (byte) ('0' + (value & 7));
+	    value >>>= 3;
+	}
+    }
+
+    /**
+     * Writes zero bytes
+     */
+    private void writeZeros(long length) throws IOException {
+	Arrays.fill(buffer, (byte) 0);
+	while (length > 0) {
+	    int n = (int) Math.min(buffer.length, length);
+	    out.write(buffer, 0, n);
+	    length -= n;
+	}
+    }
+
+    /**
+     * Pads the entry data up to the end of its last block
+     */
+    private void pad(long length) throws IOException {
+	int remainder = (int) (length % BLOCK_LENGTH);
+	if (remainder != 0) {
+	    out.write(new byte[BLOCK_LENGTH - remainder]);
+	}
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+import org.kawanfw.commons.server.util.ServerLogger;
+import org.kawanfw.commons.util.FrameworkDebug;
+import org.kawanfw.commons.util.Tag;
+import org.kawanfw.file.api.server.ClientCallableManaged;
+
+/**
+ * Provides the instances of the classes called from client side. <br>
+ * Classes that implement {@link ClientCallableManaged} are instantiated once
+ * (or up to their pool size) and reused; other classes are instantiated at
+ * each call.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+public class CallableInstanceManager {
+
+    private static boolean DEBUG = FrameworkDebug
+	    .isSet(CallableInstanceManager.class);
+
+    /** The maximum time a call waits for a free instance of a full pool */
+    public static final long ACQUIRE_TIMEOUT_SECONDS = 60;
+
+    /** The instances per managed class */
+    private static Map<Class<?>, ManagedInstances> managedInstancesMap = new ConcurrentHashMap<Class<?>, ManagedInstances>();
+
+    /**
+     * Protected constructor
+     */
+    protected CallableInstanceManager() {
+
+    }
+
+    /**
+     * Returns an instance of the class to call. Must be followed by a call to
+     * {@link #release(Class, Object)} at the end of the call.
+     * 
+     * @param clazz
+     *            the class to call
+     * @return an instance of the class, ready for use
+     * @throws Exception
+     *             if the instance creation or initialization fails
+     */
+    public static Object acquire(Class<?> clazz) throws Exception {
+
+	if (!ClientCallableManaged.class.isAssignableFrom(clazz)) {
+	    return clazz.newInstance();
+	}
+
+	ManagedInstances managedInstances = managedInstancesMap.get(clazz);
+
+	if (managedInstances == null) {
+	    synchronized (CallableInstanceManager.class) {
+		managedInstances = managedInstancesMap.get(clazz);
+		if (managedInstances == null) {
+		    // The pool size is checked before init(), so that a
+		    // refused instance needs no destroy()
+		    ClientCallableManaged first = (ClientCallableManaged) clazz
+			    .newInstance();
+		    int poolSize = first.getPoolSize();
+
+		    if (poolSize < 0) {
+			throw new IllegalArgumentException(
+				Tag.PRODUCT_USER_CONFIG_FAIL
+					+ " getPoolSize() must be >= 0 in class: "
+					+ clazz.getName());
+		    }
+
+		    init(first);
+		    managedInstances = new ManagedInstances(clazz, first,
+			    poolSize);
+		    managedInstancesMap.put(clazz, managedInstances);
+		}
+	    }
+	}
+
+	return managedInstances.acquire();
+    }
+
+    /**
+     * Gives back an instance at the end of a call.
+     * 
+     * @param clazz
+     *            the called class
+     * @param instance
+     *            the instance returned by {@link #acquire(Class)}
+     */
+    public static void release(Class<?> clazz, Object instance) {
+	if (instance == null) {
+	    return;
+	}
+
+	ManagedInstances managedInstances = managedInstancesMap.get(clazz);
+	if (managedInstances != null) {
+	    managedInstances.release((ClientCallableManaged) instance);
+	}
+    }
+
+    /**
+     * Calls {@link ClientCallableManaged#destroy()} on all the created
+     * instances and forgets them. To be called when the servlet is taken out
+     * of service.
+     */
+    public static synchronized void destroyAll() {
+	for (ManagedInstances managedInstances : managedInstancesMap.values()) {
+	    managedInstances.destroy();
+	}
+	managedInstancesMap.clear();
+    }
+
+    /**
+     * Creates and initializes a new instance of a managed class
+     * 
+     * @param clazz
+     *            the managed class
+     * @return the initialized instance
+     * @throws Exception
+     *             if the instance creation or initialization fails
+     */
+    private static ClientCallableManaged newInstance(Class<?> clazz)
+	    throws Exception {
+	ClientCallableManaged instance = (ClientCallableManaged) clazz
+		.newInstance();
+	init(instance);
+	return instance;
+    }
+
+    /**
+     * Initializes a new instance of a managed class
+     * 
+     * @param instance
+     *            the new instance
+     * @throws Exception
+     *             if the initialization fails
+     */
+    private static void init(ClientCallableManaged instance) throws Exception {
+	instance.init();
+	debug("new instance initialized: " + instance.getClass().getName());
+    }
+
+    /**
+     * The instances of one managed class: one shared instance, or a bounded
+     * pool of exclusive instances.
+     */
+    private static class ManagedInstances {
+
+	private Class<?> clazz = null;
+
+	/** The max number of instances. 0 means one shared instance */
+	private int poolSize = 0;
+
+	/** The shared instance, if pool size is 0 */
+	private ClientCallableManaged sharedInstance = null;
+
+	/** The free instances of the pool */
+	private BlockingQueue<ClientCallableManaged> freeInstances = null;
+
+	/** All created instances, for destroy */
+	private List<ClientCallableManaged> allInstances = new Vector<ClientCallableManaged>();
+
+	public ManagedInstances(Class<?> clazz, ClientCallableManaged first,
+		int poolSize) {
+	    this.clazz = clazz;
+	    this.poolSize = poolSize;
+
+	    allInstances.add(first);
+
+	    if (poolSize == 0) {
+		sharedInstance = first;
+	    } else {
+		freeInstances = new LinkedBlockingQueue<ClientCallableManaged>();
+		freeInstances.add(first);
+	    }
+	}
+
+	public ClientCallableManaged acquire() throws Exception {
+	    if (poolSize == 0) {
+		return sharedInstance;
+	    }
+
+	    ClientCallableManaged instance = freeInstances.poll();
+	    if (instance != null) {
+		return instance;
+	    }
+
+	    // Create a new instance if the pool is not full
+	    synchronized (this) {
+		if (allInstances.size() < poolSize) {
+		    instance = newInstance(clazz);
+		    allInstances.add(instance);
+		    return instance;
+		}
+	    }
+
+	    // Pool is full: wait for a free instance
+	    instance = freeInstances.poll(ACQUIRE_TIMEOUT_SECONDS,
+		    TimeUnit.SECONDS);
+	    if (instance == null) {
+		throw new TimeoutException(Tag.PRODUCT
+			+ " No free instance of " + clazz.getName()
+			+ " after " + ACQUIRE_TIMEOUT_SECONDS
+			+ " seconds: all the " + poolSize
+			+ " instances of the pool are in use.");
+	    }
+	    return instance;
+	}
+
+	public void release(ClientCallableManaged instance) {
+	    if (poolSize > 0) {
+		freeInstances.offer(instance);
+	    }
+	}
+
+	public void destroy() {
+	    for (ClientCallableManaged instance : allInstances) {
+		try {
+		    instance.destroy();
+		} catch (Exception e) {
+		    ServerLogger.getLogger().log(
+			    Level.WARNING,
+			    Tag.PRODUCT_USER_CONFIG_FAIL + " " + clazz.getName()
+				    + ".destroy() failed: " + e.toString());
+		}
+	    }
+	    allInstances.clear();
+	}
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    ServerLogger.getLogger().log(Level.WARNING, s);
+	}
+    }
+
+}
@@ -43,6 +43,8 @@ import org.kawanfw.commons.server.util.ServerLogger;
 import org.kawanfw.commons.util.DefaultParms;
 import org.kawanfw.commons.util.FrameworkDebug;
 import org.kawanfw.file.api.server.FileConfigurator;
+import org.kawanfw.file.servlet.nio.DirectoryListingCache;
+import org.kawanfw.file.servlet.nio.DiskUsageCache;
 
 
 /**
@@ -198,6 +200,7 @@ public class FileTransferManager {
 		|| filename.endsWith(".kawanfw.chunk.LASTCHUNK")) {
 
 	    RandomAccessFile raf = null;
+	    File file = null;
 
 	    try {
 
@@ -222,7 +225,7 @@ public class FileTransferManager {
 
 		int index = Integer.parseInt(indexStr);
 
-		File file = new File(rawFilename);
+		file = new File(rawFilename);
 
 		debug(new Date() + " SESSION INDEX" + " " + index);
 
@@ -258,14 +261,19 @@ public class FileTransferManager {
 
 	    } finally {
 		IOUtils.closeQuietly(raf);
+
+		if (file != null) {
+		    DirectoryListingCache.invalidate(fileConfigurator, file);
+		    DiskUsageCache.invalidate(fileConfigurator, file);
+		}
 	    }
 
 	} else {
 
 	    OutputStream out = null;
+	    File file = new File(filename);
 
 	    try {
-		File file = new File(filename);
 
 		// We must create, if necessary, the path to the file
 		createParentDir(file);
@@ -277,6 +285,8 @@ public class FileTransferManager {
 		debug("file.length(): " + file.length());
 	    } finally {
 		IOUtils.closeQuietly(out);
+		DirectoryListingCache.invalidate(fileConfigurator, file);
+		DiskUsageCache.invalidate(fileConfigurator, file);
 	    }
 	}
 
@@ -0,0 +1,422 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.servlet.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.kawanfw.commons.util.ResponseFrame;
+import org.kawanfw.commons.util.StringUtil;
+import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.util.parms.Parameter;
+
+/**
+ * The servlet output stream of a request, with the response lines written
+ * either in the line oriented text format or in the binary framed format of
+ * {@link ResponseFrame} if the client asks for it. <br>
+ * Other bytes, such as downloaded file contents, are written as is.
+ * <p>
+ * The lines are encoded directly into a buffer taken from a pool, with an
+ * encoder cached per thread, and the buffer is written to the servlet output
+ * stream in large blocks. {@link #finish()} must be called once the response
+ * is complete to write the last block and give back the buffer.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 3.2
+ */
+
+public class ResponseWriter extends OutputStream {
+
+    /** The size of the pooled buffers */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The maximum number of idle buffers kept in the pool */
+    private static final int MAX_POOLED_BUFFERS = 32;
+
+    /** The pool of idle buffers */
+    private static final BlockingQueue<ByteBuffer> bufferPool = new ArrayBlockingQueue<ByteBuffer>(
+	    MAX_POOLED_BUFFERS);
+
+    /** The platform charset of the text format, as String.getBytes() */
+    private static final Charset DEFAULT_CHARSET = Charset.defaultCharset();
+
+    /** The encoders cached per thread: [0] UTF-8, [1] platform charset */
+    private static final ThreadLocal<CharsetEncoder[]> encoders = new ThreadLocal<CharsetEncoder[]>();
+
+    /** The line separator of the text format */
+    private static final String CR_LF = StringUtil.CR_LF;
+
+    /** The servlet output stream */
+    private OutputStream out = null;
+
+    /** If true, the lines are written as binary records */
+    private boolean framed = false;
+
+    /** Says if the framed response header has been written */
+    private boolean headerWritten = false;
+
+    /** The buffer taken from the pool, null if none is in use */
+    private ByteBuffer buffer = null;
+
+    /** The encoder of the lines */
+    private CharsetEncoder encoder = null;
+
+    /** The chars of the line to encode, an array is encoded much faster */
+    private char[] chars = new char[256];
+
+    /** The CharBuffer that wraps the chars array */
+    private CharBuffer charBuffer = CharBuffer.wrap(chars);
+
+    /**
+     * Constructor.
+     * 
+     * @param out
+     *            the servlet output stream
+     * @param framed
+     *            if true, the lines are written in the binary framed format
+     */
+    public ResponseWriter(OutputStream out, boolean framed) {
+	if (out == null) {
+	    throw new IllegalArgumentException("out is null!");
+	}
+
+	this.out = out;
+	this.framed = framed;
+    }
+
+    /**
+     * Creates the response writer of a request: the response is framed if the
+     * client asks for the framed format version supported by the server.
+     * 
+     * @param request
+     *            the http request
+     * @param out
+     *            the servlet output stream
+     * @return the response writer to use for the request
+     */
+    public static ResponseWriter create(HttpServletRequest request,
+	    OutputStream out) {
+	String responseFormat = request.getParameter(Parameter.RESPONSE_FORMAT);
+	boolean framed = ResponseFrame.FORMAT_VERSION.equals(StringUtil
+		.getTrimValue(responseFormat));
+	return new ResponseWriter(out, framed);
+    }
+
+    /**
+     * Writes a line of string on the servlet output stream, as text followed
+     * by CR_LF or as a binary record. In framed format, the first line must
+     * be the transfer status.
+     * 
+     * @param out
+     *            the servlet output stream or response writer
+     * @param s
+     *            the string to write
+     * @throws IOException
+     */
+    public static void writeLine(OutputStream out, String s)
+	    throws IOException {
+	if (out instanceof ResponseWriter) {
+	    ((ResponseWriter) out).writeLine(s);
+	} else {
+	    out.write((s + StringUtil.CR_LF).getBytes());
+	}
+    }
+
+    /**
+     * Writes a line of string, as text followed by CR_LF or as a binary
+     * record. In framed format, the first line must be the transfer status.
+     * 
+     * @param s
+     *            the string to write
+     * @throws IOException
+     */
+    public void writeLine(String s) throws IOException {
+	if (s == null) {
+	    s = "null";
+	}
+
+	if (!framed) {
+	    encode(toCharBuffer(s, CR_LF));
+	    return;
+	}
+
+	if (!headerWritten) {
+	    writeHeader(s);
+	    return;
+	}
+
+	writeRecord(s);
+    }
+
+    /**
+     * Writes the framed response header with the status
+     * 
+     * @param status
+     *            the transfer status
+     * @throws IOException
+     */
+    private void writeHeader(String status) throws IOException {
+	byte statusByte;
+	if (TransferStatus.SEND_OK.equals(status)) {
+	    statusByte = ResponseFrame.STATUS_OK;
+	} else if (TransferStatus.SEND_FAILED.equals(status)) {
+	    statusByte = ResponseFrame.STATUS_FAILED;
+	} else {
+	    throw new IllegalStateException(
+		    "The first line of a framed response must be a transfer status: "
+			    + status);
+	}
+
+	ensureRemaining(ResponseFrame.MAGIC.length + 2);
+	buffer.put(ResponseFrame.MAGIC);
+	buffer.put(ResponseFrame.VERSION);
+	buffer.put(statusByte);
+	headerWritten = true;
+    }
+
+    /**
+     * Writes a record: the UTF-8 bytes are encoded in place after the room
+     * left for the length. A record that may not fit in an empty buffer is
+     * encoded apart.
+     * 
+     * @param s
+     *            the string to write
+     * @throws IOException
+     */
+    private void writeRecord(String s) throws IOException {
+	int maxLength = 4 + (int) Math.ceil(s.length()
+		* (double) getEncoder().maxBytesPerChar());
+
+	if (maxLength > BUFFER_SIZE) {
+	    byte[] bytes = s.getBytes(ResponseFrame.UTF_8);
+	    writeInt(bytes.length);
+	    write(bytes, 0, bytes.length);
+	    return;
+	}
+
+	ensureRemaining(maxLength);
+	int lengthPosition = buffer.position();
+	buffer.position(lengthPosition + 4);
+
+	encoder.reset();
+	encoder.encode(toCharBuffer(s, ""), buffer, true);
+	encoder.flush(buffer);
+
+	buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+    }
+
+    /**
+     * Encodes chars in the buffer, writing it to the servlet output stream
+     * each time it is full.
+     * 
+     * @param charBuffer
+     *            the chars to encode
+     * @throws IOException
+     */
+    private void encode(CharBuffer charBuffer) throws IOException {
+	CharsetEncoder encoder = getEncoder();
+	encoder.reset();
+	ensureRemaining(1);
+
+	CoderResult coderResult = encoder.encode(charBuffer, buffer, true);
+	while (coderResult.isOverflow()) {
+	    writeBuffer();
+	    coderResult = encoder.encode(charBuffer, buffer, true);
+	}
+
+	while (encoder.flush(buffer).isOverflow()) {
+	    writeBuffer();
+	}
+    }
+
+    /**
+     * Copies the string and the suffix into the reused chars array
+     * 
+     * @return the chars wrapped in a CharBuffer
+     */
+    private CharBuffer toCharBuffer(String s, String suffix) {
+	int length = s.length() + suffix.length();
+	if (length > chars.length) {
+	    chars = new char[Math.max(length, chars.length * 2)];
+	    charBuffer = CharBuffer.wrap(chars);
+	}
+
+	s.getChars(0, s.length(), chars, 0);
+	suffix.getChars(0, suffix.length(), chars, s.length());
+	charBuffer.clear();
+	charBuffer.limit(length);
+	return charBuffer;
+    }
+
+    private void writeInt(int v) throws IOException {
+	ensureRemaining(4);
+	buffer.putInt(v);
+    }
+
+    /**
+     * Returns the encoder of the lines, cached for the thread
+     */
+    private CharsetEncoder getEncoder() {
+	if (encoder == null) {
+	    CharsetEncoder[] threadEncoders = encoders.get();
+	    if (threadEncoders == null) {
+		threadEncoders = new CharsetEncoder[] {
+			newEncoder(ResponseFrame.UTF_8),
+			newEncoder(DEFAULT_CHARSET) };
+		encoders.set(threadEncoders);
+	    }
+	    encoder = threadEncoders[framed ? 0 : 1];
+	}
+	return encoder;
+    }
+
+    /**
+     * Takes a buffer from the pool if none is in use, and writes the buffer
+     * content if there is less than the asked room.
+     * 
+     * @param length
+     *            the room needed, at most BUFFER_SIZE
+     * @throws IOException
+     */
+    private void ensureRemaining(int length) throws IOException {
+	if (buffer == null) {
+	    buffer = bufferPool.poll();
+	    if (buffer == null) {
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	    }
+	}
+
+	if (buffer.remaining() < length) {
+	    writeBuffer();
+	}
+    }
+
+    /**
+     * Writes the buffer content to the servlet output stream
+     * 
+     * @throws IOException
+     */
+    private void writeBuffer() throws IOException {
+	if (buffer != null && buffer.position() > 0) {
+	    out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+	    buffer.clear();
+	}
+    }
+
+    /**
+     * Writes the end of response marker if the response is framed, writes the
+     * buffer content, gives back the buffer to the pool and flushes the
+     * stream. Must be called once the response is complete.
+     * 
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+	try {
+	    if (framed && headerWritten) {
+		writeInt(ResponseFrame.END_OF_RECORDS);
+		headerWritten = false;
+	    }
+	    writeBuffer();
+	} finally {
+	    releaseBuffer();
+	}
+	out.flush();
+    }
+
+    /**
+     * Gives back the buffer to the pool
+     */
+    private void releaseBuffer() {
+	if (buffer != null) {
+	    buffer.clear();
+	    bufferPool.offer(buffer);
+	    buffer = null;
+	}
+    }
+
+    /**
+     * Says if the response lines are written in the binary framed format
+     * 
+     * @return true if the response is framed
+     */
+    public boolean isFramed() {
+	return framed;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+	ensureRemaining(1);
+	buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+	if (len >= BUFFER_SIZE) {
+	    // Large blocks, such as file chunks, are not copied
+	    writeBuffer();
+	    out.write(b, off, len);
+	    return;
+	}
+
+	ensureRemaining(len);
+	buffer.put(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+	writeBuffer();
+	out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+	try {
+	    finish();
+	} finally {
+	    out.close();
+	}
+    }
+
+    /**
+     * Builds an encoder that replaces malformed and unmappable chars, as
+     * String.getBytes() does.
+     */
+    private static CharsetEncoder newEncoder(Charset charset) {
+	return charset.newEncoder()
+		.onMalformedInput(CodingErrorAction.REPLACE)
+		.onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+}
@@ -48,9 +48,21 @@ public class Action {
     public static final String FILE_METHOD_ONE_RETURN_ACTION = "FILE_METHOD_ONE_RETURN_ACTION";
     public static final String FILE_LIST_ACTION = "FILE_LIST_ACTION";
     public static final String FILE_LIST_FILES_ACTION = "FILE_LIST_FILES_ACTION";
+    public static final String FILE_LIST_PAGE_ACTION = "FILE_LIST_PAGE_ACTION";
+    public static final String FILE_WALK_ACTION = "FILE_WALK_ACTION";
+    public static final String FILE_FIND_ACTION = "FILE_FIND_ACTION";
+    public static final String FILE_DISK_USAGE_ACTION = "FILE_DISK_USAGE_ACTION";
+    public static final String FILE_COPY_ACTION = "FILE_COPY_ACTION";
+    public static final String FILE_DELETE_TREE_ACTION = "FILE_DELETE_TREE_ACTION";
+    public static final String FILE_ARCHIVE_ACTION = "FILE_ARCHIVE_ACTION";
     public static final String CLEAN_HOST_TEMP_FILES = "CLEAN_HOST_TEMP_FILES";
     public static final String GET_JAVA_VERSION = "GET_JAVA_VERSION";
     
+    // Asynchronous call jobs
+    public static final String CALL_JOB_SUBMIT_ACTION = "CALL_JOB_SUBMIT_ACTION";
+    public static final String CALL_JOB_RESULT_ACTION = "CALL_JOB_RESULT_ACTION";
+    public static final String CALL_JOB_CANCEL_ACTION = "CALL_JOB_CANCEL_ACTION";
+    
     /**
      * Protected constructor
      */
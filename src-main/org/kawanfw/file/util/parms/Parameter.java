@@ -53,6 +53,51 @@ public class Parameter {
     public static final String BASE64_SERIAL_FILENAME_FILTER = "base64_serial_filename_filter";
     public static final String BASE64_SERIAL_FILE_FILTER = "base64_serial_file_filter";
     
+    public static final String FILENAME_FILTER_HASH = "filename_filter_hash";
+    public static final String FILE_FILTER_HASH = "file_filter_hash";
+    
+    // Paginated directory listing
+    public static final String CURSOR = "cursor";
+    public static final String PAGE_SIZE = "page_size";
+    
+    // Recursive tree walk
+    public static final String MAX_DEPTH = "max_depth";
+    
+    // Declarative listing filters
+    public static final String FILTER_GLOB = "filter_glob";
+    public static final String FILTER_REGEX = "filter_regex";
+    public static final String FILTER_MIN_LENGTH = "filter_min_length";
+    public static final String FILTER_MAX_LENGTH = "filter_max_length";
+    public static final String FILTER_MIN_LAST_MODIFIED = "filter_min_last_modified";
+    public static final String FILTER_MAX_LAST_MODIFIED = "filter_max_last_modified";
+    public static final String FILTER_TYPE = "filter_type";
+    
+    // Server side search
+    public static final String MAX_RESULTS = "max_results";
+    
+    // Server side copy and move
+    public static final String REPLACE_EXISTING = "replace_existing";
+    public static final String HARD_LINK = "hard_link";
+    public static final String MOVE = "move";
+    
+    // Streamed archive download
+    public static final String ARCHIVE_FORMAT = "archive_format";
+    public static final String ARCHIVE_FORMAT_ZIP = "zip";
+    public static final String ARCHIVE_FORMAT_TAR = "tar";
+    public static final String ARCHIVE_FORMAT_TAR_GZ = "tar.gz";
+    public static final String COMPRESSION_LEVEL = "compression_level";
+    
+    // Asynchronous call jobs
+    public static final String JOB_ID = "job_id";
+    public static final String WAIT_MILLIS = "wait_millis";
+    
+    // File bodies encryption
+    public static final String BODY_ENCRYPTION = "body_encryption";
+    public static final String BODY_ENCRYPTION_AES_GCM = "aes_gcm";
+    
+    // Binary framed responses
+    public static final String RESPONSE_FORMAT = "response_format";
+    
     // Obsolete
     
     /** To test if crypto is correctly set */
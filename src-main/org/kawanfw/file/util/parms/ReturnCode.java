@@ -48,6 +48,11 @@ public class ReturnCode {
     public static final String ERR_HTTP_PROTOCOL_EXCEPTION = "ERR_HTTP_PROTOCOL_EXCEPTION";
     public static final String ERR_HTTP_IO_EXCEPTION = "ERR_HTTP_IO_EXCEPTION";
     public static final String ERR_HTTP_OPERATION_NOT_ALLOWED = "ERR_HTTP_OPERATION_NOT_ALLOWED";
+    public static final String JOB_RUNNING = "JOB_RUNNING";
+    public static final String JOB_DONE = "JOB_DONE";
+    public static final String TOO_MANY_LOGIN_ATTEMPTS = "TOO_MANY_LOGIN_ATTEMPTS";
+    public static final String END_OF_LIST = "END_OF_LIST";
+    public static final String FILTER_NOT_CACHED = "FILTER_NOT_CACHED";
     /**
      * Class not to be instancied
      */
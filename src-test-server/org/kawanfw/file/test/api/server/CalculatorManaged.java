@@ -0,0 +1,83 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.api.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.kawanfw.file.api.server.ClientCallable;
+import org.kawanfw.file.api.server.ClientCallableManaged;
+
+/**
+ * 
+ * Simple calculator to be called from the client side. One single instance is
+ * shared by all calls. Requires the client to be authenticated.
+ */
+
+public class CalculatorManaged implements ClientCallable,
+	ClientCallableManaged {
+
+    /** The number of instances created */
+    private static AtomicInteger instances = new AtomicInteger();
+    
+    /** Set by init() */
+    private boolean initDone = false;
+    
+    /**
+     * Constructor
+     */
+    public CalculatorManaged() {
+	instances.incrementAndGet();
+    }
+
+    @Override
+    public int getPoolSize() {
+	return 0;
+    }
+
+    @Override
+    public void init() throws Exception {
+	System.out.println("In CalculatorManaged init()");
+	initDone = true;
+    }
+
+    @Override
+    public void destroy() {
+	System.out.println("In CalculatorManaged destroy()");
+    }
+
+    public int add(int a, int b) {
+	if (!initDone) {
+	    throw new IllegalStateException("init() was not called!");
+	}
+	return (a + b);
+    }
+
+    /**
+     * @return the number of instances created, must stay 1
+     */
+    public int getInstances() {
+	return instances.get();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.api.client;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RemoteFileMetadataCacheTest {
+
+    public static void main(String[] args) throws Exception {
+	RemoteFileMetadataCacheTest remoteFileMetadataCacheTest = new RemoteFileMetadataCacheTest();
+	remoteFileMetadataCacheTest.testMethods();
+	remoteFileMetadataCacheTest.testTtl();
+	remoteFileMetadataCacheTest.testLruEviction();
+	remoteFileMetadataCacheTest.testInvalidate();
+	remoteFileMetadataCacheTest.testGeneration();
+	System.out.println("Done!");
+    }
+
+    @Test
+    public void testMethods() throws Exception {
+	Assert.assertTrue(RemoteFileMetadataCache.isCached("exists"));
+	Assert.assertTrue(RemoteFileMetadataCache.isCached("length"));
+	Assert.assertFalse(RemoteFileMetadataCache.isCached("exists", "x"));
+	Assert.assertFalse(RemoteFileMetadataCache.isCached("getFreeSpace"));
+	Assert.assertFalse(RemoteFileMetadataCache.isCached("delete"));
+
+	Assert.assertTrue(RemoteFileMetadataCache.isMutating("delete"));
+	Assert.assertTrue(RemoteFileMetadataCache.isMutating("renameTo"));
+	Assert.assertFalse(RemoteFileMetadataCache.isMutating("exists"));
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+	RemoteFileMetadataCache cache = new RemoteFileMetadataCache(50, 10);
+	cache.put(cache.getGeneration(), "/a", "exists", "true");
+	Assert.assertEquals("true", cache.get("/a", "exists"));
+	Assert.assertNull(cache.get("/a", "length"));
+
+	Thread.sleep(100);
+	Assert.assertNull(cache.get("/a", "exists"));
+    }
+
+    @Test
+    public void testLruEviction() throws Exception {
+	RemoteFileMetadataCache cache = new RemoteFileMetadataCache(60000, 2);
+	cache.put(cache.getGeneration(), "/a", "exists", "true");
+	cache.put(cache.getGeneration(), "/b", "exists", "true");
+
+	// Access /a so that /b becomes the eldest
+	Assert.assertEquals("true", cache.get("/a", "exists"));
+	cache.put(cache.getGeneration(), "/c", "exists", "true");
+
+	Assert.assertEquals(2, cache.size());
+	Assert.assertEquals("true", cache.get("/a", "exists"));
+	Assert.assertNull(cache.get("/b", "exists"));
+	Assert.assertEquals("true", cache.get("/c", "exists"));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+	RemoteFileMetadataCache cache = new RemoteFileMetadataCache(60000, 100);
+	String[] pathnames = { "/", "/dir", "/dir/sub", "/dir/sub/file.txt",
+		"/dir2", "/other" };
+	for (String pathname : pathnames) {
+	    cache.put(cache.getGeneration(), pathname, "isDirectory", "true");
+	}
+
+	cache.invalidate("/dir/sub");
+
+	// The path, its parent and its descendants are removed
+	Assert.assertNull(cache.get("/dir/sub", "isDirectory"));
+	Assert.assertNull(cache.get("/dir", "isDirectory"));
+	Assert.assertNull(cache.get("/dir/sub/file.txt", "isDirectory"));
+
+	Assert.assertEquals("true", cache.get("/", "isDirectory"));
+	Assert.assertEquals("true", cache.get("/dir2", "isDirectory"));
+	Assert.assertEquals("true", cache.get("/other", "isDirectory"));
+
+	cache.invalidate("/other");
+	Assert.assertNull(cache.get("/", "isDirectory"));
+
+	cache.clear();
+	Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testGeneration() throws Exception {
+	RemoteFileMetadataCache cache = new RemoteFileMetadataCache(60000, 100);
+
+	// A modification during the remote call discards the stale value
+	long generation = cache.getGeneration();
+	cache.invalidate("/a");
+	cache.put(generation, "/a", "exists", "true");
+	Assert.assertNull(cache.get("/a", "exists"));
+
+	cache.put(cache.getGeneration(), "/a", "exists", "false");
+	Assert.assertEquals("false", cache.get("/a", "exists"));
+
+	// null values are never cached
+	cache.put(cache.getGeneration(), "/b", "exists", null);
+	Assert.assertEquals(1, cache.size());
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.api.client.nio;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.file.api.client.RemoteArchiveInputStream;
+import org.kawanfw.file.api.client.RemoteFile;
+import org.kawanfw.file.api.client.RemoteFileEntry;
+import org.kawanfw.file.api.client.RemoteSession;
+import org.kawanfw.file.test.parms.TestParms;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * 
+ * Test that RemoteSession.downloadDirectory() extracts the same files as
+ * RemoteFile.walk() and that RemoteArchiveInputStream streams complete tar
+ * archives
+ * 
+ * @author Nicolas de Pomereu
+ */
+
+public class ArchiveTestNio {
+
+    public static void main(String[] args) throws Exception {
+	new ArchiveTestNio().test();
+    }
+
+    @Test
+    public void test() throws Exception {
+
+	RemoteSession remoteSession = new RemoteSession(TestParms.AWAKE_URL,
+		TestParms.REMOTE_USER, TestParms.REMOTE_PASSWORD.toCharArray());
+
+	test(remoteSession);
+    }
+
+    /**
+     * 
+     * @param remoteSession
+     *            the Awake FILE Session
+     * @throws Exception
+     */
+    public void test(RemoteSession remoteSession) throws Exception {
+
+	MessageDisplayer.display("");
+	MessageDisplayer.display("Testing RemoteSession.downloadDirectory()...");
+
+	String pathname = "/" + TestParms.MYDIR1;
+	RemoteFile remoteDir = new RemoteFile(remoteSession, pathname);
+
+	long length = 0;
+	long fileCount = 0;
+	for (RemoteFileEntry entry : remoteDir.walk(Integer.MAX_VALUE)) {
+	    if (entry.isFile()) {
+		fileCount++;
+		length += entry.length();
+	    }
+	}
+
+	File dir = Files.createTempDirectory("archive-test").toFile();
+	try {
+	    remoteSession.downloadDirectory(pathname, dir,
+		    Deflater.BEST_SPEED);
+
+	    File localDir = new File(dir, TestParms.MYDIR1);
+	    Assert.assertTrue(localDir.isDirectory());
+
+	    long localLength = 0;
+	    long localFileCount = 0;
+	    for (File file : FileUtils.listFiles(localDir, null, true)) {
+		localFileCount++;
+		localLength += file.length();
+	    }
+
+	    MessageDisplayer.display("downloadDirectory(): " + localFileCount
+		    + " files, " + localLength + " bytes");
+	    Assert.assertEquals(fileCount, localFileCount);
+	    Assert.assertEquals(length, localLength);
+	} finally {
+	    FileUtils.deleteDirectory(dir);
+	}
+
+	// The tar and tar.gz archives are made of 512 bytes blocks
+	long tarLength = readFully(new RemoteArchiveInputStream(
+		remoteSession, pathname, RemoteArchiveInputStream.FORMAT_TAR,
+		Deflater.DEFAULT_COMPRESSION));
+	MessageDisplayer.display("tar length: " + tarLength);
+	Assert.assertTrue(tarLength > length);
+	Assert.assertEquals(0, tarLength % 512);
+
+	long tarGzLength = readFully(new GZIPInputStream(
+		new RemoteArchiveInputStream(remoteSession, pathname,
+			RemoteArchiveInputStream.FORMAT_TAR_GZ,
+			Deflater.BEST_COMPRESSION)));
+	Assert.assertEquals(tarLength, tarGzLength);
+
+	MessageDisplayer.display("RemoteSession.downloadDirectory() Ok.");
+    }
+
+    /**
+     * Reads and closes a stream and returns the number of bytes read
+     */
+    private static long readFully(InputStream in) throws Exception {
+	long length = 0;
+	try {
+	    byte[] buffer = new byte[1024 * 4];
+	    int n = 0;
+	    while ((n = in.read(buffer)) != -1) {
+		length += n;
+	    }
+	} finally {
+	    in.close();
+	}
+	return length;
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.api.client.nio;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.commons.api.client.RemoteException;
+import org.kawanfw.file.api.client.RemoteCallJob;
+import org.kawanfw.file.api.client.RemoteSession;
+import org.kawanfw.file.test.parms.TestParms;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * 
+ * Test that a remote method is callable asynchronously with a call job.
+ * 
+ * @author Nicolas de Pomereu
+ * 
+ */
+public class CallJobTestNio {
+
+    public static void main(String[] args) throws Exception {
+	new CallJobTestNio().test();
+    }
+
+    @Test
+    public void test() throws Exception {
+
+	RemoteSession remoteSession = new RemoteSession(TestParms.AWAKE_URL,
+		TestParms.REMOTE_USER, TestParms.REMOTE_PASSWORD.toCharArray());
+
+	test(remoteSession);
+
+    }
+
+    /**
+     * @param remoteSession
+     *            the Awake FILE Session
+     * @throws Exception
+     */
+    public void test(RemoteSession remoteSession) throws Exception {
+
+	int a = 33;
+	int b = 44;
+
+	MessageDisplayer.display("");
+	MessageDisplayer.display("Testing submitCall()...");
+
+	RemoteCallJob remoteCallJob = remoteSession.submitCall(
+		"org.kawanfw.file.test.api.server.Calculator.add", a, b);
+	MessageDisplayer.display("Call job id: " + remoteCallJob.getJobId());
+
+	int result = Integer.parseInt(remoteCallJob.get());
+	MessageDisplayer.display("Calculator Result: " + result);
+
+	Assert.assertEquals("a + b must be result", a + b, result);
+	Assert.assertEquals("job must be done", true, remoteCallJob.isDone());
+
+	// A refused call must be thrown back when fetching the result
+	remoteCallJob = remoteSession.submitCall(
+		"org.kawanfw.file.test.api.server.CalculatorNotAllowed.add",
+		a, b);
+
+	String exceptionMessage = "";
+	try {
+	    remoteCallJob.get();
+
+	    // This line must not be reached!
+	    Assert.assertEquals("line not to be reached.", true, false);
+	} catch (RemoteException e) {
+	    exceptionMessage = e.getMessage();
+	}
+
+	Assert.assertEquals(
+		"exceptionMessage must contains org.kawanfw.file.test.api.server.CalculatorNotAllowed.add",
+		true,
+		exceptionMessage
+			.contains("org.kawanfw.file.test.api.server.CalculatorNotAllowed.add"));
+    }
+
+}
@@ -86,6 +86,21 @@ public class CallTestNio {
 	Assert.assertEquals("a + b must be result", a + b, result);
 	MessageDisplayer.display("Calculator Result: " + result);
 
+	// A ClientCallableManaged class is instantiated only once
+	for (int i = 0; i < 3; i++) {
+	    resultStr = remoteSession.call(
+		    "org.kawanfw.file.test.api.server.CalculatorManaged.add",
+		    a, b);
+	    result = Integer.parseInt(resultStr);
+	    Assert.assertEquals("a + b must be result", a + b, result);
+	}
+
+	resultStr = remoteSession
+		.call("org.kawanfw.file.test.api.server.CalculatorManaged.getInstances");
+	Assert.assertEquals("only one instance must be created", 1,
+		Integer.parseInt(resultStr));
+	MessageDisplayer.display("CalculatorManaged Result: " + result);
+
 	// Testing a method not allowed that will be refused by our
 	// TestFileConfigurator.allowCallAfterAnalysis method:
 
@@ -0,0 +1,165 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.api.client.nio;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.file.api.client.RemoteCopyOptions;
+import org.kawanfw.file.api.client.RemoteDiskUsage;
+import org.kawanfw.file.api.client.RemoteFile;
+import org.kawanfw.file.api.client.RemoteFileEntry;
+import org.kawanfw.file.api.client.RemoteSession;
+import org.kawanfw.file.test.parms.TestParms;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * 
+ * Test RemoteFile.copyTo() and RemoteFile.moveTo() on a directory tree
+ * 
+ * @author Nicolas de Pomereu
+ */
+
+public class CopyTestNio {
+
+    public static void main(String[] args) throws Exception {
+	new CopyTestNio().test();
+    }
+
+    @Test
+    public void test() throws Exception {
+
+	RemoteSession remoteSession = new RemoteSession(TestParms.AWAKE_URL,
+		TestParms.REMOTE_USER, TestParms.REMOTE_PASSWORD.toCharArray());
+
+	test(remoteSession);
+    }
+
+    /**
+     * 
+     * @param remoteSession
+     *            the Awake FILE Session
+     * @throws Exception
+     */
+    public void test(RemoteSession remoteSession) throws Exception {
+
+	MessageDisplayer.display("");
+	MessageDisplayer.display("Testing RemoteFile.copyTo()...");
+
+	RemoteFile source = new RemoteFile(remoteSession, "/"
+		+ TestParms.MYDIR1);
+	RemoteFile copy = new RemoteFile(remoteSession, "/"
+		+ TestParms.MYDIR1 + "_copy");
+	RemoteFile moved = new RemoteFile(remoteSession, "/"
+		+ TestParms.MYDIR1 + "_moved");
+
+	delete(copy);
+	delete(moved);
+
+	AtomicInteger progress = new AtomicInteger();
+	RemoteCopyOptions options = new RemoteCopyOptions();
+	options.setProgress(progress);
+
+	source.copyTo(copy, options);
+	Assert.assertEquals(100, progress.get());
+
+	RemoteDiskUsage sourceUsage = source.getDiskUsage();
+	RemoteDiskUsage copyUsage = copy.getDiskUsage();
+	MessageDisplayer.display("source: " + sourceUsage);
+	MessageDisplayer.display("copy  : " + copyUsage);
+
+	Assert.assertEquals(sourceUsage.getLength(), copyUsage.getLength());
+	Assert.assertEquals(sourceUsage.getFileCount(),
+		copyUsage.getFileCount());
+	Assert.assertEquals(sourceUsage.getDirectoryCount(),
+		copyUsage.getDirectoryCount());
+
+	// Existing target files are not replaced by default
+	try {
+	    source.copyTo(copy);
+	    Assert.fail("copyTo() must fail on existing destination");
+	} catch (RuntimeException e) {
+	    MessageDisplayer.display("Expected: " + e.getCause());
+	}
+
+	options = new RemoteCopyOptions();
+	options.setReplaceExisting(true);
+	options.setHardLink(true);
+	source.copyTo(copy, options);
+
+	// Destination inside the source
+	try {
+	    source.copyTo(new RemoteFile(remoteSession, source.getPath()
+		    + "/sub"));
+	    Assert.fail("copyTo() must fail on destination inside source");
+	} catch (RuntimeException e) {
+	    MessageDisplayer.display("Expected: " + e.getCause());
+	}
+
+	// Paths out of the client root directory
+	try {
+	    new RemoteFile(remoteSession, "/../../etc/passwd").copyTo(copy);
+	    Assert.fail("copyTo() must fail on source out of root");
+	} catch (RuntimeException e) {
+	    MessageDisplayer.display("Expected: " + e.getCause());
+	}
+
+	try {
+	    source.moveTo(new RemoteFile(remoteSession, "/../"
+		    + TestParms.MYDIR1 + "_out"));
+	    Assert.fail("moveTo() must fail on destination out of root");
+	} catch (RuntimeException e) {
+	    MessageDisplayer.display("Expected: " + e.getCause());
+	}
+
+	MessageDisplayer.display("Testing RemoteFile.moveTo()...");
+	copy.moveTo(moved);
+
+	Assert.assertFalse(copy.exists());
+	Assert.assertEquals(sourceUsage.getLength(), moved.getDiskUsage()
+		.getLength());
+
+	delete(moved);
+
+	MessageDisplayer.display("RemoteFile.copyTo() and moveTo() Ok.");
+    }
+
+    /**
+     * Deletes a remote directory tree, children first
+     */
+    private void delete(RemoteFile remoteDir) throws Exception {
+	if (!remoteDir.exists()) {
+	    return;
+	}
+
+	List<RemoteFileEntry> entries = remoteDir.walk(Integer.MAX_VALUE);
+	for (int i = entries.size() - 1; i >= 0; i--) {
+	    entries.get(i).getRemoteFile().delete();
+	}
+	remoteDir.delete();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.api.client.nio;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.file.api.client.RemoteDeleteResult;
+import org.kawanfw.file.api.client.RemoteFile;
+import org.kawanfw.file.api.client.RemoteSession;
+import org.kawanfw.file.test.parms.TestParms;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * 
+ * Test RemoteFile.deleteTree() on a created directory tree
+ * 
+ * @author Nicolas de Pomereu
+ */
+
+public class DeleteTreeTestNio {
+
+    public static void main(String[] args) throws Exception {
+	new DeleteTreeTestNio().test();
+    }
+
+    @Test
+    public void test() throws Exception {
+
+	RemoteSession remoteSession = new RemoteSession(TestParms.AWAKE_URL,
+		TestParms.REMOTE_USER, TestParms.REMOTE_PASSWORD.toCharArray());
+
+	test(remoteSession);
+    }
+
+    /**
+     * 
+     * @param remoteSession
+     *            the Awake FILE Session
+     * @throws Exception
+     */
+    public void test(RemoteSession remoteSession) throws Exception {
+
+	MessageDisplayer.display("");
+	MessageDisplayer.display("Testing RemoteFile.deleteTree()...");
+
+	String root = "/" + TestParms.MYDIR1 + "_tree";
+	RemoteFile remoteRoot = new RemoteFile(remoteSession, root);
+
+	// 1 + 3 directories, 3 * 5 files
+	for (int i = 0; i < 3; i++) {
+	    RemoteFile remoteDir = new RemoteFile(remoteSession, root + "/dir"
+		    + i);
+	    remoteDir.mkdirs();
+
+	    for (int j = 0; j < 5; j++) {
+		new RemoteFile(remoteSession, remoteDir.getPath() + "/file" + j
+			+ ".txt").createNewFile();
+	    }
+	}
+
+	RemoteDeleteResult result = remoteRoot.deleteTree();
+	MessageDisplayer.display("RemoteFile.deleteTree(): " + result);
+
+	Assert.assertTrue(result.isSuccess());
+	Assert.assertEquals(15, result.getFileCount());
+	Assert.assertEquals(4, result.getDirectoryCount());
+	Assert.assertFalse(remoteRoot.exists());
+
+	// Does not exist anymore
+	Assert.assertNull(remoteRoot.deleteTree());
+
+	// Root directory is refused
+	try {
+	    new RemoteFile(remoteSession, "/").deleteTree();
+	    Assert.fail("deleteTree() must fail on root directory");
+	} catch (IllegalArgumentException e) {
+	    MessageDisplayer.display("Expected: " + e);
+	}
+
+	MessageDisplayer.display("RemoteFile.deleteTree() Ok.");
+    }
+
+}
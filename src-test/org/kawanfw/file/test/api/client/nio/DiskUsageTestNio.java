@@ -0,0 +1,98 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.api.client.nio;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.file.api.client.RemoteDiskUsage;
+import org.kawanfw.file.api.client.RemoteFile;
+import org.kawanfw.file.api.client.RemoteFileEntry;
+import org.kawanfw.file.api.client.RemoteSession;
+import org.kawanfw.file.test.parms.TestParms;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * 
+ * Test that RemoteFile.getDiskUsage() returns the same totals as
+ * RemoteFile.walk()
+ * 
+ * @author Nicolas de Pomereu
+ */
+
+public class DiskUsageTestNio {
+
+    public static void main(String[] args) throws Exception {
+	new DiskUsageTestNio().test();
+    }
+
+    @Test
+    public void test() throws Exception {
+
+	RemoteSession remoteSession = new RemoteSession(TestParms.AWAKE_URL,
+		TestParms.REMOTE_USER, TestParms.REMOTE_PASSWORD.toCharArray());
+
+	test(remoteSession);
+    }
+
+    /**
+     * 
+     * @param remoteSession
+     *            the Awake FILE Session
+     * @throws Exception
+     */
+    public void test(RemoteSession remoteSession) throws Exception {
+
+	MessageDisplayer.display("");
+	MessageDisplayer.display("Testing RemoteFile.getDiskUsage()...");
+
+	RemoteFile remoteDir = new RemoteFile(remoteSession, "/");
+
+	long length = 0;
+	long fileCount = 0;
+	long directoryCount = 0;
+	for (RemoteFileEntry entry : remoteDir.walk(Integer.MAX_VALUE)) {
+	    if (entry.isDirectory()) {
+		directoryCount++;
+	    } else {
+		fileCount++;
+		length += entry.length();
+	    }
+	}
+
+	RemoteDiskUsage diskUsage = remoteDir.getDiskUsage();
+	MessageDisplayer.display("RemoteFile.getDiskUsage(): " + diskUsage);
+
+	Assert.assertEquals(length, diskUsage.getLength());
+	Assert.assertEquals(fileCount, diskUsage.getFileCount());
+	Assert.assertEquals(directoryCount, diskUsage.getDirectoryCount());
+
+	// Not a directory
+	Assert.assertNull(new RemoteFile(remoteSession, "/"
+		+ TestParms.MYDIR1 + "/not_exists_dir").getDiskUsage());
+
+	MessageDisplayer.display("RemoteFile.getDiskUsage() Ok.");
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.api.client.nio;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.file.api.client.RemoteFile;
+import org.kawanfw.file.api.client.RemoteFileFilterSpec;
+import org.kawanfw.file.api.client.RemoteSession;
+import org.kawanfw.file.test.parms.TestParms;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * 
+ * Test that RemoteFile.list(RemoteFileFilterSpec) and
+ * RemoteFile.listFiles(RemoteFileFilterSpec) return the same files as a client
+ * side filtering of RemoteFile.listFiles()
+ * 
+ * @author Nicolas de Pomereu
+ */
+
+public class FilterSpecTestNio {
+
+    public static void main(String[] args) throws Exception {
+	new FilterSpecTestNio().test();
+    }
+
+    @Test
+    public void test() throws Exception {
+
+	RemoteSession remoteSession = new RemoteSession(TestParms.AWAKE_URL,
+		TestParms.REMOTE_USER, TestParms.REMOTE_PASSWORD.toCharArray());
+
+	test(remoteSession);
+    }
+
+    /**
+     * 
+     * @param remoteSession
+     *            the Awake FILE Session
+     * @throws Exception
+     */
+    public void test(RemoteSession remoteSession) throws Exception {
+
+	MessageDisplayer.display("");
+	MessageDisplayer
+		.display("Testing RemoteFile.listFiles(RemoteFileFilterSpec)...");
+
+	RemoteFile remoteDir = new RemoteFile(remoteSession, "/"
+		+ TestParms.MYDIR1);
+	RemoteFile[] all = remoteDir.listFiles();
+
+	// Glob on the name
+	RemoteFileFilterSpec filterSpec = new RemoteFileFilterSpec();
+	filterSpec.setGlob("*.txt");
+
+	Set<String> expected = new HashSet<String>();
+	for (RemoteFile remoteFile : all) {
+	    if (remoteFile.getName().endsWith(".txt")) {
+		expected.add(remoteFile.getPath());
+	    }
+	}
+	Assert.assertEquals(expected, toSet(remoteDir.listFiles(filterSpec)));
+	Assert.assertEquals(expected.size(), remoteDir.list(filterSpec).length);
+	Assert.assertEquals(expected,
+		toSet(remoteDir.listFilesIterator(2, filterSpec)));
+
+	// Regex, type and size
+	filterSpec = new RemoteFileFilterSpec();
+	filterSpec.setRegex(".*\\..*");
+	filterSpec.setType(RemoteFileFilterSpec.TYPE_FILE);
+	filterSpec.setLengthRange(1, Long.MAX_VALUE);
+
+	expected.clear();
+	for (RemoteFile remoteFile : all) {
+	    if (remoteFile.getName().contains(".") && remoteFile.isFile()
+		    && remoteFile.length() >= 1) {
+		expected.add(remoteFile.getPath());
+	    }
+	}
+	Assert.assertEquals(expected, toSet(remoteDir.listFiles(filterSpec)));
+
+	// Directories only
+	RemoteFile root = new RemoteFile(remoteSession, "/");
+	filterSpec = new RemoteFileFilterSpec();
+	filterSpec.setType(RemoteFileFilterSpec.TYPE_DIRECTORY);
+	for (RemoteFile remoteFile : root.listFiles(filterSpec)) {
+	    Assert.assertTrue(remoteFile.isDirectory());
+	}
+
+	// Modified in the future: none
+	filterSpec = new RemoteFileFilterSpec();
+	filterSpec.setLastModifiedRange(System.currentTimeMillis() + 3600000,
+		Long.MAX_VALUE);
+	Assert.assertEquals(0, remoteDir.listFiles(filterSpec).length);
+
+	// Not a directory
+	RemoteFile notExists = new RemoteFile(remoteSession, "/"
+		+ TestParms.MYDIR1 + "/not_exists_dir");
+	Assert.assertNull(notExists.listFiles(filterSpec));
+
+	MessageDisplayer
+		.display("RemoteFile.listFiles(RemoteFileFilterSpec) Ok.");
+    }
+
+    private static Set<String> toSet(RemoteFile[] remoteFiles) {
+	Set<String> set = new HashSet<String>();
+	for (RemoteFile remoteFile : remoteFiles) {
+	    set.add(remoteFile.getPath());
+	}
+	return set;
+    }
+
+    private static Set<String> toSet(Iterator<RemoteFile> iterator) {
+	Set<String> set = new HashSet<String>();
+	while (iterator.hasNext()) {
+	    set.add(iterator.next().getPath());
+	}
+	return set;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.api.client.nio;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.file.api.client.RemoteFile;
+import org.kawanfw.file.api.client.RemoteFileEntry;
+import org.kawanfw.file.api.client.RemoteFileFilterSpec;
+import org.kawanfw.file.api.client.RemoteSession;
+import org.kawanfw.file.test.parms.TestParms;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * 
+ * Test that RemoteFile.find() returns the same entries as a client side
+ * filtering of RemoteFile.walk()
+ * 
+ * @author Nicolas de Pomereu
+ */
+
+public class FindTestNio {
+
+    public static void main(String[] args) throws Exception {
+	new FindTestNio().test();
+    }
+
+    @Test
+    public void test() throws Exception {
+
+	RemoteSession remoteSession = new RemoteSession(TestParms.AWAKE_URL,
+		TestParms.REMOTE_USER, TestParms.REMOTE_PASSWORD.toCharArray());
+
+	test(remoteSession);
+    }
+
+    /**
+     * 
+     * @param remoteSession
+     *            the Awake FILE Session
+     * @throws Exception
+     */
+    public void test(RemoteSession remoteSession) throws Exception {
+
+	MessageDisplayer.display("");
+	MessageDisplayer.display("Testing RemoteFile.find()...");
+
+	RemoteFile remoteDir = new RemoteFile(remoteSession, "/");
+	List<RemoteFileEntry> all = remoteDir.walk(Integer.MAX_VALUE);
+
+	// No filter: the whole tree
+	Assert.assertEquals(toSet(all),
+		toSet(remoteDir.find(null, Integer.MAX_VALUE)));
+
+	// Regular files with a name containing a dot
+	RemoteFileFilterSpec filterSpec = new RemoteFileFilterSpec();
+	filterSpec.setGlob("*.*");
+	filterSpec.setType(RemoteFileFilterSpec.TYPE_FILE);
+
+	Set<String> expected = new HashSet<String>();
+	for (RemoteFileEntry entry : all) {
+	    String name = entry.getPath().substring(
+		    entry.getPath().lastIndexOf('/') + 1);
+	    if (entry.isFile() && name.contains(".")) {
+		expected.add(entry.getPath());
+	    }
+	}
+
+	List<RemoteFileEntry> found = remoteDir.find(filterSpec,
+		Integer.MAX_VALUE);
+	Assert.assertEquals(expected, toSet(found));
+
+	MessageDisplayer.display("RemoteFile.find() matches: " + found.size());
+
+	// Max results
+	if (expected.size() > 1) {
+	    found = remoteDir.find(filterSpec, 1);
+	    Assert.assertEquals(1, found.size());
+	    Assert.assertTrue(expected.contains(found.get(0).getPath()));
+	}
+
+	// Not a directory
+	Assert.assertNull(new RemoteFile(remoteSession, "/"
+		+ TestParms.MYDIR1 + "/not_exists_dir").find(filterSpec, 10));
+
+	MessageDisplayer.display("RemoteFile.find() Ok.");
+    }
+
+    private static Set<String> toSet(List<RemoteFileEntry> entries) {
+	Set<String> set = new HashSet<String>();
+	for (RemoteFileEntry entry : entries) {
+	    Assert.assertTrue("not duplicated: " + entry,
+		    set.add(entry.getPath()));
+	}
+	return set;
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.api.client.nio;
+
+import java.io.FileFilter;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.apache.commons.io.filefilter.DirectoryFileFilter;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.file.api.client.RemoteFile;
+import org.kawanfw.file.api.client.RemoteSession;
+import org.kawanfw.file.test.parms.TestParms;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * 
+ * Test that RemoteFile.listFilesIterator() returns the same files as
+ * RemoteFile.listFiles()
+ * 
+ * @author Nicolas de Pomereu
+ */
+
+public class ListFilesIteratorNio {
+
+    public static void main(String[] args) throws Exception {
+	new ListFilesIteratorNio().test();
+    }
+
+    @Test
+    public void test() throws Exception {
+
+	RemoteSession remoteSession = new RemoteSession(TestParms.AWAKE_URL,
+		TestParms.REMOTE_USER, TestParms.REMOTE_PASSWORD.toCharArray());
+
+	test(remoteSession);
+    }
+
+    /**
+     * 
+     * @param remoteSession
+     *            the Awake FILE Session
+     * @throws Exception
+     */
+    public void test(RemoteSession remoteSession) throws Exception {
+
+	MessageDisplayer.display("");
+	MessageDisplayer
+		.display("Testing RemoteFile.listFilesIterator() with small pages...");
+
+	RemoteFile remoteDir = new RemoteFile(remoteSession, "/"
+		+ TestParms.MYDIR1);
+
+	// Page sizes smaller and bigger than the directory
+	for (int pageSize : new int[] { 1, 2, 10000 }) {
+	    Set<String> expected = toSet(remoteDir.listFiles());
+	    Set<String> result = toSet(remoteDir.listFilesIterator(pageSize));
+	    Assert.assertEquals("pageSize " + pageSize, expected, result);
+	}
+
+	MessageDisplayer.display(remoteDir + " listed: "
+		+ toSet(remoteDir.listFiles()).size() + " files.");
+
+	// With a FileFilter
+	FileFilter fileFilter = DirectoryFileFilter.DIRECTORY;
+	RemoteFile root = new RemoteFile(remoteSession, "/");
+	Assert.assertEquals(toSet(root.listFiles(fileFilter)),
+		toSet(root.listFilesIterator(2, fileFilter)));
+
+	// Not a directory
+	RemoteFile notExists = new RemoteFile(remoteSession, "/"
+		+ TestParms.MYDIR1 + "/not_exists_dir");
+	Assert.assertNull(notExists.listFilesIterator(10));
+
+	MessageDisplayer.display("RemoteFile.listFilesIterator() Ok.");
+    }
+
+    private static Set<String> toSet(RemoteFile[] remoteFiles) {
+	Set<String> set = new HashSet<String>();
+	for (RemoteFile remoteFile : remoteFiles) {
+	    Assert.assertTrue("not duplicated: " + remoteFile,
+		    set.add(remoteFile.getPath()));
+	}
+	return set;
+    }
+
+    private static Set<String> toSet(Iterator<RemoteFile> iterator) {
+	Set<String> set = new HashSet<String>();
+	while (iterator.hasNext()) {
+	    RemoteFile remoteFile = iterator.next();
+	    Assert.assertTrue("not duplicated: " + remoteFile,
+		    set.add(remoteFile.getPath()));
+	}
+	return set;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.api.client.nio;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.commons.api.client.InvalidLoginException;
+import org.kawanfw.file.api.client.RemoteFile;
+import org.kawanfw.file.api.client.RemoteSession;
+import org.kawanfw.file.api.client.SessionTicket;
+import org.kawanfw.file.test.parms.TestParms;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * 
+ * Test that a session rebuilt from a session ticket is usable without login,
+ * and that a ticket with a wrong token is refused.
+ * 
+ * @author Nicolas de Pomereu
+ * 
+ */
+public class SessionTicketTestNio {
+
+    public static void main(String[] args) throws Exception {
+	new SessionTicketTestNio().test();
+    }
+
+    @Test
+    public void test() throws Exception {
+
+	RemoteSession remoteSession = new RemoteSession(TestParms.AWAKE_URL,
+		TestParms.REMOTE_USER, TestParms.REMOTE_PASSWORD.toCharArray());
+
+	test(remoteSession);
+
+    }
+
+    /**
+     * @param remoteSession
+     *            the Awake FILE Session
+     * @throws Exception
+     */
+    public void test(RemoteSession remoteSession) throws Exception {
+
+	MessageDisplayer.display("");
+	MessageDisplayer.display("Testing session ticket...");
+
+	String ticketString = remoteSession.getSessionTicket().toJson();
+	SessionTicket sessionTicket = SessionTicket.fromJson(ticketString);
+
+	Assert.assertEquals("toString() must not contain the token", false,
+		sessionTicket.toString().contains(
+			sessionTicket.getAuthenticationToken()));
+
+	Assert.assertEquals("url must be the same", remoteSession.getUrl(),
+		sessionTicket.getUrl());
+	Assert.assertEquals("username must be the same",
+		remoteSession.getUsername(), sessionTicket.getUsername());
+	Assert.assertEquals("token must be the same",
+		remoteSession.getAuthenticationToken(),
+		sessionTicket.getAuthenticationToken());
+
+	RemoteSession resumedSession = new RemoteSession(sessionTicket,
+		remoteSession.getProxy(),
+		remoteSession.getPasswordAuthentication());
+
+	Assert.assertEquals("resumed session must equal the session",
+		remoteSession, resumedSession);
+
+	RemoteFile remoteFile = new RemoteFile(resumedSession, "/");
+	MessageDisplayer.display("Resumed session / exists: "
+		+ remoteFile.exists());
+
+	// A ticket with a wrong token must be refused on first request
+	SessionTicket badTicket = new SessionTicket(sessionTicket.getUrl(),
+		sessionTicket.getUsername(), "0123456789abcdef0123",
+		sessionTicket.getRemoteJavaVersion(),
+		sessionTicket.getSessionParameters());
+	RemoteSession badSession = new RemoteSession(badTicket,
+		remoteSession.getProxy(),
+		remoteSession.getPasswordAuthentication());
+
+	boolean refused = false;
+	try {
+	    new RemoteFile(badSession, "/").exists();
+	} catch (RuntimeException e) {
+	    refused = e.getCause() instanceof InvalidLoginException;
+	}
+
+	Assert.assertEquals("wrong token must be refused", true, refused);
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.api.client.nio;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.file.api.client.RemoteFile;
+import org.kawanfw.file.api.client.RemoteFileEntry;
+import org.kawanfw.file.api.client.RemoteSession;
+import org.kawanfw.file.test.parms.TestParms;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * 
+ * Test that RemoteFile.walk() returns the same tree as recursive
+ * RemoteFile.listFiles() calls
+ * 
+ * @author Nicolas de Pomereu
+ */
+
+public class WalkTestNio {
+
+    public static void main(String[] args) throws Exception {
+	new WalkTestNio().test();
+    }
+
+    @Test
+    public void test() throws Exception {
+
+	RemoteSession remoteSession = new RemoteSession(TestParms.AWAKE_URL,
+		TestParms.REMOTE_USER, TestParms.REMOTE_PASSWORD.toCharArray());
+
+	test(remoteSession);
+    }
+
+    /**
+     * 
+     * @param remoteSession
+     *            the Awake FILE Session
+     * @throws Exception
+     */
+    public void test(RemoteSession remoteSession) throws Exception {
+
+	MessageDisplayer.display("");
+	MessageDisplayer.display("Testing RemoteFile.walk()...");
+
+	RemoteFile remoteDir = new RemoteFile(remoteSession, "/");
+
+	Map<String, RemoteFile> expected = new HashMap<String, RemoteFile>();
+	listFilesRecursive(remoteDir, expected);
+
+	List<RemoteFileEntry> entries = remoteDir.walk(Integer.MAX_VALUE);
+	Assert.assertEquals(expected.size(), entries.size());
+
+	for (RemoteFileEntry entry : entries) {
+	    RemoteFile remoteFile = expected.get(entry.getPath());
+	    Assert.assertNotNull("walked entry listed: " + entry, remoteFile);
+	    Assert.assertEquals(entry.toString(), remoteFile.isDirectory(),
+		    entry.isDirectory());
+
+	    if (entry.isFile()) {
+		Assert.assertEquals(entry.toString(), remoteFile.length(),
+			entry.length());
+	    }
+	}
+
+	MessageDisplayer.display("RemoteFile.walk() entries: "
+		+ entries.size());
+
+	// Depth 1 is the same as listFiles()
+	Assert.assertEquals(remoteDir.listFiles().length, remoteDir.walk(1)
+		.size());
+
+	// Not a directory
+	Assert.assertNull(new RemoteFile(remoteSession, "/"
+		+ TestParms.MYDIR1 + "/not_exists_dir").walk(1));
+
+	MessageDisplayer.display("RemoteFile.walk() Ok.");
+    }
+
+    private static void listFilesRecursive(RemoteFile remoteDir,
+	    Map<String, RemoteFile> files) {
+	RemoteFile[] remoteFiles = remoteDir.listFiles();
+	if (remoteFiles == null) {
+	    return;
+	}
+
+	for (RemoteFile remoteFile : remoteFiles) {
+	    files.put(remoteFile.getPath(), remoteFile);
+	    if (remoteFile.isDirectory()) {
+		listFilesRecursive(remoteFile, files);
+	    }
+	}
+    }
+
+}
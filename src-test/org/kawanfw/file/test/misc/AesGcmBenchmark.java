@@ -0,0 +1,148 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import javax.crypto.SecretKey;
+
+import org.kawanfw.commons.util.convert.AesGcm;
+import org.kawanfw.commons.util.convert.AesGcmInputStream;
+import org.kawanfw.commons.util.convert.AesGcmOutputStream;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * Measures the overhead of the AES-GCM encryption of file bodies: throughput
+ * of a plain copy versus an encrypted copy followed by its decryption, and
+ * size overhead of the encrypted body.
+ * 
+ * @author Nicolas de Pomereu
+ *
+ */
+public class AesGcmBenchmark {
+
+    /** The body length: a default 10 MB chunk */
+    private static final int BODY_LENGTH = 10 * 1024 * 1024;
+
+    private static final int ITERATIONS = 20;
+
+    /**
+     * Constructor
+     */
+    public AesGcmBenchmark() {
+	
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+
+	byte[] body = new byte[BODY_LENGTH];
+	new Random(0).nextBytes(body);
+
+	SecretKey secretKey = AesGcm.getSecretKey("password".toCharArray());
+	String context = "/my/file.bin.1.kawanfw.chunk";
+
+	byte[] encrypted = null;
+
+	// Warm up
+	for (int i = 0; i < ITERATIONS; i++) {
+	    plainCopy(body);
+	    encrypted = encrypt(body, secretKey, context);
+	    decrypt(encrypted, secretKey, context);
+	}
+
+	long begin = System.nanoTime();
+	for (int i = 0; i < ITERATIONS; i++) {
+	    plainCopy(body);
+	}
+	display("Plain copy        ", begin);
+
+	begin = System.nanoTime();
+	for (int i = 0; i < ITERATIONS; i++) {
+	    encrypted = encrypt(body, secretKey, context);
+	}
+	display("AES-GCM encryption", begin);
+
+	begin = System.nanoTime();
+	for (int i = 0; i < ITERATIONS; i++) {
+	    decrypt(encrypted, secretKey, context);
+	}
+	display("AES-GCM decryption", begin);
+
+	long overhead = encrypted.length - BODY_LENGTH;
+	MessageDisplayer.display("Size overhead     : " + overhead
+		+ " bytes for " + BODY_LENGTH + " bytes ("
+		+ String.format("%.3f", overhead * 100.0 / BODY_LENGTH) + " %)");
+    }
+
+    private static void plainCopy(byte[] body) throws Exception {
+	copy(new ByteArrayInputStream(body), new ByteArrayOutputStream(
+		BODY_LENGTH));
+    }
+
+    private static byte[] encrypt(byte[] body, SecretKey secretKey,
+	    String context) throws Exception {
+	ByteArrayOutputStream out = new ByteArrayOutputStream(BODY_LENGTH
+		+ (BODY_LENGTH / AesGcm.FRAME_LENGTH + 1) * 20 + 64);
+	OutputStream aesOut = new AesGcmOutputStream(out, secretKey, context);
+	copy(new ByteArrayInputStream(body), aesOut);
+	aesOut.close();
+	return out.toByteArray();
+    }
+
+    private static void decrypt(byte[] encrypted, SecretKey secretKey,
+	    String context) throws Exception {
+	InputStream aesIn = new AesGcmInputStream(new ByteArrayInputStream(
+		encrypted), secretKey, context);
+	copy(aesIn, new ByteArrayOutputStream(BODY_LENGTH));
+    }
+
+    /**
+     * Copy with the 4 KB buffer of the transfers
+     */
+    private static void copy(InputStream in, OutputStream out)
+	    throws Exception {
+	byte[] buffer = new byte[4096];
+	int n;
+	while ((n = in.read(buffer)) != -1) {
+	    out.write(buffer, 0, n);
+	}
+    }
+
+    private static void display(String label, long begin) {
+	long nanos = (System.nanoTime() - begin) / ITERATIONS;
+	long megaBytesPerSecond = (BODY_LENGTH * 1000000000L)
+		/ (nanos * 1024 * 1024);
+	MessageDisplayer.display(label + ": " + (nanos / 1000000) + " ms/chunk, "
+		+ megaBytesPerSecond + " MB/s");
+    }
+
+}
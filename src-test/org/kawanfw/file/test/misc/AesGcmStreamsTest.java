@@ -0,0 +1,127 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.SecretKey;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.commons.util.convert.AesGcm;
+import org.kawanfw.commons.util.convert.AesGcmInputStream;
+import org.kawanfw.commons.util.convert.AesGcmOutputStream;
+
+public class AesGcmStreamsTest {
+
+    private static final String CONTEXT = "/my/file.txt.1.kawanfw.chunk";
+
+    public static void main(String[] args) throws Exception {
+	AesGcmStreamsTest aesGcmStreamsTest = new AesGcmStreamsTest();
+	aesGcmStreamsTest.testRoundTrip();
+	aesGcmStreamsTest.testTampered();
+	System.out.println("Done!");
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+	SecretKey secretKey = AesGcm.getSecretKey("password".toCharArray());
+	int[] lengths = { 0, 1, AesGcm.FRAME_LENGTH - 1, AesGcm.FRAME_LENGTH,
+		AesGcm.FRAME_LENGTH + 1, 3 * AesGcm.FRAME_LENGTH + 17 };
+
+	for (int length : lengths) {
+	    byte[] clear = randomBytes(length);
+	    byte[] encrypted = encrypt(clear, secretKey, CONTEXT);
+	    Assert.assertArrayEquals("round trip " + length, clear,
+		    decrypt(encrypted, secretKey, CONTEXT));
+	}
+    }
+
+    @Test
+    public void testTampered() throws Exception {
+	SecretKey secretKey = AesGcm.getSecretKey("password".toCharArray());
+	byte[] clear = randomBytes(2 * AesGcm.FRAME_LENGTH + 5);
+	byte[] encrypted = encrypt(clear, secretKey, CONTEXT);
+
+	// Flipped bit
+	byte[] tampered = encrypted.clone();
+	tampered[AesGcm.HEADER_LENGTH + 10] ^= 1;
+	assertRefused("flipped bit", tampered, secretKey, CONTEXT);
+
+	// Truncated before the last frame
+	assertRefused("truncated",
+		Arrays.copyOf(encrypted, encrypted.length - 30), secretKey,
+		CONTEXT);
+
+	// Body of another file or chunk
+	assertRefused("other context", encrypted, secretKey,
+		"/my/file.txt.2.kawanfw.chunk");
+
+	// Other password
+	assertRefused("other password", encrypted,
+		AesGcm.getSecretKey("other".toCharArray()), CONTEXT);
+
+	// Not encrypted
+	assertRefused("clear body", clear, secretKey, CONTEXT);
+    }
+
+    private static void assertRefused(String message, byte[] encrypted,
+	    SecretKey secretKey, String context) {
+	try {
+	    decrypt(encrypted, secretKey, context);
+	    Assert.fail(message + " must be refused");
+	} catch (IOException e) {
+	    // Ok
+	}
+    }
+
+    private static byte[] encrypt(byte[] clear, SecretKey secretKey,
+	    String context) throws IOException {
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	AesGcmOutputStream aesGcmOutputStream = new AesGcmOutputStream(out,
+		secretKey, context);
+	aesGcmOutputStream.write(clear);
+	aesGcmOutputStream.close();
+	return out.toByteArray();
+    }
+
+    private static byte[] decrypt(byte[] encrypted, SecretKey secretKey,
+	    String context) throws IOException {
+	return IOUtils.toByteArray(new AesGcmInputStream(
+		new ByteArrayInputStream(encrypted), secretKey, context));
+    }
+
+    private static byte[] randomBytes(int length) {
+	byte[] b = new byte[length];
+	new Random(length).nextBytes(b);
+	return b;
+    }
+
+}
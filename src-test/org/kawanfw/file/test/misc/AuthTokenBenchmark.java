@@ -0,0 +1,96 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import org.kawanfw.commons.api.server.DefaultCommonsConfigurator;
+import org.kawanfw.file.servlet.ServerFileDispatch;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * Measures the cost of the authentication token check done at each request:
+ * default SHA-1 token, HMAC token, and verified token cache hit.
+ * 
+ * @author Nicolas de Pomereu
+ *
+ */
+public class AuthTokenBenchmark {
+
+    private static final int ITERATIONS = 200000;
+
+    /**
+     * Constructor
+     */
+    public AuthTokenBenchmark() {
+	
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+
+	final DefaultCommonsConfigurator commonsConfigurator = new DefaultCommonsConfigurator();
+	final String secret = commonsConfigurator.addSecretForAuthToken();
+	String username = "username";
+
+	// Warm up
+	for (int i = 0; i < ITERATIONS; i++) {
+	    DefaultCommonsConfigurator.defaultComputeAuthToken(username, secret);
+	    commonsConfigurator.hmacComputeAuthToken(username, secret);
+	}
+
+	long begin = System.nanoTime();
+	for (int i = 0; i < ITERATIONS; i++) {
+	    DefaultCommonsConfigurator.defaultComputeAuthToken(username, secret);
+	}
+	display("SHA-1 token compute   ", begin);
+
+	begin = System.nanoTime();
+	for (int i = 0; i < ITERATIONS; i++) {
+	    commonsConfigurator.hmacComputeAuthToken(username, secret);
+	}
+	display("HMAC token compute    ", begin);
+
+	String token = commonsConfigurator.computeAuthToken(username);
+	String ip = "127.0.0.1";
+	ServerFileDispatch.isTokenValid(username, token, ip,
+		commonsConfigurator);
+
+	begin = System.nanoTime();
+	for (int i = 0; i < ITERATIONS; i++) {
+	    if (!ServerFileDispatch.isTokenValid(username, token, ip,
+		    commonsConfigurator)) {
+		throw new IllegalStateException("token must be valid!");
+	    }
+	}
+	display("Cached token check    ", begin);
+    }
+
+    private static void display(String label, long begin) {
+	long nanos = (System.nanoTime() - begin) / ITERATIONS;
+	MessageDisplayer.display(label + ": " + nanos + " ns/request");
+    }
+
+}
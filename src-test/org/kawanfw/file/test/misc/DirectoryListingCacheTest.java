@@ -0,0 +1,342 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.file.api.server.DefaultFileConfigurator;
+import org.kawanfw.file.servlet.nio.DirectoryListingCache;
+
+public class DirectoryListingCacheTest {
+
+    public static void main(String[] args) throws Exception {
+	DirectoryListingCacheTest directoryListingCacheTest = new DirectoryListingCacheTest();
+	directoryListingCacheTest.testListing();
+	directoryListingCacheTest.testInvalidate();
+	directoryListingCacheTest.testWatchService();
+	directoryListingCacheTest.testConcurrentLoads();
+	directoryListingCacheTest.testDotNames();
+	directoryListingCacheTest.testTtl();
+	directoryListingCacheTest.testMaxBytes();
+	System.out.println("Done!");
+    }
+
+    @Test
+    public void testListing() throws Exception {
+	File dir = createDir(3);
+	try {
+	    DirectoryListingCache cache = DirectoryListingCache
+		    .get(new CacheFileConfigurator(1000000, 60000));
+
+	    DirectoryListingCache.Listing listing = cache.getListing(dir);
+	    Assert.assertEquals(4, listing.getNames().size());
+	    Assert.assertSame(listing, cache.getListing(dir));
+
+	    Assert.assertNull(cache.getListing(new File(dir, "file0.txt")));
+	    Assert.assertNull(cache.getListing(new File(dir, "not_exists")));
+
+	    // Attributes of the entries
+	    File file = new File(dir, "file1.txt");
+	    DirectoryListingCache.Entry entry = cache.getCachedEntry(file);
+	    Assert.assertEquals(true, entry.getValue("exists"));
+	    Assert.assertEquals(true, entry.getValue("isFile"));
+	    Assert.assertEquals(false, entry.getValue("isDirectory"));
+	    Assert.assertEquals(file.length(), entry.getValue("length"));
+	    Assert.assertNull(entry.getValue("canRead"));
+
+	    entry = cache.getCachedEntry(new File(dir, "subdir"));
+	    Assert.assertEquals(true, entry.getValue("isDirectory"));
+
+	    entry = cache.getCachedEntry(new File(dir, "not_exists"));
+	    Assert.assertEquals(false, entry.getValue("exists"));
+	    Assert.assertEquals(0L, entry.getValue("length"));
+
+	    // Parent listing not cached
+	    Assert.assertNull(cache.getCachedEntry(new File(dir,
+		    "subdir/file.txt")));
+	} finally {
+	    DirectoryListingCache.shutdown();
+	    FileUtils.deleteDirectory(dir);
+	}
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+	File dir = createDir(3);
+	try {
+	    CacheFileConfigurator fileConfigurator = new CacheFileConfigurator(
+		    1000000, 60000);
+	    DirectoryListingCache cache = DirectoryListingCache
+		    .get(fileConfigurator);
+
+	    File subdir = new File(dir, "subdir");
+	    DirectoryListingCache.Listing listing = cache.getListing(dir);
+	    DirectoryListingCache.Listing subListing = cache.getListing(subdir);
+	    Assert.assertEquals(2, cache.size());
+
+	    // A new file in subdir: subdir and its ancestors are dropped
+	    DirectoryListingCache.invalidate(fileConfigurator, new File(subdir,
+		    "new.txt"));
+	    Assert.assertEquals(0, cache.size());
+	    Assert.assertEquals(0, cache.getUsedBytes());
+
+	    listing = cache.getListing(dir);
+	    subListing = cache.getListing(subdir);
+
+	    // The deleted directory and its descendants are dropped
+	    DirectoryListingCache.invalidate(fileConfigurator, subdir);
+	    Assert.assertNotSame(listing, cache.getListing(dir));
+	    Assert.assertNotSame(subListing, cache.getListing(subdir));
+
+	    Assert.assertTrue(DirectoryListingCache.isMutating("delete"));
+	    Assert.assertFalse(DirectoryListingCache.isMutating("exists"));
+	} finally {
+	    DirectoryListingCache.shutdown();
+	    FileUtils.deleteDirectory(dir);
+	}
+    }
+
+    @Test
+    public void testWatchService() throws Exception {
+	File dir = createDir(3);
+	try {
+	    DirectoryListingCache cache = DirectoryListingCache
+		    .get(new CacheFileConfigurator(1000000, 0));
+
+	    DirectoryListingCache.Listing listing = cache.getListing(dir);
+	    if (cache.size() == 0) {
+		System.out.println("WatchService not supported: skipped.");
+		return;
+	    }
+
+	    // Modification outside the cache, reported by the WatchService
+	    FileUtils.write(new File(dir, "outside.txt"), "outside");
+
+	    long end = System.currentTimeMillis() + 30000;
+	    while (cache.size() > 0 && System.currentTimeMillis() < end) {
+		Thread.sleep(50);
+	    }
+
+	    Assert.assertEquals(0, cache.size());
+	    Assert.assertEquals(listing.getNames().size() + 1, cache
+		    .getListing(dir).getNames().size());
+	} finally {
+	    DirectoryListingCache.shutdown();
+	    FileUtils.deleteDirectory(dir);
+	}
+    }
+
+    @Test
+    public void testConcurrentLoads() throws Exception {
+	File dir = createDir(3);
+	try {
+	    CacheFileConfigurator fileConfigurator = new CacheFileConfigurator(
+		    1000000, 0);
+	    final DirectoryListingCache cache = DirectoryListingCache
+		    .get(fileConfigurator);
+
+	    final File subdir = new File(dir, "subdir");
+	    for (int i = 0; i < 500; i++) {
+		FileUtils.write(new File(subdir, "file" + i + ".txt"), "content");
+	    }
+
+	    cache.getListing(subdir);
+	    if (cache.size() == 0) {
+		System.out.println("WatchService not supported: skipped.");
+		return;
+	    }
+
+	    // Concurrent loads share the watch key of the directory: the
+	    // cached listing must still receive the events
+	    for (int i = 0; i < 20; i++) {
+		DirectoryListingCache.invalidate(fileConfigurator, subdir);
+
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[8];
+		for (int j = 0; j < threads.length; j++) {
+		    threads[j] = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+			    try {
+				start.await();
+				cache.getListing(subdir);
+			    } catch (Exception e) {
+				e.printStackTrace();
+			    }
+			}
+		    });
+		    threads[j].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+		    thread.join();
+		}
+
+		if (cache.size() == 0) {
+		    // All the loads lost against the invalidation
+		    continue;
+		}
+
+		FileUtils.write(new File(subdir, "outside" + i + ".txt"),
+			"outside");
+
+		long end = System.currentTimeMillis() + 30000;
+		while (cache.size() > 0 && System.currentTimeMillis() < end) {
+		    Thread.sleep(10);
+		}
+		Assert.assertEquals(0, cache.size());
+	    }
+	} finally {
+	    DirectoryListingCache.shutdown();
+	    FileUtils.deleteDirectory(dir);
+	}
+    }
+
+    @Test
+    public void testDotNames() throws Exception {
+	File dir = createDir(3);
+	try {
+	    DirectoryListingCache cache = DirectoryListingCache
+		    .get(new CacheFileConfigurator(1000000, 60000));
+
+	    cache.getListing(dir);
+	    cache.getListing(new File(dir, "subdir"));
+	    Assert.assertEquals(2, cache.size());
+
+	    // "." and ".." are not entries of the listings
+	    Assert.assertNull(cache.getCachedEntry(new File(dir, "subdir/..")));
+	    Assert.assertNull(cache.getCachedEntry(new File(dir, "subdir/.")));
+	    Assert.assertNull(cache.getCachedEntry(new File(dir,
+		    "subdir/../file0.txt")));
+
+	    // Listings of paths with "." or ".." are read but not cached
+	    DirectoryListingCache.Listing listing = cache.getListing(new File(
+		    dir, "subdir/.."));
+	    Assert.assertEquals(4, listing.getNames().size());
+	    Assert.assertEquals(2, cache.size());
+	} finally {
+	    DirectoryListingCache.shutdown();
+	    FileUtils.deleteDirectory(dir);
+	}
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+	File dir = createDir(3);
+	try {
+	    DirectoryListingCache cache = DirectoryListingCache
+		    .get(new CacheFileConfigurator(1000000, 50));
+
+	    DirectoryListingCache.Listing listing = cache.getListing(dir);
+	    Assert.assertSame(listing, cache.getListing(dir));
+
+	    Thread.sleep(100);
+	    Assert.assertNotSame(listing, cache.getListing(dir));
+	} finally {
+	    DirectoryListingCache.shutdown();
+	    FileUtils.deleteDirectory(dir);
+	}
+    }
+
+    @Test
+    public void testMaxBytes() throws Exception {
+	File dir = createDir(100);
+	try {
+	    DirectoryListingCache cache = DirectoryListingCache
+		    .get(new CacheFileConfigurator(20000, 60000));
+
+	    File subdir = new File(dir, "subdir");
+	    cache.getListing(subdir);
+	    cache.getListing(dir);
+	    long bytes = cache.getUsedBytes();
+	    Assert.assertTrue(bytes <= 20000);
+
+	    // Third listing goes above the budget: subdir is the eldest
+	    File dir2 = createDir(100);
+	    try {
+		cache.getListing(dir2);
+		Assert.assertTrue(cache.getUsedBytes() <= 20000);
+		Assert.assertNull(cache
+			.getCachedEntry(new File(subdir, "file.txt")));
+		Assert.assertNotNull(cache.getCachedEntry(new File(dir2,
+			"file0.txt")));
+	    } finally {
+		FileUtils.deleteDirectory(dir2);
+	    }
+
+	    // A listing bigger than the budget is not cached
+	    cache = DirectoryListingCache.get(new CacheFileConfigurator(100,
+		    60000));
+	    cache.getListing(dir);
+	    Assert.assertEquals(0, cache.size());
+	} finally {
+	    DirectoryListingCache.shutdown();
+	    FileUtils.deleteDirectory(dir);
+	}
+    }
+
+    /**
+     * Creates a directory with files and a "subdir" sub directory
+     */
+    private static File createDir(int files) throws Exception {
+	File dir = Files.createTempDirectory("listing-cache").toFile();
+	for (int i = 0; i < files; i++) {
+	    FileUtils.write(new File(dir, "file" + i + ".txt"), "content " + i);
+	}
+	File subdir = new File(dir, "subdir");
+	subdir.mkdir();
+	FileUtils.write(new File(subdir, "file.txt"), "content");
+	return dir;
+    }
+
+    private static class CacheFileConfigurator extends
+	    DefaultFileConfigurator {
+
+	private long maxBytes;
+	private long ttlMillis;
+
+	public CacheFileConfigurator(long maxBytes, long ttlMillis) {
+	    this.maxBytes = maxBytes;
+	    this.ttlMillis = ttlMillis;
+	}
+
+	@Override
+	public long getDirectoryCacheMaxBytes() {
+	    return maxBytes;
+	}
+
+	@Override
+	public long getDirectoryCacheTtlMillis() {
+	    return ttlMillis;
+	}
+    }
+
+}
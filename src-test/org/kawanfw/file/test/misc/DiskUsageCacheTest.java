@@ -0,0 +1,162 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.file.api.server.DefaultFileConfigurator;
+import org.kawanfw.file.servlet.nio.DiskUsageCache;
+import org.kawanfw.file.servlet.nio.DiskUsageCache.DiskUsage;
+
+public class DiskUsageCacheTest {
+
+    public static void main(String[] args) throws Exception {
+	DiskUsageCacheTest diskUsageCacheTest = new DiskUsageCacheTest();
+	diskUsageCacheTest.testDisabled();
+	diskUsageCacheTest.testInvalidate();
+	diskUsageCacheTest.testGeneration();
+	diskUsageCacheTest.testTtl();
+	System.out.println("Done!");
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+	Assert.assertNull(DiskUsageCache.get(new DefaultFileConfigurator()));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+	try {
+	    CacheFileConfigurator fileConfigurator = new CacheFileConfigurator(
+		    60000);
+	    DiskUsageCache cache = DiskUsageCache.get(fileConfigurator);
+
+	    File root = new File("/root");
+	    File sub = new File(root, "sub");
+	    File subsub = new File(sub, "subsub");
+	    File other = new File(root, "other");
+
+	    for (File dir : new File[] { root, sub, subsub, other }) {
+		cache.put(dir, new DiskUsage(1, 1, 0, System.currentTimeMillis()),
+			cache.getGeneration());
+	    }
+	    Assert.assertEquals(4, cache.size());
+	    Assert.assertEquals(1, cache.get(sub).getLength());
+
+	    // A new file in sub: sub and its ancestors are dropped
+	    DiskUsageCache.invalidate(fileConfigurator,
+		    new File(sub, "new.txt"));
+	    Assert.assertNull(cache.get(sub));
+	    Assert.assertNull(cache.get(root));
+	    Assert.assertNotNull(cache.get(subsub));
+	    Assert.assertNotNull(cache.get(other));
+
+	    // Deleted directory: descendants are dropped
+	    DiskUsageCache.invalidate(fileConfigurator, sub);
+	    Assert.assertNull(cache.get(subsub));
+	    Assert.assertNotNull(cache.get(other));
+	} finally {
+	    DiskUsageCache.shutdown();
+	}
+    }
+
+    @Test
+    public void testGeneration() throws Exception {
+	try {
+	    CacheFileConfigurator fileConfigurator = new CacheFileConfigurator(
+		    60000);
+	    DiskUsageCache cache = DiskUsageCache.get(fileConfigurator);
+	    File dir = new File("/root/dir");
+
+	    // A modification elsewhere during the computation: cached
+	    long generation = cache.getGeneration();
+	    cache.invalidate(new File("/root/other/file.txt"));
+	    cache.put(dir, new DiskUsage(1, 1, 0, System.currentTimeMillis()),
+		    generation);
+	    Assert.assertNotNull(cache.get(dir));
+
+	    // A modification below the directory: not cached
+	    File sub = new File(dir, "sub");
+	    generation = cache.getGeneration();
+	    cache.invalidate(new File(sub, "file.txt"));
+	    cache.put(sub, new DiskUsage(1, 1, 0, System.currentTimeMillis()),
+		    generation);
+	    Assert.assertNull(cache.get(sub));
+
+	    // A modification of an ancestor: not cached
+	    File subsub = new File(sub, "subsub");
+	    generation = cache.getGeneration();
+	    cache.invalidate(sub);
+	    cache.put(subsub,
+		    new DiskUsage(1, 1, 0, System.currentTimeMillis()),
+		    generation);
+	    Assert.assertNull(cache.get(subsub));
+
+	    // A computation that started before the time to live
+	    generation = cache.getGeneration();
+	    cache.put(sub, new DiskUsage(1, 1, 0,
+		    System.currentTimeMillis() - 120000), generation);
+	    Assert.assertNull(cache.get(sub));
+	} finally {
+	    DiskUsageCache.shutdown();
+	}
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+	try {
+	    DiskUsageCache cache = DiskUsageCache
+		    .get(new CacheFileConfigurator(50));
+	    File dir = new File("/root/dir");
+
+	    cache.put(dir, new DiskUsage(1, 1, 0, System.currentTimeMillis()),
+		    cache.getGeneration());
+	    Assert.assertNotNull(cache.get(dir));
+
+	    Thread.sleep(100);
+	    Assert.assertNull(cache.get(dir));
+	} finally {
+	    DiskUsageCache.shutdown();
+	}
+    }
+
+    private static class CacheFileConfigurator extends
+	    DefaultFileConfigurator {
+
+	private long ttlMillis;
+
+	public CacheFileConfigurator(long ttlMillis) {
+	    this.ttlMillis = ttlMillis;
+	}
+
+	@Override
+	public long getDiskUsageCacheTtlMillis() {
+	    return ttlMillis;
+	}
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FilenameFilter;
+import java.io.Serializable;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.file.reflection.ClassSerializer;
+import org.kawanfw.file.servlet.nio.FilterCache;
+
+public class FilterCacheTest {
+
+    public static void main(String[] args) throws Exception {
+	FilterCacheTest filterCacheTest = new FilterCacheTest();
+	filterCacheTest.testPutGet();
+	filterCacheTest.testSharedInstances();
+	filterCacheTest.testEviction();
+	System.out.println("Done!");
+    }
+
+    @Test
+    public void testPutGet() throws Exception {
+	FilterCache.clear();
+	String base64 = new ClassSerializer<FilenameFilter>()
+		.toBase64(new SuffixFilenameFilter(".txt"));
+	String className = SuffixFilenameFilter.class.getName();
+	String hash = ClassSerializer.hash(base64);
+
+	Assert.assertNull(FilterCache.get(hash, className));
+
+	FilenameFilter filter = FilterCache.put(base64, className);
+	Assert.assertTrue(filter.accept(null, "file.txt"));
+	Assert.assertEquals(1, FilterCache.size());
+
+	FilenameFilter cached = FilterCache.get(hash, className);
+	Assert.assertNotNull(cached);
+	Assert.assertFalse(cached.accept(null, "file.bin"));
+
+	// Wrong class name or hash
+	Assert.assertNull(FilterCache.get(hash, String.class.getName()));
+	Assert.assertNull(FilterCache.get(ClassSerializer.hash("other"),
+		className));
+	Assert.assertNull(FilterCache.get(null, className));
+
+	FilterCache.clear();
+	Assert.assertEquals(0, FilterCache.size());
+	Assert.assertNull(FilterCache.get(hash, className));
+    }
+
+    @Test
+    public void testSharedInstances() throws Exception {
+	FilterCache.clear();
+
+	// Immutable filter: the instance is shared
+	String base64 = new ClassSerializer<FilenameFilter>()
+		.toBase64(new SuffixFilenameFilter(".txt"));
+	String className = SuffixFilenameFilter.class.getName();
+	FilenameFilter filter = FilterCache.put(base64, className);
+	Assert.assertSame(filter, FilterCache.put(base64, className));
+	Assert.assertSame(filter,
+		FilterCache.get(ClassSerializer.hash(base64), className));
+
+	// Mutable filter: a new instance for each request
+	base64 = new ClassSerializer<FileFilter>()
+		.toBase64(new CountingFileFilter());
+	className = CountingFileFilter.class.getName();
+	FileFilter fileFilter = FilterCache.put(base64, className);
+	Assert.assertNotSame(fileFilter, FilterCache.put(base64, className));
+	Assert.assertNotSame(fileFilter,
+		FilterCache.get(ClassSerializer.hash(base64), className));
+
+	FilterCache.clear();
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+	FilterCache.clear();
+	String className = SuffixFilenameFilter.class.getName();
+	String first = new ClassSerializer<FilenameFilter>()
+		.toBase64(new SuffixFilenameFilter(".0"));
+	FilterCache.put(first, className);
+
+	for (int i = 1; i <= FilterCache.MAX_ENTRIES; i++) {
+	    String base64 = new ClassSerializer<FilenameFilter>()
+		    .toBase64(new SuffixFilenameFilter("." + i));
+	    FilterCache.put(base64, className);
+	}
+
+	Assert.assertEquals(FilterCache.MAX_ENTRIES, FilterCache.size());
+	Assert.assertNull(FilterCache.get(ClassSerializer.hash(first),
+		className));
+	FilterCache.clear();
+    }
+
+    public static class SuffixFilenameFilter implements FilenameFilter,
+	    Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String suffix;
+
+	public SuffixFilenameFilter(String suffix) {
+	    this.suffix = suffix;
+	}
+
+	@Override
+	public boolean accept(File dir, String name) {
+	    return name.endsWith(suffix);
+	}
+    }
+
+    public static class CountingFileFilter implements FileFilter, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private int count = 0;
+
+	@Override
+	public boolean accept(File pathname) {
+	    count++;
+	    return count > 0;
+	}
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import org.kawanfw.commons.util.HtmlCodec;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * Measures the HTML conversion of a request parameter: the commons-lang
+ * translators of previous versions versus the single pass {@code HtmlCodec},
+ * for an ASCII path and for a path with accented characters.
+ * 
+ * @author Nicolas de Pomereu
+ *
+ */
+public class HtmlCodecBenchmark {
+
+    private static final int ITERATIONS = 1000000;
+
+    private static final String ASCII_PATH = "/home/users/mike/documents/2015/report_final-v2.txt";
+    private static final String ACCENTED_PATH = "/home/users/mike/documents/2015/résumé définitif.txt";
+
+    /** Prevents dead code elimination */
+    private static int sink = 0;
+
+    /**
+     * Constructor
+     */
+    public HtmlCodecBenchmark() {
+	
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+
+	String[] paths = { ASCII_PATH, ACCENTED_PATH };
+	String[] labels = { "ASCII path   ", "Accented path" };
+
+	// Warm up
+	for (int i = 0; i < ITERATIONS; i++) {
+	    for (String path : paths) {
+		sink += HtmlCodecTest.legacyFromHtml(
+			HtmlCodecTest.legacyToHtml(path)).length();
+		sink += HtmlCodec.decode(HtmlCodec.encode(path)).length();
+	    }
+	}
+
+	for (int p = 0; p < paths.length; p++) {
+	    String path = paths[p];
+	    String encoded = HtmlCodec.encode(path);
+
+	    long begin = System.nanoTime();
+	    for (int i = 0; i < ITERATIONS; i++) {
+		sink += HtmlCodecTest.legacyToHtml(path).length();
+	    }
+	    display(labels[p] + " legacy toHtml  ", begin);
+
+	    begin = System.nanoTime();
+	    for (int i = 0; i < ITERATIONS; i++) {
+		sink += HtmlCodec.encode(path).length();
+	    }
+	    display(labels[p] + " HtmlCodec.encode", begin);
+
+	    begin = System.nanoTime();
+	    for (int i = 0; i < ITERATIONS; i++) {
+		sink += HtmlCodecTest.legacyFromHtml(encoded).length();
+	    }
+	    display(labels[p] + " legacy fromHtml", begin);
+
+	    begin = System.nanoTime();
+	    for (int i = 0; i < ITERATIONS; i++) {
+		sink += HtmlCodec.decode(encoded).length();
+	    }
+	    display(labels[p] + " HtmlCodec.decode", begin);
+	}
+
+	MessageDisplayer.display("(sink: " + sink + ")");
+    }
+
+    private static void display(String label, long begin) {
+	long nanos = (System.nanoTime() - begin) / ITERATIONS;
+	MessageDisplayer.display(label + ": " + nanos + " ns/op");
+    }
+
+}
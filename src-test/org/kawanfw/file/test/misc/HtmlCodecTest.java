@@ -0,0 +1,122 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import java.util.Random;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.text.translate.NumericEntityEscaper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.commons.util.HtmlCodec;
+
+public class HtmlCodecTest {
+
+    private static final String[] FRAGMENTS = { "a", "Z", "0", " ", "/",
+	    "&", ";", "#", "x", "\"", "<", ">", "'", "\u007f", "é",
+	    " ", "Œ", "α", "♥", "中", "😀",
+	    "\ud83d", "&amp;", "&eacute;", "&#233;", "&#xE9;", "&#x1F600;",
+	    "&#", "&#x", "&#12", "&#1a;", "&thetasym;", "&foo;", "&lt",
+	    "&#99999999999;" };
+
+    public static void main(String[] args) throws Exception {
+	HtmlCodecTest htmlCodecTest = new HtmlCodecTest();
+	htmlCodecTest.testEncode();
+	htmlCodecTest.testDecode();
+	System.out.println("Done!");
+    }
+
+    @Test
+    public void testEncode() {
+	Assert.assertNull("null", HtmlCodec.encode(null));
+
+	String ascii = "/my/path/to/file_name-1.txt";
+	Assert.assertSame("ascii", ascii, HtmlCodec.encode(ascii));
+
+	for (char c = 0; c < 0x3000; c++) {
+	    String s = "a" + c + "b";
+	    Assert.assertEquals("char " + (int) c, legacyToHtml(s),
+		    HtmlCodec.encode(s));
+	}
+
+	Random random = new Random(0);
+	for (int i = 0; i < 20000; i++) {
+	    String s = randomString(random);
+	    Assert.assertEquals(s, legacyToHtml(s), HtmlCodec.encode(s));
+	}
+    }
+
+    @Test
+    public void testDecode() {
+	Assert.assertNull("null", HtmlCodec.decode(null));
+
+	String ascii = "/my/path/to/file_name-1.txt";
+	Assert.assertSame("ascii", ascii, HtmlCodec.decode(ascii));
+
+	Random random = new Random(1);
+	for (int i = 0; i < 20000; i++) {
+	    String s = randomString(random);
+	    Assert.assertEquals(s, legacyFromHtml(s), HtmlCodec.decode(s));
+
+	    String encoded = HtmlCodec.encode(s);
+	    Assert.assertEquals(encoded, legacyFromHtml(encoded),
+		    HtmlCodec.decode(encoded));
+	}
+    }
+
+    private static String randomString(Random random) {
+	StringBuilder sb = new StringBuilder();
+	int n = random.nextInt(8);
+	for (int i = 0; i < n; i++) {
+	    sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+	}
+	return sb.toString();
+    }
+
+    /**
+     * The HtmlConverter.toHtml() of previous versions
+     */
+    static String legacyToHtml(String string) {
+	string = StringEscapeUtils.ESCAPE_HTML4.with(
+		NumericEntityEscaper.between(0x7f, Integer.MAX_VALUE))
+		.translate(string);
+
+	if (string != null) {
+	    string = string.replaceAll("&amp;", "&");
+	}
+	return string;
+    }
+
+    /**
+     * The HtmlConverter.fromHtml() of previous versions
+     */
+    static String legacyFromHtml(String string) {
+	if (string != null && string.contains("&")) {
+	    return StringEscapeUtils.unescapeHtml4(string);
+	}
+	return string;
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.commons.util.IpMatcher;
+import org.kawanfw.commons.util.IpSubnet;
+
+public class IpMatcherTest {
+
+    @Test
+    public void test() {
+	List<String> entries = Arrays.asList("10.0.0.1", "192.168.1.0/24",
+		"172.16.0.0/255.240.0.0", "2001:db8::/32", "::1",
+		"::ffff:8.8.8.0/120", "localhost");
+	IpMatcher ipMatcher = new IpMatcher(entries);
+
+	Assert.assertTrue("10.0.0.1", ipMatcher.contains("10.0.0.1"));
+	Assert.assertFalse("10.0.0.2", ipMatcher.contains("10.0.0.2"));
+	Assert.assertTrue("192.168.1.254", ipMatcher.contains("192.168.1.254"));
+	Assert.assertFalse("192.168.2.1", ipMatcher.contains("192.168.2.1"));
+	Assert.assertTrue("172.31.255.255", ipMatcher.contains("172.31.255.255"));
+	Assert.assertFalse("172.32.0.0", ipMatcher.contains("172.32.0.0"));
+	Assert.assertTrue("2001:db8:1::5", ipMatcher.contains("2001:db8:1::5"));
+	Assert.assertTrue("2001:DB8:0:0:0:0:0:1", ipMatcher.contains("2001:DB8:0:0:0:0:0:1"));
+	Assert.assertFalse("2001:db9::1", ipMatcher.contains("2001:db9::1"));
+	Assert.assertTrue("0:0:0:0:0:0:0:1", ipMatcher.contains("0:0:0:0:0:0:0:1"));
+	Assert.assertTrue("::ffff:192.168.1.3", ipMatcher.contains("::ffff:192.168.1.3"));
+	Assert.assertTrue("8.8.8.8", ipMatcher.contains("8.8.8.8"));
+	Assert.assertTrue("localhost", ipMatcher.contains("localhost"));
+	Assert.assertFalse("garbage", ipMatcher.contains("1.2.3"));
+	Assert.assertFalse("null", ipMatcher.contains(null));
+
+	Assert.assertTrue("empty", new IpMatcher(null).isEmpty());
+	Assert.assertTrue("0.0.0.0/0", new IpMatcher(Arrays.asList("0.0.0.0/0")).contains("1.2.3.4"));
+    }
+
+    @Test
+    public void testSameAsIpSubnet() {
+	String[] subnets = { "192.168.1.0/24", "10.0.0.0/8", "1.2.3.4/32",
+		"128.0.0.0/1", "100.64.0.0/255.192.0.0" };
+	String[] ips = { "192.168.1.12", "192.168.0.12", "10.200.3.4",
+		"11.0.0.1", "1.2.3.4", "1.2.3.5", "200.1.1.1", "100.100.1.1",
+		"100.128.1.1" };
+
+	for (String subnet : subnets) {
+	    IpMatcher ipMatcher = new IpMatcher(Arrays.asList(subnet));
+	    for (String ip : ips) {
+		Assert.assertEquals(subnet + " " + ip,
+			new IpSubnet(subnet).contains(ip),
+			ipMatcher.contains(ip));
+	    }
+	}
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSubnet() {
+	new IpMatcher(Arrays.asList("192.168.1.0/33"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonContiguousMask() {
+	new IpMatcher(Arrays.asList("192.168.1.0/255.0.255.0"));
+    }
+
+    public static void main(String[] args) throws Exception {
+	new IpMatcherTest().test();
+	new IpMatcherTest().testSameAsIpSubnet();
+	System.out.println("Done.");
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.commons.json.ListOfStringTransport;
+
+public class ListOfStringTransportTest {
+
+    public static void main(String[] args) throws Exception {
+	ListOfStringTransportTest listOfStringTransportTest = new ListOfStringTransportTest();
+	listOfStringTransportTest.testRoundTrip();
+	listOfStringTransportTest.testLegacyFormat();
+	listOfStringTransportTest.testIterator();
+	listOfStringTransportTest.testInvalid();
+	System.out.println("Done!");
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+	List<String> list = Arrays.asList("", "/my/path/file.txt",
+		"quote\"back\\slash/", "tab\tnew\nline\r\u0000\u001f",
+		"&eacute; \u00e9 \u2028 \ud83d\ude00", null);
+
+	String json = ListOfStringTransport.toJson(list);
+	List<String> result = ListOfStringTransport.fromJson(json);
+
+	Assert.assertEquals(list, result);
+	Assert.assertEquals(ArrayList.class, result.getClass());
+
+	Assert.assertEquals("[]",
+		ListOfStringTransport.toJson(new Vector<String>()));
+	Assert.assertTrue(ListOfStringTransport.fromJson("[]").isEmpty());
+    }
+
+    /**
+     * JSON as written by the json-simple library of previous versions
+     */
+    @Test
+    public void testLegacyFormat() throws Exception {
+	String json = "[\"\\/my\\/path\",\"a\\u0001b\",\"\\u00e9\",null]";
+	List<String> result = ListOfStringTransport.fromJson(json);
+	Assert.assertEquals(
+		Arrays.asList("/my/path", "a\u0001b", "\u00e9", null), result);
+    }
+
+    @Test
+    public void testIterator() throws Exception {
+	List<String> list = new ArrayList<String>();
+	for (int i = 0; i < 10000; i++) {
+	    list.add("/dir/file_" + i + ".txt");
+	}
+
+	String json = ListOfStringTransport.toJson(list);
+
+	Iterator<String> iterator = ListOfStringTransport
+		.iterator(new StringReader(json));
+	int i = 0;
+	while (iterator.hasNext()) {
+	    Assert.assertEquals(list.get(i++), iterator.next());
+	}
+	Assert.assertEquals(list.size(), i);
+	Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+	String[] invalids = { "", "{}", "[\"a\",1]", "[\"a\"", "[\"a\",,]" };
+
+	for (String invalid : invalids) {
+	    try {
+		ListOfStringTransport.fromJson(invalid);
+		Assert.fail("Should have failed: " + invalid);
+	    } catch (IllegalArgumentException e) {
+		// Expected
+	    }
+	}
+    }
+
+}
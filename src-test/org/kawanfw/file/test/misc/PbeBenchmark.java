@@ -0,0 +1,183 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import java.util.List;
+import java.util.Vector;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.PBEParameterSpec;
+
+import org.apache.commons.lang3.StringUtils;
+import org.kawanfw.commons.api.client.SessionParameters;
+import org.kawanfw.commons.client.http.SimpleNameValuePair;
+import org.kawanfw.commons.client.http.SimpleNameValuePairConvertor;
+import org.kawanfw.commons.codec.binary.CodecHex;
+import org.kawanfw.commons.util.convert.Pbe;
+import org.kawanfw.file.test.util.MessageDisplayer;
+import org.kawanfw.file.util.parms.Action;
+import org.kawanfw.file.util.parms.Parameter;
+
+/**
+ * Measures the throughput of encrypted requests: the client encryption of a
+ * 7 parameters request followed by the server decryption of each parameter.
+ * <br>
+ * Compares a key derivation and a new Cipher for each parameter with the
+ * cached keys and per thread ciphers of {@code Pbe}.
+ * 
+ * @author Nicolas de Pomereu
+ *
+ */
+public class PbeBenchmark {
+
+    private static final int ITERATIONS = 20000;
+
+    private static final char[] PASSWORD = "my_encryption_password"
+	    .toCharArray();
+
+    /**
+     * Constructor
+     */
+    public PbeBenchmark() {
+	
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+
+	List<SimpleNameValuePair> requestParams = new Vector<SimpleNameValuePair>();
+	requestParams.add(new SimpleNameValuePair(Parameter.ACTION,
+		Action.FILE_METHOD_ONE_RETURN_ACTION));
+	requestParams.add(new SimpleNameValuePair(Parameter.USERNAME,
+		"username"));
+	requestParams.add(new SimpleNameValuePair(Parameter.TOKEN,
+		"0123456789abcdef0123"));
+	requestParams.add(new SimpleNameValuePair(Parameter.FILENAME,
+		"/my/directory/my_file.txt"));
+	requestParams.add(new SimpleNameValuePair(Parameter.METHOD_NAME,
+		"exists"));
+	requestParams.add(new SimpleNameValuePair(Parameter.PARAMS_TYPES,
+		"[]"));
+	requestParams.add(new SimpleNameValuePair(Parameter.PARAMS_VALUES,
+		"[]"));
+
+	SessionParameters sessionParameters = new SessionParameters();
+	sessionParameters.setEncryptionPassword(PASSWORD);
+
+	// Check that both implementations are compatible
+	String encrypted = uncachedCipher(Cipher.ENCRYPT_MODE, "value");
+	if (!new Pbe().decryptFromHexa(encrypted, PASSWORD).equals("value")) {
+	    throw new IllegalStateException("Pbe must decrypt uncached value!");
+	}
+
+	// Warm up
+	for (int i = 0; i < ITERATIONS / 10; i++) {
+	    uncachedRequest(requestParams);
+	    cachedRequest(requestParams, sessionParameters);
+	}
+
+	long begin = System.nanoTime();
+	for (int i = 0; i < ITERATIONS; i++) {
+	    uncachedRequest(requestParams);
+	}
+	display("Key derivation per parameter", begin);
+
+	begin = System.nanoTime();
+	for (int i = 0; i < ITERATIONS; i++) {
+	    cachedRequest(requestParams, sessionParameters);
+	}
+	display("Cached key & thread Cipher  ", begin);
+    }
+
+    /**
+     * Encrypts & decrypts the request with Pbe, as SimpleNameValuePairConvertor
+     * and HttpServletRequestConvertor do.
+     */
+    private static void cachedRequest(List<SimpleNameValuePair> requestParams,
+	    SessionParameters sessionParameters) throws Exception {
+	List<SimpleNameValuePair> converted = new SimpleNameValuePairConvertor(
+		requestParams, sessionParameters).convert();
+
+	for (SimpleNameValuePair simpleNameValuePair : converted) {
+	    String value = simpleNameValuePair.getValue();
+	    if (value.startsWith(Pbe.KAWANFW_ENCRYPTED)) {
+		new Pbe().decryptFromHexa(
+			StringUtils.substringAfter(value,
+				Pbe.KAWANFW_ENCRYPTED), PASSWORD);
+	    }
+	}
+    }
+
+    /**
+     * Encrypts & decrypts the request with a key derivation and a new Cipher
+     * per parameter.
+     */
+    private static void uncachedRequest(List<SimpleNameValuePair> requestParams)
+	    throws Exception {
+	for (SimpleNameValuePair simpleNameValuePair : requestParams) {
+	    String encrypted = uncachedCipher(Cipher.ENCRYPT_MODE,
+		    simpleNameValuePair.getValue());
+	    uncachedCipher(Cipher.DECRYPT_MODE, encrypted);
+	}
+    }
+
+    /**
+     * The Pbe string cipher without any cache
+     */
+    private static String uncachedCipher(int mode, String in) throws Exception {
+	byte[] salt = { (byte) 0xc7, (byte) 0x73, (byte) 0x21, (byte) 0x8c,
+		(byte) 0x7e, (byte) 0xc8, (byte) 0xee, (byte) 0x99 };
+
+	PBEParameterSpec pbeParamSpec = new PBEParameterSpec(salt, 20);
+	PBEKeySpec pbeKeySpec = new PBEKeySpec(PASSWORD);
+	SecretKeyFactory keyFac = SecretKeyFactory
+		.getInstance("PBEWithMD5AndDES");
+	SecretKey pbeKey = keyFac.generateSecret(pbeKeySpec);
+
+	Cipher pbeCipher = Cipher.getInstance("PBEWithMD5AndDES");
+	pbeCipher.init(mode, pbeKey, pbeParamSpec);
+
+	if (mode == Cipher.ENCRYPT_MODE) {
+	    return new String(CodecHex.encodeHex(pbeCipher.doFinal(in
+		    .getBytes())));
+	} else {
+	    return new String(pbeCipher.doFinal(CodecHex.decodeHex(in
+		    .toCharArray())));
+	}
+    }
+
+    private static void display(String label, long begin) {
+	long nanos = System.nanoTime() - begin;
+	long requestsPerSecond = (ITERATIONS * 1000000000L) / nanos;
+	MessageDisplayer.display(label + ": " + (nanos / ITERATIONS)
+		+ " ns/request, " + requestsPerSecond + " requests/s");
+    }
+
+}
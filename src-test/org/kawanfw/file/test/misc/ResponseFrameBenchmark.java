@@ -0,0 +1,181 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+
+import org.kawanfw.commons.util.ResponseFrame;
+import org.kawanfw.commons.util.StringUtil;
+import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.servlet.util.ResponseWriter;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * Measures a large listing response written and read in the line oriented text
+ * format versus the binary framed format: server side encoding, client side
+ * decoding into a String and client side copy into a file.
+ * 
+ * @author Nicolas de Pomereu
+ *
+ */
+public class ResponseFrameBenchmark {
+
+    private static final int LINES = 1000000;
+    private static final int ROUNDS = 5;
+
+    /** Prevents dead code elimination */
+    private static long sink = 0;
+
+    /**
+     * Constructor
+     */
+    public ResponseFrameBenchmark() {
+	
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+
+	String[] lines = new String[LINES];
+	for (int i = 0; i < LINES; i++) {
+	    lines[i] = "/home/users/mike/documents/2015/report_" + i + ".txt";
+	}
+
+	MessageDisplayer.display("Listing of " + LINES + " lines, best of "
+		+ ROUNDS + " rounds:");
+
+	for (boolean framed : new boolean[] { false, true }) {
+	    String format = framed ? "framed" : "text  ";
+	    long bestWrite = Long.MAX_VALUE;
+	    long bestString = Long.MAX_VALUE;
+	    long bestFile = Long.MAX_VALUE;
+	    byte[] response = null;
+
+	    for (int round = 0; round < ROUNDS; round++) {
+		long begin = System.nanoTime();
+		response = write(lines, framed);
+		bestWrite = Math.min(bestWrite, System.nanoTime() - begin);
+
+		begin = System.nanoTime();
+		sink += readString(response, framed).length();
+		bestString = Math.min(bestString, System.nanoTime() - begin);
+
+		begin = System.nanoTime();
+		copyFile(response, framed);
+		bestFile = Math.min(bestFile, System.nanoTime() - begin);
+	    }
+
+	    MessageDisplayer.display(format + " response size     : "
+		    + response.length + " bytes");
+	    MessageDisplayer.display(format + " server write      : "
+		    + bestWrite / 1000000 + " ms");
+	    MessageDisplayer.display(format + " client into String: "
+		    + bestString / 1000000 + " ms");
+	    MessageDisplayer.display(format + " client into file  : "
+		    + bestFile / 1000000 + " ms");
+	}
+
+	MessageDisplayer.display("(sink: " + sink + ")");
+    }
+
+    private static byte[] write(String[] lines, boolean framed)
+	    throws IOException {
+	ByteArrayOutputStream out = new ByteArrayOutputStream(64 * LINES);
+	ResponseWriter responseWriter = new ResponseWriter(out, framed);
+	ResponseWriter.writeLine(responseWriter, TransferStatus.SEND_OK);
+	for (String line : lines) {
+	    ResponseWriter.writeLine(responseWriter, line);
+	}
+	responseWriter.finish();
+	return out.toByteArray();
+    }
+
+    /**
+     * As in HttpTransferOne.getAndAnalyzeResponse()
+     */
+    private static String readString(byte[] response, boolean framed)
+	    throws IOException {
+	if (framed) {
+	    DataInputStream dataIn = new DataInputStream(
+		    new ByteArrayInputStream(response));
+	    ResponseFrame.readHeader(dataIn);
+	    return ResponseFrame.readRecords(dataIn);
+	}
+
+	BufferedReader reader = new BufferedReader(new InputStreamReader(
+		new ByteArrayInputStream(response)));
+	reader.readLine();
+	StringBuffer sb = new StringBuffer();
+	String line = null;
+	while ((line = reader.readLine()) != null) {
+	    sb.append(line);
+	    sb.append(StringUtil.CR_LF);
+	}
+	return sb.toString();
+    }
+
+    /**
+     * As in HttpTransferOne.getAndAnalyzeResponse(), on a null output stream
+     */
+    private static void copyFile(byte[] response, boolean framed)
+	    throws IOException {
+	OutputStream out = new OutputStream() {
+	    @Override
+	    public void write(int b) {
+		sink++;
+	    }
+
+	    @Override
+	    public void write(byte[] b, int off, int len) {
+		sink += len;
+	    }
+	};
+
+	if (framed) {
+	    DataInputStream dataIn = new DataInputStream(
+		    new ByteArrayInputStream(response));
+	    ResponseFrame.readHeader(dataIn);
+	    ResponseFrame.copyRecords(dataIn, out);
+	    return;
+	}
+
+	BufferedReader reader = new BufferedReader(new InputStreamReader(
+		new ByteArrayInputStream(response)));
+	reader.readLine();
+	String line = null;
+	while ((line = reader.readLine()) != null) {
+	    out.write((line + StringUtil.CR_LF).getBytes());
+	}
+    }
+
+}
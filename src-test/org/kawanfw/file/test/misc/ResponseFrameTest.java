@@ -0,0 +1,208 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kawanfw.commons.util.ResponseFrame;
+import org.kawanfw.commons.util.StringUtil;
+import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.servlet.util.ResponseWriter;
+
+public class ResponseFrameTest {
+
+    private static final List<String> LINES = Arrays.asList("/my/file.txt",
+	    "", null, "[]", "line1" + StringUtil.CR_LF + "line2");
+
+    public static void main(String[] args) throws Exception {
+	ResponseFrameTest responseFrameTest = new ResponseFrameTest();
+	responseFrameTest.testTextUnchanged();
+	responseFrameTest.testFramedAsText();
+	responseFrameTest.testFramedUtf8();
+	responseFrameTest.testLargeResponse();
+	responseFrameTest.testTruncated();
+	System.out.println("Done!");
+    }
+
+    /**
+     * The text format must stay the one of previous versions
+     */
+    @Test
+    public void testTextUnchanged() throws Exception {
+	ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+	legacy.write((TransferStatus.SEND_OK + StringUtil.CR_LF).getBytes());
+	for (String line : LINES) {
+	    legacy.write((line + StringUtil.CR_LF).getBytes());
+	}
+
+	byte[] text = write(false, TransferStatus.SEND_OK);
+	Assert.assertArrayEquals(legacy.toByteArray(), text);
+    }
+
+    /**
+     * A framed response must be decoded as the text response
+     */
+    @Test
+    public void testFramedAsText() throws Exception {
+	for (String status : new String[] { TransferStatus.SEND_OK,
+		TransferStatus.SEND_FAILED }) {
+	    byte[] text = write(false, status);
+	    byte[] framed = write(true, status);
+
+	    Assert.assertTrue(ResponseFrame.isFramed(framed[0]));
+	    Assert.assertFalse(ResponseFrame.isFramed(text[0]));
+
+	    BufferedReader reader = new BufferedReader(new InputStreamReader(
+		    new ByteArrayInputStream(text)));
+	    String textStatus = reader.readLine();
+	    StringBuilder textBody = new StringBuilder();
+	    ByteArrayOutputStream textFile = new ByteArrayOutputStream();
+	    String line = null;
+	    while ((line = reader.readLine()) != null) {
+		textBody.append(line).append(StringUtil.CR_LF);
+		textFile.write((line + StringUtil.CR_LF).getBytes());
+	    }
+
+	    DataInputStream dataIn = new DataInputStream(
+		    new ByteArrayInputStream(framed));
+	    Assert.assertEquals(textStatus, ResponseFrame.readHeader(dataIn));
+	    Assert.assertEquals(textBody.toString(),
+		    ResponseFrame.readRecords(dataIn));
+	    Assert.assertEquals(-1, dataIn.read());
+
+	    dataIn = new DataInputStream(new ByteArrayInputStream(framed));
+	    ResponseFrame.readHeader(dataIn);
+	    ByteArrayOutputStream framedFile = new ByteArrayOutputStream();
+	    ResponseFrame.copyRecords(dataIn, framedFile);
+	    Assert.assertArrayEquals(textFile.toByteArray(),
+		    framedFile.toByteArray());
+	}
+    }
+
+    /**
+     * Framed records are UTF-8, whatever the platform charset
+     */
+    @Test
+    public void testFramedUtf8() throws Exception {
+	String line = "caf\u00e9 \u03b1\u03b2 \ud83d\ude00";
+
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	ResponseWriter responseWriter = new ResponseWriter(out, true);
+	responseWriter.writeLine(TransferStatus.SEND_OK);
+	responseWriter.writeLine(line);
+	responseWriter.finish();
+
+	DataInputStream dataIn = new DataInputStream(new ByteArrayInputStream(
+		out.toByteArray()));
+	ResponseFrame.readHeader(dataIn);
+	Assert.assertEquals(line + StringUtil.CR_LF,
+		ResponseFrame.readRecords(dataIn));
+    }
+
+    /**
+     * Lines across buffer boundaries, lines larger than the buffer and
+     * non-ASCII chars must be written as before
+     */
+    @Test
+    public void testLargeResponse() throws Exception {
+	StringBuilder large = new StringBuilder();
+	while (large.length() < 3 * ResponseWriter.BUFFER_SIZE) {
+	    large.append("/dir/\u00e9t\u00e9/\ud83d\ude00/\ud83d");
+	}
+
+	ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+	ByteArrayOutputStream text = new ByteArrayOutputStream();
+	ByteArrayOutputStream framed = new ByteArrayOutputStream();
+	ResponseWriter textWriter = new ResponseWriter(text, false);
+	ResponseWriter framedWriter = new ResponseWriter(framed, true);
+
+	StringBuilder expected = new StringBuilder();
+	for (int i = 0; i < 100000; i++) {
+	    String line = (i % 1000 == 0) ? large.toString() : "/dir/file_"
+		    + i + "_\u00e9.txt";
+	    if (i == 0) {
+		line = TransferStatus.SEND_OK;
+	    } else {
+		// Lone surrogates are replaced, as by String.getBytes()
+		expected.append(
+			new String(line.getBytes(ResponseFrame.UTF_8),
+				ResponseFrame.UTF_8)).append(StringUtil.CR_LF);
+	    }
+
+	    legacy.write((line + StringUtil.CR_LF).getBytes());
+	    textWriter.writeLine(line);
+	    framedWriter.writeLine(line);
+	}
+	textWriter.finish();
+	framedWriter.finish();
+
+	Assert.assertArrayEquals(legacy.toByteArray(), text.toByteArray());
+
+	DataInputStream dataIn = new DataInputStream(new ByteArrayInputStream(
+		framed.toByteArray()));
+	Assert.assertEquals(TransferStatus.SEND_OK,
+		ResponseFrame.readHeader(dataIn));
+	Assert.assertEquals(expected.toString(),
+		ResponseFrame.readRecords(dataIn));
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+	byte[] framed = write(true, TransferStatus.SEND_OK);
+	byte[] truncated = Arrays.copyOf(framed, framed.length - 4);
+
+	DataInputStream dataIn = new DataInputStream(new ByteArrayInputStream(
+		truncated));
+	ResponseFrame.readHeader(dataIn);
+	try {
+	    ResponseFrame.readRecords(dataIn);
+	    Assert.fail("Truncated response not detected.");
+	} catch (EOFException e) {
+	    // Expected
+	}
+    }
+
+    private static byte[] write(boolean framed, String status)
+	    throws IOException {
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	ResponseWriter responseWriter = new ResponseWriter(out, framed);
+	ResponseWriter.writeLine(responseWriter, status);
+	for (String line : LINES) {
+	    ResponseWriter.writeLine(responseWriter, line);
+	}
+	responseWriter.finish();
+	return out.toByteArray();
+    }
+}
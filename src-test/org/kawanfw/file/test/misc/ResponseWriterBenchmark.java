@@ -0,0 +1,142 @@
+/*
+ * This file is part of Awake FILE. 
+ * Awake file: Easy file upload & download over HTTP with Java.                                    
+ * Copyright (C) 2015,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.                                
+ *                                                                               
+ * Awake FILE is free software; you can redistribute it and/or                 
+ * modify it under the terms of the GNU Lesser General Public                    
+ * License as published by the Free Software Foundation; either                  
+ * version 2.1 of the License, or (at your option) any later version.            
+ *                                                                               
+ * Awake FILE is distributed in the hope that it will be useful,               
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of                
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU             
+ * Lesser General Public License for more details.                               
+ *                                                                               
+ * You should have received a copy of the GNU Lesser General Public              
+ * License along with this library; if not, write to the Free Software           
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  
+ * 02110-1301  USA
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ */
+package org.kawanfw.file.test.misc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import org.kawanfw.commons.util.StringUtil;
+import org.kawanfw.commons.util.TransferStatus;
+import org.kawanfw.file.servlet.util.ResponseWriter;
+import org.kawanfw.file.test.util.MessageDisplayer;
+
+/**
+ * Measures the time and the heap allocated to write a large listing response:
+ * the {@code out.write((s + CR_LF).getBytes())} of previous versions versus
+ * the pooled buffer {@code ResponseWriter}, in text and framed formats. <br>
+ * The allocated bytes are read from the HotSpot thread allocation counter.
+ * 
+ * @author Nicolas de Pomereu
+ *
+ */
+public class ResponseWriterBenchmark {
+
+    private static final int LINES = 1000000;
+    private static final int ROUNDS = 5;
+
+    /** Prevents dead code elimination */
+    private static long sink = 0;
+
+    /** The servlet output stream, with its own buffering */
+    private static OutputStream servletOut = new OutputStream() {
+	@Override
+	public void write(int b) {
+	    sink++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+	    sink += len;
+	}
+    };
+
+    /**
+     * Constructor
+     */
+    public ResponseWriterBenchmark() {
+	
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+
+	String[] lines = new String[LINES];
+	for (int i = 0; i < LINES; i++) {
+	    lines[i] = "/home/users/mike/documents/2015/report_" + i + ".txt";
+	}
+
+	MessageDisplayer.display("Listing of " + LINES + " lines, best of "
+		+ ROUNDS + " rounds:");
+
+	String[] labels = { "legacy writeLine     ", "ResponseWriter text  ",
+		"ResponseWriter framed" };
+
+	for (int mode = 0; mode < labels.length; mode++) {
+	    long bestNanos = Long.MAX_VALUE;
+	    long bestBytes = Long.MAX_VALUE;
+
+	    for (int round = 0; round < ROUNDS; round++) {
+		long allocatedBefore = getAllocatedBytes();
+		long begin = System.nanoTime();
+		write(lines, mode);
+		bestNanos = Math.min(bestNanos, System.nanoTime() - begin);
+		bestBytes = Math.min(bestBytes, getAllocatedBytes()
+			- allocatedBefore);
+	    }
+
+	    MessageDisplayer.display(labels[mode] + ": " + bestNanos
+		    / 1000000 + " ms, " + (bestBytes / 1024) + " KB allocated, "
+		    + (bestBytes / LINES) + " bytes/line");
+	}
+
+	MessageDisplayer.display("(sink: " + sink + ")");
+    }
+
+    private static void write(String[] lines, int mode) throws IOException {
+	if (mode == 0) {
+	    servletOut.write((TransferStatus.SEND_OK + StringUtil.CR_LF)
+		    .getBytes());
+	    for (String line : lines) {
+		servletOut.write((line + StringUtil.CR_LF).getBytes());
+	    }
+	    return;
+	}
+
+	ResponseWriter responseWriter = new ResponseWriter(servletOut,
+		mode == 2);
+	responseWriter.writeLine(TransferStatus.SEND_OK);
+	for (String line : lines) {
+	    responseWriter.writeLine(line);
+	}
+	responseWriter.finish();
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread, -1 if the JVM does
+     * not support it
+     */
+    private static long getAllocatedBytes() {
+	java.lang.management.ThreadMXBean threadMXBean = ManagementFactory
+		.getThreadMXBean();
+	if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+	    return ((com.sun.management.ThreadMXBean) threadMXBean)
+		    .getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	return -1;
+    }
+}
@@ -33,12 +33,22 @@ import org.apache.commons.lang3.SystemUtils;
 import org.kawanfw.commons.api.client.SessionParameters;
 import org.kawanfw.commons.util.FrameworkSystemUtil;
 import org.kawanfw.file.api.client.RemoteSession;
+import org.kawanfw.file.test.api.client.nio.ArchiveTestNio;
+import org.kawanfw.file.test.api.client.nio.CallJobTestNio;
 import org.kawanfw.file.test.api.client.nio.CallTestNio;
+import org.kawanfw.file.test.api.client.nio.CopyTestNio;
 import org.kawanfw.file.test.api.client.nio.DeleteAllNio;
+import org.kawanfw.file.test.api.client.nio.DeleteTreeTestNio;
+import org.kawanfw.file.test.api.client.nio.DiskUsageTestNio;
 import org.kawanfw.file.test.api.client.nio.DownloadFilesNio;
+import org.kawanfw.file.test.api.client.nio.FilterSpecTestNio;
+import org.kawanfw.file.test.api.client.nio.FindTestNio;
+import org.kawanfw.file.test.api.client.nio.ListFilesIteratorNio;
 import org.kawanfw.file.test.api.client.nio.MkdirsRemoteNio;
 import org.kawanfw.file.test.api.client.nio.RenameFilesNio;
+import org.kawanfw.file.test.api.client.nio.SessionTicketTestNio;
 import org.kawanfw.file.test.api.client.nio.UploadFilesNio;
+import org.kawanfw.file.test.api.client.nio.WalkTestNio;
 import org.kawanfw.file.test.api.client.nio.engines.EngineDownloadBigFilesNew;
 import org.kawanfw.file.test.api.client.nio.engines.EngineUploadBigFilesNew;
 import org.kawanfw.file.test.parms.FileGenerator;
@@ -74,12 +84,22 @@ public class TestRunnerConsoleNio {
 	
 	new DeleteAllNio().test(remoteSession);
 	new CallTestNio().test(remoteSession);
+	new CallJobTestNio().test(remoteSession);
+	new SessionTicketTestNio().test(remoteSession);
 	
 	new MkdirsRemoteNio().test(remoteSession);
 		
 	new UploadFilesNio().test(remoteSession);
 	new DownloadFilesNio().test(remoteSession);
 	new RenameFilesNio().test(remoteSession);
+	new ListFilesIteratorNio().test(remoteSession);
+	new WalkTestNio().test(remoteSession);
+	new FilterSpecTestNio().test(remoteSession);
+	new FindTestNio().test(remoteSession);
+	new DiskUsageTestNio().test(remoteSession);
+	new CopyTestNio().test(remoteSession);
+	new DeleteTreeTestNio().test(remoteSession);
+	new ArchiveTestNio().test(remoteSession);
 
 	// Filters
 	new BuiltInFilterTest().test(remoteSession);